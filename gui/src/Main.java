@@ -1,9 +1,20 @@
 import gui.GUI;
+import models.PipelineJob;
 
 import java.awt.*;
+import java.io.File;
 
 public class Main {
     public static void main(String[] args) {
+        // Headless: run a job spec without UI (no AWT), e.g. --headless job.json
+        if (args.length > 0 && args[0].equals(PipelineJob.HEADLESS_OPTION)) {
+            if (args.length != 2) {
+                System.err.println("[!] Usage: " + PipelineJob.HEADLESS_OPTION + " <job spec File>");
+                System.exit(PipelineJob.EXIT_CODE_INVALID);
+            }
+            System.exit(PipelineJob.runHeadless(new File(args[1])));
+        }
+
         EventQueue.invokeLater(GUI::new);
     }
-}
\ No newline at end of file
+}
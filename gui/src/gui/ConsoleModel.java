@@ -0,0 +1,120 @@
+package gui;
+
+import models.OutputPipeline;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Console Model
+ * @responsibility Keep the last lineCapacity lines of output in a console JTextArea.
+ * @feature Output from any Thread is queued in the OutputPipeline, and applied on EDT once per flush interval as
+ * a delta: new text is inserted at the end, overflowed lines are removed from the head
+ * (line lengths kept in a ring buffer).
+ */
+public class ConsoleModel {
+
+    private final JTextArea consoleArea;
+    private final int[] lineLengths; // ring buffer of complete line lengths (including '\n'), oldest at head
+    private final OutputPipeline outputPipeline;
+    private final Timer flushTimer;
+
+    private int head;
+    private int lineCount;
+    private int openLineLength; // length of the last line, not yet ended by '\n'
+
+    /**
+     * Create a ConsoleModel & start flushing into the consoleArea.
+     * @param consoleArea the JTextArea to display output.
+     * @param lineCapacity max count of complete lines kept, at least 1.
+     * @param flushInterval interval between applying batched appends (ms).
+     */
+    public ConsoleModel(JTextArea consoleArea, int lineCapacity, int flushInterval) {
+        this.consoleArea = consoleArea;
+        this.lineLengths = new int[Math.max(lineCapacity, 1)];
+        this.outputPipeline = OutputPipeline.getOutputPipeline();
+        this.outputPipeline.setConsumed(true);
+        this.flushTimer = new Timer(flushInterval, e -> flush());
+        this.flushTimer.start();
+    }
+
+    /**
+     * Append output to the console, displayed on the next flush. (thread-safe)
+     * @param output the text to be displayed.
+     */
+    public void append(String output) {
+        outputPipeline.offer(output);
+    }
+
+    /**
+     * Clear the console. (on EDT)
+     */
+    public void clear() {
+        outputPipeline.drain();
+        consoleArea.setText("");
+        head = 0;
+        lineCount = 0;
+        openLineLength = 0;
+    }
+
+    /**
+     * Apply all pending output to the console document. (on EDT)
+     */
+    void flush() {
+        String output = outputPipeline.drain();
+        if (output.isEmpty()) {
+            return;
+        }
+
+        Document document = consoleArea.getDocument();
+        try {
+            document.insertString(document.getLength(), output, null);
+
+            // count complete lines, drop the overflowed ones
+            int removedLength = 0;
+            for (int i = 0; i < output.length(); i++) {
+                openLineLength++;
+                if (output.charAt(i) == '\n') {
+                    removedLength += pushLine(openLineLength);
+                    openLineLength = 0;
+                }
+            }
+            if (removedLength > 0) {
+                document.remove(0, removedLength);
+            }
+        } catch (BadLocationException e) { // document changed elsewhere, restart from it
+            System.err.println("[WARNING] Console out of sync: " + e.getMessage());
+            clear();
+            return;
+        }
+
+        // console auto scroll to bottom
+        consoleArea.setCaretPosition(document.getLength());
+    }
+
+    /**
+     * Push the length of a complete line into the ring buffer.
+     * @param length length of the line (including '\n').
+     * @return length of the overflowed oldest line to be removed, 0 if none.
+     */
+    private int pushLine(int length) {
+        if (lineCount == lineLengths.length) {
+            int removedLength = lineLengths[head];
+            lineLengths[head] = length;
+            head = (head + 1) % lineLengths.length;
+            return removedLength;
+        }
+        lineLengths[(head + lineCount) % lineLengths.length] = length;
+        lineCount++;
+        return 0;
+    }
+
+    /**
+     * Stop flushing & detach from the OutputPipeline, pending output is discarded.
+     */
+    public void dispose() {
+        flushTimer.stop();
+        outputPipeline.setConsumed(false);
+    }
+}
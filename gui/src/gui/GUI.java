@@ -1,11 +1,23 @@
 package gui;
 
+import models.ConfigService;
 import models.ExecutionAgent;
 import models.FileUsage;
 import models.InstructionType;
+import models.LiveConversion;
+import models.MetricsRegistry;
+import models.OutputPipeline;
+import models.PipelineService;
 import models.RemoteAgent;
+import models.ServerPool;
+import models.SliceCache;
+import models.StreamingInference;
+import models.TaskJournal;
+import models.TrainingThroughput;
 import org.json.JSONObject;
 
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
 import javax.swing.*;
 import javax.swing.event.ChangeListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -17,35 +29,29 @@ import java.io.*;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.util.List;
 import java.util.*;
+import java.util.function.Consumer;
 
+import static models.ConfigService.TRAINING_CONFIG_LOG;
 import static models.ExecutionAgent.*;
+import static models.PipelineService.*;
+import static models.SliceCache.SLICE_CACHE_DIR_DEFAULT;
+import static models.SliceCache.SLICE_CACHE_SIZE_MAX_DEFAULT;
+import static models.TaskJournal.TASK_JOURNAL_FILE_DEFAULT;
 
 public class GUI extends JFrame {
 
     private static final String PROGRAM_TITLE = "SoftVC VITS Singing Voice Conversion GUI";
-    public static final Charset CHARSET_DISPLAY_DEFAULT = StandardCharsets.UTF_8;
+    public static final Charset CHARSET_DISPLAY_DEFAULT = OutputPipeline.CHARSET_DISPLAY_DEFAULT;
     protected static final String ICON_PATH = ".\\gui\\data\\img\\GUI-Icon.png";
-    private static final File SLICING_OUT_DIR_DEFAULT = new File(SO_VITS_SVC_DIR + "\\dataset_raw");
-    private static final File PREPROCESS_OUT_DIR_DEFAULT = new File(SO_VITS_SVC_DIR + "\\dataset\\44k");
-    private static final File INFERENCE_INPUT_DIR_DEFAULT = new File(SO_VITS_SVC_DIR + "\\raw");
-    private static final File TRAINING_LOG_DIR_DEFAULT = new File(SO_VITS_SVC_DIR + "\\logs\\44k");
-    private static final File TRAINING_CONFIG = new File(SO_VITS_SVC_DIR + "\\configs\\config.json");
-    private static final File TRAINING_CONFIG_LOG = new File(TRAINING_LOG_DIR_DEFAULT + "\\config.json");
-    private static final File RESULTS_DIR = new File(".\\results");
-    private static final int JSON_STR_INDENT_FACTOR = 2;
-    private static final int SLICING_MIN_INTERVAL_DEFAULT = 100; // ms
-    private static final String AUDIO_FILE_OUT_FORMAT = "wav";
+    private static final String METRICS_FILE_NAME_DEFAULT = "metrics.prom";
     private static final String[] AUDIO_FILE_EXTENSIONS_ACCEPTED = {"wav"};
     private static final String AUDIO_FILE_EXTENSIONS_DESCRIPTION = "Wave File(s)(*.wav)";
-    private static final String SPEAKER_NAME_DEFAULT = "default-speaker";
     private static final int CONSOLE_LINE_COUNT_MAX = 512;
-    private static final String SPEECH_ENCODER_DEFAULT = "vec768l12";
+    private static final int CONSOLE_FLUSH_INTERVAL = 33; // ms, ~ one frame at 30 fps
+    private static final int LIVE_STATUS_INTERVAL = 5000; // ms, between Live Conversion status lines
     private static final String[] SPEECH_ENCODERS = {
             "vec768l12",
             "vec256l9",
@@ -56,8 +62,6 @@ public class GUI extends JFrame {
             "whisper-ppg-large",
             "wavlmbase+"
     };
-    private static final String F0_PREDICTOR_PREPROCESS_DEFAULT = "rmvpe";
-    private static final String F0_PREDICTOR_INFER_DEFAULT = "pm";
     private static final String[] F0_PREDICTORS = {
             "crepe",
             "dio",
@@ -74,16 +78,12 @@ public class GUI extends JFrame {
         JSpinner minOneSpinner = (JSpinner) e.getSource();
         minOneSpinner.setValue(Math.max((Integer) minOneSpinner.getValue(), 1));
     };
-    private static final int GPU_ID_DEFAULT = 0;
     private static final int BATCH_SIZE_DEFAULT = 4;
     private static final int LOG_INTERVAL_DEFAULT = 50;
     private static final int EVAL_INTERVAL_DEFAULT = 200;
     private static final int KEEP_LAST_N_MODEL_DEFAULT = 1;
     private static final String TRAINING_BTN_TEXT = "Start Training";
     private static final String INFERENCE_BTN_TEXT = "Start Inference";
-    private static final String REGEX_TRAINED_MODEL_NAME = "^G_[1-9]\\d*\\.pth$";
-    private static final float CLIP_INFER_DEFAULT = 0;
-    private static final int PITCH_SHIFT_INFER_DEFAULT = 0;
 
 
     private JPanel mainPanel;
@@ -130,16 +130,40 @@ public class GUI extends JFrame {
     private JSpinner gpuIdSpinnerInfer;
     private ButtonGroup floatPrecisionGroup;
     private JMenuItem connectItm;
+    private JMenuItem connectPoolItm;
     private JMenuItem disconnectItm;
+    private JCheckBoxMenuItem compressTransfersItm;
+    private JCheckBoxMenuItem streamingInferenceItm;
+    private JCheckBoxMenuItem liveConversionItm;
     private JMenuBar menuBar;
     private JMenu remoteMenu;
+    private JMenu settingsMenu;
+    private JMenuItem maxConcurrentTasksItm;
+    private JCheckBoxMenuItem pythonWorkerItm;
+    private JCheckBoxMenuItem javaResamplerItm;
+    private JMenuItem inferenceGpusItm;
+    private JMenuItem trainingGpusItm;
+    private JMenu metricsMenu;
+    private JMenuItem showMetricsItm;
+    private JMenuItem exportMetricsItm;
+    private JMenuItem resetMetricsItm;
     private JMenu currentConnection;
 
     private final ExecutionAgent executionAgent;
+    private final ConfigService configService;
+    private final PipelineService pipelineService;
+    private final SliceCache sliceCache = new SliceCache(SLICE_CACHE_DIR_DEFAULT, SLICE_CACHE_SIZE_MAX_DEFAULT);
+    private ConsoleModel consoleModel;
 
     private File[] voiceAudioFiles;
     private File[] vocalAudioFiles;
+    private int[] inferenceGpuIds = new int[0]; // empty -> the GPU ID of the Inference area only
+    private int[] trainingGpuIds = new int[0]; // empty -> the GPU ID of the Training area only
     protected static RemoteAgent remoteAgent;
+    private static ServerPool serverPool; // NOT NULL -> Inference farmed out to its Servers (remoteAgent: the 1st)
+    private volatile StreamingInference streamingInference; // NOT NULL -> Streaming Inference running
+    private LiveConversion liveConversion; // NOT NULL -> Live Conversion running
+    private javax.swing.Timer liveStatusTimer;
 
     public GUI() {
 
@@ -158,16 +182,32 @@ public class GUI extends JFrame {
 
         /* Field Assignments */
         executionAgent = getExecutionAgent();
+        configService = ConfigService.getConfigService();
+        pipelineService = new PipelineService(executionAgent, configService, sliceCache, (stage, completed, total) -> {
+            if (stage.equals(STAGE_INFER)) {
+                RemoteAgent.updateCountProgress(totalVocalFilesTransProgress, completed, total);
+            }
+        });
 
         /* Components */
         createUIComponents();
         setContentPane(mainPanel);
 
-        // Kill all sub-processes & Disconnect from Server on Frame closing
+        // Resume the Tasks left unfinished by the last session
+        resumeUnfinishedTasks();
+
+        // Kill all sub-processes (left unfinished in the Task Journal), Stop Python Workers & Disconnect from Server
+        // on Frame closing
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
+                executionAgent.closeTaskJournal();
+                stopLiveConversion();
+                if (vocalAudioFiles != null && inferenceBtn.getText().equals(INFERENCE_BTN_TEXT)) { // not inferred
+                    Arrays.stream(vocalAudioFiles).forEach(File::delete);
+                }
                 executionAgent.cancelAllTasks();
+                executionAgent.shutdownPythonWorkers();
                 if (remoteAgent != null) {
                     remoteAgent.close();
                 }
@@ -190,6 +230,8 @@ public class GUI extends JFrame {
         menuBar = new JMenuBar();
 
         remoteMenu = new JMenu("Remote");
+        settingsMenu = new JMenu("Settings");
+        metricsMenu = new JMenu("Metrics");
         currentConnection = new JMenu("@localhost");
 
         /* Remote */
@@ -224,7 +266,12 @@ public class GUI extends JFrame {
                         return;
                     }
                     System.out.println("[INFO] Connecting...");
-                    remoteAgent = new RemoteAgent(address);
+                    RemoteAgent agent = new RemoteAgent(address);
+                    if (remoteAgent != null) {
+                        resetDisconnectedState();
+                    }
+                    remoteAgent = agent;
+                    remoteAgent.setCompressionEnabled(compressTransfersItm.isSelected());
                     disconnectItm.setEnabled(true);
                     currentConnection.setText("@[" + remoteAgent.getInetAddress() + "]:" + remoteAgent.getPort());
                     System.out.println("[INFO] Connection Established.");
@@ -241,24 +288,243 @@ public class GUI extends JFrame {
             }, "Connect").start();
         });
 
+        // Connect to Pool
+        connectPoolItm = new JMenuItem("Connect to Pool...", KeyEvent.VK_P);
+        connectPoolItm.setToolTipText("Farm Inference out to several Servers, least-loaded first");
+        connectPoolItm.addActionListener((e) -> {
+            // each "IP,Port" -> one Server
+            String[] endpoints;
+            try {
+                endpoints = JOptionPane.showInputDialog(
+                        this,
+                        "Connect to Servers <IP,Port; IP,Port; ...>:",
+                        "Connect to Pool...",
+                        JOptionPane.QUESTION_MESSAGE
+                ).trim().split(";");
+            } catch (NullPointerException ex) { // User canceled input
+                return;
+            }
+
+            // Connect to every Server
+            new Thread(() -> {
+                connectItm.setEnabled(false);
+                connectPoolItm.setEnabled(false);
+
+                List<RemoteAgent> agents = new ArrayList<>();
+                try {
+                    for (String endpoint : endpoints) {
+                        String[] ip_port = endpoint.trim().split(",", 2);
+                        InetSocketAddress address = new InetSocketAddress(ip_port[0].trim(),
+                                Integer.parseInt(ip_port[1].trim()));
+                        if (address.isUnresolved()) {
+                            System.err.println("[ERROR] Cannot Resolve Hostname: \"" + ip_port[0] + "\"");
+                            agents.forEach(RemoteAgent::close);
+                            return;
+                        }
+                        System.out.println("[INFO] Connecting to " + endpoint.trim() + "...");
+                        RemoteAgent agent = new RemoteAgent(address);
+                        agent.setCompressionEnabled(compressTransfersItm.isSelected());
+                        agents.add(agent);
+                    }
+                    if (remoteAgent != null) {
+                        resetDisconnectedState();
+                    }
+                    serverPool = new ServerPool(agents);
+                    remoteAgent = agents.get(0);
+                    disconnectItm.setEnabled(true);
+                    currentConnection.setText("@Pool of " + agents.size());
+                    System.out.println("[INFO] Connection Established to " + agents.size() + " Server(s).");
+                } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException ex) { // Invalid input
+                    agents.forEach(RemoteAgent::close);
+                    System.err.println("[!] <IP,Port; IP,Port; ...> addresses invalid.");
+                } catch (IOException ex) {
+                    agents.forEach(RemoteAgent::close);
+                    System.err.println("[ERROR] " + ex.getMessage());
+                } finally {
+                    connectItm.setEnabled(true);
+                    connectPoolItm.setEnabled(true);
+                }
+            }, "Connect").start();
+        });
+
         // Disconnect
         disconnectItm.setEnabled(false);
         disconnectItm.addActionListener((e) -> {
-            remoteAgent.close();
             resetDisconnectedState();
             System.out.println("[INFO] Disconnected from the server.");
         });
 
+        // Compress Transfers
+        compressTransfersItm = new JCheckBoxMenuItem("Compress Transfers", true);
+        compressTransfersItm.setMnemonic(KeyEvent.VK_T);
+        compressTransfersItm.setToolTipText("Compress audio uploads & results losslessly, if the Server supports it");
+        compressTransfersItm.addActionListener((e) -> {
+            if (serverPool != null) {
+                serverPool.getAgents().forEach((agent) ->
+                        agent.setCompressionEnabled(compressTransfersItm.isSelected()));
+            } else if (remoteAgent != null) {
+                remoteAgent.setCompressionEnabled(compressTransfersItm.isSelected());
+            }
+            System.out.println("[INFO] Compress Transfers: " + (compressTransfersItm.isSelected() ? "ON" : "OFF"));
+        });
+
+        // Streaming Inference
+        streamingInferenceItm = new JCheckBoxMenuItem("Streaming Inference");
+        streamingInferenceItm.setMnemonic(KeyEvent.VK_S);
+        streamingInferenceItm.setToolTipText("Infer long vocals on the Server in overlapping segments, " +
+                "results come in while the rest is processed");
+        streamingInferenceItm.addActionListener((e) -> System.out.println("[INFO] Streaming Inference: " +
+                (streamingInferenceItm.isSelected() ? "ON" : "OFF")));
+
+        // Live Conversion
+        liveConversionItm = new JCheckBoxMenuItem("Live Conversion");
+        liveConversionItm.setMnemonic(KeyEvent.VK_L);
+        liveConversionItm.setToolTipText("Convert the microphone near-live on the Server, played to the speakers");
+        liveConversionItm.addActionListener((e) -> {
+            if (liveConversionItm.isSelected()) {
+                startLiveConversion();
+            } else {
+                stopLiveConversion();
+            }
+        });
+
         remoteMenu.setMnemonic(KeyEvent.VK_R);
         remoteMenu.add(connectItm);
+        remoteMenu.add(connectPoolItm);
         remoteMenu.add(disconnectItm);
+        remoteMenu.add(compressTransfersItm);
+        remoteMenu.add(streamingInferenceItm);
+        remoteMenu.add(liveConversionItm);
         /* End Remote */
 
+        /* Settings */
+        // Max Concurrent Tasks
+        maxConcurrentTasksItm = new JMenuItem("Max Concurrent Tasks...", KeyEvent.VK_M);
+        maxConcurrentTasksItm.addActionListener((e) -> {
+            String maxConcurrentTasks = (String) JOptionPane.showInputDialog(
+                    this,
+                    "Max count of Tasks running at the same time:",
+                    "Max Concurrent Tasks",
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    null,
+                    executionAgent.getMaxConcurrentTasks()
+            );
+            // if user canceled the input dialog
+            if (maxConcurrentTasks == null) {
+                return;
+            }
+            try {
+                executionAgent.setMaxConcurrentTasks(Integer.parseInt(maxConcurrentTasks.trim()));
+                System.out.println("[INFO] Max Concurrent Tasks: " + executionAgent.getMaxConcurrentTasks());
+            } catch (NumberFormatException ex) { // Invalid input
+                System.err.println("[!] Max Concurrent Tasks should be a positive Integer.");
+            }
+        });
+
+        // Persistent Python Worker
+        pythonWorkerItm = new JCheckBoxMenuItem("Persistent Python Worker");
+        pythonWorkerItm.setMnemonic(KeyEvent.VK_P);
+        pythonWorkerItm.setToolTipText("Keep a warm Python process per GPU for inference, the loaded model is reused");
+        pythonWorkerItm.addActionListener((e) -> {
+            executionAgent.setPythonWorkerEnabled(pythonWorkerItm.isSelected());
+            System.out.println("[INFO] Persistent Python Worker: " + (pythonWorkerItm.isSelected() ? "ON" : "OFF"));
+        });
+
+        // Java Resampler
+        javaResamplerItm = new JCheckBoxMenuItem("Java Resampler");
+        javaResamplerItm.setMnemonic(KeyEvent.VK_J);
+        javaResamplerItm.setToolTipText("Resample in-process & in parallel when Preprocessing, instead of resample.py");
+        javaResamplerItm.addActionListener((e) ->
+                System.out.println("[INFO] Java Resampler: " + (javaResamplerItm.isSelected() ? "ON" : "OFF")));
+
+        // Inference GPUs
+        inferenceGpusItm = new JMenuItem("Inference GPUs...", KeyEvent.VK_I);
+        inferenceGpusItm.setToolTipText("Shard local Inference over several GPUs, one process per GPU");
+        inferenceGpusItm.addActionListener((e) -> {
+            int[] gpuIds = showGpuIdsDialog("Inference GPUs",
+                    "GPU IDs to shard Inference over, comma-separated (empty -> GPU ID of Inference only):",
+                    inferenceGpuIds);
+            if (gpuIds != null) {
+                inferenceGpuIds = gpuIds;
+                System.out.println("[INFO] Inference GPUs: " + (inferenceGpuIds.length == 0 ?
+                        "GPU ID of Inference" : Arrays.toString(inferenceGpuIds)));
+            }
+        });
+
+        // Training GPUs
+        trainingGpusItm = new JMenuItem("Training GPUs...", KeyEvent.VK_T);
+        trainingGpusItm.setToolTipText("Train distributed over several GPUs, batch size is per GPU");
+        trainingGpusItm.addActionListener((e) -> {
+            int[] gpuIds = showGpuIdsDialog("Training GPUs",
+                    "GPU IDs to train distributed over, comma-separated (empty -> GPU ID of Training only):",
+                    trainingGpuIds);
+            if (gpuIds != null) {
+                trainingGpuIds = gpuIds;
+                System.out.println("[INFO] Training GPUs: " + (trainingGpuIds.length == 0 ?
+                        "GPU ID of Training" : Arrays.toString(trainingGpuIds)));
+            }
+        });
+
+        settingsMenu.setMnemonic(KeyEvent.VK_S);
+        settingsMenu.add(maxConcurrentTasksItm);
+        settingsMenu.add(pythonWorkerItm);
+        settingsMenu.add(javaResamplerItm);
+        settingsMenu.add(inferenceGpusItm);
+        settingsMenu.add(trainingGpusItm);
+        /* End Settings */
+
+        /* Metrics */
+        // Show Metrics
+        showMetricsItm = new JMenuItem("Show Metrics", KeyEvent.VK_S);
+        showMetricsItm.addActionListener((e) -> new MonitorForMetrics());
+
+        // Export Metrics
+        exportMetricsItm = new JMenuItem("Export Metrics...", KeyEvent.VK_E);
+        exportMetricsItm.addActionListener((e) -> {
+            JFileChooser metricsFileChooser = new JFileChooser();
+            metricsFileChooser.setAcceptAllFileFilterUsed(false);
+            metricsFileChooser.addChoosableFileFilter(new FileNameExtensionFilter("Prometheus Text (*.prom)", "prom"));
+            metricsFileChooser.addChoosableFileFilter(new FileNameExtensionFilter("JSON (*.json)", "json"));
+            metricsFileChooser.setSelectedFile(new File(METRICS_FILE_NAME_DEFAULT));
+            if (metricsFileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+
+            // append the extension of the chosen format if absent
+            File metricsFile = metricsFileChooser.getSelectedFile();
+            String extension = ((FileNameExtensionFilter) metricsFileChooser.getFileFilter()).getExtensions()[0];
+            if (!metricsFile.getName().toLowerCase().endsWith("." + extension)) {
+                metricsFile = new File(metricsFile.getParentFile(), metricsFile.getName() + "." + extension);
+            }
+            try {
+                MetricsRegistry.getMetricsRegistry().exportTo(metricsFile);
+                System.out.println("[INFO] Metrics Exported: \"" + metricsFile + "\"");
+            } catch (IOException ex) {
+                System.err.println("[ERROR] Failed to Export Metrics: " + ex.getMessage());
+            }
+        });
+
+        // Reset Metrics
+        resetMetricsItm = new JMenuItem("Reset Metrics", KeyEvent.VK_R);
+        resetMetricsItm.addActionListener((e) -> {
+            MetricsRegistry.getMetricsRegistry().reset();
+            System.out.println("[INFO] Metrics Reset.");
+        });
+
+        metricsMenu.setMnemonic(KeyEvent.VK_M);
+        metricsMenu.add(showMetricsItm);
+        metricsMenu.add(exportMetricsItm);
+        metricsMenu.add(resetMetricsItm);
+        /* End Metrics */
+
         /* Current Connection */
         currentConnection.setEnabled(false);
         /* End Current Connection */
 
         menuBar.add(remoteMenu);
+        menuBar.add(settingsMenu);
+        menuBar.add(metricsMenu);
         menuBar.add(currentConnection);
         setJMenuBar(menuBar);
     }
@@ -317,31 +583,25 @@ public class GUI extends JFrame {
 
                 // Slice Worker
                 final String finalSpeakerName = speakerName;
-                new SwingWorker<Void, Integer>() {
+                new SwingWorker<Void, Void>() {
                     @Override
                     protected Void doInBackground() throws InterruptedException {
                         /* Transfer voice files */
                         System.out.println("[INFO] Uploading Voice File(s)...");
-                        totalVoiceFilesTransProgress.setMaximum(voiceAudioFiles.length);
-                        totalVoiceFilesTransProgress.setValue(0);
-                        totalVoiceFilesTransProgress.setString("0/" + totalVoiceFilesTransProgress.getMaximum());
-
-                        for (int i = 0; i < voiceAudioFiles.length; Thread.sleep(RemoteAgent.FILE_TRANSFER_INTERVAL)) {
-                            try {
-                                remoteAgent.transferFileToServer(
-                                        FileUsage.TO_SLICE,
-                                        voiceAudioFiles[i],
-                                        currentVoiceFileTransProgress
-                                );
-                            } catch (IOException ex) {
-                                resetDisconnectedState();
-                                System.err.println("[ERROR] Failed to Upload File(s), please Check the Connection.");
-                                // enable related interactions
-                                voiceSlicerBtn.setEnabled(true);
-                                clearSliceOutDirBtn.setEnabled(true);
-                                return null;
-                            }
-                            publish(++i);
+                        try {
+                            remoteAgent.transferFilesToServer(
+                                    FileUsage.TO_SLICE,
+                                    voiceAudioFiles,
+                                    currentVoiceFileTransProgress,
+                                    totalVoiceFilesTransProgress
+                            );
+                        } catch (IOException ex) {
+                            resetDisconnectedState();
+                            System.err.println("[ERROR] Failed to Upload File(s), please Check the Connection.");
+                            // enable related interactions
+                            voiceSlicerBtn.setEnabled(true);
+                            clearSliceOutDirBtn.setEnabled(true);
+                            return null;
                         }
                         System.out.println("[INFO] All Voice File(s) are Uploaded to Server.");
                         /* End Transfer voice files */
@@ -367,61 +627,27 @@ public class GUI extends JFrame {
 
                         return null;
                     }
-
-                    @Override
-                    protected void process(List<Integer> completedCount) {
-                        totalVoiceFilesTransProgress.setValue(completedCount.get(completedCount.size() - 1));
-                        totalVoiceFilesTransProgress.setString(
-                                totalVoiceFilesTransProgress.getValue() +"/"+ totalVoiceFilesTransProgress.getMaximum()
-                        );
-                    }
                 }.execute();
 
                 return;
             }
             /* End Connected to Server */
 
-            System.out.println("[INFO] Slicing Audio(s)...");
-            // slice each voice file
-            for (int i = voiceAudioFiles.length - 1; i >= 0; i--) {
-                File voiceFile = voiceAudioFiles[i];
-
-                // Command construction
-                String[] command = {
-                        PYTHON_EXE.getAbsolutePath(),
-                        SLICER_PY.getAbsolutePath(),
-                        voiceFile.getPath(),
-                        "--out",
-                        sliceOutDirFld.getText() + "\\" + speakerName,
-                        "--min_interval",
-                        String.valueOf(SLICING_MIN_INTERVAL_DEFAULT)
-                };
-
-                // schedule a task
-                int finalI = i;
-                executionAgent.executeLater(
-                        command,
-                        null,
-                        (process) -> {
-                            if (process.exitValue() == 0) {
-                                System.out.println("[INFO] Slicing completed: \"" + voiceFile.getName() + "\"");
-                            } else {
-                                String errorMessage = buildTerminationErrorMessage(process, SLICER_PY);
-                                System.err.println(errorMessage);
-                            }
-
-                            if (finalI == 0) {
-                                System.out.println("[INFO] All Slicing Done.");
-                                // enable related interactions after batch execution
-                                voiceSlicerBtn.setEnabled(true);
-                                clearSliceOutDirBtn.setEnabled(true);
-                            }
-                        }
-                );
-            }
-
-            // execute ASAP
-            executionAgent.invokeExecution();
+            // look up the slice cache off EDT (hashes whole files)
+            File[] voiceFiles = voiceAudioFiles;
+            File sliceOutDir = new File(sliceOutDirFld.getText());
+            final String finalSpeakerName = speakerName;
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() {
+                    pipelineService.slice(voiceFiles, sliceOutDir, finalSpeakerName).whenComplete((ok, ex) -> {
+                        // enable related interactions after batch execution
+                        voiceSlicerBtn.setEnabled(true);
+                        clearSliceOutDirBtn.setEnabled(true);
+                    });
+                    return null;
+                }
+            }.execute();
         });
 
         /* Slice Out Dir Cleaner */
@@ -520,17 +746,24 @@ public class GUI extends JFrame {
             }
             /* End Connected to Server */
 
-            // dataset_raw: nothing is prepared
-            if (Objects.requireNonNull(SLICING_OUT_DIR_DEFAULT.listFiles(File::isDirectory)).length == 0) {
-                System.err.println("[!] Please SLICE at least 1 VOICE file.");
-                return;
-            }
-
-            System.out.println("[INFO] Preprocessing Dataset...");
-
-            resampleAudio();
-            splitDatasetAndGenerateConfig();
-            generateHubertAndF0();
+            JSONObject settings = new JSONObject();
+            settings.put("encoder", speechEncoderCbBx.getSelectedItem());
+            settings.put("f0_predictor", f0PredictorPreproCbBx.getSelectedItem());
+            settings.put("loudness_embedding", loudnessEmbedCkBx.isSelected());
+            boolean javaResampler = javaResamplerItm.isSelected();
+
+            // find the dirty slices off EDT (hashes changed files)
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() {
+                    pipelineService.preprocess(settings, javaResampler).whenComplete((ok, ex) -> {
+                        // enable related interactions after batch execution
+                        preprocessBtn.setEnabled(true);
+                        clearPreprocessOutDirBtn.setEnabled(true);
+                    });
+                    return null;
+                }
+            }.execute();
         });
 
         /* Preprocess Out Dir Cleaner */
@@ -619,16 +852,22 @@ public class GUI extends JFrame {
                             /* Train on Server */
                             // Construct Instruction
                             JSONObject instruction = configJSONObject;
+                            JSONObject trainJsonObject = overwriteTrainingConfig().getJSONObject("train");
+                            int[] gpuIds = getTrainingGpuIds();
                             instruction.put("INSTRUCTION", InstructionType.TRAIN.name());
-                            instruction.put("train", overwriteTrainingConfig().getJSONObject("train"));
-                            instruction.put("gpu_id", (int) gpuIdSpinnerTrain.getValue());
+                            instruction.put("train", trainJsonObject);
+                            // one GPU -> its ID, several -> as CUDA_VISIBLE_DEVICES, e.g. "0,1"
+                            instruction.put("gpu_id", (gpuIds.length == 1) ? gpuIds[0] : joinGpuIds(gpuIds));
 
                             // Execute Instruction on Server
+                            TrainingThroughput throughput = startTrainingThroughput(
+                                    trainJsonObject.getInt("batch_size"), gpuIds);
                             try {
                                 remoteAgent.executeInstructionOnServer(instruction);
                             } catch (IOException ex) {
                                 return null;
                             } finally {
+                                OutputPipeline.getOutputPipeline().removeObserver(throughput);
                                 // enable related interactions
                                 startTrainingBtn.setText(TRAINING_BTN_TEXT);
                                 clearTrainLogDirBtn.setEnabled(true);
@@ -686,7 +925,7 @@ public class GUI extends JFrame {
                 }
                 /* End Connected to Server */
 
-                executionAgent.cancelAllTasks();
+                pipelineService.cancel();
             }
         });
 
@@ -748,39 +987,31 @@ public class GUI extends JFrame {
 
                 // Copy vocal files into INFERENCE_INPUT_DIR_DEFAULT
                 // & vocalAudioFiles follows the file[] reference as copied
-                vocalAudioFiles = Arrays.stream(vocalAudioFiles).map((f) -> {
-                    try {
-                        File copied = Files.copy(
-                                f.toPath(),
-                                new File(INFERENCE_INPUT_DIR_DEFAULT, f.getName()).toPath(),
-                                StandardCopyOption.REPLACE_EXISTING
-                        ).toFile();
-
-                        // register copied file as temporary
-                        copied.deleteOnExit();
-
-                        return copied;
-                    } catch (IOException ex) {
-                        throw new RuntimeException(ex);
-                    }
-                }).toList().toArray(vocalAudioFiles);
+                try {
+                    vocalAudioFiles = PipelineService.stageInferenceInputs(vocalAudioFiles);
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+                if (remoteAgent != null) { // uploaded, never inferred locally
+                    Arrays.stream(vocalAudioFiles).forEach(File::deleteOnExit);
+                }
 
                 // Unlock Speaker picking ComboBox
                 speakerPickCbBx.removeAllItems();
-                JSONObject configJSONObject;
+                Collection<String> speakers;
                 /// Connected to Server?
                 if (remoteAgent != null) {
                     try {
-                        configJSONObject = remoteAgent.getTrainConfig();
+                        speakers = remoteAgent.getTrainConfig().getJSONObject("spk").keySet();
                     } catch (IOException ex) {
                         resetDisconnectedState();
                         System.err.println("[ERROR] Connection Lost.");
                         return;
                     }
                 } else {
-                    configJSONObject = getConfigJsonObject();
+                    speakers = getConfigSnapshot().getSpeakers();
                 }
-                configJSONObject.getJSONObject("spk").keySet().forEach((spk) -> {
+                speakers.forEach((spk) -> {
                     speakerPickCbBx.addItem(spk);
                 });
                 speakerPickCbBx.setEnabled(true);
@@ -796,8 +1027,8 @@ public class GUI extends JFrame {
 
         /* Inference */
         inferenceBtn.addActionListener(e -> {
-            // raw: no vocal file is chosen
-            if (vocalAudioFiles == null) {
+            // raw: no vocal file is chosen (Abort of resumed Inference aside)
+            if (vocalAudioFiles == null && inferenceBtn.getText().equals(INFERENCE_BTN_TEXT)) {
                 System.err.println("[!] Please SELECT at least 1 VOCAL file.");
                 return;
             }
@@ -806,45 +1037,99 @@ public class GUI extends JFrame {
             if (inferenceBtn.getText().equals(INFERENCE_BTN_TEXT)) {
                 inferenceBtn.setText("Abort");
 
+                /* Connected to Server Pool */
+                if (serverPool != null) {
+
+                    // Pool Inference Worker
+                    new SwingWorker<Void, Void>() {
+                        @Override
+                        protected Void doInBackground() throws InterruptedException {
+                            JSONObject instruction = buildInferInstruction();
+                            System.out.println("[INFO] Inference Running on " + serverPool.getAgents().size()
+                                    + " Server(s)...");
+
+                            // Upload, Infer & Get Results, job by job
+                            try {
+                                if (!serverPool.inferBatch(vocalAudioFiles, instruction, RESULTS_DIR,
+                                        totalVocalFilesTransProgress)) {
+                                    System.out.println("[INFO] Inference Aborted.");
+                                    return null;
+                                }
+                            } catch (IOException ex) {
+                                System.err.println("[ERROR] Inference Failed: " + ex.getMessage());
+                                return null;
+                            } finally {
+                                resetInferenceState();
+                            }
+
+                            System.out.println("[INFO] Output audios -> \"" + RESULTS_DIR + "\"");
+
+                            return null;
+                        }
+                    }.execute();
+
+                    return;
+                }
+                /* End Connected to Server Pool */
+
+                /* Connected to Server, Streaming */
+                if (remoteAgent != null && streamingInferenceItm.isSelected()) {
+                    streamingInference = new StreamingInference(remoteAgent, buildInferInstruction());
+
+                    // Streaming Inference Worker
+                    new SwingWorker<Void, Void>() {
+                        @Override
+                        protected Void doInBackground() throws InterruptedException {
+                            System.out.println("[INFO] Streaming Inference Running...");
+
+                            // Upload, Infer & Get Results, segment by segment
+                            try {
+                                streamingInference.inferAll(vocalAudioFiles, RESULTS_DIR,
+                                        currentVocalFileTransProgress, totalVocalFilesTransProgress);
+                            } catch (IOException ex) {
+                                System.err.println("[ERROR] Inference Failed: " + ex.getMessage());
+                                return null;
+                            } finally {
+                                streamingInference = null;
+                                resetInferenceState();
+                            }
+
+                            System.out.println("[INFO] Output audios -> \"" + RESULTS_DIR + "\"");
+
+                            return null;
+                        }
+                    }.execute();
+
+                    return;
+                }
+                /* End Connected to Server, Streaming */
+
                 /* Connected to Server */
                 if (remoteAgent != null) {
 
                     // Inference Worker
-                    new SwingWorker<Void, Integer>() {
+                    new SwingWorker<Void, Void>() {
                         @Override
                         protected Void doInBackground() throws InterruptedException {
                             /* Transfer vocal files */
                             System.out.println("[INFO] Uploading Vocal File(s)...");
-                            totalVocalFilesTransProgress.setMaximum(vocalAudioFiles.length);
-                            totalVocalFilesTransProgress.setValue(0);
-                            totalVocalFilesTransProgress.setString("0/" + totalVocalFilesTransProgress.getMaximum());
-
-                            for (int i = 0; i < vocalAudioFiles.length; Thread.sleep(RemoteAgent.FILE_TRANSFER_INTERVAL)) {
-                                try {
-                                    remoteAgent.transferFileToServer(
-                                            FileUsage.TO_INFER,
-                                            vocalAudioFiles[i],
-                                            currentVocalFileTransProgress
-                                    );
-                                } catch (IOException ex) {
-                                    resetDisconnectedState();
-                                    System.err.println("[ERROR] Failed to Upload File(s), please Check the Connection.");
-                                    return null;
-                                }
-                                publish(++i);
+                            try {
+                                remoteAgent.transferFilesToServer(
+                                        FileUsage.TO_INFER,
+                                        vocalAudioFiles,
+                                        currentVocalFileTransProgress,
+                                        totalVocalFilesTransProgress
+                                );
+                            } catch (IOException ex) {
+                                resetDisconnectedState();
+                                System.err.println("[ERROR] Failed to Upload File(s), please Check the Connection.");
+                                return null;
                             }
                             System.out.println("[INFO] All Vocal File(s) are Uploaded to Server.");
                             /* End Transfer vocal files */
 
                             /* Inference on Server */
-                            commitAllInferConfigInput();
-                            // Construct Instruction
-                            JSONObject instruction = new JSONObject();
-                            instruction.put("INSTRUCTION", InstructionType.INFER.name());
-                            instruction.put("gpu_id", (int) gpuIdSpinnerInfer.getValue());
-                            instruction.put("spk", speakerPickCbBx.getSelectedItem());
-                            instruction.put("f0_predictor", f0PredictorInferCbBx.getSelectedItem());
-                            instruction.put("nsf_hifigan", nsfHiFiGanCkBx.isSelected());
+                            JSONObject instruction = buildInferInstruction();
 
                             System.out.println("[INFO] Inference Running... (this may take minutes without console output)");
 
@@ -874,14 +1159,6 @@ public class GUI extends JFrame {
 
                             return null;
                         }
-
-                        @Override
-                        protected void process(List<Integer> completedCount) {
-                            totalVocalFilesTransProgress.setValue(completedCount.get(completedCount.size() - 1));
-                            totalVocalFilesTransProgress.setString(
-                                    totalVocalFilesTransProgress.getValue() +"/"+ totalVocalFilesTransProgress.getMaximum()
-                            );
-                        }
                     }.execute();
 
                     return;
@@ -893,8 +1170,19 @@ public class GUI extends JFrame {
                 startInference();
 
             } else { // Abort
+                /* Connected to Server Pool */
+                if (serverPool != null) {
+                    new Thread(serverPool::abort, "Pool-Abort").start(); // the Pool Inference Worker ends then
+                    return;
+                }
+                /* End Connected to Server Pool */
+
                 /* Connected to Server */
                 if (remoteAgent != null) {
+                    StreamingInference streaming = streamingInference;
+                    if (streaming != null) {
+                        streaming.abort(); // no more segment is started
+                    }
 
                     // Inference Abort Worker
                     new SwingWorker<Void, Void>() {
@@ -924,29 +1212,21 @@ public class GUI extends JFrame {
                 }
                 /* End Connected to Server */
 
-                executionAgent.cancelAllTasks();
+                pipelineService.cancel();
             }
         });
     }
 
     private void createConsoleArea() {
-        JScrollBar verticalScrollBar = consolePanel.getVerticalScrollBar();
-
-        /* Console Vertical Scroll Bar */
-        verticalScrollBar.addAdjustmentListener(e -> {
-            // limit the maximum line count of console history
-            long exceededLineCount = consoleArea.getLineCount() - CONSOLE_LINE_COUNT_MAX;
-            if (exceededLineCount > 0) {
-                consoleArea.setText(
-                        String.join("\n", consoleArea.getText().lines().skip(exceededLineCount).toList()) + '\n'
-                );
-            }
-        });
+
+        /* Console Model */
+        // limit the maximum line count of console history, batch appends
+        consoleModel = new ConsoleModel(consoleArea, CONSOLE_LINE_COUNT_MAX, CONSOLE_FLUSH_INTERVAL);
 
         /* Console Popup Menu */
         JPopupMenu consoleMenu = new JPopupMenu("console popup menu");
         JMenuItem clearConsoleItm = new JMenuItem("clear");
-        clearConsoleItm.addActionListener(e -> consoleArea.setText(""));
+        clearConsoleItm.addActionListener(e -> consoleModel.clear());
         consoleMenu.add(clearConsoleItm);
         consoleArea.setComponentPopupMenu(consoleMenu);
     }
@@ -982,103 +1262,15 @@ public class GUI extends JFrame {
         }
     }
 
-    /**
-     * Resample audios @src -> @dest, to 44100Hz mono.
-     *
-     * @src .\dataset_raw
-     * @dest .\dataset\44k
-     */
-    private void resampleAudio() {
-        String[] command = {
-                PYTHON_EXE.getAbsolutePath(),
-                RESAMPLER_PY.getAbsolutePath(),
-        };
-
-        executionAgent.executeLater(
-                command,
-                SO_VITS_SVC_DIR,
-                (process) -> {
-                    if (process.exitValue() == 0) {
-                        System.out.println("[INFO] Resampled to 44100Hz mono.");
-                    } else {
-                        String errorMessage = buildTerminationErrorMessage(process, RESAMPLER_PY);
-                        System.err.println(errorMessage);
-                    }
-                }
-        );
-        executionAgent.invokeExecution();
-    }
-
-    /**
-     * Split the dataset into training and validation sets, and generate configuration files.
-     */
-    private void splitDatasetAndGenerateConfig() {
-        List<String> command = new ArrayList<>();
-        command.add(PYTHON_EXE.getAbsolutePath());
-        command.add(FLIST_CONFIGER_PY.getAbsolutePath());
-        command.add("--speech_encoder");
-        command.add((String) speechEncoderCbBx.getSelectedItem());
-        if (loudnessEmbedCkBx.isSelected()) {
-            command.add("--vol_aug");
-        }
-
-        executionAgent.executeLater(
-                command,
-                SO_VITS_SVC_DIR,
-                (process) -> {
-                    if (process.exitValue() == 0) {
-                        System.out.println("[INFO] Training Set, Validation Set, Configuration Files Created.");
-                    } else {
-                        String errorMessage = buildTerminationErrorMessage(process, FLIST_CONFIGER_PY);
-                        System.err.println(errorMessage);
-                    }
-                }
-        );
-        executionAgent.invokeExecution();
-    }
-
-    /**
-     * Generate hubert and f0.
-     */
-    private void generateHubertAndF0() {
-        String[] command = {
-                PYTHON_EXE.getAbsolutePath(),
-                HUBERT_F0_GENERATOR_PY.getAbsolutePath(),
-                "--f0_predictor",
-                (String) f0PredictorPreproCbBx.getSelectedItem()
-        };
-
-        executionAgent.executeLater(
-                command,
-                SO_VITS_SVC_DIR,
-                (process) -> {
-                    if (process.exitValue() == 0) {
-                        System.out.println("[INFO] Hubert & F0 Predictor Generated.");
-                    } else {
-                        String errorMessage = buildTerminationErrorMessage(process, HUBERT_F0_GENERATOR_PY);
-                        System.err.println(errorMessage);
-                    }
-
-                    System.out.println("[INFO] Preprocessing Done.");
-                    // enable related interactions after batch execution
-                    preprocessBtn.setEnabled(true);
-                    clearPreprocessOutDirBtn.setEnabled(true);
-                });
-        executionAgent.invokeExecution();
-    }
-
     /**
      * Overwrite training config to TRAINING_CONFIG file
      */
     private JSONObject overwriteTrainingConfig() {
-        // Get JSON Objects
-        JSONObject configJsonObject = getConfigJsonObject();
-        JSONObject trainJsonObject = configJsonObject.getJSONObject("train");
-
         // Commit values & Handle invalid user inputs (to previous valid setting)
         commitAllTrainConfigInput();
 
-        // Modify train JSON Object
+        // Train settings
+        JSONObject trainJsonObject = new JSONObject();
         trainJsonObject.put("log_interval", (int) logIntervalSpinner.getValue());
         trainJsonObject.put("eval_interval", (int) evalIntervalSpinner.getValue());
         trainJsonObject.put("batch_size", (int) batchSizeSpinner.getValue());
@@ -1098,13 +1290,12 @@ public class GUI extends JFrame {
         trainJsonObject.put("all_in_mem", allInMemCkBx.isSelected());
 
         // Write config JSON back to TRAINING_CONFIG
-        try (FileWriter configJsonWriter = new FileWriter(TRAINING_CONFIG)) {
-            configJsonWriter.write(configJsonObject.toString(JSON_STR_INDENT_FACTOR));
+        try {
+            return pipelineService.configureTraining(trainJsonObject);
         } catch (IOException e) {
+            System.err.println("[ERROR] Failed to Load from Config File, Please Restart this Client as Admin.");
             throw new RuntimeException(e);
         }
-
-        return configJsonObject;
     }
 
     /**
@@ -1153,16 +1344,14 @@ public class GUI extends JFrame {
      * Load config from TRAINING_CONFIG_LOG if it exists, otherwise from TRAINING_CONFIG.
      */
     private void loadTrainingConfig() {
-        // Get JSON Objects
-        JSONObject configJsonObject = getConfigJsonObject();
-        JSONObject trainJsonObject = configJsonObject.getJSONObject("train");
-
-        // Load train JSON Object
-        logIntervalSpinner.setValue(trainJsonObject.getInt("log_interval"));
-        evalIntervalSpinner.setValue(trainJsonObject.getInt("eval_interval"));
-        batchSizeSpinner.setValue(trainJsonObject.getInt("batch_size"));
-        if (trainJsonObject.getBoolean("fp16_run")) {
-            switch (trainJsonObject.getString("half_type")) {
+        ConfigService.Snapshot config = getConfigSnapshot();
+
+        // Load train config
+        logIntervalSpinner.setValue(config.getLogInterval());
+        evalIntervalSpinner.setValue(config.getEvalInterval());
+        batchSizeSpinner.setValue(config.getBatchSize());
+        if (config.isFp16Run()) {
+            switch (config.getHalfType()) {
                 case "fp16" -> {
                     fp16Btn.setSelected(true);
                 }
@@ -1173,30 +1362,25 @@ public class GUI extends JFrame {
         } else {
             fp32Btn.setSelected(true);
         }
-        keepLastNModelSpinner.setValue(trainJsonObject.getInt("keep_ckpts"));
-        allInMemCkBx.setSelected(trainJsonObject.getBoolean("all_in_mem"));
+        keepLastNModelSpinner.setValue(config.getKeepCkpts());
+        allInMemCkBx.setSelected(config.isAllInMem());
     }
 
     /**
      * Display Speaker Names on speakerNameFld
      */
     private void displaySpeakersName() {
-        JSONObject speakerJsonObject = getConfigJsonObject().getJSONObject("spk");
-        speakerNameFld.setText(speakerJsonObject.keySet().toString());
+        speakerNameFld.setText(getConfigSnapshot().getSpeakers().toString());
     }
 
     /**
-     * Get Training Config JSONObject.
+     * Get Training Config Snapshot.
      *
-     * @return Config JSONObject from TRAINING_CONFIG_LOG if it exists, otherwise from TRAINING_CONFIG.
+     * @return Config Snapshot of TRAINING_CONFIG_LOG if it exists, otherwise of TRAINING_CONFIG.
      */
-    private static JSONObject getConfigJsonObject() {
-        File loadSource = TRAINING_CONFIG_LOG.exists() ? TRAINING_CONFIG_LOG : TRAINING_CONFIG;
-
-        // Load JSON String from loadSource
-        try (BufferedReader in = Files.newBufferedReader(loadSource.toPath())) {
-            // Parse JSON String to JSONObject
-            return new JSONObject(in.lines().reduce("", String::concat));
+    private ConfigService.Snapshot getConfigSnapshot() {
+        try {
+            return configService.getSnapshot();
         } catch (IOException e) {
             System.err.println("[ERROR] Failed to Load from Config File, Please Restart this Client as Admin.");
             throw new RuntimeException(e);
@@ -1204,142 +1388,133 @@ public class GUI extends JFrame {
     }
 
     /**
-     * Build general termination error message about process's unexpected termination.
-     * @param process the Process which ran into a unexpected termination.
-     * @param executable the executable File associated with that process.
-     * @return termination error message
+     * Start Training with config.json
      */
-    private static String buildTerminationErrorMessage(Process process, File executable) {
-        return "[ERROR] \"" +
-                executable.getName() +
-                "\" terminated unexpectedly, exit code: " +
-                process.exitValue();
+    private void startTraining() {
+        pipelineService.train((int) batchSizeSpinner.getValue(), getTrainingGpuIds()).whenComplete((ok, ex) -> {
+            startTrainingBtn.setText(TRAINING_BTN_TEXT);
+            clearTrainLogDirBtn.setEnabled(true);
+        });
     }
 
     /**
-     * Start Training with config.json
+     * Get the GPUs to train on.
+     * @return Training GPUs if set, otherwise the GPU ID of Training only.
      */
-    private void startTraining() {
-        String[] command = {
-                "cmd.exe",
-                "/c",
-                "set",
-                "CUDA_VISIBLE_DEVICES=" + (int) gpuIdSpinnerTrain.getValue(),
-                "&&",
-                PYTHON_EXE.getAbsolutePath(),
-                TRAIN_PY.getAbsolutePath(),
-                "-c",
-                TRAINING_CONFIG.getAbsolutePath(),
-                "-m",
-                "44k"
-        };
-
-        executionAgent.executeLater(
-                command,
-                SO_VITS_SVC_DIR,
-                (process) -> {
-                    if (process.exitValue() == 0) {
-                        System.out.println("[INFO] Training Complete.");
-                    } else {
-                        System.err.println("[WARNING] \"" +
-                                TRAIN_PY.getName() +
-                                "\" interrupted, exit code: " +
-                                process.exitValue()
-                        );
-                    }
+    private int[] getTrainingGpuIds() {
+        return (trainingGpuIds.length > 0) ? trainingGpuIds : new int[]{(int) gpuIdSpinnerTrain.getValue()};
+    }
 
-                    startTrainingBtn.setText(TRAINING_BTN_TEXT);
-                    clearTrainLogDirBtn.setEnabled(true);
-                });
-        executionAgent.invokeExecution();
+    /**
+     * Show an input dialog of GPU IDs.
+     * @param title title of the dialog.
+     * @param message message of the dialog.
+     * @param gpuIds current GPU IDs.
+     * @return distinct non-negative GPU IDs input, EMPTY if none, NULL if canceled or invalid.
+     */
+    private int[] showGpuIdsDialog(String title, String message, int[] gpuIds) {
+        String input = (String) JOptionPane.showInputDialog(
+                this,
+                message,
+                title,
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                null,
+                joinGpuIds(gpuIds)
+        );
+        // if user canceled the input dialog
+        if (input == null) {
+            return null;
+        }
+        try {
+            int[] inputGpuIds = Arrays.stream(input.split(","))
+                    .map(String::trim)
+                    .filter((id) -> !id.isEmpty())
+                    .mapToInt(Integer::parseInt)
+                    .distinct()
+                    .toArray();
+            if (Arrays.stream(inputGpuIds).anyMatch((id) -> id < 0)) {
+                throw new NumberFormatException();
+            }
+            return inputGpuIds;
+        } catch (NumberFormatException ex) { // Invalid input
+            System.err.println("[!] " + title + " should be non-negative Integers, separated by commas.");
+            return null;
+        }
     }
 
     /**
      * Start Inference
      */
     private void startInference() {
-        // Get JSON Objects
-        JSONObject configJsonObject = getConfigJsonObject();
-        JSONObject modelJsonObject = configJsonObject.getJSONObject("model");
-
-        // Construct command
-        List<String> command = new ArrayList<>();
-        command.add("cmd.exe");
-        command.add("/c");
-        command.add("set");
-        command.add("CUDA_VISIBLE_DEVICES=" + (int) gpuIdSpinnerInfer.getValue());
-        command.add("&&");
-        command.add(PYTHON_EXE.getAbsolutePath());
-        command.add(INFERENCE_PY.getAbsolutePath());
-
-        command.add("--model_path");
-        File[] trainedModels = TRAINING_LOG_DIR_DEFAULT.listFiles((dir, name) ->
-                name.matches(REGEX_TRAINED_MODEL_NAME));
-        assert trainedModels != null;
-        // logs: no trained model
-        if (trainedModels.length == 0) {
-            System.out.println("[ERROR] Model not Trained.");
-            inferenceBtn.setText(INFERENCE_BTN_TEXT);
+        commitAllInferConfigInput();
+        int[] gpuIds = (inferenceGpuIds.length > 0) ? inferenceGpuIds : new int[]{(int) gpuIdSpinnerInfer.getValue()};
+        pipelineService.infer(vocalAudioFiles, buildInferInstruction(), gpuIds)
+                .whenComplete((ok, ex) -> resetInferenceState());
+    }
+
+    /**
+     * Open the Task Journal, and resume the Tasks it holds unfinished if the user confirms (otherwise discard them).
+     * The areas of the resumed stages are busy until their Tasks are done.
+     */
+    private void resumeUnfinishedTasks() {
+        TaskJournal taskJournal;
+        try {
+            taskJournal = new TaskJournal(TASK_JOURNAL_FILE_DEFAULT);
+        } catch (IOException ex) {
+            System.err.println("[WARNING] Task Journal unavailable, Tasks won't survive a Restart: " + ex.getMessage());
             return;
         }
-        assert trainedModels.length == 1;
-        command.add(trainedModels[0].getAbsolutePath());
-
-        command.add("--config_path");
-        command.add(TRAINING_CONFIG_LOG.getAbsolutePath());
-
-        command.add("--wav_format");
-        command.add(AUDIO_FILE_OUT_FORMAT);
-
-        command.add("--trans");
-        command.add(String.valueOf(PITCH_SHIFT_INFER_DEFAULT));
-
-        command.add("--spk_list");
-        command.add((String) speakerPickCbBx.getSelectedItem());
-
-        command.add("--clean_names");
-        command.addAll(Arrays.stream(vocalAudioFiles).map(File::getName).toList());
-
-        command.add("--f0_predictor");
-        command.add((String) f0PredictorInferCbBx.getSelectedItem());
-
-        if (nsfHiFiGanCkBx.isSelected()) {
-            command.add("--enhance");
+        executionAgent.setTaskJournal(taskJournal);
+        int unfinishedCount = taskJournal.getUnfinishedCount();
+        if (unfinishedCount == 0) {
+            return;
         }
 
-        // whisper-ppg speech encoder need to set --clip to 25 and -lg to 1
-        if ("whisper-ppg".equals(modelJsonObject.getString("speech_encoder"))) {
-            command.add("--clip");
-            command.add(String.valueOf(25));
-            command.add("-lg");
-            command.add(String.valueOf(1));
-        } else {
-            command.add("--clip");
-            command.add(String.valueOf(CLIP_INFER_DEFAULT));
+        int choice = JOptionPane.showConfirmDialog(
+                this,
+                unfinishedCount + " Task(s) were left unfinished by the last session, resume them?",
+                "Resume Tasks",
+                JOptionPane.YES_NO_OPTION
+        );
+        if (choice != JOptionPane.YES_OPTION) {
+            executionAgent.discardJournaledTasks();
+            System.out.println("[INFO] " + unfinishedCount + " Unfinished Task(s) Discarded.");
+            return;
         }
 
-        // Schedule inference task
-        executionAgent.executeLater(
-                command,
-                SO_VITS_SVC_DIR,
-                (process) -> {
-                    if (process.exitValue() == 0) {
-                        System.out.println("[INFO] Inference Complete.");
-                        System.out.println("[INFO] Output audios -> \"" + RESULTS_DIR + "\"");
-                    } else {
-                        System.err.println("[WARNING] \"" +
-                                INFERENCE_PY.getName() +
-                                "\" interrupted, exit code: " +
-                                process.exitValue()
-                        );
-                    }
-
-                    // delete all temp Files
-                    Arrays.stream(vocalAudioFiles).forEach(File::delete);
-                    resetInferenceState();
+        pipelineService.resumeUnfinished().forEach((stage, resumed) -> {
+            switch (stage) {
+                case STAGE_SLICE -> {
+                    voiceSlicerBtn.setEnabled(false);
+                    clearSliceOutDirBtn.setEnabled(false);
+                    resumed.whenComplete((ok, ex) -> {
+                        voiceSlicerBtn.setEnabled(true);
+                        clearSliceOutDirBtn.setEnabled(true);
+                    });
                 }
-        );
-        executionAgent.invokeExecution();
+                case STAGE_PREPROCESS -> {
+                    preprocessBtn.setEnabled(false);
+                    clearPreprocessOutDirBtn.setEnabled(false);
+                    resumed.whenComplete((ok, ex) -> {
+                        preprocessBtn.setEnabled(true);
+                        clearPreprocessOutDirBtn.setEnabled(true);
+                    });
+                }
+                case STAGE_TRAIN -> {
+                    startTrainingBtn.setText("Abort");
+                    clearTrainLogDirBtn.setEnabled(false);
+                    resumed.whenComplete((ok, ex) -> {
+                        startTrainingBtn.setText(TRAINING_BTN_TEXT);
+                        clearTrainLogDirBtn.setEnabled(true);
+                    });
+                }
+                case STAGE_INFER -> {
+                    inferenceBtn.setText("Abort");
+                    resumed.whenComplete((ok, ex) -> resetInferenceState());
+                }
+            }
+        });
     }
 
     /**
@@ -1354,16 +1529,147 @@ public class GUI extends JFrame {
         inferenceBtn.setText(INFERENCE_BTN_TEXT);
     }
 
+    /**
+     * Construct the INFER Instruction from the current Inference inputs.
+     * @return the Instruction.
+     */
+    private JSONObject buildInferInstruction() {
+        commitAllInferConfigInput();
+        JSONObject instruction = new JSONObject();
+        instruction.put("INSTRUCTION", InstructionType.INFER.name());
+        instruction.put("gpu_id", (int) gpuIdSpinnerInfer.getValue());
+        instruction.put("spk", speakerPickCbBx.getSelectedItem());
+        instruction.put("f0_predictor", f0PredictorInferCbBx.getSelectedItem());
+        instruction.put("nsf_hifigan", nsfHiFiGanCkBx.isSelected());
+        return instruction;
+    }
+
     /**
      * Update/Restore GUI to disconnected state.
      */
     private void resetDisconnectedState() {
         resetInferenceState();
+        stopLiveConversion();
+        if (serverPool != null) {
+            serverPool.close(); // closes remoteAgent too
+            serverPool = null;
+        }
+        if (remoteAgent != null) {
+            remoteAgent.close(); // ends its session, if any
+        }
         remoteAgent = null;
         disconnectItm.setEnabled(false);
         currentConnection.setText("@localhost");
     }
 
+    /**
+     * Start Live Conversion on the connected Server: microphone -> Server -> speakers, with the picked speaker &
+     * the F0 predictor & GPU ID of the Inference area. Its status is printed every LIVE_STATUS_INTERVAL.
+     * The speakers are fetched from the Server in background, then picked in EDT.
+     */
+    private void startLiveConversion() {
+        if (remoteAgent == null) {
+            System.err.println("[!] Please CONNECT to a Server first.");
+            liveConversionItm.setSelected(false);
+            return;
+        }
+        RemoteAgent agent = remoteAgent;
+
+        // Speakers Fetching Worker
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                try {
+                    Object[] speakers = agent.getTrainConfig().getJSONObject("spk").keySet().toArray();
+                    SwingUtilities.invokeLater(() -> startLiveConversion(agent, speakers));
+                } catch (IOException ex) {
+                    SwingUtilities.invokeLater(() -> {
+                        liveConversionItm.setSelected(false);
+                        if (remoteAgent == agent) {
+                            resetDisconnectedState();
+                            System.err.println("[ERROR] Connection Lost.");
+                        }
+                    });
+                }
+                return null;
+            }
+        }.execute();
+    }
+
+    /**
+     * Start Live Conversion once the speakers are fetched. (in EDT)
+     * @param agent the Server the speakers were fetched from.
+     * @param speakers speakers of the trained model.
+     */
+    private void startLiveConversion(RemoteAgent agent, Object[] speakers) {
+        // deselected or disconnected meanwhile
+        if (!liveConversionItm.isSelected() || remoteAgent != agent || liveConversion != null) {
+            return;
+        }
+
+        // Pick the speaker
+        Object speaker = JOptionPane.showInputDialog(this, "Speaker:", "Live Conversion",
+                JOptionPane.QUESTION_MESSAGE, null, speakers, (speakers.length > 0) ? speakers[0] : null);
+        if (speaker == null) {
+            liveConversionItm.setSelected(false);
+            return;
+        }
+        commitAllInferConfigInput();
+        JSONObject settings = new JSONObject();
+        settings.put("spk", speaker);
+        settings.put("f0_predictor", f0PredictorInferCbBx.getSelectedItem());
+        settings.put("gpu_id", (int) gpuIdSpinnerInfer.getValue());
+
+        // Open audio lines & Start
+        LiveConversion.FrameSource source = null;
+        LiveConversion.FrameSink sink = null;
+        try {
+            source = LiveConversion.fromLine(AudioSystem.getTargetDataLine(LiveConversion.AUDIO_FORMAT));
+            sink = LiveConversion.toLine(AudioSystem.getSourceDataLine(LiveConversion.AUDIO_FORMAT));
+            liveConversion = LiveConversion.start(agent, settings, source, sink);
+        } catch (LineUnavailableException | IllegalArgumentException ex) {
+            System.err.println("[ERROR] Audio Device Unavailable: " + ex.getMessage());
+        } catch (IOException ex) {
+            System.err.println("[ERROR] Failed to Start Live Conversion: " + ex.getMessage());
+        }
+        if (liveConversion == null) {
+            for (Closeable line : new Closeable[]{source, sink}) {
+                try {
+                    if (line != null) {
+                        line.close();
+                    }
+                } catch (IOException ignored) {
+                }
+            }
+            liveConversionItm.setSelected(false);
+            return;
+        }
+
+        System.out.println("[INFO] Live Conversion Started (" + speaker + ").");
+        liveStatusTimer = new javax.swing.Timer(LIVE_STATUS_INTERVAL, (e) -> {
+            if (liveConversion.isClosed()) { // failed
+                stopLiveConversion();
+                return;
+            }
+            System.out.println("[INFO] Live Conversion: " + liveConversion.getStatus());
+        });
+        liveStatusTimer.start();
+    }
+
+    /**
+     * Stop Live Conversion, if running.
+     */
+    private void stopLiveConversion() {
+        if (liveConversion == null) {
+            return;
+        }
+        liveStatusTimer.stop();
+        liveConversion.close();
+        System.out.println("[INFO] Live Conversion Stopped: " + liveConversion.getStatus());
+        liveConversion = null;
+        liveConversionItm.setSelected(false);
+    }
+
     /**
      * Send clear Instruction, targeted on designated type of Instruction's output directory.
      * @param type states which type of Instruction's output directory to be cleared
@@ -1388,15 +1694,25 @@ public class GUI extends JFrame {
      * @return PrintStream to GUI Console
      */
     private PrintStream getPrintStream() {
+        return newConsolePrintStream(this::updateConsole);
+    }
+
+    /**
+     * Build a PrintStream decoding everything printed into console text.
+     *
+     * @param console receives the decoded text, one call per write.
+     * @return the auto-flushing PrintStream
+     */
+    static PrintStream newConsolePrintStream(Consumer<String> console) {
         OutputStream outGUI = new OutputStream() {
             @Override
             public void write(int b) {
-                updateConsole(String.valueOf((char) b)); // 1 Byte Char only (Unused)
+                console.accept(String.valueOf((char) b)); // 1 Byte Char only (Unused)
             }
 
             @Override
             public void write(byte[] b, int off, int len) {
-                updateConsole(new String(b, off, len, CHARSET_DISPLAY_DEFAULT));
+                console.accept(new String(b, off, len, CHARSET_DISPLAY_DEFAULT));
             }
         };
         return new PrintStream(outGUI, true, CHARSET_DISPLAY_DEFAULT);
@@ -1419,11 +1735,7 @@ public class GUI extends JFrame {
      * @param output the text to be displayed in console area.
      */
     private void updateConsole(String output) {
-        consoleArea.append(output);
-
-        // console auto scroll to bottom
-        JScrollBar verticalScrollBar = consolePanel.getVerticalScrollBar();
-        EventQueue.invokeLater(() -> verticalScrollBar.setValue(verticalScrollBar.getMaximum()));
+        consoleModel.append(output);
     }
 
 }
@@ -0,0 +1,74 @@
+package gui;
+
+import models.GpuStatus;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GPU Status Table Model
+ * @responsibility Hold the latest GpuStatus of each GPU, one row per GPU (ordered by GPU index).
+ * @feature Updates only fire events for the cells whose displayed value changed. (on EDT)
+ */
+public class GpuStatusTableModel extends AbstractTableModel {
+
+    private final List<GpuStatus> rows = new ArrayList<>();
+
+    /**
+     * Apply a new sample. (on EDT)
+     * @param status the latest GpuStatus of a GPU.
+     */
+    public void update(GpuStatus status) {
+        int row = 0;
+        while (row < rows.size() && rows.get(row).getIndex() < status.getIndex()) {
+            row++;
+        }
+
+        // new GPU
+        if (row == rows.size() || rows.get(row).getIndex() != status.getIndex()) {
+            rows.add(row, status);
+            fireTableRowsInserted(row, row);
+            return;
+        }
+
+        // known GPU, redraw changed cells only
+        GpuStatus previous = rows.set(row, status);
+        for (int column = 0; column < getColumnCount(); column++) {
+            if (!previous.getColumnValue(column).equals(status.getColumnValue(column))) {
+                fireTableCellUpdated(row, column);
+            }
+        }
+    }
+
+    /**
+     * Remove all rows. (on EDT)
+     */
+    public void clear() {
+        int rowCount = rows.size();
+        if (rowCount > 0) {
+            rows.clear();
+            fireTableRowsDeleted(0, rowCount - 1);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return GpuStatus.COLUMN_NAMES.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return GpuStatus.COLUMN_NAMES.get(column);
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return rows.get(rowIndex).getColumnValue(columnIndex);
+    }
+}
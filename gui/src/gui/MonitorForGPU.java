@@ -1,32 +1,39 @@
 package gui;
 
+import models.GpuStatus;
+import models.RemoteAgent;
+
 import javax.swing.*;
+import javax.swing.event.TableModelEvent;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.Socket;
+import java.io.*;
 import java.util.Locale;
 
 import static gui.GUI.*;
+import static models.RemoteAgent.FEATURE_GPU_TELEMETRY;
 
 /**
  * GPU Status Monitor
  * @responsibility Display & Auto-Refresh GPUs' status
+ * @feature GPU status is pushed by one long-lived telemetry stream, and shown as a table of per-GPU records.
+ * The stream is re-opened against the new target once the Server is (dis)connected, & closed while hidden.
  */
 public class MonitorForGPU extends JFrame {
     private static final String FRAME_TITLE = "GPU Monitor";
-    private static final int GPU_STATUS_SERVER_PORT = 43687;
-    private static final long REFRESH_INTERVAL = 1000; // ms
+    private static final long REFRESH_INTERVAL = 1000; // ms, between telemetry samples
     private static final long CONNECT_RETRY_INTERVAL = 1000; // ms
 
     private JTextArea displayArea;
     private JPanel monitorPanel;
+    private JTable gpuTable;
 
+    private final GpuStatusTableModel gpuStatusTableModel = new GpuStatusTableModel();
     private Thread autoRefresh;
+    private Timer streamWatcher;
+    private volatile Closeable telemetryStream; // Server GPU status stream, or local nvidia-smi process
+    private volatile RemoteAgent telemetryTarget; // Server of the telemetry stream, NULL -> local
 
     protected MonitorForGPU() {
 
@@ -41,6 +48,15 @@ public class MonitorForGPU extends JFrame {
         setVisible(true);
         setContentPane(monitorPanel);
 
+        // one row per GPU, Adjust Window Size when GPUs appear
+        gpuTable.setModel(gpuStatusTableModel);
+        gpuStatusTableModel.addTableModelListener(e -> {
+            if (e.getType() != TableModelEvent.UPDATE) {
+                gpuTable.setPreferredScrollableViewportSize(gpuTable.getPreferredSize());
+                pack();
+            }
+        });
+
         pack();
 
         // Schedule GPU status auto-refresh
@@ -49,87 +65,166 @@ public class MonitorForGPU extends JFrame {
 
     /**
      * Register GPU-status auto-refresher in a new Thread.
+     * Samples are pushed through ONE long-lived telemetry stream (local nvidia-smi loop, or the Server GPU status
+     * if it supports FEATURE_GPU_TELEMETRY, via its session if any), only changed table cells are redrawn.
+     * A legacy Server is still polled every REFRESH_INTERVAL for its plain-text status.
      */
     private void registerAutoRefresh() {
-        ProcessBuilder gpuQueryBuilder = new ProcessBuilder("nvidia-smi.exe");
-
         autoRefresh = new Thread(() -> {
             displayArea.setText("Attempting to retrieve GPU Info...");
 
             // Refresh Loop
             while (!Thread.currentThread().isInterrupted()) {
                 try {
-                    // At Foreground
-                    if (isShowing()) {
-                        Process gpuQuery;
-                        Socket gpuSocket = null;
-                        InputStream gpuStatusInputStream;
-
-                        // Connected to Server?
-                        if (remoteAgent != null) {
-                            setTitle(FRAME_TITLE + " (remote)");
-                            gpuSocket = new Socket(remoteAgent.getInetAddress(), GPU_STATUS_SERVER_PORT);
-                            gpuStatusInputStream = gpuSocket.getInputStream();
-                        } else {
-                            setTitle(FRAME_TITLE + " (local)");
-                            gpuQuery = gpuQueryBuilder.start();
-                            gpuStatusInputStream = gpuQuery.getInputStream();
-                        }
-
-                        // get new GPU-status
-                        StringBuilder displayBuffer = new StringBuilder();
-                        BufferedReader in = new BufferedReader(new InputStreamReader(gpuStatusInputStream,
-                                CHARSET_DISPLAY_DEFAULT));
-                        String line;
-                        while ((line = in.readLine()) != null) {
-                            displayBuffer.append(line).append('\n');
-                        }
-                        in.close();
-
-                        // End Connection
-                        if (gpuSocket != null) {
-                            gpuSocket.close();
-                        }
-
-                        // update display area
-                        EventQueue.invokeLater(() -> {
-                            int selectionStart = displayArea.getSelectionStart();
-                            int selectionEnd = displayArea.getSelectionEnd();
-                            displayArea.setText(displayBuffer.toString());
-                            displayArea.setSelectionStart(selectionStart);
-                            displayArea.setSelectionEnd(selectionEnd);
-                            // Adjust Window Size
-                            pack();
-                        });
+                    // At Background
+                    if (!isShowing()) {
+                        Thread.sleep(REFRESH_INTERVAL);
+                        continue;
+                    }
+
+                    // Connected to legacy Server?
+                    RemoteAgent agent = remoteAgent;
+                    if (agent != null && !agent.supportsFeature(FEATURE_GPU_TELEMETRY)) {
+                        setTitle(FRAME_TITLE + " (remote)");
+                        pollLegacyServer(agent);
+                        Thread.sleep(REFRESH_INTERVAL);
+                        continue;
                     }
-                    // Refresh Interval
-                    Thread.sleep(REFRESH_INTERVAL);
+
+                    streamTelemetry(agent);
+
+                    // stream ended (or closed by streamWatcher), re-open it
+                    Thread.sleep(CONNECT_RETRY_INTERVAL);
                 } catch (IOException ex) {
                     try {
                         EventQueue.invokeLater(() -> {
-                            displayArea.setText("Re-attempting to connect Server GPU Monitor...");
+                            displayArea.setText("Re-attempting to connect " +
+                                    (remoteAgent != null ? "Server GPU Monitor..." : "nvidia-smi..."));
                             pack();
                         });
                         Thread.sleep(CONNECT_RETRY_INTERVAL);
                     } catch (InterruptedException e) {
                         return;
                     }
-                    continue;
                 } catch (InterruptedException ex) {
                     return;
                 }
             }
         }, "GPU-Monitor");
 
-        // Kill auto-refresher Thread on Frame closing
+        // Close the telemetry stream once its target is no longer the current one, or hidden
+        streamWatcher = new Timer((int) CONNECT_RETRY_INTERVAL, e -> {
+            if (telemetryStream != null && (telemetryTarget != remoteAgent || !isShowing())) {
+                closeTelemetryStream();
+            }
+        });
+
+        // Kill auto-refresher Thread & its telemetry stream on Frame closing
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
+                streamWatcher.stop();
                 autoRefresh.interrupt();
+                closeTelemetryStream();
             }
         });
 
         autoRefresh.start();
+        streamWatcher.start();
+    }
+
+    /**
+     * Open the telemetry stream & Apply its GpuStatus samples until it ends or is closed. (Block)
+     * @param agent Server to stream from, NULL -> local nvidia-smi.
+     * @throws IOException failed to open/read the stream.
+     */
+    private void streamTelemetry(RemoteAgent agent) throws IOException {
+        InputStream gpuStatusInputStream;
+
+        // Connected to Server?
+        telemetryTarget = agent;
+        if (agent != null) {
+            setTitle(FRAME_TITLE + " (remote)");
+            gpuStatusInputStream = agent.openGpuStatusStream();
+            telemetryStream = gpuStatusInputStream;
+        } else {
+            setTitle(FRAME_TITLE + " (local)");
+            Process gpuQuery = new ProcessBuilder(
+                    "nvidia-smi.exe",
+                    "--query-gpu=" + GpuStatus.QUERY_FIELDS,
+                    "--format=csv,noheader,nounits",
+                    "-lms", String.valueOf(REFRESH_INTERVAL)
+            ).redirectErrorStream(true).start();
+            telemetryStream = gpuQuery::destroy;
+            gpuStatusInputStream = gpuQuery.getInputStream();
+        }
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(gpuStatusInputStream,
+                CHARSET_DISPLAY_DEFAULT))) {
+            EventQueue.invokeLater(() -> {
+                displayArea.setText("");
+                gpuStatusTableModel.clear();
+            });
+            String line;
+            while ((line = in.readLine()) != null) {
+                GpuStatus status;
+                try {
+                    status = GpuStatus.parse(line);
+                } catch (IllegalArgumentException ex) { // e.g. nvidia-smi error message
+                    String message = line;
+                    EventQueue.invokeLater(() -> displayArea.setText(message));
+                    continue;
+                }
+                EventQueue.invokeLater(() -> gpuStatusTableModel.update(status));
+            }
+        } finally {
+            closeTelemetryStream();
+        }
+    }
+
+    /**
+     * Retrieve the plain-text GPU status from a legacy Server (one connection or stream per poll) & Display it.
+     * @param agent the legacy Server.
+     * @throws IOException failed to connect the Server.
+     */
+    private void pollLegacyServer(RemoteAgent agent) throws IOException {
+        StringBuilder displayBuffer = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(agent.openGpuStatusStream(),
+                CHARSET_DISPLAY_DEFAULT))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                displayBuffer.append(line).append('\n');
+            }
+        }
+
+        // update display area, relayout only if changed
+        String display = displayBuffer.toString();
+        EventQueue.invokeLater(() -> {
+            if (display.equals(displayArea.getText())) {
+                return;
+            }
+            int selectionStart = displayArea.getSelectionStart();
+            int selectionEnd = displayArea.getSelectionEnd();
+            displayArea.setText(display);
+            displayArea.setSelectionStart(selectionStart);
+            displayArea.setSelectionEnd(selectionEnd);
+            // Adjust Window Size
+            pack();
+        });
+    }
+
+    /**
+     * Close the current telemetry stream if present, unblocks its reader.
+     */
+    private void closeTelemetryStream() {
+        Closeable stream = telemetryStream;
+        telemetryStream = null;
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+            }
+        }
     }
 
 }
@@ -0,0 +1,125 @@
+package gui;
+
+import models.MetricsRegistry;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static gui.GUI.ICON_PATH;
+
+/**
+ * Metrics Monitor
+ * @responsibility Display & Auto-Refresh per-stage metrics of the MetricsRegistry.
+ * @feature Refreshed on EDT, only when the MetricsRegistry changed since the last refresh.
+ */
+public class MonitorForMetrics extends JFrame {
+    private static final String FRAME_TITLE = "Metrics Monitor";
+    private static final int REFRESH_INTERVAL = 1000; // ms
+    private static final String[] COLUMN_NAMES = {"Metric", "Stage", "Count", "Mean", "p50", "p95", "Max"};
+
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.getMetricsRegistry();
+    private final MetricsTableModel metricsTableModel = new MetricsTableModel();
+    private long displayedVersion = -1;
+
+    protected MonitorForMetrics() {
+
+        /* Global Settings */
+        java.util.Locale.setDefault(Locale.ENGLISH);
+
+        /* UI Frame Settings */
+        setTitle(FRAME_TITLE);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setIconImage(new ImageIcon(ICON_PATH).getImage());
+
+        JTable metricsTable = new JTable(metricsTableModel);
+        metricsTable.setFont(new Font("Consolas", Font.PLAIN, 12));
+        metricsTable.setAutoCreateRowSorter(true);
+        setContentPane(new JScrollPane(metricsTable));
+
+        refresh();
+        pack();
+        setVisible(true);
+
+        // Schedule auto-refresh, stopped on Frame closing
+        Timer autoRefresh = new Timer(REFRESH_INTERVAL, e -> refresh());
+        autoRefresh.start();
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                autoRefresh.stop();
+            }
+        });
+    }
+
+    /**
+     * Reload the table from the MetricsRegistry, if it changed. (on EDT)
+     */
+    private void refresh() {
+        long version = metricsRegistry.getVersion();
+        if (version == displayedVersion) {
+            return;
+        }
+        displayedVersion = version;
+
+        List<Object[]> rows = new ArrayList<>();
+        metricsRegistry.getHistograms().forEach((metric, stages) -> stages.forEach((stage, histogram) ->
+                rows.add(new Object[]{
+                        metric,
+                        stage,
+                        histogram.getCount(),
+                        format(histogram.getMean()),
+                        format(histogram.quantile(0.5)),
+                        format(histogram.quantile(0.95)),
+                        format(histogram.getMax())
+                })));
+        metricsTableModel.setRows(rows);
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "-" : String.format("%.1f", value);
+    }
+
+    /**
+     * One row per (metric, stage) Histogram.
+     */
+    private static class MetricsTableModel extends AbstractTableModel {
+        private List<Object[]> rows = new ArrayList<>();
+
+        void setRows(List<Object[]> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int columnIndex) {
+            return (columnIndex == 2) ? Long.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            return rows.get(rowIndex)[columnIndex];
+        }
+    }
+
+}
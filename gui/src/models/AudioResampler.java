@@ -0,0 +1,399 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+/**
+ * Audio Resampler
+ * @responsibility Preprocess Wave Files as resample.py does: downmix to mono, trim silence (40 dB), normalize peak,
+ * resample to 44100Hz, normalize loudness, write 16-bit PCM.
+ * @feature Windowed-sinc polyphase filter (Kaiser window, parameters of resampy "kaiser_best"), one coefficient
+ * table per source sample rate. Files are processed in parallel, each worker borrows its sample & IO buffers from
+ * a pool, so buffers are reused across Files instead of allocated per File.
+ */
+public class AudioResampler {
+
+    public static final String STAGE = "AudioResampler"; // metrics & task name
+    public static final int TARGET_SAMPLE_RATE_DEFAULT = 44100; // Hz
+    private static final String WAV_EXTENSION = ".wav";
+
+    /* librosa.effects.trim defaults, as resample.py calls it */
+    private static final double TRIM_TOP_DB = 40;
+    private static final int TRIM_FRAME_LENGTH = 2048;
+    private static final int TRIM_HOP_LENGTH = 512;
+    private static final double POWER_MIN = 1e-10; // amin of librosa.power_to_db
+
+    /* resampy "kaiser_best" */
+    private static final int ZERO_CROSSINGS = 64;
+    private static final double ROLLOFF = 0.9475937167399596;
+    private static final double KAISER_BETA = 14.769656459379492;
+    private static final int MAX_PHASES = 1024; // more phases are linearly interpolated
+
+    private static final int IO_BUFFER_BYTES = 256 * 1024;
+
+    private final int targetSampleRate;
+    private final Map<Integer, PolyphaseFilter> filters; // source sample rate -> filter
+    private final Queue<Buffers> bufferPool;
+
+    /**
+     * @param targetSampleRate sample rate of the output Files (Hz).
+     */
+    public AudioResampler(int targetSampleRate) {
+        this.targetSampleRate = targetSampleRate;
+        this.filters = new ConcurrentHashMap<>();
+        this.bufferPool = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Resample every "speaker/*.wav" of inDir into outDir, keeping "speaker/name.wav". (Block until all done)
+     * @param inDir directory of audios to be resampled, one subdirectory per speaker.
+     * @param outDir output directory, one subdirectory per speaker, created if absent.
+     * @param parallelism max count of Files resampled at the same time.
+     * @return count of Files failed, -1 if interrupted.
+     */
+    public int resampleAll(File inDir, File outDir, int parallelism) {
+        List<Callable<Boolean>> jobs = new ArrayList<>();
+        File[] speakerDirs = Objects.requireNonNullElse(inDir.listFiles(File::isDirectory), new File[0]);
+        for (File speakerDir : speakerDirs) {
+            File[] audios = speakerDir.listFiles((dir, name) -> name.endsWith(WAV_EXTENSION));
+            File speakerOutDir = new File(outDir, speakerDir.getName());
+            for (File audio : Objects.requireNonNullElse(audios, new File[0])) {
+                jobs.add(() -> {
+                    long startTime = System.nanoTime();
+                    try {
+                        resample(audio, new File(speakerOutDir, audio.getName()));
+                        MetricsRegistry.getMetricsRegistry().observeSince(MetricsRegistry.TASK_WALL, STAGE, startTime);
+                        return true;
+                    } catch (IOException ex) {
+                        System.err.println("[ERROR] Failed to Resample \"" + audio.getName() + "\": " +
+                                ex.getMessage());
+                        return false;
+                    }
+                });
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(parallelism, 1));
+        try {
+            int failedCount = 0;
+            for (Future<Boolean> result : pool.invokeAll(jobs)) {
+                if (!result.get()) {
+                    failedCount++;
+                }
+            }
+            return failedCount;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Resample one Wave File. (in current Thread)
+     * @param audio the Wave File.
+     * @param outFile output Wave File (16-bit PCM, mono, targetSampleRate), its directory created if absent.
+     */
+    public void resample(File audio, File outFile) throws IOException {
+        Buffers buffers = Objects.requireNonNullElseGet(bufferPool.poll(), Buffers::new);
+        try {
+            WavFile wav = WavFile.read(audio);
+            int length = readMono(wav, audio, buffers);
+            float[] samples = buffers.samples;
+
+            // trim & normalize peak
+            int[] bounds = trim(samples, length);
+            int trimmedLength = bounds[1] - bounds[0];
+            float peak = 0;
+            for (int i = bounds[0]; i < bounds[1]; i++) {
+                peak = Math.max(peak, Math.abs(samples[i]));
+            }
+            if (peak > 1) {
+                float gain = 0.98f / peak;
+                for (int i = bounds[0]; i < bounds[1]; i++) {
+                    samples[i] *= gain;
+                }
+            }
+
+            // resample
+            float[] resampled;
+            int resampledLength;
+            if (wav.getSampleRate() == targetSampleRate) {
+                resampled = samples;
+                resampledLength = trimmedLength;
+                System.arraycopy(samples, bounds[0], samples, 0, trimmedLength);
+            } else {
+                PolyphaseFilter filter = filters.computeIfAbsent(wav.getSampleRate(),
+                        (sampleRate) -> new PolyphaseFilter(sampleRate, targetSampleRate));
+                resampledLength = filter.getOutputLength(trimmedLength);
+                resampled = buffers.resampled = ensureCapacity(buffers.resampled, resampledLength);
+                filter.apply(samples, bounds[0], trimmedLength, resampled);
+            }
+
+            writePcm16(outFile, resampled, resampledLength, buffers);
+        } finally {
+            bufferPool.offer(buffers);
+        }
+    }
+
+    /**
+     * Decode the mono mix of a Wave File into buffers.samples (grown if needed).
+     * @return count of samples.
+     */
+    private static int readMono(WavFile wav, File audio, Buffers buffers) throws IOException {
+        long frameCount = wav.getFrameCount();
+        if (frameCount > Integer.MAX_VALUE - 8) {
+            throw new IOException("Wave File too long: \"" + audio.getName() + "\"");
+        }
+        int length = (int) frameCount;
+        float[] samples = buffers.samples = ensureCapacity(buffers.samples, length);
+
+        int channels = wav.getChannels();
+        int blockAlign = wav.getBlockAlign();
+        ByteBuffer bytes = buffers.bytes;
+        bytes.clear().flip();
+        try (FileChannel channel = FileChannel.open(audio.toPath(), StandardOpenOption.READ)) {
+            channel.position(wav.getDataOffset());
+            for (int i = 0; i < length; i++) {
+                if (bytes.remaining() < blockAlign) {
+                    bytes.compact();
+                    while (bytes.position() < blockAlign && channel.read(bytes) != -1) {
+                        // fill at least one frame
+                    }
+                    bytes.flip();
+                    if (bytes.remaining() < blockAlign) {
+                        throw new IOException("Wave data truncated: \"" + audio.getName() + "\"");
+                    }
+                }
+                float mix = 0;
+                for (int c = 0; c < channels; c++) {
+                    mix += wav.decodeSample(bytes);
+                }
+                samples[i] = mix / channels;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Find the non-silent range, as librosa.effects.trim (top_db = 40, ref = max) does.
+     * @return [start, end) sample range, EMPTY if all silent.
+     */
+    static int[] trim(float[] samples, int length) {
+        // frame f is centered at f * hop (zero-padded), mean square of each frame
+        int frameCount = 1 + length / TRIM_HOP_LENGTH;
+        double[] power = new double[frameCount];
+        int pad = TRIM_FRAME_LENGTH / 2;
+        double sum = 0;
+        int windowStart = -pad, windowEnd = -pad; // [windowStart, windowEnd) in samples
+        double maxPower = 0;
+        for (int f = 0; f < frameCount; f++) {
+            int start = f * TRIM_HOP_LENGTH - pad;
+            int end = start + TRIM_FRAME_LENGTH;
+            for (; windowEnd < end; windowEnd++) {
+                if (windowEnd >= 0 && windowEnd < length) {
+                    sum += (double) samples[windowEnd] * samples[windowEnd];
+                }
+            }
+            for (; windowStart < start; windowStart++) {
+                if (windowStart >= 0 && windowStart < length) {
+                    sum -= (double) samples[windowStart] * samples[windowStart];
+                }
+            }
+            power[f] = Math.max(sum, 0) / TRIM_FRAME_LENGTH;
+            maxPower = Math.max(maxPower, power[f]);
+        }
+
+        double refDb = 10 * Math.log10(Math.max(POWER_MIN, maxPower));
+        int first = -1, last = -1;
+        for (int f = 0; f < frameCount; f++) {
+            if (10 * Math.log10(Math.max(POWER_MIN, power[f])) - refDb > -TRIM_TOP_DB) {
+                if (first < 0) {
+                    first = f;
+                }
+                last = f;
+            }
+        }
+        if (first < 0) {
+            return new int[]{0, 0};
+        }
+        return new int[]{first * TRIM_HOP_LENGTH, (int) Math.min(length, (long) (last + 1) * TRIM_HOP_LENGTH)};
+    }
+
+    /**
+     * Normalize loudness (peak to 1) and write as 16-bit PCM mono, truncating as numpy astype(int16).
+     */
+    private void writePcm16(File outFile, float[] samples, int length, Buffers buffers) throws IOException {
+        float peak = 0;
+        for (int i = 0; i < length; i++) {
+            peak = Math.max(peak, Math.abs(samples[i]));
+        }
+        float scale = (peak > 0) ? Short.MAX_VALUE / peak : 0;
+
+        Files.createDirectories(outFile.toPath().toAbsolutePath().getParent());
+        WavFile wav = new WavFile(WavFile.FORMAT_PCM, 1, targetSampleRate, 16, 0, length);
+        ByteBuffer bytes = buffers.bytes;
+        try (FileChannel channel = FileChannel.open(outFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            wav.writeHeader(channel, length);
+            bytes.clear();
+            for (int i = 0; i < length; i++) {
+                if (!bytes.hasRemaining()) {
+                    drain(bytes, channel);
+                }
+                bytes.putShort((short) (samples[i] * scale));
+            }
+            drain(bytes, channel);
+        }
+    }
+
+    private static void drain(ByteBuffer bytes, FileChannel channel) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    private static float[] ensureCapacity(float[] buffer, int length) {
+        // grow by half, so Files of similar length rarely reallocate
+        return (buffer.length >= length) ? buffer : new float[Math.max(length, buffer.length + buffer.length / 2)];
+    }
+
+    /**
+     * Sample & IO buffers of one worker, reused across Files.
+     */
+    private static class Buffers {
+        private float[] samples = new float[0];
+        private float[] resampled = new float[0];
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(IO_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Polyphase Filter
+     * @responsibility Resample by a rational factor up / down with a Kaiser-windowed sinc filter.
+     * @feature Coefficients are tabulated per phase (fraction of an input sample), once per rate pair.
+     */
+    static class PolyphaseFilter {
+        private final int up; // L
+        private final int down; // M
+        private final int halfTaps; // taps on each side of the output instant
+        private final int phases; // table rows - 1, row phases == fraction 1.0
+        private final float[] table; // (phases + 1) * (2 * halfTaps)
+
+        PolyphaseFilter(int sourceSampleRate, int targetSampleRate) {
+            int gcd = gcd(sourceSampleRate, targetSampleRate);
+            this.up = targetSampleRate / gcd;
+            this.down = sourceSampleRate / gcd;
+
+            // cutoff relative to the source Nyquist, lowered below the target Nyquist when downsampling
+            double cutoff = ROLLOFF * Math.min(1.0, (double) up / down);
+            double halfWidth = ZERO_CROSSINGS / cutoff; // in source samples
+            this.halfTaps = (int) Math.ceil(halfWidth);
+            this.phases = Math.min(up, MAX_PHASES);
+
+            int taps = 2 * halfTaps;
+            double kaiserNorm = besselI0(KAISER_BETA);
+            this.table = new float[(phases + 1) * taps];
+            for (int p = 0; p <= phases; p++) {
+                double fraction = (double) p / phases;
+                for (int j = 0; j < taps; j++) {
+                    double x = fraction + halfTaps - 1 - j; // output instant - input sample, in source samples
+                    double ratio = x / halfWidth;
+                    if (Math.abs(ratio) >= 1) {
+                        continue;
+                    }
+                    double window = besselI0(KAISER_BETA * Math.sqrt(1 - ratio * ratio)) / kaiserNorm;
+                    table[p * taps + j] = (float) (cutoff * sinc(cutoff * x) * window);
+                }
+            }
+        }
+
+        /**
+         * @return count of output samples, as librosa: ceil(inputLength * up / down).
+         */
+        int getOutputLength(int inputLength) {
+            return (int) (((long) inputLength * up + down - 1) / down);
+        }
+
+        /**
+         * @param input source samples, input[offset, offset + length) are used, zeros beyond.
+         * @param output receives getOutputLength(length) samples.
+         */
+        void apply(float[] input, int offset, int length, float[] output) {
+            int taps = 2 * halfTaps;
+            int outputLength = getOutputLength(length);
+            for (int n = 0; n < outputLength; n++) {
+                long position = (long) n * down; // output instant = position / up, in source samples
+                int base = (int) (position / up);
+                int phase = (int) (position % up);
+
+                // row(s) of the fraction phase / up
+                int row;
+                float weight;
+                if (phases == up) {
+                    row = phase;
+                    weight = 0;
+                } else {
+                    double exact = (double) phase * phases / up;
+                    row = (int) exact;
+                    weight = (float) (exact - row);
+                }
+                int rowOffset = row * taps;
+
+                // taps j map to input samples base - halfTaps + 1 + j, within [0, length)
+                int first = base - halfTaps + 1;
+                int jStart = Math.max(0, -first);
+                int jEnd = Math.min(taps, length - first);
+                double sum = 0;
+                if (weight == 0) {
+                    for (int j = jStart; j < jEnd; j++) {
+                        sum += table[rowOffset + j] * input[offset + first + j];
+                    }
+                } else {
+                    for (int j = jStart; j < jEnd; j++) {
+                        float coefficient = table[rowOffset + j] +
+                                weight * (table[rowOffset + taps + j] - table[rowOffset + j]);
+                        sum += coefficient * input[offset + first + j];
+                    }
+                }
+                output[n] = (float) sum;
+            }
+        }
+
+        private static double sinc(double x) {
+            return (x == 0) ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+        }
+
+        /**
+         * @return modified Bessel function of the first kind, order 0, by its power series.
+         */
+        private static double besselI0(double x) {
+            double sum = 1, term = 1;
+            double quarterSquare = x * x / 4;
+            for (int k = 1; term > 1e-12 * sum; k++) {
+                term *= quarterSquare / ((double) k * k);
+                sum += term;
+            }
+            return sum;
+        }
+
+        private static int gcd(int a, int b) {
+            return (b == 0) ? a : gcd(b, a % b);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Audio Slicer
+ * @responsibility Slice Wave Files at silences by RMS threshold, in-process.
+ * @feature Same algorithm & parameters as audio-slicer-main\slicer2.py. Frames are streamed through a sliding
+ * RMS window (no per-frame allocation), slices are copied from the source data as-is (same format, zero-copy).
+ * Multiple Files are sliced in parallel by a ForkJoinPool.
+ */
+public class AudioSlicer {
+
+    /* slicer2.py defaults */
+    public static final double DB_THRESHOLD_DEFAULT = -40; // dB
+    public static final int MIN_LENGTH_DEFAULT = 5000; // ms
+    public static final int MIN_INTERVAL_DEFAULT = 300; // ms
+    public static final int HOP_SIZE_DEFAULT = 10; // ms
+    public static final int MAX_SIL_KEPT_DEFAULT = 500; // ms
+
+    public static final String STAGE = "AudioSlicer"; // metrics stage
+    private static final int READ_BUFFER_FRAMES = 64 * 1024;
+
+    private final double dbThreshold;
+    private final int minLength;
+    private final int minInterval;
+    private final int hopSize;
+    private final int maxSilKept;
+
+    /**
+     * @param dbThreshold dB threshold for silence detection.
+     * @param minLength min milliseconds of each slice.
+     * @param minInterval min milliseconds of a silence to be sliced at.
+     * @param hopSize milliseconds per RMS frame.
+     * @param maxSilKept max milliseconds of silence kept around each slice.
+     * @throws IllegalArgumentException NOT minLength >= minInterval >= hopSize, or NOT maxSilKept >= hopSize.
+     */
+    public AudioSlicer(double dbThreshold, int minLength, int minInterval, int hopSize, int maxSilKept) {
+        if (!(minLength >= minInterval && minInterval >= hopSize)) {
+            throw new IllegalArgumentException(
+                    "The following condition must be satisfied: min_length >= min_interval >= hop_size");
+        }
+        if (!(maxSilKept >= hopSize)) {
+            throw new IllegalArgumentException("The following condition must be satisfied: max_sil_kept >= hop_size");
+        }
+        this.dbThreshold = dbThreshold;
+        this.minLength = minLength;
+        this.minInterval = minInterval;
+        this.hopSize = hopSize;
+        this.maxSilKept = maxSilKept;
+    }
+
+    /**
+     * Slice with slicer2.py defaults, except minInterval.
+     * @param minInterval min milliseconds of a silence to be sliced at.
+     */
+    public AudioSlicer(int minInterval) {
+        this(DB_THRESHOLD_DEFAULT, MIN_LENGTH_DEFAULT, minInterval, HOP_SIZE_DEFAULT, MAX_SIL_KEPT_DEFAULT);
+    }
+
+    /**
+     * Slice Wave Files in parallel, each into outDir as "<name>_<n>.wav". (Block until all done)
+     * @param audios Wave Files to be sliced.
+     * @param outDir output directory, created if absent.
+     * @param parallelism max count of Files sliced at the same time.
+     * @param afterSlicing called (in a pool Thread) per File with its count of slices, -1 if failed.
+     */
+    public void sliceAll(List<File> audios, File outDir, int parallelism, ObjIntConsumer<File> afterSlicing) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(parallelism, 1));
+        try {
+            pool.invoke(new SliceAction(audios, outDir, afterSlicing));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Splits the File list in halves until one File is left.
+     */
+    private class SliceAction extends RecursiveAction {
+        private final List<File> audios;
+        private final File outDir;
+        private final ObjIntConsumer<File> afterSlicing;
+
+        SliceAction(List<File> audios, File outDir, ObjIntConsumer<File> afterSlicing) {
+            this.audios = audios;
+            this.outDir = outDir;
+            this.afterSlicing = afterSlicing;
+        }
+
+        @Override
+        protected void compute() {
+            if (audios.size() > 1) {
+                int middle = audios.size() / 2;
+                invokeAll(new SliceAction(audios.subList(0, middle), outDir, afterSlicing),
+                        new SliceAction(audios.subList(middle, audios.size()), outDir, afterSlicing));
+                return;
+            }
+            for (File audio : audios) {
+                long startTime = System.nanoTime();
+                int sliceCount;
+                try {
+                    sliceCount = slice(audio, outDir);
+                    MetricsRegistry.getMetricsRegistry().observeSince(MetricsRegistry.TASK_WALL, STAGE, startTime);
+                } catch (IOException ex) {
+                    System.err.println("[ERROR] Failed to Slice \"" + audio.getName() + "\": " + ex.getMessage());
+                    sliceCount = -1;
+                }
+                afterSlicing.accept(audio, sliceCount);
+            }
+        }
+    }
+
+    /**
+     * Slice one Wave File into outDir as "<name>_<n>.wav". (in current Thread)
+     * @param audio Wave File to be sliced.
+     * @param outDir output directory, created if absent.
+     * @return count of slices.
+     */
+    public int slice(File audio, File outDir) throws IOException {
+        WavFile wav = WavFile.read(audio);
+        List<long[]> chunks = computeChunks(wav, audio);
+
+        Files.createDirectories(outDir.toPath());
+        try (FileChannel source = FileChannel.open(audio.toPath(), StandardOpenOption.READ)) {
+            for (int i = 0; i < chunks.size(); i++) {
+                long beginFrame = chunks.get(i)[0];
+                long frameCount = chunks.get(i)[1] - beginFrame;
+                File sliceFile = getSliceFile(audio, outDir, i);
+                try (FileChannel target = FileChannel.open(sliceFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    wav.writeHeader(target, frameCount);
+                    long position = wav.getDataOffset() + beginFrame * wav.getBlockAlign();
+                    long remaining = frameCount * wav.getBlockAlign();
+                    while (remaining > 0) {
+                        long transferred = source.transferTo(position, remaining, target);
+                        position += transferred;
+                        remaining -= transferred;
+                    }
+                }
+            }
+        }
+        return chunks.size();
+    }
+
+    /**
+     * @return the n-th slice File of an audio in outDir, "<name>_<n>.wav" (as slicer2.py names it).
+     */
+    public static File getSliceFile(File audio, File outDir, int n) {
+        String audioName = audio.getName();
+        int extensionIndex = audioName.lastIndexOf('.');
+        String baseName = (extensionIndex < 0) ? audioName : audioName.substring(0, extensionIndex);
+        return new File(outDir, baseName + "_" + n + ".wav");
+    }
+
+    /**
+     * Compute the slices of a Wave File, as slicer2.py Slicer.slice does.
+     * @return [begin, end) frame ranges of the slices, in order.
+     */
+    List<long[]> computeChunks(WavFile wav, File audio) throws IOException {
+        int sampleRate = wav.getSampleRate();
+        double minIntervalSamples = sampleRate * minInterval / 1000.0;
+        // Math.rint rounds half to even, as Python round()
+        int hop = (int) Math.rint(sampleRate * hopSize / 1000.0);
+        int window = (int) Math.min(Math.rint(minIntervalSamples), 4L * hop);
+        int minLengthFrames = (int) Math.rint(sampleRate * minLength / 1000.0 / hop);
+        int minIntervalFrames = (int) Math.rint(minIntervalSamples / hop);
+        int maxSilKeptFrames = (int) Math.rint(sampleRate * maxSilKept / 1000.0 / hop);
+        double threshold = Math.pow(10, dbThreshold / 20.0);
+
+        long frameCount = wav.getFrameCount();
+        if ((frameCount + hop - 1) / hop <= minLengthFrames) {
+            return List.of(new long[]{0, frameCount});
+        }
+        float[] rms = computeRms(wav, audio, window, hop);
+
+        List<int[]> silTags = findSilences(rms, threshold, minLengthFrames, minIntervalFrames, maxSilKeptFrames);
+
+        // apply
+        List<long[]> chunks = new ArrayList<>();
+        if (silTags.isEmpty()) {
+            chunks.add(new long[]{0, frameCount});
+            return chunks;
+        }
+        int totalFrames = rms.length;
+        if (silTags.get(0)[0] > 0) {
+            chunks.add(toFrameRange(0, silTags.get(0)[0], hop, frameCount));
+        }
+        for (int i = 0; i < silTags.size() - 1; i++) {
+            chunks.add(toFrameRange(silTags.get(i)[1], silTags.get(i + 1)[0], hop, frameCount));
+        }
+        if (silTags.get(silTags.size() - 1)[1] < totalFrames) {
+            chunks.add(toFrameRange(silTags.get(silTags.size() - 1)[1], totalFrames, hop, frameCount));
+        }
+        return chunks;
+    }
+
+    private static long[] toFrameRange(int begin, int end, int hop, long frameCount) {
+        return new long[]{Math.min((long) begin * hop, frameCount), Math.min((long) end * hop, frameCount)};
+    }
+
+    /**
+     * Stream the mono mix of a Wave File through a centered, zero-padded sliding window (as librosa get_rms).
+     * @return RMS of each frame, frame k centered at sample k * hop.
+     */
+    static float[] computeRms(WavFile wav, File audio, int window, int hop) throws IOException {
+        long sampleCount = wav.getFrameCount();
+        int pad = window / 2;
+        long paddedCount = sampleCount + 2L * pad;
+        int frameCount = (int) (1 + (paddedCount - window) / hop);
+        float[] rms = new float[frameCount];
+
+        double[] squares = new double[window]; // ring buffer of the window
+        double sum = 0;
+        int channels = wav.getChannels();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_FRAMES * wav.getBlockAlign())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(audio.toPath(), StandardOpenOption.READ)) {
+            channel.position(wav.getDataOffset());
+            int frame = 0;
+            int slot = 0;
+            long nextFrameEnd = window - 1; // frame k spans padded samples [k * hop, k * hop + window)
+            for (long p = 0; p < paddedCount && frame < frameCount; p++) {
+                // next sample of the padded mono mix
+                float sample = 0;
+                if (p >= pad && p < pad + sampleCount) {
+                    if (buffer.remaining() < wav.getBlockAlign()) {
+                        buffer.compact();
+                        while (buffer.position() < wav.getBlockAlign() && channel.read(buffer) != -1) {
+                            // fill at least one frame
+                        }
+                        buffer.flip();
+                        if (buffer.remaining() < wav.getBlockAlign()) {
+                            throw new IOException("Wave data truncated: \"" + audio.getName() + "\"");
+                        }
+                    }
+                    float mix = 0;
+                    for (int c = 0; c < channels; c++) {
+                        mix += wav.decodeSample(buffer);
+                    }
+                    sample = mix / channels;
+                }
+
+                // slide the window
+                double square = (double) sample * sample;
+                sum += square - squares[slot];
+                squares[slot] = square;
+                if (++slot == window) {
+                    slot = 0;
+                }
+
+                if (p == nextFrameEnd) {
+                    rms[frame++] = (float) Math.sqrt(Math.max(sum, 0) / window);
+                    nextFrameEnd += hop;
+                }
+            }
+        }
+        return rms;
+    }
+
+    /**
+     * Find the silent ranges to be cut, as slicer2.py does.
+     * @return [begin, end) RMS-frame ranges of silences to be removed, in order.
+     */
+    static List<int[]> findSilences(float[] rms, double threshold, int minLength, int minInterval, int maxSilKept) {
+        List<int[]> silTags = new ArrayList<>();
+        int silenceStart = -1;
+        int clipStart = 0;
+        for (int i = 0; i < rms.length; i++) {
+            // Keep looping while frame is silent.
+            if (rms[i] < threshold) {
+                // Record start of silent frames.
+                if (silenceStart < 0) {
+                    silenceStart = i;
+                }
+                continue;
+            }
+            // Keep looping while frame is not silent and silence start has not been recorded.
+            if (silenceStart < 0) {
+                continue;
+            }
+            // Clear recorded silence start if interval is not enough or clip is too short
+            boolean isLeadingSilence = silenceStart == 0 && i > maxSilKept;
+            boolean needSliceMiddle = i - silenceStart >= minInterval && i - clipStart >= minLength;
+            if (!isLeadingSilence && !needSliceMiddle) {
+                silenceStart = -1;
+                continue;
+            }
+            // Need slicing. Record the range of silent frames to be removed.
+            if (i - silenceStart <= maxSilKept) {
+                int pos = argMin(rms, silenceStart, i + 1);
+                silTags.add(silenceStart == 0 ? new int[]{0, pos} : new int[]{pos, pos});
+                clipStart = pos;
+            } else if (i - silenceStart <= maxSilKept * 2) {
+                int pos = argMin(rms, i - maxSilKept, silenceStart + maxSilKept + 1);
+                int posL = argMin(rms, silenceStart, silenceStart + maxSilKept + 1);
+                int posR = argMin(rms, i - maxSilKept, i + 1);
+                if (silenceStart == 0) {
+                    silTags.add(new int[]{0, posR});
+                    clipStart = posR;
+                } else {
+                    silTags.add(new int[]{Math.min(posL, pos), Math.max(posR, pos)});
+                    clipStart = Math.max(posR, pos);
+                }
+            } else {
+                int posL = argMin(rms, silenceStart, silenceStart + maxSilKept + 1);
+                int posR = argMin(rms, i - maxSilKept, i + 1);
+                silTags.add(silenceStart == 0 ? new int[]{0, posR} : new int[]{posL, posR});
+                clipStart = posR;
+            }
+            silenceStart = -1;
+        }
+        // Deal with trailing silence.
+        int totalFrames = rms.length;
+        if (silenceStart >= 0 && totalFrames - silenceStart >= minInterval) {
+            int silenceEnd = Math.min(totalFrames, silenceStart + maxSilKept);
+            int pos = argMin(rms, silenceStart, silenceEnd + 1);
+            silTags.add(new int[]{pos, totalFrames + 1});
+        }
+        return silTags;
+    }
+
+    /**
+     * @return index of the first minimum in rms[from, to), to clamped to rms.length (as numpy slicing).
+     */
+    private static int argMin(float[] rms, int from, int to) {
+        to = Math.min(to, rms.length);
+        int min = from;
+        for (int i = from + 1; i < to; i++) {
+            if (rms[i] < rms[min]) {
+                min = i;
+            }
+        }
+        return min;
+    }
+}
@@ -0,0 +1,289 @@
+package models;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+import static models.ExecutionAgent.SO_VITS_SVC_DIR;
+
+/**
+ * Config Service
+ * @responsibility Keep one parsed, typed Snapshot of the training config, so it is not re-read on every use.
+ * @feature The effective config is the training log config if it exists (resume), otherwise the training config.
+ * Readers get an immutable Snapshot without locking, it is dropped whenever a WatchService reports a change
+ * of either File and reloaded on the next read. Writes go to a temp File, then are moved over the config.
+ * @design SINGLETON
+ */
+public class ConfigService implements AutoCloseable {
+
+    public static final File TRAINING_CONFIG = new File(SO_VITS_SVC_DIR + "\\configs\\config.json");
+    public static final File TRAINING_CONFIG_LOG = new File(SO_VITS_SVC_DIR + "\\logs\\44k\\config.json");
+    private static final int JSON_STR_INDENT_FACTOR = 2;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static ConfigService configService;
+
+    private final File trainingConfig;
+    private final File trainingConfigLog;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs;
+    private final Thread watcherThread;
+    private final AtomicLong generation; // increased on every invalidation
+    private volatile Snapshot snapshot; // null -> invalidated, reload on next read
+
+    /**
+     * Create a Config Service over 2 config Files, and start watching them.
+     * @param trainingConfig the training config File, where writes go.
+     * @param trainingConfigLog the training log config File, preferred for reads if it exists.
+     */
+    ConfigService(File trainingConfig, File trainingConfigLog) throws IOException {
+        this.trainingConfig = trainingConfig.getAbsoluteFile();
+        this.trainingConfigLog = trainingConfigLog.getAbsoluteFile();
+        watchService = FileSystems.getDefault().newWatchService();
+        watchedDirs = new HashMap<>();
+        generation = new AtomicLong();
+        registerWatchedDirs();
+
+        watcherThread = new Thread(this::watch, "Config-Watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Get the singleton ConfigService instance.
+     * @return the ConfigService instance if present, otherwise create new.
+     */
+    public static synchronized ConfigService getConfigService() {
+        if (configService == null) {
+            try {
+                configService = new ConfigService(TRAINING_CONFIG, TRAINING_CONFIG_LOG);
+            } catch (IOException e) {
+                System.err.println("[ERROR] Failed to Watch Config Files: " + e.getMessage());
+                throw new RuntimeException(e);
+            }
+        }
+        return configService;
+    }
+
+    /**
+     * Get the current config. (thread-safe, lock-free unless it has to be reloaded)
+     * @return the Snapshot of the training log config if it exists, otherwise of the training config.
+     */
+    public Snapshot getSnapshot() throws IOException {
+        Snapshot current = snapshot;
+        return (current != null) ? current : reload();
+    }
+
+    /**
+     * Write a config to the training config File, atomically (temp File + move).
+     * @param config the config to write.
+     * @return the Snapshot of the written config.
+     */
+    public synchronized Snapshot writeTrainingConfig(JSONObject config) throws IOException {
+        String text = config.toString(JSON_STR_INDENT_FACTOR);
+        Path configPath = trainingConfig.toPath();
+        Path tempPath = configPath.resolveSibling(trainingConfig.getName() + TEMP_SUFFIX);
+        Files.createDirectories(configPath.getParent());
+        Files.writeString(tempPath, text, StandardCharsets.UTF_8);
+        try {
+            Files.move(tempPath, configPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempPath, configPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        Snapshot written = new Snapshot(trainingConfig, text);
+        if (!trainingConfigLog.exists()) {
+            snapshot = written;
+        }
+        return written;
+    }
+
+    /**
+     * Drop the current Snapshot, the next read reloads it.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * Load & Parse a config File.
+     * @param configFile the config File.
+     * @return its Snapshot.
+     */
+    public static Snapshot read(File configFile) throws IOException {
+        return new Snapshot(configFile, Files.readString(configFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stop watching the config Files.
+     */
+    @Override
+    public void close() throws IOException {
+        watcherThread.interrupt();
+        watchService.close();
+    }
+
+    private synchronized Snapshot reload() throws IOException {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        long loadedGeneration = generation.get();
+        Snapshot loaded = read(trainingConfigLog.exists() ? trainingConfigLog : trainingConfig);
+        // not published if invalidated meanwhile, it may be stale already
+        if (generation.get() == loadedGeneration) {
+            snapshot = loaded;
+        }
+        return loaded;
+    }
+
+    /**
+     * Watch the nearest existing directory on the way to each config File, so they are watched even before
+     * their directory is created (e.g. logs\44k before the first training).
+     */
+    private synchronized void registerWatchedDirs() throws IOException {
+        for (File configFile : new File[]{trainingConfig, trainingConfigLog}) {
+            Path dir = configFile.toPath().getParent();
+            while (dir != null && !Files.isDirectory(dir)) {
+                dir = dir.getParent();
+            }
+            if (dir != null && !watchedDirs.containsValue(dir)) {
+                WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                watchedDirs.put(key, dir);
+            }
+        }
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                Path dir;
+                synchronized (this) {
+                    dir = watchedDirs.get(key);
+                }
+
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW || dir == null) {
+                        relevant = true;
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context());
+                    // the config File itself, or a directory on the way to it
+                    relevant |= trainingConfig.toPath().startsWith(changed) ||
+                            trainingConfigLog.toPath().startsWith(changed);
+                }
+
+                if (!key.reset()) { // directory gone
+                    synchronized (this) {
+                        watchedDirs.remove(key);
+                    }
+                    relevant = true;
+                }
+                if (relevant) {
+                    // registered first, so what is created meanwhile is seen by the reload
+                    registerWatchedDirs();
+                    invalidate();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        } catch (IOException e) {
+            System.err.println("[WARNING] Config Files no longer Watched: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Snapshot
+     * @responsibility An immutable, typed view of one loaded config.
+     */
+    public static class Snapshot {
+        private final File source;
+        private final String text;
+        private final int logInterval;
+        private final int evalInterval;
+        private final int batchSize;
+        private final boolean fp16Run;
+        private final String halfType;
+        private final int keepCkpts;
+        private final boolean allInMem;
+        private final String speechEncoder;
+        private final List<String> speakers;
+
+        private Snapshot(File source, String text) {
+            this.source = source;
+            this.text = text;
+            JSONObject config = new JSONObject(text);
+            JSONObject train = config.getJSONObject("train");
+            logInterval = train.getInt("log_interval");
+            evalInterval = train.getInt("eval_interval");
+            batchSize = train.getInt("batch_size");
+            fp16Run = train.getBoolean("fp16_run");
+            halfType = train.optString("half_type", "fp16");
+            keepCkpts = train.getInt("keep_ckpts");
+            allInMem = train.optBoolean("all_in_mem");
+            speechEncoder = config.getJSONObject("model").getString("speech_encoder");
+
+            // speaker names, by speaker id
+            JSONObject spk = config.getJSONObject("spk");
+            List<String> names = new ArrayList<>(spk.keySet());
+            names.sort(Comparator.comparingInt(spk::getInt));
+            speakers = Collections.unmodifiableList(names);
+        }
+
+        /**
+         * @return a new, mutable JSONObject of the whole config, e.g. to modify & write it back.
+         */
+        public JSONObject toJsonObject() {
+            return new JSONObject(text);
+        }
+
+        /* Getters */
+        public File getSource() {
+            return source;
+        }
+
+        public int getLogInterval() {
+            return logInterval;
+        }
+
+        public int getEvalInterval() {
+            return evalInterval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public boolean isFp16Run() {
+            return fp16Run;
+        }
+
+        public String getHalfType() {
+            return halfType;
+        }
+
+        public int getKeepCkpts() {
+            return keepCkpts;
+        }
+
+        public boolean isAllInMem() {
+            return allInMem;
+        }
+
+        public String getSpeechEncoder() {
+            return speechEncoder;
+        }
+
+        public List<String> getSpeakers() {
+            return speakers;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content Hash
+ * @responsibility Identify File content (plus parameters affecting its products) by SHA-256.
+ */
+public final class ContentHash {
+
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024; // bytes
+
+    private ContentHash() {
+    }
+
+    /**
+     * Hash a File's content followed by the parameters. (may Block, reads the whole File)
+     * @param file the File.
+     * @param parameters extra parameters, each separated by a NUL byte.
+     * @return hex SHA-256.
+     */
+    public static String sha256(File file, String... parameters) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) { // SHA-256 is mandatory in every JRE
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // digested while reading
+            }
+        }
+        for (String parameter : parameters) {
+            digest.update((byte) 0);
+            digest.update(parameter.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
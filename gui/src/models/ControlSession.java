@@ -0,0 +1,508 @@
+package models;
+
+import org.json.JSONObject;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Control Session
+ * @responsibility Multiplex framed streams (instructions, logs, telemetry, file transfers) over ONE long-lived
+ * connection, so a call no longer costs a connection handshake.
+ * @feature Frame: stream id (int), type (byte), payload length (int), payload; big-endian, stream 0 -> session.
+ * OPEN carries the JSON header of a new stream (client ids odd, server ids even), DATA at most MAX_FRAME_PAYLOAD
+ * bytes, CLOSE ends one direction, RESET aborts both. Each direction of a stream may have STREAM_WINDOW bytes
+ * unconsumed at most, the reader grants more by WINDOW (int increment) & RESETs a stream sent beyond it.
+ * PING (long) is answered by PONG (echo), sent every heartbeat interval by both sides, a peer silent for the
+ * heartbeat timeout ends the session.
+ */
+public class ControlSession implements AutoCloseable {
+
+    static final byte OPEN = 1;
+    static final byte DATA = 2;
+    static final byte CLOSE = 3;
+    static final byte RESET = 4;
+    static final byte WINDOW = 5;
+    static final byte PING = 6;
+    static final byte PONG = 7;
+
+    public static final int MAX_FRAME_PAYLOAD = 64 * 1024; // bytes
+    public static final int STREAM_WINDOW = 1024 * 1024; // bytes
+    public static final long HEARTBEAT_INTERVAL_DEFAULT = 5000; // ms
+    public static final long HEARTBEAT_TIMEOUT_DEFAULT = 15000; // ms
+    private static final String HEARTBEAT_STAGE = "HEARTBEAT";
+    private static final int SOCKET_BUFFER_SIZE = 256 * 1024; // bytes
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out; // guarded by itself, one frame at a time
+    private final Map<Integer, Stream> streams;
+    private final BlockingQueue<Stream> acceptedStreams; // opened by the peer
+    private final AtomicInteger nextStreamId;
+    private final long heartbeatTimeout; // ns
+    private final ScheduledExecutorService heartbeat;
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.getMetricsRegistry();
+
+    private volatile long lastReceivedTime; // by System.nanoTime()
+    private volatile IOException closeCause; // NOT NULL -> session closed
+
+    /**
+     * Start a session over a connected Socket, with default heartbeats.
+     * @param socket the connection, owned by this session from now on.
+     * @param client true -> client side (odd stream ids), false -> server side (even stream ids).
+     */
+    public ControlSession(Socket socket, boolean client) throws IOException {
+        this(socket, client, HEARTBEAT_INTERVAL_DEFAULT, HEARTBEAT_TIMEOUT_DEFAULT);
+    }
+
+    /**
+     * Start a session over a connected Socket.
+     * @param socket the connection, owned by this session from now on.
+     * @param client true -> client side (odd stream ids), false -> server side (even stream ids).
+     * @param heartbeatInterval ms between PINGs.
+     * @param heartbeatTimeout ms without any frame from the peer, before the session is considered lost.
+     */
+    ControlSession(Socket socket, boolean client, long heartbeatInterval, long heartbeatTimeout) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        socket.setSendBufferSize(SOCKET_BUFFER_SIZE);
+        socket.setSoTimeout(0);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), SOCKET_BUFFER_SIZE));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), SOCKET_BUFFER_SIZE));
+        streams = new ConcurrentHashMap<>();
+        acceptedStreams = new LinkedBlockingQueue<>();
+        nextStreamId = new AtomicInteger(client ? 1 : 2);
+        this.heartbeatTimeout = TimeUnit.MILLISECONDS.toNanos(heartbeatTimeout);
+        lastReceivedTime = System.nanoTime();
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread heartbeatThread = new Thread(r, "Control-Session-Heartbeat");
+            heartbeatThread.setDaemon(true);
+            return heartbeatThread;
+        });
+        heartbeat.scheduleAtFixedRate(this::beat, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+
+        Thread readerThread = new Thread(this::readFrames, "Control-Session-Reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * Open a new stream to the peer.
+     * @param header what the stream is for, e.g. an Instruction.
+     * @return the stream.
+     * @throws IOException the session is closed.
+     */
+    public Stream openStream(JSONObject header) throws IOException {
+        Stream stream = new Stream(nextStreamId.getAndAdd(2), header);
+        streams.put(stream.id, stream);
+        try {
+            writeFrame(stream.id, OPEN, header.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            streams.remove(stream.id);
+            throw ex;
+        }
+        return stream;
+    }
+
+    /**
+     * Wait for the next stream opened by the peer.
+     * @return the stream.
+     * @throws IOException the session is closed.
+     */
+    public Stream acceptStream() throws IOException, InterruptedException {
+        while (true) {
+            Stream stream = acceptedStreams.poll(100, TimeUnit.MILLISECONDS);
+            if (stream != null) {
+                return stream;
+            }
+            checkOpen();
+        }
+    }
+
+    /**
+     * @return true -> closed, by close() or because the connection was lost.
+     */
+    public boolean isClosed() {
+        return closeCause != null;
+    }
+
+    /**
+     * Close the session & its connection, every open stream fails.
+     */
+    @Override
+    public void close() {
+        closeWith(new IOException("Session closed."));
+    }
+
+    private void checkOpen() throws IOException {
+        IOException cause = closeCause;
+        if (cause != null) {
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private void closeWith(IOException cause) {
+        synchronized (this) {
+            if (closeCause != null) {
+                return;
+            }
+            closeCause = cause;
+        }
+        heartbeat.shutdownNow();
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+        streams.values().forEach((stream) -> stream.fail(cause));
+        streams.clear();
+    }
+
+    /**
+     * Write one frame, in one go.
+     */
+    private void writeFrame(int streamId, byte type, byte[] payload, int offset, int length) throws IOException {
+        checkOpen();
+        try {
+            synchronized (out) {
+                out.writeInt(streamId);
+                out.writeByte(type);
+                out.writeInt(length);
+                out.write(payload, offset, length);
+                out.flush();
+            }
+        } catch (IOException ex) {
+            closeWith(ex);
+            throw ex;
+        }
+    }
+
+    private void writeFrame(int streamId, byte type, byte[] payload) throws IOException {
+        writeFrame(streamId, type, payload, 0, payload.length);
+    }
+
+    /**
+     * Send a control frame from the heartbeat Thread, so the reader never blocks on writing.
+     */
+    private void writeFrameLater(int streamId, byte type, byte[] payload) {
+        try {
+            heartbeat.execute(() -> {
+                try {
+                    writeFrame(streamId, type, payload);
+                } catch (IOException ignored) { // session closed by writeFrame
+                }
+            });
+        } catch (RejectedExecutionException ignored) { // session closed
+        }
+    }
+
+    /**
+     * Send a PING, or end the session if the peer has been silent for too long.
+     */
+    private void beat() {
+        if (System.nanoTime() - lastReceivedTime > heartbeatTimeout) {
+            closeWith(new IOException("Session lost, no heartbeat from peer."));
+            return;
+        }
+        try {
+            writeFrame(0, PING, ByteBuffer.allocate(Long.BYTES).putLong(System.nanoTime()).array());
+        } catch (IOException ignored) { // session closed by writeFrame
+        }
+    }
+
+    /**
+     * Read & dispatch frames until the connection ends.
+     */
+    private void readFrames() {
+        try {
+            while (true) {
+                int streamId = in.readInt();
+                byte type = in.readByte();
+                int length = in.readInt();
+                if (length < 0 || length > MAX_FRAME_PAYLOAD) {
+                    throw new IOException("Malformed frame, payload length: " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                lastReceivedTime = System.nanoTime();
+                dispatch(streamId, type, payload);
+            }
+        } catch (IOException ex) {
+            String reason = (ex instanceof EOFException) ? "closed by peer" : ex.getMessage();
+            closeWith(new IOException("Session lost: " + reason, ex));
+        }
+    }
+
+    private void dispatch(int streamId, byte type, byte[] payload) throws IOException {
+        switch (type) {
+            case PING -> writeFrameLater(0, PONG, payload);
+            case PONG -> {
+                if (payload.length == Long.BYTES) {
+                    long rtt = System.nanoTime() - ByteBuffer.wrap(payload).getLong();
+                    metricsRegistry.observe(MetricsRegistry.REMOTE_CALL, HEARTBEAT_STAGE, rtt / 1e6);
+                }
+            }
+            case OPEN -> {
+                Stream stream = new Stream(streamId, new JSONObject(new String(payload, StandardCharsets.UTF_8)));
+                streams.put(streamId, stream);
+                acceptedStreams.offer(stream);
+            }
+            default -> {
+                Stream stream = streams.get(streamId);
+                if (stream == null) { // already reset or done
+                    return;
+                }
+                switch (type) {
+                    case DATA -> stream.receiveData(payload);
+                    case CLOSE -> stream.receiveClose();
+                    case RESET -> stream.fail(new IOException("Stream reset by peer: " +
+                            new String(payload, StandardCharsets.UTF_8)));
+                    case WINDOW -> stream.grantCredit(ByteBuffer.wrap(payload).getInt());
+                    default -> throw new IOException("Unknown frame type: " + type);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream
+     * @responsibility One bidirectional, flow-controlled byte stream of the session.
+     * @feature Closing the OutputStream sends CLOSE (half-close), close() also resets the stream if the peer
+     * has not finished sending yet.
+     */
+    public class Stream implements Closeable {
+        private final int id;
+        private final JSONObject header;
+        private final Deque<byte[]> received; // guarded by this
+        private final InputStream inputStream;
+        private final OutputStream outputStream;
+
+        private int receivedOffset; // in the first received chunk
+        private int unacknowledged; // bytes consumed, not granted back by WINDOW yet
+        private long receiveWindow; // bytes the peer may still send
+        private long sendCredit;
+        private boolean remoteClosed;
+        private boolean localClosed;
+        private IOException failure;
+
+        private Stream(int id, JSONObject header) {
+            this.id = id;
+            this.header = header;
+            received = new ArrayDeque<>();
+            sendCredit = STREAM_WINDOW;
+            receiveWindow = STREAM_WINDOW;
+            inputStream = new StreamInput();
+            outputStream = new StreamOutput();
+        }
+
+        /**
+         * Abort the stream in both directions.
+         * @param reason sent to the peer.
+         */
+        public void reset(String reason) {
+            synchronized (this) {
+                if (failure != null || (localClosed && remoteClosed)) {
+                    return;
+                }
+                failure = new IOException("Stream reset: " + reason);
+                notifyAll();
+            }
+            streams.remove(id);
+            try {
+                writeFrame(id, RESET, reason.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ignored) { // session closed
+            }
+        }
+
+        /**
+         * Finish sending, and abort receiving if the peer is not done yet.
+         */
+        @Override
+        public void close() throws IOException {
+            boolean incomplete;
+            synchronized (this) {
+                incomplete = !remoteClosed;
+            }
+            if (incomplete) {
+                reset("closed by receiver");
+            } else {
+                outputStream.close();
+            }
+        }
+
+        /**
+         * Buffer received DATA, or RESET the stream if the peer sent beyond its window.
+         */
+        private void receiveData(byte[] payload) {
+            String reason = "flow control window exceeded";
+            synchronized (this) {
+                if (failure != null || remoteClosed) {
+                    return;
+                }
+                receiveWindow -= payload.length;
+                if (receiveWindow >= 0) {
+                    received.addLast(payload);
+                    notifyAll();
+                    return;
+                }
+                failure = new IOException("Stream reset: " + reason);
+                notifyAll();
+            }
+            streams.remove(id);
+            writeFrameLater(id, RESET, reason.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void receiveClose() {
+            synchronized (this) {
+                remoteClosed = true;
+                notifyAll();
+            }
+            removeIfDone();
+        }
+
+        private synchronized void grantCredit(int increment) {
+            sendCredit += increment;
+            notifyAll();
+        }
+
+        private synchronized void fail(IOException cause) {
+            if (failure == null) {
+                failure = cause;
+            }
+            streams.remove(id);
+            notifyAll();
+        }
+
+        private void removeIfDone() {
+            boolean done;
+            synchronized (this) {
+                done = localClosed && remoteClosed;
+            }
+            if (done) {
+                streams.remove(id);
+            }
+        }
+
+        /* Getters */
+        public JSONObject getHeader() {
+            return header;
+        }
+
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        private class StreamInput extends InputStream {
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return (read(single, 0, 1) == -1) ? -1 : (single[0] & 0xFF);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                int count;
+                int windowIncrement = 0;
+                synchronized (Stream.this) {
+                    while (received.isEmpty() && !remoteClosed && failure == null) {
+                        try {
+                            Stream.this.wait();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException();
+                        }
+                    }
+                    if (received.isEmpty()) {
+                        if (failure != null) {
+                            throw new IOException(failure.getMessage(), failure);
+                        }
+                        return -1;
+                    }
+
+                    byte[] chunk = received.peekFirst();
+                    count = Math.min(len, chunk.length - receivedOffset);
+                    System.arraycopy(chunk, receivedOffset, b, off, count);
+                    receivedOffset += count;
+                    if (receivedOffset == chunk.length) {
+                        received.removeFirst();
+                        receivedOffset = 0;
+                    }
+
+                    // grant the consumed bytes back, in batches of half a window
+                    unacknowledged += count;
+                    if (unacknowledged >= STREAM_WINDOW / 2 && !remoteClosed) {
+                        windowIncrement = unacknowledged;
+                        unacknowledged = 0;
+                        receiveWindow += windowIncrement;
+                    }
+                }
+                if (windowIncrement > 0) {
+                    writeFrame(id, WINDOW, ByteBuffer.allocate(Integer.BYTES).putInt(windowIncrement).array());
+                }
+                return count;
+            }
+        }
+
+        private class StreamOutput extends OutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    int count;
+                    synchronized (Stream.this) {
+                        while (sendCredit == 0 && failure == null && !localClosed) {
+                            try {
+                                Stream.this.wait();
+                            } catch (InterruptedException ex) {
+                                Thread.currentThread().interrupt();
+                                throw new InterruptedIOException();
+                            }
+                        }
+                        if (failure != null) {
+                            throw new IOException(failure.getMessage(), failure);
+                        }
+                        if (localClosed) {
+                            throw new IOException("Stream closed.");
+                        }
+                        count = (int) Math.min(Math.min(len, MAX_FRAME_PAYLOAD), sendCredit);
+                        sendCredit -= count;
+                    }
+                    writeFrame(id, DATA, b, off, count);
+                    off += count;
+                    len -= count;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                synchronized (Stream.this) {
+                    if (localClosed || failure != null) {
+                        return;
+                    }
+                    localClosed = true;
+                    Stream.this.notifyAll();
+                }
+                writeFrame(id, CLOSE, new byte[0]);
+                removeIfDone();
+            }
+        }
+    }
+}
@@ -4,17 +4,22 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
 
-import static gui.GUI.CHARSET_DISPLAY_DEFAULT;
+import static models.OutputPipeline.CHARSET_DISPLAY_DEFAULT;
 
 /**
  * Execution Agent
- * @responsibility Execute sequence of commands in a new Thread.
+ * @responsibility Execute commands as a dependency-ordered task graph, on a bounded pool of worker Threads.
  * @design SINGLETON
  */
 public class ExecutionAgent {
@@ -29,14 +34,34 @@ public class ExecutionAgent {
     public static final File TRAIN_PY = new File(SO_VITS_SVC_DIR + "\\train.py");
     public static final File INFERENCE_PY = new File(SO_VITS_SVC_DIR + "\\inference_main.py");
 
+    public static final int MAX_CONCURRENT_TASKS_DEFAULT = Runtime.getRuntime().availableProcessors();
+    private static final long IDLE_WORKER_KEEP_ALIVE = 5; // s
+
     private static ExecutionAgent executionAgent;
 
-    private final Queue<Runnable> taskQueue;
+    private final Queue<ExecutionTask> taskQueue; // pending tasks, in scheduling order
+    private final Set<ExecutionTask> runningTasks;
+    private final ExecutorService workerPool;
+
+    private final Map<Integer, PythonWorker> pythonWorkers; // GPU id -> worker
+    private final OutputPipeline outputPipeline = OutputPipeline.getOutputPipeline();
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.getMetricsRegistry();
 
-    private Process currentProcess;
+    private int maxConcurrentTasks;
+    private boolean pythonWorkerEnabled;
+    private boolean executable;
+    private ExecutionTask lastBarrier; // the latest task scheduled by executeLater
+    private TaskJournal taskJournal; // NULL -> tasks are not journaled
 
     private ExecutionAgent() {
-        taskQueue = new ConcurrentLinkedQueue<>();
+        taskQueue = new LinkedList<>();
+        runningTasks = new HashSet<>();
+        pythonWorkers = new HashMap<>();
+        maxConcurrentTasks = MAX_CONCURRENT_TASKS_DEFAULT;
+
+        AtomicInteger workerCount = new AtomicInteger();
+        workerPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, IDLE_WORKER_KEEP_ALIVE, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), (r) -> new Thread(r, "Execute-Agent-" + workerCount.incrementAndGet()));
     }
 
     /**
@@ -50,83 +75,371 @@ public class ExecutionAgent {
     /**
      * Cancel all pending & running tasks.
      */
-    public void cancelAllTasks() {
-        if (currentProcess != null) {
-            taskQueue.clear();
-            currentProcess.descendants().forEach(ProcessHandle::destroy);
-            currentProcess.destroy();
+    public synchronized void cancelAllTasks() {
+        taskQueue.forEach((task) -> {
+            task.setState(ExecutionTask.State.CANCELLED);
+            if (taskJournal != null) {
+                taskJournal.recordCancelled(task.getJournalId());
+            }
+        });
+        taskQueue.clear();
+        runningTasks.forEach(ExecutionTask::destroy);
+    }
+
+    /**
+     * Schedule a task to execute the command and then its afterExecution, AFTER all previously scheduled tasks.
+     * Tasks scheduled later (by any means) will not start before this one is done.
+     * If afterExecution == null, the same effect as afterExecution is ()->{}.
+     * @param command NON-EMPTY command with its arguments. If EMPTY, task is not to be scheduled.
+     * @param workDirectory the working directory of the task process. If NULL, use dir of the current Java process.
+     * @param afterExecution to run AFTER the command execution.
+     * @return true -> task scheduled, false otherwise.
+     */
+    public synchronized boolean executeLater(List<String> command, File workDirectory,
+                                             Consumer<Process> afterExecution) {
+        ExecutionTask barrier = scheduleTask(command, workDirectory, afterExecution,
+                Stream.concat(taskQueue.stream(), runningTasks.stream()).toArray(ExecutionTask[]::new));
+        if (barrier == null) {
+            return false;
         }
+        lastBarrier = barrier;
+        return true;
     }
 
     /**
-     * Schedule a task to execute the command and then its afterExecution.
+     * Schedule a task to execute the command and then its afterExecution, AFTER all previously scheduled tasks.
+     * Tasks scheduled later (by any means) will not start before this one is done.
      * If afterExecution == null, the same effect as afterExecution is ()->{}.
      * @param command NON-EMPTY command with its arguments. If EMPTY, task is not to be scheduled.
      * @param workDirectory the working directory of the task process. If NULL, use dir of the current Java process.
      * @param afterExecution to run AFTER the command execution.
      * @return true -> task scheduled, false otherwise.
      */
-    public boolean executeLater(List<String> command, File workDirectory, Consumer<Process> afterExecution) {
+    public boolean executeLater(String[] command, File workDirectory, Consumer<Process> afterExecution) {
+        return executeLater(Arrays.stream(command).toList(), workDirectory, afterExecution);
+    }
+
+    /**
+     * Schedule a task to execute the command and then its afterExecution, once all its dependencies are done.
+     * Tasks without pending dependencies run concurrently, up to maxConcurrentTasks at a time.
+     * If afterExecution == null, the same effect as afterExecution is ()->{}.
+     * @param command NON-EMPTY command with its arguments. If EMPTY, task is not to be scheduled.
+     * @param workDirectory the working directory of the task process. If NULL, use dir of the current Java process.
+     * @param afterExecution to run AFTER the command execution.
+     * @param dependencies tasks to be done before this task starts. NULL entries are ignored.
+     * @return the scheduled task, or NULL if not scheduled.
+     */
+    public synchronized ExecutionTask scheduleTask(List<String> command, File workDirectory,
+                                                   Consumer<Process> afterExecution, ExecutionTask... dependencies) {
         if (command.isEmpty()) {
-            return false;
+            return null;
         }
         // exist-check is embedded in directory-check
         if (workDirectory != null && !workDirectory.isDirectory()) {
             workDirectory = null;
         }
 
-        ProcessBuilder processBuilder = new ProcessBuilder(command).directory(workDirectory).redirectErrorStream(true);
-
-        // Schedule in Queue
-        return taskQueue.offer(() -> {
-            try {
-                // Run the process
-                currentProcess = processBuilder.start();
-                // Schedule after-task execution
-                currentProcess.onExit().thenAccept(afterExecution == null ? (process)->{} : afterExecution);
-                // Redirect process output
-                BufferedReader in = new BufferedReader(new InputStreamReader(currentProcess.getInputStream(),
-                        CHARSET_DISPLAY_DEFAULT));
-                String line;
-                while ((line = in.readLine()) != null) {
-                    System.out.println(line);
-                    System.out.flush();
-                }
-                in.close();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        return schedule(new ExecutionTask(command, workDirectory, afterExecution), dependencies);
     }
 
     /**
-     * Schedule a task to execute the command and then its afterExecution.
+     * Schedule a task to execute the command and then its afterExecution, once all its dependencies are done.
+     * Tasks without pending dependencies run concurrently, up to maxConcurrentTasks at a time.
      * If afterExecution == null, the same effect as afterExecution is ()->{}.
      * @param command NON-EMPTY command with its arguments. If EMPTY, task is not to be scheduled.
      * @param workDirectory the working directory of the task process. If NULL, use dir of the current Java process.
      * @param afterExecution to run AFTER the command execution.
-     * @return true -> task scheduled, false otherwise.
+     * @param dependencies tasks to be done before this task starts. NULL entries are ignored.
+     * @return the scheduled task, or NULL if not scheduled.
      */
-    public boolean executeLater(String[] command, File workDirectory, Consumer<Process> afterExecution) {
-        return executeLater(Arrays.stream(command).toList(), workDirectory, afterExecution);
+    public ExecutionTask scheduleTask(String[] command, File workDirectory, Consumer<Process> afterExecution,
+                                      ExecutionTask... dependencies) {
+        return scheduleTask(Arrays.stream(command).toList(), workDirectory, afterExecution, dependencies);
     }
 
     /**
-     * Execute all scheduled tasks orderly.
-     * When this method is in RUNNABLE_STATE -> this ExecutionAgent is in EXECUTABLE_STATE.
+     * Schedule a task to run a Python script and then its afterExecution, once all its dependencies are done.
+     * If Python Worker is enabled, the script runs in the warm PythonWorker of that GPU, otherwise in a new process.
+     * If afterExecution == null, the same effect as afterExecution is ()->{}.
+     * @param script the Python script to run.
+     * @param args arguments of the script.
+     * @param workDirectory the working directory of the script. If NULL, use dir of the current Java process.
+     * @param gpuId the only GPU visible to the script, PythonWorker.GPU_ID_NONE -> not restricted.
+     * @param afterExecution to run AFTER the script execution.
+     * @param dependencies tasks to be done before this task starts. NULL entries are ignored.
+     * @return the scheduled task.
      */
-    private synchronized void execute() {
-        while (!taskQueue.isEmpty()) {
-            taskQueue.remove().run();
+    public synchronized ExecutionTask schedulePythonTask(File script, List<String> args, File workDirectory, int gpuId,
+                                                         Consumer<Process> afterExecution,
+                                                         ExecutionTask... dependencies) {
+        // exist-check is embedded in directory-check
+        if (workDirectory != null && !workDirectory.isDirectory()) {
+            workDirectory = null;
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(PYTHON_EXE.getAbsolutePath());
+        command.add(script.getAbsolutePath());
+        command.addAll(args);
+
+        Map<String, String> environment = new HashMap<>();
+        if (gpuId != PythonWorker.GPU_ID_NONE) {
+            environment.put("CUDA_VISIBLE_DEVICES", String.valueOf(gpuId));
+        }
+
+        PythonWorker pythonWorker = pythonWorkerEnabled ?
+                pythonWorkers.computeIfAbsent(gpuId, PythonWorker::new) :
+                null;
+
+        return schedule(new ExecutionTask(command, workDirectory, environment, pythonWorker, afterExecution),
+                dependencies);
+    }
+
+    /**
+     * Schedule an in-process task (run as a JavaJob) and then its afterExecution, once all its dependencies are done.
+     * It counts against maxConcurrentTasks like a process.
+     * If afterExecution == null, the same effect as afterExecution is ()->{}.
+     * @param name name of the task, also its stage name for metrics.
+     * @param task the task, returns its exit code (0 -> succeeded).
+     * @param afterExecution to run AFTER the task execution.
+     * @param dependencies tasks to be done before this task starts. NULL entries are ignored.
+     * @return the scheduled task.
+     */
+    public synchronized ExecutionTask scheduleJavaTask(String name, IntSupplier task, Consumer<Process> afterExecution,
+                                                       ExecutionTask... dependencies) {
+        return schedule(new ExecutionTask(name, task, afterExecution), dependencies);
+    }
+
+    /**
+     * Put a task into the task graph.
+     * @param task the task to be scheduled.
+     * @param dependencies tasks to be done before this task starts. NULL entries are ignored.
+     * @return the scheduled task.
+     */
+    private ExecutionTask schedule(ExecutionTask task, ExecutionTask... dependencies) {
+        task.addDependency(lastBarrier);
+        for (ExecutionTask dependency : dependencies) {
+            task.addDependency(dependency);
+        }
+
+        // Journal before it can run
+        if (taskJournal != null && task.getJournalId() == TaskJournal.ID_NONE) {
+            task.setJournalId(taskJournal.recordScheduled(task, task.getDependencies().stream()
+                    .map(ExecutionTask::getJournalId)
+                    .filter((id) -> id != TaskJournal.ID_NONE)
+                    .toList()));
+        }
+
+        // Schedule in Queue
+        taskQueue.offer(task);
+        dispatch();
+        return task;
+    }
+
+    /**
+     * Start every ready task in scheduling order, while the concurrency limit allows.
+     * Leave EXECUTABLE_STATE once nothing is pending or running.
+     */
+    private synchronized void dispatch() {
+        if (!executable) {
+            return;
+        }
+
+        Iterator<ExecutionTask> pending = taskQueue.iterator();
+        while (pending.hasNext() && runningTasks.size() < maxConcurrentTasks) {
+            ExecutionTask task = pending.next();
+            if (task.isReady()) {
+                pending.remove();
+                task.setState(ExecutionTask.State.RUNNING);
+                runningTasks.add(task);
+                workerPool.execute(() -> run(task));
+            }
+        }
+
+        if (taskQueue.isEmpty() && runningTasks.isEmpty()) {
+            executable = false;
+        }
+    }
+
+    /**
+     * Run a single task in current Thread, redirect its output, and block until its process exits.
+     * Its afterExecution runs here too, before its dependents are released: they see whatever it did.
+     * @param task the task to run.
+     */
+    private void run(ExecutionTask task) {
+        String stage = task.getStage();
+        long startTime = System.nanoTime();
+        metricsRegistry.observe(MetricsRegistry.TASK_QUEUE_WAIT, stage,
+                (startTime - task.getScheduledTime()) / 1e6);
+        int exitCode = MetricsRegistry.EXIT_CODE_START_FAILED;
+        Process process = null;
+        try {
+            // Run the process
+            process = task.start();
+            metricsRegistry.observeSince(MetricsRegistry.TASK_SPAWN, stage, startTime);
+            // Redirect process output
+            BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                    CHARSET_DISPLAY_DEFAULT));
+            String line;
+            while ((line = in.readLine()) != null) {
+                outputPipeline.println(line);
+            }
+            in.close();
+            exitCode = process.waitFor();
+            metricsRegistry.observeSince(MetricsRegistry.TASK_WALL, stage, startTime);
+            metricsRegistry.countExit(stage, exitCode);
+            runAfterExecution(task);
+        } catch (IOException e) {
+            if (process != null) { // lost its output only, still run afterExecution once it exits
+                process.onExit().thenRun(() -> runAfterExecution(task));
+            } else {
+                metricsRegistry.countExit(stage, MetricsRegistry.EXIT_CODE_START_FAILED);
+            }
+            System.err.println("[ERROR] Failed to Execute \"" + task.getCommand().get(0) + "\": " + e.getMessage());
+        } catch (InterruptedException e) {
+            process.onExit().thenRun(() -> runAfterExecution(task));
+            Thread.currentThread().interrupt();
+        } finally {
+            finish(task, exitCode);
+        }
+    }
+
+    /**
+     * Run afterExecution of a task, reporting its failure (its dependents are released anyway).
+     * @param task the exited task.
+     */
+    private static void runAfterExecution(ExecutionTask task) {
+        try {
+            task.runAfterExecution();
+        } catch (RuntimeException ex) {
+            System.err.println("[ERROR] After Execution of \"" + task.getStage() + "\" failed: " + ex);
+        }
+    }
+
+    /**
+     * Mark a task as finished, release its dependents & dispatch the next ready tasks.
+     * @param task the finished task.
+     * @param exitCode its exit code.
+     */
+    private synchronized void finish(ExecutionTask task, int exitCode) {
+        task.setState(ExecutionTask.State.FINISHED);
+        if (taskJournal != null) {
+            taskJournal.recordFinished(task.getJournalId(), exitCode);
+        }
+        task.releaseDependents();
+        runningTasks.remove(task);
+        if (task == lastBarrier) {
+            lastBarrier = null;
+        }
+        dispatch();
+    }
+
+    /**
+     * Journal every task scheduled from now on, so the unfinished ones can be resumed by the next run.
+     * @param taskJournal the opened journal.
+     */
+    public synchronized void setTaskJournal(TaskJournal taskJournal) {
+        this.taskJournal = taskJournal;
+    }
+
+    /**
+     * Stop journaling (e.g. before exit), the tasks killed from now on stay unfinished in the journal.
+     */
+    public synchronized void closeTaskJournal() {
+        if (taskJournal != null) {
+            taskJournal.close();
+            taskJournal = null;
+        }
+    }
+
+    /**
+     * Schedule again the unfinished tasks of the journal (left by a previous run), in their order. (not invoked)
+     * In-process tasks can't be resumed: they & the tasks depending on them are recorded as cancelled.
+     * @param afterExecutionOf gives the afterExecution of a resumed task by its command.
+     * @return the resumed tasks.
+     */
+    public synchronized List<ExecutionTask> resumeJournaledTasks(
+            Function<List<String>, Consumer<Process>> afterExecutionOf) {
+        Map<Long, ExecutionTask> resumed = new LinkedHashMap<>();
+        if (taskJournal == null) {
+            return new ArrayList<>();
+        }
+        Set<Long> skipped = new HashSet<>();
+        for (TaskJournal.Entry entry : taskJournal.takeUnfinished()) {
+            if (entry.isInProcess() || entry.getDependencies().stream().anyMatch(skipped::contains)) {
+                System.err.println("[WARNING] Unable to Resume \"" + entry + "\", Skipped.");
+                skipped.add(entry.getId());
+                taskJournal.recordCancelled(entry.getId());
+                continue;
+            }
+            // exist-check is embedded in directory-check
+            File workDirectory = entry.getWorkDirectory();
+            if (workDirectory != null && !workDirectory.isDirectory()) {
+                workDirectory = null;
+            }
+
+            ExecutionTask task = new ExecutionTask(entry.getCommand(), workDirectory, entry.getEnvironment(), null,
+                    afterExecutionOf.apply(entry.getCommand()));
+            task.setJournalId(entry.getId()); // already journaled
+            schedule(task, entry.getDependencies().stream().map(resumed::get).toArray(ExecutionTask[]::new));
+            resumed.put(entry.getId(), task);
+        }
+        return new ArrayList<>(resumed.values());
+    }
+
+    /**
+     * Drop the unfinished tasks of the journal (left by a previous run), recorded as cancelled.
+     */
+    public synchronized void discardJournaledTasks() {
+        if (taskJournal != null) {
+            taskJournal.takeUnfinished().forEach((entry) -> taskJournal.recordCancelled(entry.getId()));
         }
     }
 
     /**
      * Turn this ExecutionAgent into EXECUTABLE_STATE.
-     * EXECUTABLE_STATE: execute all scheduled tasks orderly ASAP.
+     * EXECUTABLE_STATE: execute all scheduled tasks ASAP, in dependency order.
+     */
+    public synchronized void invokeExecution() {
+        executable = true;
+        dispatch();
+    }
+
+    /**
+     * Set the maximum number of tasks running at the same time.
+     * @param maxConcurrentTasks new limit, at least 1.
+     */
+    public synchronized void setMaxConcurrentTasks(int maxConcurrentTasks) {
+        this.maxConcurrentTasks = Math.max(maxConcurrentTasks, 1);
+        dispatch();
+    }
+
+    /**
+     * Enable/Disable running Python scripts in warm PythonWorkers (one per GPU), instead of new processes.
+     * Disabling lets idle workers exit, running ones exit after their submitted Jobs.
+     * @param pythonWorkerEnabled true -> enable.
      */
-    public void invokeExecution() {
-        new Thread(this::execute, "Execute-Agent").start();
+    public synchronized void setPythonWorkerEnabled(boolean pythonWorkerEnabled) {
+        this.pythonWorkerEnabled = pythonWorkerEnabled;
+        if (!pythonWorkerEnabled) {
+            shutdownPythonWorkers();
+        }
+    }
+
+    /**
+     * Let all PythonWorkers exit once their submitted Jobs are done.
+     */
+    public synchronized void shutdownPythonWorkers() {
+        pythonWorkers.values().forEach(PythonWorker::close);
+        pythonWorkers.clear();
+    }
+
+    /* Getters */
+    public synchronized int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+    public synchronized boolean isPythonWorkerEnabled() {
+        return pythonWorkerEnabled;
     }
 
 }
@@ -0,0 +1,198 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Execution Task
+ * @responsibility One node of the task graph scheduled by ExecutionAgent:
+ * a command, its working directory, its after-execution, and the tasks it has to wait for.
+ * @feature Dependencies only impose ORDER, the exit code of a dependency is not inspected.
+ */
+public class ExecutionTask {
+
+    public enum State {
+        PENDING, RUNNING, FINISHED, CANCELLED
+    }
+
+    private final ProcessBuilder processBuilder;
+    private final Map<String, String> environment; // added to the inherited one
+    private final PythonWorker pythonWorker;
+    private final IntSupplier javaTask;
+    private final Consumer<Process> afterExecution;
+    private final Set<ExecutionTask> dependencies; // unfinished ones only
+    private final List<ExecutionTask> dependents;
+    private final long scheduledTime; // by System.nanoTime()
+
+    private volatile State state;
+    private volatile Process process;
+    private long journalId = TaskJournal.ID_NONE; // guarded by the owning ExecutionAgent
+
+    ExecutionTask(List<String> command, File workDirectory, Consumer<Process> afterExecution) {
+        this(command, workDirectory, null, null, afterExecution);
+    }
+
+    /**
+     * @param command command with its arguments.
+     * @param workDirectory the working directory of the task process. If NULL, use dir of the current Java process.
+     * @param environment variables added to the environment of the task process. If NULL, inherit only.
+     * @param pythonWorker if NOT NULL, run command[1:] (a Python script & its arguments) in this worker instead.
+     * @param afterExecution to run AFTER the command execution.
+     */
+    ExecutionTask(List<String> command, File workDirectory, Map<String, String> environment,
+                  PythonWorker pythonWorker, Consumer<Process> afterExecution) {
+        this.processBuilder = new ProcessBuilder(command).directory(workDirectory).redirectErrorStream(true);
+        if (environment != null) {
+            this.processBuilder.environment().putAll(environment);
+        }
+        this.environment = environment;
+        this.pythonWorker = pythonWorker;
+        this.javaTask = null;
+        this.afterExecution = (afterExecution == null) ? (process) -> {} : afterExecution;
+        this.dependencies = new LinkedHashSet<>();
+        this.dependents = new ArrayList<>();
+        this.state = State.PENDING;
+        this.scheduledTime = System.nanoTime();
+    }
+
+    /**
+     * @param name name of the in-process task, also its stage name for metrics.
+     * @param javaTask the in-process task, returns its exit code. Run as a JavaJob.
+     * @param afterExecution to run AFTER the task execution.
+     */
+    ExecutionTask(String name, IntSupplier javaTask, Consumer<Process> afterExecution) {
+        this.processBuilder = new ProcessBuilder(name);
+        this.environment = null;
+        this.pythonWorker = null;
+        this.javaTask = javaTask;
+        this.afterExecution = (afterExecution == null) ? (process) -> {} : afterExecution;
+        this.dependencies = new LinkedHashSet<>();
+        this.dependents = new ArrayList<>();
+        this.state = State.PENDING;
+        this.scheduledTime = System.nanoTime();
+    }
+
+    /**
+     * Let this task wait for another task. (guarded by the owning ExecutionAgent)
+     * @param dependency the task to wait for, ignored if NULL, itself, or already done.
+     */
+    void addDependency(ExecutionTask dependency) {
+        if (dependency == null || dependency == this || dependency.isDone()) {
+            return;
+        }
+        if (dependencies.add(dependency)) {
+            dependency.dependents.add(this);
+        }
+    }
+
+    /**
+     * Release all dependents waiting for this task. (guarded by the owning ExecutionAgent)
+     */
+    void releaseDependents() {
+        for (ExecutionTask dependent : dependents) {
+            dependent.dependencies.remove(this);
+        }
+        dependents.clear();
+    }
+
+    /**
+     * @return true -> all dependencies are done, this task is ready to run.
+     */
+    boolean isReady() {
+        return dependencies.isEmpty();
+    }
+
+    /**
+     * Start the process (or the PythonWorker Job, or the JavaJob) of this task.
+     * @return the started Process.
+     */
+    Process start() throws IOException {
+        List<String> command = processBuilder.command();
+        if (javaTask != null) {
+            process = JavaJob.start(command.get(0), javaTask);
+        } else {
+            process = (pythonWorker == null) ?
+                    processBuilder.start() :
+                    pythonWorker.submit(command.subList(1, command.size()), processBuilder.directory());
+        }
+        return process;
+    }
+
+    /**
+     * Run afterExecution of this task, once its process exited. (in current Thread)
+     */
+    void runAfterExecution() {
+        afterExecution.accept(process);
+    }
+
+    /**
+     * Kill the process of this task (and its descendants) if it is running.
+     */
+    void destroy() {
+        Process running = process;
+        if (running != null) {
+            running.descendants().forEach(ProcessHandle::destroy);
+            running.destroy();
+        }
+    }
+
+    /**
+     * @return the tasks this task still waits for. (guarded by the owning ExecutionAgent)
+     */
+    Set<ExecutionTask> getDependencies() {
+        return dependencies;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+    void setJournalId(long journalId) {
+        this.journalId = journalId;
+    }
+
+    /* Getters */
+    public State getState() {
+        return state;
+    }
+    public boolean isDone() {
+        return state == State.FINISHED || state == State.CANCELLED;
+    }
+    public List<String> getCommand() {
+        return processBuilder.command();
+    }
+    public File getWorkDirectory() {
+        return processBuilder.directory();
+    }
+    public long getScheduledTime() {
+        return scheduledTime;
+    }
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+    public boolean isInProcess() {
+        return javaTask != null;
+    }
+    long getJournalId() {
+        return journalId;
+    }
+
+    /**
+     * @return the stage name for metrics: name of the Python script if any, otherwise name of the executable.
+     */
+    public String getStage() {
+        List<String> command = processBuilder.command();
+        for (String argument : command) {
+            if (argument.endsWith(".py")) {
+                return new File(argument).getName();
+            }
+        }
+        return new File(command.get(0)).getName();
+    }
+}
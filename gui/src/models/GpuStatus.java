@@ -0,0 +1,142 @@
+package models;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * GPU Status
+ * @responsibility One immutable telemetry sample of one GPU.
+ * @feature Parsed from one nvidia-smi CSV line, queried by QUERY_FIELDS (noheader, nounits).
+ */
+public final class GpuStatus {
+
+    public static final String QUERY_FIELDS =
+            "index,name,utilization.gpu,memory.used,memory.total,temperature.gpu,power.draw";
+    public static final List<String> COLUMN_NAMES =
+            List.of("GPU", "Name", "Util (%)", "Memory (MiB)", "Temp (C)", "Power (W)");
+
+    private final int index;
+    private final String name;
+    private final int utilization; // %
+    private final int memoryUsed; // MiB
+    private final int memoryTotal; // MiB
+    private final int temperature; // Celsius
+    private final double powerDraw; // W, NaN if not supported
+
+    public GpuStatus(int index, String name, int utilization, int memoryUsed, int memoryTotal, int temperature,
+                     double powerDraw) {
+        this.index = index;
+        this.name = name;
+        this.utilization = utilization;
+        this.memoryUsed = memoryUsed;
+        this.memoryTotal = memoryTotal;
+        this.temperature = temperature;
+        this.powerDraw = powerDraw;
+    }
+
+    /**
+     * Parse one nvidia-smi CSV line.
+     * e.g. "0, NVIDIA GeForce RTX 3060, 35, 2048, 12288, 52, 98.71"
+     * @param line CSV line of QUERY_FIELDS, without header & units.
+     * @return the GpuStatus.
+     * @throws IllegalArgumentException line is not a GpuStatus record.
+     */
+    public static GpuStatus parse(String line) {
+        String[] values = line.split(",");
+        if (values.length != 7) {
+            throw new IllegalArgumentException("Not a GPU status record: " + line);
+        }
+        try {
+            return new GpuStatus(
+                    Integer.parseInt(values[0].trim()),
+                    values[1].trim(),
+                    parseInt(values[2]),
+                    parseInt(values[3]),
+                    parseInt(values[4]),
+                    parseInt(values[5]),
+                    parseDouble(values[6])
+            );
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Not a GPU status record: " + line, ex);
+        }
+    }
+
+    /**
+     * @return value, -1 if "[N/A]" / "[Not Supported]".
+     */
+    private static int parseInt(String value) {
+        value = value.trim();
+        return value.startsWith("[") ? -1 : Integer.parseInt(value);
+    }
+
+    /**
+     * @return value, NaN if "[N/A]" / "[Not Supported]".
+     */
+    private static double parseDouble(String value) {
+        value = value.trim();
+        return value.startsWith("[") ? Double.NaN : Double.parseDouble(value);
+    }
+
+    /**
+     * Get the displayed value of a column, in the order of COLUMN_NAMES.
+     * @param column column index.
+     * @return displayed value ("N/A" if not supported).
+     */
+    public String getColumnValue(int column) {
+        return switch (column) {
+            case 0 -> String.valueOf(index);
+            case 1 -> name;
+            case 2 -> valueOrNA(utilization);
+            case 3 -> (memoryUsed < 0) ? "N/A" : memoryUsed + " / " + valueOrNA(memoryTotal);
+            case 4 -> valueOrNA(temperature);
+            case 5 -> Double.isNaN(powerDraw) ? "N/A" : String.format(Locale.ROOT, "%.1f", powerDraw);
+            default -> throw new IndexOutOfBoundsException(column);
+        };
+    }
+
+    private static String valueOrNA(int value) {
+        return (value < 0) ? "N/A" : String.valueOf(value);
+    }
+
+    /* Getters */
+    public int getIndex() {
+        return index;
+    }
+    public String getName() {
+        return name;
+    }
+    public int getUtilization() {
+        return utilization;
+    }
+    public int getMemoryUsed() {
+        return memoryUsed;
+    }
+    public int getMemoryTotal() {
+        return memoryTotal;
+    }
+    public int getTemperature() {
+        return temperature;
+    }
+    public double getPowerDraw() {
+        return powerDraw;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GpuStatus that)) {
+            return false;
+        }
+        return index == that.index && utilization == that.utilization && memoryUsed == that.memoryUsed
+                && memoryTotal == that.memoryTotal && temperature == that.temperature
+                && Double.compare(powerDraw, that.powerDraw) == 0 && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, name, utilization, memoryUsed, memoryTotal, temperature, powerDraw);
+    }
+}
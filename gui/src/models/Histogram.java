@@ -0,0 +1,130 @@
+package models;
+
+import org.json.JSONObject;
+
+/**
+ * Histogram
+ * @responsibility Summarize observed values (count, sum, min, max, bucket counts) in constant memory.
+ * @feature Bucket upper bounds follow the 1-2-5 series from 1 to 5e9, fits both milliseconds and bytes.
+ */
+public class Histogram {
+
+    static final double[] BUCKET_BOUNDS = createBucketBounds();
+
+    private final long[] bucketCounts; // per bucket (NOT cumulative), the last one is +Inf
+    private long count;
+    private double sum;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    Histogram() {
+        bucketCounts = new long[BUCKET_BOUNDS.length + 1];
+    }
+
+    private static double[] createBucketBounds() {
+        double[] bounds = new double[30];
+        double decade = 1;
+        for (int i = 0; i < bounds.length; i += 3, decade *= 10) {
+            bounds[i] = decade;
+            bounds[i + 1] = 2 * decade;
+            bounds[i + 2] = 5 * decade;
+        }
+        return bounds;
+    }
+
+    /**
+     * Record one observed value. (thread-safe)
+     * @param value the value.
+     */
+    public synchronized void observe(double value) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && value > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        bucketCounts[bucket]++;
+        count++;
+        sum += value;
+        min = (count == 1) ? value : Math.min(min, value);
+        max = (count == 1) ? value : Math.max(max, value);
+    }
+
+    /**
+     * Estimate a quantile by the upper bound of the bucket it falls in (capped by max). (thread-safe)
+     * @param q quantile in [0, 1].
+     * @return the estimate, NaN if nothing observed.
+     */
+    public synchronized double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.ceil(q * count);
+        long cumulative = 0;
+        for (int bucket = 0; bucket < BUCKET_BOUNDS.length; bucket++) {
+            cumulative += bucketCounts[bucket];
+            if (cumulative >= rank) {
+                return Math.max(Math.min(BUCKET_BOUNDS[bucket], max), min);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return cumulative count of values <= each bound of BUCKET_BOUNDS, then of all values (+Inf). (thread-safe)
+     */
+    public synchronized long[] getCumulativeCounts() {
+        long[] cumulativeCounts = new long[bucketCounts.length];
+        long cumulative = 0;
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            cumulative += bucketCounts[bucket];
+            cumulativeCounts[bucket] = cumulative;
+        }
+        return cumulativeCounts;
+    }
+
+    /**
+     * @return summary & non-empty buckets (cumulative, keyed by upper bound) as JSON. (thread-safe)
+     */
+    public synchronized JSONObject toJSON() {
+        JSONObject histogram = new JSONObject();
+        histogram.put("count", count);
+        histogram.put("sum", sum);
+        if (count > 0) {
+            histogram.put("min", min);
+            histogram.put("max", max);
+            histogram.put("mean", getMean());
+            histogram.put("p50", quantile(0.5));
+            histogram.put("p95", quantile(0.95));
+        }
+        JSONObject buckets = new JSONObject();
+        long[] cumulativeCounts = getCumulativeCounts();
+        for (int bucket = 0; bucket < BUCKET_BOUNDS.length; bucket++) {
+            if (bucketCounts[bucket] > 0) {
+                buckets.put(formatBound(BUCKET_BOUNDS[bucket]), cumulativeCounts[bucket]);
+            }
+        }
+        buckets.put("+Inf", count);
+        histogram.put("buckets", buckets);
+        return histogram;
+    }
+
+    static String formatBound(double bound) {
+        return String.valueOf((long) bound);
+    }
+
+    /* Getters */
+    public synchronized long getCount() {
+        return count;
+    }
+    public synchronized double getSum() {
+        return sum;
+    }
+    public synchronized double getMin() {
+        return min;
+    }
+    public synchronized double getMax() {
+        return max;
+    }
+    public synchronized double getMean() {
+        return (count == 0) ? Double.NaN : sum / count;
+    }
+}
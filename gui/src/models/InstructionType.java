@@ -1,5 +1,5 @@
 package models;
 
 public enum InstructionType {
-    CLEAR, SLICE, PREPROCESS, TRAIN, INFER, ABORT, GET_CONF, GET_RESULTS
+    CLEAR, SLICE, PREPROCESS, TRAIN, INFER, ABORT, GET_CONF, GET_RESULTS, GET_FEATURES, SESSION
 }
@@ -0,0 +1,55 @@
+package models;
+
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Java Job
+ * @responsibility Run an in-process task in its own Thread, seen as a Process by its owner.
+ * @feature Exit code is the value of the task, 1 if it threw. Its output goes to System.out/err directly,
+ * so its own streams are empty.
+ */
+public class JavaJob extends ProcessAdapter {
+    public static final int EXIT_CODE_FAILED = 1;
+
+    private final Thread thread;
+
+    private JavaJob(String name, IntSupplier task) {
+        super("Java-Job-" + name);
+        this.thread = new Thread(() -> {
+            int exitCode = EXIT_CODE_FAILED;
+            try {
+                exitCode = task.getAsInt();
+            } catch (RuntimeException ex) {
+                System.err.println("[ERROR] " + name + " failed: " + ex);
+            } finally { // even on an Error, so its owner & dependents never hang
+                finish(exitCode);
+            }
+        }, "Java-Job-" + name);
+    }
+
+    /**
+     * Start a task in a new Thread.
+     * @param name name of the task.
+     * @param task the task, returns its exit code.
+     * @return the started Job.
+     */
+    public static JavaJob start(String name, IntSupplier task) {
+        JavaJob job = new JavaJob(name, task);
+        job.thread.start();
+        return job;
+    }
+
+    /**
+     * Interrupt the task, it stops at its next interruption check.
+     */
+    @Override
+    public void destroy() {
+        thread.interrupt();
+    }
+
+    @Override
+    public Stream<ProcessHandle> descendants() {
+        return Stream.empty();
+    }
+}
@@ -0,0 +1,130 @@
+package models;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Jitter Buffer
+ * @responsibility Smooth out the irregular arrival of converted frames, so they can be played at a steady rate.
+ * @feature Frames are ordered by sequence number. Playout starts (& restarts after an underrun) once targetDepth
+ * frames are buffered. Frames arriving after their turn are dropped as late, the oldest are dropped beyond capacity.
+ */
+public class JitterBuffer {
+
+    private final int targetDepth;
+    private final int capacity;
+    private final TreeMap<Integer, Frame> frames; // by sequence number
+    private int nextSequence; // frames before it were played or skipped
+    private boolean primed; // playing, otherwise (re)filling up to targetDepth
+    private boolean finished; // no more frames will come
+    private long underrunCount;
+    private long droppedCount; // late or beyond capacity
+
+    /**
+     * @param targetDepth frames buffered before playout starts.
+     * @param capacity frames buffered at most.
+     */
+    public JitterBuffer(int targetDepth, int capacity) {
+        if (!(capacity >= targetDepth && targetDepth >= 1)) {
+            throw new IllegalArgumentException("The following condition must be satisfied: capacity >= depth >= 1");
+        }
+        this.targetDepth = targetDepth;
+        this.capacity = capacity;
+        frames = new TreeMap<>();
+    }
+
+    /**
+     * Buffer an arrived frame. (thread-safe)
+     * @param sequence its sequence number.
+     * @param data its content.
+     * @param capturedTime System.nanoTime() when its source was captured.
+     */
+    public synchronized void put(int sequence, byte[] data, long capturedTime) {
+        if (sequence < nextSequence) {
+            droppedCount++;
+            return;
+        }
+        frames.put(sequence, new Frame(sequence, data, capturedTime));
+        if (frames.size() > capacity) {
+            nextSequence = frames.pollFirstEntry().getKey() + 1;
+            droppedCount++;
+        }
+    }
+
+    /**
+     * Take the frame to be played now, once per frame period. (thread-safe)
+     * @return the next frame in order, NULL -> play silence (filling up, or underrun).
+     */
+    public synchronized Frame poll() {
+        if (!primed) {
+            if (frames.size() < targetDepth && !finished) {
+                return null;
+            }
+            primed = true;
+        }
+        Map.Entry<Integer, Frame> first = frames.pollFirstEntry();
+        if (first == null) {
+            if (!finished) { // ran dry: refill before playing again
+                underrunCount++;
+                primed = false;
+            }
+            return null;
+        }
+        nextSequence = first.getKey() + 1;
+        return first.getValue();
+    }
+
+    /**
+     * No more frames will come: the buffered ones are played out without waiting to fill up. (thread-safe)
+     */
+    public synchronized void finish() {
+        finished = true;
+    }
+
+    /**
+     * @return true -> finished & every frame played.
+     */
+    public synchronized boolean isDrained() {
+        return finished && frames.isEmpty();
+    }
+
+    /* Getters */
+    public synchronized int getDepth() {
+        return frames.size();
+    }
+    public synchronized long getUnderrunCount() {
+        return underrunCount;
+    }
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+    public synchronized int getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * A converted frame.
+     */
+    public static class Frame {
+        private final int sequence;
+        private final byte[] data;
+        private final long capturedTime; // System.nanoTime()
+
+        private Frame(int sequence, byte[] data, long capturedTime) {
+            this.sequence = sequence;
+            this.data = data;
+            this.capturedTime = capturedTime;
+        }
+
+        /* Getters */
+        public int getSequence() {
+            return sequence;
+        }
+        public byte[] getData() {
+            return data;
+        }
+        public long getCapturedTime() {
+            return capturedTime;
+        }
+    }
+}
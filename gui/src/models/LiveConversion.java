@@ -0,0 +1,431 @@
+package models;
+
+import org.json.JSONObject;
+
+import javax.sound.sampled.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+
+/**
+ * Live Conversion
+ * @responsibility Convert a voice near-live: capture it frame by frame, convert it on a Server, play it back.
+ * @feature Frames of FRAME_MILLIS (16-bit mono PCM at SAMPLE_RATE) are sent through ONE persistent stream as
+ * (32-bit sequence number, PCM), converted frames come back the same way into a JitterBuffer, played out every
+ * FRAME_MILLIS (silence while it fills up or runs dry). End-to-end latency (captured -> played, by the playback
+ * position of the sink) & buffer depth are recorded in MetricsRegistry (stage STAGE), underruns are counted.
+ * Sources: a TargetDataLine (e.g. microphone), or a Wave File played back in real time.
+ */
+public class LiveConversion implements AutoCloseable {
+
+    public static final int SAMPLE_RATE = AudioResampler.TARGET_SAMPLE_RATE_DEFAULT; // Hz
+    public static final int FRAME_MILLIS = 20;
+    public static final int FRAME_SAMPLES = SAMPLE_RATE * FRAME_MILLIS / 1000;
+    public static final int FRAME_BYTES = FRAME_SAMPLES * Short.BYTES;
+    public static final AudioFormat AUDIO_FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+    public static final String STAGE = "live"; // metrics stage
+    private static final int JITTER_DEPTH = 3; // frames buffered before playout
+    private static final int JITTER_CAPACITY = 50; // frames, older ones are dropped
+
+    private final FrameSource source;
+    private final FrameSink sink;
+    private final DataInputStream fromServer;
+    private final DataOutputStream toServer;
+    private final Closeable connection;
+    private final JitterBuffer jitterBuffer;
+    private final ConcurrentNavigableMap<Integer, Long> capturedTimes; // sequence number -> System.nanoTime()
+    private final Deque<long[]> unplayedFrames; // (end sample position, captured time) written to the sink, in order
+    private final ScheduledExecutorService playout;
+    private final CompletableFuture<Void> ended;
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.getMetricsRegistry();
+    private volatile Histogram recentLatency = new Histogram(); // since the last getStatus
+    private long writtenSamples; // to the sink (in playout Thread)
+    private volatile boolean closed;
+
+    /**
+     * Start converting through a Server supporting FEATURE_LIVE_CONVERT.
+     * @param agent the Server.
+     * @param settings conversion settings, e.g. "spk", "f0_predictor", "gpu_id".
+     * @param source the voice to convert.
+     * @param sink where converted frames are played.
+     * @return the running conversion.
+     */
+    public static LiveConversion start(RemoteAgent agent, JSONObject settings, FrameSource source, FrameSink sink)
+            throws IOException {
+        JSONObject header = new JSONObject(settings.toString());
+        header.put("sample_rate", SAMPLE_RATE);
+        header.put("frame_samples", FRAME_SAMPLES);
+        ControlSession.Stream stream = agent.openLiveStream(header);
+        LiveConversion conversion = new LiveConversion(source, sink, stream.getInputStream(),
+                stream.getOutputStream(), stream);
+        conversion.start();
+        return conversion;
+    }
+
+    /**
+     * @param fromServer converted frames.
+     * @param toServer frames to convert.
+     * @param connection closed on close().
+     */
+    LiveConversion(FrameSource source, FrameSink sink, InputStream fromServer, OutputStream toServer,
+                   Closeable connection) {
+        this.source = source;
+        this.sink = sink;
+        this.fromServer = new DataInputStream(new BufferedInputStream(fromServer));
+        this.toServer = new DataOutputStream(new BufferedOutputStream(toServer));
+        this.connection = connection;
+        jitterBuffer = new JitterBuffer(JITTER_DEPTH, JITTER_CAPACITY);
+        capturedTimes = new ConcurrentSkipListMap<>();
+        unplayedFrames = new ArrayDeque<>();
+        ended = new CompletableFuture<>();
+        playout = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread playoutThread = new Thread(r, "Live-Playout");
+            playoutThread.setDaemon(true);
+            playoutThread.setPriority(Thread.MAX_PRIORITY);
+            return playoutThread;
+        });
+    }
+
+    /**
+     * Start capturing, receiving & playing, each in its own Thread.
+     */
+    void start() {
+        Thread captureThread = new Thread(this::capture, "Live-Capture");
+        captureThread.setDaemon(true);
+        captureThread.start();
+        Thread receiveThread = new Thread(this::receive, "Live-Receive");
+        receiveThread.setDaemon(true);
+        receiveThread.start();
+        playout.scheduleAtFixedRate(this::playNextFrame, 0, FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Send every captured frame, then finish sending.
+     */
+    private void capture() {
+        byte[] frame = new byte[FRAME_BYTES];
+        try {
+            for (int sequence = 0; !closed && source.read(frame) != -1; sequence++) {
+                capturedTimes.put(sequence, System.nanoTime());
+                toServer.writeInt(sequence);
+                toServer.write(frame);
+                toServer.flush();
+            }
+            toServer.close(); // the Server ends its reply then
+        } catch (IOException ex) {
+            fail(ex);
+        }
+    }
+
+    /**
+     * Buffer every converted frame, until the Server ends its reply.
+     */
+    private void receive() {
+        try {
+            while (!closed) {
+                int sequence;
+                try {
+                    sequence = fromServer.readInt();
+                } catch (EOFException ex) { // all converted
+                    break;
+                }
+                byte[] frame = new byte[FRAME_BYTES];
+                fromServer.readFully(frame);
+                Long capturedTime = capturedTimes.remove(sequence);
+                jitterBuffer.put(sequence, frame, (capturedTime == null) ? System.nanoTime() : capturedTime);
+                evictCapturedTimes();
+            }
+        } catch (IOException ex) {
+            fail(ex);
+        } finally {
+            jitterBuffer.finish();
+        }
+    }
+
+    /**
+     * Forget the captured times of frames the JitterBuffer has moved past (played, skipped or dropped), as they are
+     * dropped as late if they ever arrive.
+     */
+    private void evictCapturedTimes() {
+        capturedTimes.headMap(jitterBuffer.getNextSequence()).clear();
+    }
+
+    /**
+     * Play one frame (or silence), once per FRAME_MILLIS.
+     */
+    private void playNextFrame() {
+        try {
+            metricsRegistry.observe(MetricsRegistry.LIVE_BUFFER_FRAMES, STAGE, jitterBuffer.getDepth());
+            observePlayedFrames();
+            JitterBuffer.Frame frame = jitterBuffer.poll();
+            evictCapturedTimes();
+            if (frame == null) {
+                if (jitterBuffer.isDrained()) {
+                    if (!unplayedFrames.isEmpty()) { // let the sink play out its buffer
+                        return;
+                    }
+                    playout.shutdown();
+                    ended.complete(null);
+                    return;
+                }
+                sink.write(new byte[FRAME_BYTES]);
+                writtenSamples += FRAME_SAMPLES;
+                return;
+            }
+            sink.write(frame.getData());
+            writtenSamples += FRAME_SAMPLES;
+            unplayedFrames.addLast(new long[]{writtenSamples, frame.getCapturedTime()});
+            observePlayedFrames();
+        } catch (IOException ex) {
+            fail(ex);
+        }
+    }
+
+    /**
+     * Record the latency of the frames the sink has played by now. (in playout Thread)
+     */
+    private void observePlayedFrames() {
+        long playedSamples = sink.getPlayedSamples();
+        if (playedSamples < 0) { // unknown: played as written
+            playedSamples = writtenSamples;
+        }
+        long now = System.nanoTime();
+        while (!unplayedFrames.isEmpty() && unplayedFrames.peekFirst()[0] <= playedSamples) {
+            double latency = (now - unplayedFrames.pollFirst()[1]) / 1e6;
+            metricsRegistry.observe(MetricsRegistry.LIVE_LATENCY, STAGE, latency);
+            recentLatency.observe(latency);
+        }
+    }
+
+    private void fail(IOException ex) {
+        if (!closed) {
+            System.err.println("[ERROR] Live Conversion Failed: " + ex.getMessage());
+            ended.completeExceptionally(ex);
+            close();
+        }
+    }
+
+    /**
+     * Wait until the source ended & every converted frame was played. (Block)
+     * @throws IOException the conversion failed.
+     */
+    public void awaitEnd() throws IOException, InterruptedException {
+        try {
+            ended.get();
+        } catch (ExecutionException ex) {
+            throw (ex.getCause() instanceof IOException) ? (IOException) ex.getCause()
+                    : new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * @return latency of the frames played since the last call & underruns so far, e.g. for a status line.
+     */
+    public String getStatus() {
+        Histogram latency = recentLatency;
+        recentLatency = new Histogram();
+        String latencyText = (latency.getCount() == 0) ? "-" :
+                String.format("%.0f ms (max %.0f ms)", latency.getMean(), latency.getMax());
+        return "Latency " + latencyText + ", Buffer " + jitterBuffer.getDepth() + " frame(s), Underruns " +
+                jitterBuffer.getUnderrunCount() + ", Dropped " + jitterBuffer.getDroppedCount();
+    }
+
+    /**
+     * Stop converting: close the source, the sink & the stream.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        playout.shutdownNow();
+        ended.complete(null);
+        capturedTimes.clear();
+        for (Closeable closeable : new Closeable[]{source, connection, sink}) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /* Getters */
+    public long getUnderrunCount() {
+        return jitterBuffer.getUnderrunCount();
+    }
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Captured audio, in frames of FRAME_BYTES.
+     */
+    public interface FrameSource extends Closeable {
+        /**
+         * Read the next frame. (Block until captured)
+         * @param frame filled with FRAME_BYTES.
+         * @return FRAME_BYTES, -1 -> ended.
+         */
+        int read(byte[] frame) throws IOException;
+
+        /**
+         * Stop capturing, a blocked read returns -1.
+         */
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Where converted frames are played.
+     */
+    public interface FrameSink extends Closeable {
+        void write(byte[] frame) throws IOException;
+
+        /**
+         * @return samples actually played so far (e.g. line.getLongFramePosition()), -1 -> unknown, every written
+         * sample counts as played.
+         */
+        default long getPlayedSamples() {
+            return -1;
+        }
+
+        /**
+         * Stop playing.
+         */
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Capture from an audio line, opened & started in AUDIO_FORMAT.
+     * @param line e.g. AudioSystem.getTargetDataLine(AUDIO_FORMAT).
+     */
+    public static FrameSource fromLine(TargetDataLine line) throws LineUnavailableException {
+        line.open(AUDIO_FORMAT, FRAME_BYTES * JITTER_DEPTH);
+        line.start();
+        return new FrameSource() {
+            @Override
+            public int read(byte[] frame) {
+                int read = 0;
+                while (read < frame.length && line.isOpen()) {
+                    read += line.read(frame, read, frame.length - read);
+                }
+                return (read < frame.length) ? -1 : read;
+            }
+
+            @Override
+            public void close() {
+                line.close();
+            }
+        };
+    }
+
+    /**
+     * Play to an audio line, opened & started in AUDIO_FORMAT.
+     * @param line e.g. AudioSystem.getSourceDataLine(AUDIO_FORMAT).
+     */
+    public static FrameSink toLine(SourceDataLine line) throws LineUnavailableException {
+        line.open(AUDIO_FORMAT, FRAME_BYTES * JITTER_DEPTH * 2);
+        line.start();
+        return new FrameSink() {
+            @Override
+            public void write(byte[] frame) {
+                line.write(frame, 0, frame.length);
+            }
+
+            @Override
+            public long getPlayedSamples() {
+                return line.getLongFramePosition();
+            }
+
+            @Override
+            public void close() {
+                line.close();
+            }
+        };
+    }
+
+    /**
+     * Play back a Wave File in real time, as if captured: mono mix, resampled to SAMPLE_RATE, one frame per
+     * FRAME_MILLIS. The last frame is padded with silence.
+     * @param wavFile the Wave File.
+     */
+    public static FrameSource fromFile(File wavFile) throws IOException {
+        WavFile wav = WavFile.read(wavFile);
+        if (wav.getFrameCount() > Integer.MAX_VALUE / wav.getBlockAlign()) {
+            throw new IOException("Wave File too long: \"" + wavFile.getName() + "\"");
+        }
+        ByteBuffer data = ByteBuffer.allocate((int) wav.getFrameCount() * wav.getBlockAlign())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(wavFile.toPath(), StandardOpenOption.READ)) {
+            long position = wav.getDataOffset();
+            while (data.hasRemaining()) {
+                int read = channel.read(data, position);
+                if (read == -1) { // truncated File: play what is there
+                    break;
+                }
+                position += read;
+            }
+        }
+        data.flip();
+        float[] samples = new float[data.remaining() / wav.getBlockAlign()];
+        for (int i = 0; i < samples.length; i++) {
+            float mix = 0;
+            for (int c = 0; c < wav.getChannels(); c++) {
+                mix += wav.decodeSample(data);
+            }
+            samples[i] = mix / wav.getChannels();
+        }
+        if (wav.getSampleRate() != SAMPLE_RATE) {
+            AudioResampler.PolyphaseFilter filter = new AudioResampler.PolyphaseFilter(wav.getSampleRate(),
+                    SAMPLE_RATE);
+            float[] resampled = new float[filter.getOutputLength(samples.length)];
+            filter.apply(samples, 0, samples.length, resampled);
+            samples = resampled;
+        }
+        float[] pcm = samples;
+
+        return new FrameSource() {
+            private final long startTime = System.nanoTime();
+            private int position; // in samples
+            private long framesRead;
+            private volatile boolean stopped;
+
+            @Override
+            public int read(byte[] frame) throws IOException {
+                if (stopped || position >= pcm.length) {
+                    return -1;
+                }
+                // pace: frame n is captured once n + 1 frames have elapsed
+                long dueTime = startTime + (framesRead + 1) * FRAME_MILLIS * 1_000_000L;
+                long waitNanos = dueTime - System.nanoTime();
+                if (waitNanos > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Playback interrupted.");
+                    }
+                }
+                ByteBuffer out = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < FRAME_SAMPLES; i++, position++) {
+                    float sample = (position < pcm.length) ? pcm[position] : 0;
+                    out.putShort((short) Math.round(Math.max(-1, Math.min(1, sample)) * Short.MAX_VALUE));
+                }
+                framesRead++;
+                return FRAME_BYTES;
+            }
+
+            @Override
+            public void close() {
+                stopped = true;
+            }
+        };
+    }
+}
@@ -0,0 +1,187 @@
+package models;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics Registry
+ * @responsibility Collect per-stage metrics of ExecutionAgent tasks & RemoteAgent calls, and export them.
+ * @feature Each metric keeps one Histogram per stage (e.g. "resample.py", "TRAIN"), task exit codes are counted.
+ * Exported as JSON or Prometheus text format.
+ * @design SINGLETON
+ */
+public class MetricsRegistry {
+
+    /* Histogram metrics */
+    public static final String TASK_QUEUE_WAIT = "task_queue_wait_ms"; // scheduled -> started
+    public static final String TASK_SPAWN = "task_spawn_ms"; // process (or worker Job) start latency
+    public static final String TASK_WALL = "task_wall_ms"; // started -> exited
+    public static final String REMOTE_CALL = "remote_call_ms"; // Server instruction / transfer wall time
+    public static final String REMOTE_BYTES_SENT = "remote_bytes_sent";
+    public static final String REMOTE_BYTES_RECEIVED = "remote_bytes_received";
+    public static final String REMOTE_COMPRESSED_PERCENTAGE = "remote_compressed_pct"; // on the wire, of raw size
+    public static final String TRAIN_SAMPLES_PER_GPU = "train_samples_per_gpu_s"; // stage: GPU count, e.g. "x4"
+    public static final String LIVE_LATENCY = "live_latency_ms"; // live frame captured -> played
+    public static final String LIVE_BUFFER_FRAMES = "live_buffer_frames"; // jitter buffer depth, per played frame
+    /* Counter metrics */
+    public static final String TASK_EXIT = "task_exit_total";
+
+    public static final int EXIT_CODE_START_FAILED = -1;
+    private static final String PROMETHEUS_PREFIX = "svc_";
+
+    private static MetricsRegistry metricsRegistry;
+
+    // metric -> stage -> Histogram, sorted for stable export
+    private final Map<String, Map<String, Histogram>> histograms;
+    // stage -> exit code -> count
+    private final Map<String, Map<Integer, LongAdder>> exitCounts;
+    private final AtomicLong version; // increased on every change
+
+    private MetricsRegistry() {
+        histograms = new ConcurrentSkipListMap<>();
+        exitCounts = new ConcurrentSkipListMap<>();
+        version = new AtomicLong();
+    }
+
+    /**
+     * Get the singleton MetricsRegistry instance.
+     * @return the MetricsRegistry instance if present, otherwise create new.
+     */
+    public static synchronized MetricsRegistry getMetricsRegistry() {
+        return (metricsRegistry == null) ? (metricsRegistry = new MetricsRegistry()) : (metricsRegistry);
+    }
+
+    /**
+     * Record one value of a histogram metric. (thread-safe)
+     * @param metric metric name, e.g. TASK_WALL.
+     * @param stage stage name.
+     * @param value the value (ms or bytes).
+     */
+    public void observe(String metric, String stage, double value) {
+        histograms.computeIfAbsent(metric, (m) -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(stage, (s) -> new Histogram())
+                .observe(value);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Record the elapsed time since startNanos of a timing metric. (thread-safe)
+     * @param metric metric name, e.g. TASK_WALL.
+     * @param stage stage name.
+     * @param startNanos start time by System.nanoTime().
+     */
+    public void observeSince(String metric, String stage, long startNanos) {
+        observe(metric, stage, (System.nanoTime() - startNanos) / 1e6);
+    }
+
+    /**
+     * Count one exited task. (thread-safe)
+     * @param stage stage name.
+     * @param exitCode exit code of the task, EXIT_CODE_START_FAILED if it failed to start.
+     */
+    public void countExit(String stage, int exitCode) {
+        exitCounts.computeIfAbsent(stage, (s) -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(exitCode, (c) -> new LongAdder())
+                .increment();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Drop all recorded metrics. (thread-safe)
+     */
+    public void reset() {
+        histograms.clear();
+        exitCounts.clear();
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return all metrics as JSON: {"histograms": {metric: {stage: Histogram}}, TASK_EXIT: {stage: {code: count}}}
+     */
+    public JSONObject toJSON() {
+        JSONObject histogramsJSON = new JSONObject();
+        histograms.forEach((metric, stages) -> {
+            JSONObject stagesJSON = new JSONObject();
+            stages.forEach((stage, histogram) -> stagesJSON.put(stage, histogram.toJSON()));
+            histogramsJSON.put(metric, stagesJSON);
+        });
+
+        JSONObject exitCountsJSON = new JSONObject();
+        exitCounts.forEach((stage, codes) -> {
+            JSONObject codesJSON = new JSONObject();
+            codes.forEach((code, count) -> codesJSON.put(String.valueOf(code), count.sum()));
+            exitCountsJSON.put(stage, codesJSON);
+        });
+
+        JSONObject metrics = new JSONObject();
+        metrics.put("histograms", histogramsJSON);
+        metrics.put(TASK_EXIT, exitCountsJSON);
+        return metrics;
+    }
+
+    /**
+     * @return all metrics in Prometheus text exposition format, names prefixed by PROMETHEUS_PREFIX.
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        histograms.forEach((metric, stages) -> {
+            String name = PROMETHEUS_PREFIX + metric;
+            text.append("# TYPE ").append(name).append(" histogram\n");
+            stages.forEach((stage, histogram) -> {
+                String stageLabel = "stage=\"" + escapeLabelValue(stage) + "\"";
+                long[] cumulativeCounts = histogram.getCumulativeCounts();
+                for (int bucket = 0; bucket < cumulativeCounts.length; bucket++) {
+                    String bound = (bucket < Histogram.BUCKET_BOUNDS.length) ?
+                            Histogram.formatBound(Histogram.BUCKET_BOUNDS[bucket]) :
+                            "+Inf";
+                    text.append(name).append("_bucket{").append(stageLabel).append(",le=\"").append(bound)
+                            .append("\"} ").append(cumulativeCounts[bucket]).append('\n');
+                }
+                text.append(name).append("_sum{").append(stageLabel).append("} ").append(histogram.getSum())
+                        .append('\n');
+                text.append(name).append("_count{").append(stageLabel).append("} ")
+                        .append(cumulativeCounts[cumulativeCounts.length - 1]).append('\n');
+            });
+        });
+
+        if (!exitCounts.isEmpty()) {
+            String name = PROMETHEUS_PREFIX + TASK_EXIT;
+            text.append("# TYPE ").append(name).append(" counter\n");
+            exitCounts.forEach((stage, codes) -> codes.forEach((code, count) ->
+                    text.append(name).append("{stage=\"").append(escapeLabelValue(stage)).append("\",code=\"")
+                            .append(code).append("\"} ").append(count.sum()).append('\n')));
+        }
+        return text.toString();
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Export all metrics to a local File, as JSON if its name ends with ".json", otherwise as Prometheus text.
+     * @param file the File to be (over)written.
+     */
+    public void exportTo(File file) throws IOException {
+        String content = file.getName().toLowerCase().endsWith(".json") ?
+                toJSON().toString(2) :
+                toPrometheus();
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+    }
+
+    /* Getters */
+    public Map<String, Map<String, Histogram>> getHistograms() {
+        return histograms;
+    }
+    public long getVersion() {
+        return version.get();
+    }
+}
@@ -0,0 +1,104 @@
+package models;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Output Pipeline
+ * @responsibility Carry output text from producer Threads (e.g. process readers) to one consumer (e.g. the console).
+ * @feature Producers only enqueue into a lock-free queue, the consumer drains everything pending in one batch.
+ * Without a consumer, output goes straight to System.out. Observers see every line (e.g. to parse progress).
+ * @design SINGLETON
+ */
+public class OutputPipeline {
+
+    public static final Charset CHARSET_DISPLAY_DEFAULT = StandardCharsets.UTF_8;
+
+    private static OutputPipeline outputPipeline;
+
+    private final Queue<String> pendingOutput;
+    private final List<Consumer<String>> observers;
+
+    private volatile boolean consumed;
+
+    private OutputPipeline() {
+        pendingOutput = new ConcurrentLinkedQueue<>();
+        observers = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Get the singleton OutputPipeline instance.
+     * @return the OutputPipeline instance if present, otherwise create new.
+     */
+    public static synchronized OutputPipeline getOutputPipeline() {
+        return (outputPipeline == null) ? (outputPipeline = new OutputPipeline()) : (outputPipeline);
+    }
+
+    /**
+     * Output a line of text. (thread-safe, lock-free while consumed)
+     * @param line the line, without line separator.
+     */
+    public void println(String line) {
+        for (Consumer<String> observer : observers) {
+            observer.accept(line);
+        }
+        if (consumed) {
+            pendingOutput.offer(line + '\n');
+        } else {
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Add an observer of every line output by println. (thread-safe)
+     * @param observer called in the producer Thread, must not block.
+     */
+    public void addObserver(Consumer<String> observer) {
+        observers.add(observer);
+    }
+
+    /**
+     * Remove an observer. (thread-safe)
+     * @param observer the observer added before.
+     */
+    public void removeObserver(Consumer<String> observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Queue a piece of text as it is, for the consumer. (thread-safe, lock-free)
+     * @param text the text.
+     */
+    public void offer(String text) {
+        pendingOutput.offer(text);
+    }
+
+    /**
+     * Take all pending output, in order. (by the consumer only)
+     * @return pending output joined, EMPTY if nothing is pending.
+     */
+    public String drain() {
+        StringBuilder drained = new StringBuilder();
+        String text;
+        while ((text = pendingOutput.poll()) != null) {
+            drained.append(text);
+        }
+        return drained.toString();
+    }
+
+    /**
+     * Attach/Detach the consumer. Once detached, pending output is discarded.
+     * @param consumed true -> a consumer drains this pipeline.
+     */
+    public void setConsumed(boolean consumed) {
+        this.consumed = consumed;
+        if (!consumed) {
+            pendingOutput.clear();
+        }
+    }
+}
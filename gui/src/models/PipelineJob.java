@@ -0,0 +1,282 @@
+package models;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static models.PipelineService.*;
+import static models.SliceCache.SLICE_CACHE_DIR_DEFAULT;
+import static models.SliceCache.SLICE_CACHE_SIZE_MAX_DEFAULT;
+
+/**
+ * Pipeline Job
+ * @responsibility Run the stages listed in a job spec File one after another by PipelineService, without UI.
+ * @feature Progress is reported as JSON lines (one event per line), the console output goes to System.err:
+ * {"event":"stage_start","stage":"slice"}, {"event":"progress","stage":"slice","completed":1,"total":2},
+ * {"event":"stage_end","stage":"slice","succeeded":true,"elapsed_ms":1234}, {"event":"job_end",...}.
+ * The job stops at the first failed stage. Relative paths in the spec are resolved against its directory.
+ * The dataset directories default to SLICING_OUT_DIR_DEFAULT & PREPROCESS_OUT_DIR_DEFAULT, a slice stage may still
+ * name its own "out_dir".
+ * Job spec, e.g.
+ * {"max_concurrent_tasks": 8, "python_worker": true, "dataset_raw_dir": "dataset_raw", "dataset_dir": "dataset\\44k",
+ *  "stages": [
+ *   {"stage": "slice", "voices": ["voice.wav"], "spk": "alice"},
+ *   {"stage": "preprocess", "encoder": "vec768l12", "f0_predictor": "rmvpe", "loudness_embedding": false,
+ *    "java_resampler": true},
+ *   {"stage": "train", "gpu_ids": [0, 1], "train": {"batch_size": 6, "keep_ckpts": 3}},
+ *   {"stage": "infer", "vocals": ["song.wav"], "spk": "alice", "f0_predictor": "pm", "nsf_hifigan": false,
+ *    "gpu_ids": [0]}
+ * ]}
+ */
+public class PipelineJob {
+
+    public static final String HEADLESS_OPTION = "--headless";
+    public static final int EXIT_CODE_FAILED = 1; // some stage failed
+    public static final int EXIT_CODE_INVALID = 2; // invalid command line or job spec
+
+    private static final Set<String> STAGES = Set.of(STAGE_SLICE, STAGE_PREPROCESS, STAGE_TRAIN, STAGE_INFER);
+
+    private final JSONObject spec;
+    private final List<JSONObject> stages;
+    private final File baseDir;
+    private final PrintStream events;
+
+    /**
+     * Create a job, validating its spec.
+     * @param spec the job spec.
+     * @param baseDir the directory relative paths are resolved against.
+     * @param events where JSON line events are printed.
+     * @throws IllegalArgumentException invalid spec, e.g. unknown stage, missing input File.
+     */
+    PipelineJob(JSONObject spec, File baseDir, PrintStream events) {
+        this.spec = spec;
+        this.baseDir = baseDir;
+        this.events = events;
+        stages = new ArrayList<>();
+        try {
+            JSONArray stageArray = spec.getJSONArray("stages");
+            for (int i = 0; i < stageArray.length(); i++) {
+                JSONObject stage = stageArray.getJSONObject(i);
+                String name = stage.getString("stage");
+                if (!STAGES.contains(name)) {
+                    throw new IllegalArgumentException("Unknown stage \"" + name + "\", expected one of " + STAGES);
+                }
+                switch (name) {
+                    case STAGE_SLICE -> resolveFiles(stage, "voices");
+                    case STAGE_INFER -> {
+                        resolveFiles(stage, "vocals");
+                        stage.getString("spk");
+                    }
+                }
+                stages.add(stage);
+            }
+        } catch (JSONException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Load a job from its spec File.
+     * @param specFile the job spec File (JSON).
+     * @param events where JSON line events are printed.
+     * @return the job.
+     * @throws IllegalArgumentException invalid spec.
+     */
+    public static PipelineJob load(File specFile, PrintStream events) throws IOException {
+        JSONObject spec;
+        try {
+            spec = new JSONObject(Files.readString(specFile.toPath(), StandardCharsets.UTF_8));
+        } catch (JSONException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+        return new PipelineJob(spec, specFile.getAbsoluteFile().getParentFile(), events);
+    }
+
+    /**
+     * Run a job spec File headlessly: events to System.out, console output to System.err.
+     * @param specFile the job spec File (JSON).
+     * @return exit code, 0 -> every stage succeeded.
+     */
+    public static int runHeadless(File specFile) {
+        System.setProperty("java.awt.headless", "true");
+        PrintStream events = System.out;
+        System.setOut(System.err);
+
+        PipelineJob job;
+        try {
+            job = load(specFile, events);
+        } catch (IOException ex) {
+            System.err.println("[ERROR] Failed to Read Job Spec: " + ex);
+            return EXIT_CODE_INVALID;
+        } catch (IllegalArgumentException ex) {
+            System.err.println("[ERROR] Invalid Job Spec \"" + specFile + "\": " + ex.getMessage());
+            return EXIT_CODE_INVALID;
+        }
+
+        ExecutionAgent executionAgent = ExecutionAgent.getExecutionAgent();
+        executionAgent.setMaxConcurrentTasks(job.spec.optInt("max_concurrent_tasks",
+                ExecutionAgent.MAX_CONCURRENT_TASKS_DEFAULT));
+        executionAgent.setPythonWorkerEnabled(job.spec.optBoolean("python_worker"));
+        PipelineService pipelineService = new PipelineService(executionAgent, ConfigService.getConfigService(),
+                new SliceCache(SLICE_CACHE_DIR_DEFAULT, SLICE_CACHE_SIZE_MAX_DEFAULT), job::reportProgress);
+
+        // Kill all sub-processes on interrupt (e.g. Ctrl+C)
+        Thread cancelHook = new Thread(pipelineService::cancel, "Pipeline-Job-Cancel");
+        Runtime.getRuntime().addShutdownHook(cancelHook);
+        boolean succeeded = job.run(pipelineService);
+        Runtime.getRuntime().removeShutdownHook(cancelHook);
+        executionAgent.shutdownPythonWorkers();
+        return succeeded ? 0 : EXIT_CODE_FAILED;
+    }
+
+    /**
+     * Run every stage in order, until one fails. (in current Thread, Block until done)
+     * @param pipelineService runs the stages, its ProgressListener should be reportProgress.
+     * @return true -> every stage succeeded.
+     */
+    public boolean run(PipelineService pipelineService) {
+        pipelineService.setDatasetDirs(getDatasetRawDir(), getDatasetDir());
+        long jobStartTime = System.nanoTime();
+        printEvent(new JSONObject().put("event", "job_start").put("stages", stages.size()));
+        boolean succeeded = true;
+        for (JSONObject stage : stages) {
+            String name = stage.getString("stage");
+            long startTime = System.nanoTime();
+            printEvent(new JSONObject().put("event", "stage_start").put("stage", name));
+            try {
+                succeeded = startStage(pipelineService, stage).join();
+            } catch (IOException ex) {
+                System.err.println("[ERROR] Failed to Start Stage \"" + name + "\": " + ex.getMessage());
+                succeeded = false;
+            }
+            printEvent(new JSONObject().put("event", "stage_end").put("stage", name).put("succeeded", succeeded)
+                    .put("elapsed_ms", (System.nanoTime() - startTime) / 1_000_000));
+            if (!succeeded) {
+                break;
+            }
+        }
+        printEvent(new JSONObject().put("event", "job_end").put("succeeded", succeeded)
+                .put("elapsed_ms", (System.nanoTime() - jobStartTime) / 1_000_000));
+        return succeeded;
+    }
+
+    /**
+     * Start one stage by its spec.
+     * @param pipelineService runs the stage.
+     * @param stage the stage spec.
+     * @return completed with true once the stage succeeded.
+     */
+    private CompletableFuture<Boolean> startStage(PipelineService pipelineService, JSONObject stage)
+            throws IOException {
+        switch (stage.getString("stage")) {
+            case STAGE_SLICE -> {
+                File sliceOutDir = stage.has("out_dir") ? resolve(stage.getString("out_dir")) : getDatasetRawDir();
+                return pipelineService.slice(resolveFiles(stage, "voices"), sliceOutDir,
+                        stage.optString("spk", SPEAKER_NAME_DEFAULT));
+            }
+            case STAGE_PREPROCESS -> {
+                JSONObject settings = new JSONObject();
+                settings.put("encoder", stage.optString("encoder", SPEECH_ENCODER_DEFAULT));
+                settings.put("f0_predictor", stage.optString("f0_predictor", F0_PREDICTOR_PREPROCESS_DEFAULT));
+                settings.put("loudness_embedding", stage.optBoolean("loudness_embedding"));
+                return pipelineService.preprocess(settings, stage.optBoolean("java_resampler", true));
+            }
+            case STAGE_TRAIN -> {
+                JSONObject trainSettings = stage.optJSONObject("train", new JSONObject());
+                JSONObject config = pipelineService.configureTraining(trainSettings);
+                return pipelineService.train(config.getJSONObject("train").getInt("batch_size"), getGpuIds(stage));
+            }
+            default -> { // STAGE_INFER
+                JSONObject settings = new JSONObject();
+                settings.put("spk", stage.getString("spk"));
+                settings.put("f0_predictor", stage.optString("f0_predictor", F0_PREDICTOR_INFER_DEFAULT));
+                settings.put("nsf_hifigan", stage.optBoolean("nsf_hifigan"));
+                File[] vocalFiles = PipelineService.stageInferenceInputs(resolveFiles(stage, "vocals"));
+                return pipelineService.infer(vocalFiles, settings, getGpuIds(stage));
+            }
+        }
+    }
+
+    /**
+     * Print the progress of a stage as an event, as the ProgressListener of PipelineService. (thread-safe)
+     */
+    public void reportProgress(String stage, int completed, int total) {
+        printEvent(new JSONObject().put("event", "progress").put("stage", stage).put("completed", completed)
+                .put("total", total));
+    }
+
+    /**
+     * Print an event as one JSON line. (thread-safe)
+     * @param event the event.
+     */
+    private void printEvent(JSONObject event) {
+        events.println(event);
+    }
+
+    /**
+     * @return the existing Files listed by a stage spec.
+     * @throws IllegalArgumentException none listed, or some File not found.
+     */
+    private File[] resolveFiles(JSONObject stage, String key) {
+        JSONArray paths = stage.getJSONArray(key);
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException("No File listed in \"" + key + "\" of stage \"" +
+                    stage.getString("stage") + "\"");
+        }
+        File[] files = new File[paths.length()];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = resolve(paths.getString(i));
+            if (!files[i].isFile()) {
+                throw new IllegalArgumentException("File not found: \"" + files[i] + "\"");
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return the path resolved against the spec directory if relative.
+     */
+    private File resolve(String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(baseDir, path);
+    }
+
+    /**
+     * @return "dataset_raw_dir" of the spec, SLICING_OUT_DIR_DEFAULT if absent.
+     */
+    private File getDatasetRawDir() {
+        return spec.has("dataset_raw_dir") ? resolve(spec.getString("dataset_raw_dir")) : SLICING_OUT_DIR_DEFAULT;
+    }
+
+    /**
+     * @return "dataset_dir" of the spec, PREPROCESS_OUT_DIR_DEFAULT if absent.
+     */
+    private File getDatasetDir() {
+        return spec.has("dataset_dir") ? resolve(spec.getString("dataset_dir")) : PREPROCESS_OUT_DIR_DEFAULT;
+    }
+
+    /**
+     * @return "gpu_ids" of a stage spec, [GPU_ID_DEFAULT] if absent.
+     */
+    private static int[] getGpuIds(JSONObject stage) {
+        JSONArray gpuIds = stage.optJSONArray("gpu_ids");
+        if (gpuIds == null || gpuIds.isEmpty()) {
+            return new int[]{GPU_ID_DEFAULT};
+        }
+        int[] ids = new int[gpuIds.length()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = gpuIds.getInt(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,825 @@
+package models;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static models.ConfigService.TRAINING_CONFIG;
+import static models.ConfigService.TRAINING_CONFIG_LOG;
+import static models.ExecutionAgent.*;
+import static models.PreprocessManifest.*;
+
+/**
+ * Pipeline Service
+ * @responsibility Run the local pipeline stages (slice, preprocess, train, infer) on the ExecutionAgent, without UI.
+ * @feature A stage schedules its tasks & returns a CompletableFuture, completed after its last task with true if
+ * every task succeeded (false if one failed or the stage was cancelled). Progress goes to a ProgressListener.
+ * Shared by the GUI (Swing) and the headless job runner (PipelineJob), so both run the same stages.
+ */
+public class PipelineService {
+
+    public static final File SLICING_OUT_DIR_DEFAULT = new File(SO_VITS_SVC_DIR + "\\dataset_raw");
+    public static final File PREPROCESS_OUT_DIR_DEFAULT = new File(SO_VITS_SVC_DIR + "\\dataset\\44k");
+    public static final File INFERENCE_INPUT_DIR_DEFAULT = new File(SO_VITS_SVC_DIR + "\\raw");
+    public static final File TRAINING_LOG_DIR_DEFAULT = new File(SO_VITS_SVC_DIR + "\\logs\\44k");
+    public static final File RESULTS_DIR = new File(".\\results");
+    public static final int SLICING_MIN_INTERVAL_DEFAULT = 100; // ms
+    public static final String AUDIO_FILE_OUT_FORMAT = "wav";
+    public static final String REGEX_TRAINED_MODEL_NAME = "^G_[1-9]\\d*\\.pth$";
+    public static final float CLIP_INFER_DEFAULT = 0;
+    public static final int PITCH_SHIFT_INFER_DEFAULT = 0;
+    public static final String SPEAKER_NAME_DEFAULT = "default-speaker";
+    public static final String SPEECH_ENCODER_DEFAULT = "vec768l12";
+    public static final String F0_PREDICTOR_PREPROCESS_DEFAULT = "rmvpe";
+    public static final String F0_PREDICTOR_INFER_DEFAULT = "pm";
+    public static final int GPU_ID_DEFAULT = 0;
+
+    public static final String STAGE_SLICE = "slice";
+    public static final String STAGE_PREPROCESS = "preprocess";
+    public static final String STAGE_TRAIN = "train";
+    public static final String STAGE_INFER = "infer";
+
+    private final ExecutionAgent executionAgent;
+    private final ConfigService configService;
+    private final SliceCache sliceCache;
+    private final ProgressListener progressListener;
+    private final Set<CompletableFuture<Boolean>> runningStages; // completed with false on cancel()
+    private volatile File datasetRawDir; // sliced dataset, one subdirectory per speaker
+    private volatile File datasetDir; // preprocessed dataset
+
+    /**
+     * Create a Pipeline Service.
+     * @param executionAgent runs the tasks of every stage.
+     * @param configService the training config.
+     * @param sliceCache cache of sliced voice Files.
+     * @param progressListener notified of the progress of every stage, may be called in any Thread.
+     */
+    public PipelineService(ExecutionAgent executionAgent, ConfigService configService, SliceCache sliceCache,
+                           ProgressListener progressListener) {
+        this.executionAgent = executionAgent;
+        this.configService = configService;
+        this.sliceCache = sliceCache;
+        this.progressListener = progressListener;
+        runningStages = ConcurrentHashMap.newKeySet();
+        datasetRawDir = SLICING_OUT_DIR_DEFAULT;
+        datasetDir = PREPROCESS_OUT_DIR_DEFAULT;
+    }
+
+    /**
+     * Change the dataset directories preprocessing reads from & writes to.
+     * @param datasetRawDir the sliced dataset, one subdirectory per speaker (SLICING_OUT_DIR_DEFAULT by default).
+     * @param datasetDir the preprocessed dataset (PREPROCESS_OUT_DIR_DEFAULT by default).
+     */
+    public void setDatasetDirs(File datasetRawDir, File datasetDir) {
+        this.datasetRawDir = datasetRawDir;
+        this.datasetDir = datasetDir;
+    }
+
+    /**
+     * Slice voice Files into sliceOutDir\speakerName, restoring cached slices instead where possible.
+     * The slice cache is looked up in current Thread (hashes whole Files, may Block).
+     * @param voiceFiles voice Files to be sliced.
+     * @param sliceOutDir output directory of all speakers.
+     * @param speakerName the speaker of the voice Files.
+     * @return completed with true once every File is sliced.
+     */
+    public CompletableFuture<Boolean> slice(File[] voiceFiles, File sliceOutDir, String speakerName) {
+        CompletableFuture<Boolean> stage = startStage();
+        System.out.println("[INFO] Slicing Audio(s)...");
+        File speakerSliceDir = new File(sliceOutDir, speakerName);
+        AtomicInteger slicedCount = new AtomicInteger();
+        AtomicBoolean succeeded = new AtomicBoolean(true);
+        Consumer<Boolean> sliceDone = (sliced) -> {
+            if (!sliced) {
+                succeeded.set(false);
+            }
+            int completed = slicedCount.incrementAndGet();
+            progressListener.onProgress(STAGE_SLICE, completed, voiceFiles.length);
+            if (completed == voiceFiles.length) {
+                System.out.println("[INFO] All Slicing Done.");
+                stage.complete(succeeded.get());
+            }
+        };
+        progressListener.onProgress(STAGE_SLICE, 0, voiceFiles.length);
+        if (voiceFiles.length == 0) {
+            stage.complete(true);
+            return stage;
+        }
+
+        Map<File, String> cacheKeys = new HashMap<>();
+        List<File> uncachedVoiceFiles = new ArrayList<>();
+        for (File voiceFile : voiceFiles) {
+
+            // cache hit -> restore slices instead of slicing
+            String cacheKey;
+            try {
+                cacheKey = sliceCache.computeKey(voiceFile, getSlicingParameters());
+                int restoredSliceCount = sliceCache.restore(cacheKey, voiceFile, speakerSliceDir);
+                if (restoredSliceCount >= 0) {
+                    System.out.println("[INFO] Slicing cached: \"" + voiceFile.getName() + "\" (" +
+                            restoredSliceCount + " slices)");
+                    sliceDone.accept(true);
+                    continue;
+                }
+            } catch (IOException ex) {
+                System.err.println("[WARNING] Slice Cache unavailable: " + ex.getMessage());
+                cacheKey = null;
+            }
+            cacheKeys.put(voiceFile, cacheKey);
+            uncachedVoiceFiles.add(voiceFile);
+        }
+
+        // slice in-process, each voice file in parallel (SLICER_PY for files AudioSlicer can't read)
+        AudioSlicer audioSlicer = new AudioSlicer(SLICING_MIN_INTERVAL_DEFAULT);
+        audioSlicer.sliceAll(uncachedVoiceFiles, speakerSliceDir, executionAgent.getMaxConcurrentTasks(),
+                (voiceFile, sliceCount) -> {
+                    if (sliceCount >= 0) {
+                        System.out.println("[INFO] Slicing completed: \"" + voiceFile.getName() + "\" (" +
+                                sliceCount + " slices)");
+                        List<File> slices = new ArrayList<>();
+                        for (int n = 0; n < sliceCount; n++) {
+                            slices.add(AudioSlicer.getSliceFile(voiceFile, speakerSliceDir, n));
+                        }
+                        storeSlices(cacheKeys.get(voiceFile), voiceFile, slices);
+                        sliceDone.accept(true);
+                    } else {
+                        scheduleSlicerPy(voiceFile, speakerSliceDir, cacheKeys.get(voiceFile), sliceDone);
+                    }
+                });
+
+        // execute ASAP
+        executionAgent.invokeExecution();
+        return stage;
+    }
+
+    /**
+     * @return everything affecting the slices besides the audio, as slice cache key parameters.
+     */
+    private static String[] getSlicingParameters() {
+        return new String[]{
+                AudioSlicer.STAGE,
+                "min_interval=" + SLICING_MIN_INTERVAL_DEFAULT
+        };
+    }
+
+    /**
+     * Schedule slicing a voice file by SLICER_PY, for voice files AudioSlicer can't read. (not invoked)
+     * @param voiceFile the voice file.
+     * @param speakerSliceDir output directory of its slices.
+     * @param cacheKey slice cache key of the voice file, NULL if not cached.
+     * @param sliceDone called after slicing, with true if succeeded.
+     */
+    private void scheduleSlicerPy(File voiceFile, File speakerSliceDir, String cacheKey,
+                                  Consumer<Boolean> sliceDone) {
+        // clear stale slices of a previous slicing, only this run's are collected afterwards
+        for (int n = 0; AudioSlicer.getSliceFile(voiceFile, speakerSliceDir, n).delete(); n++) {
+            // deleted
+        }
+
+        // Command construction
+        String[] command = {
+                PYTHON_EXE.getAbsolutePath(),
+                SLICER_PY.getAbsolutePath(),
+                voiceFile.getPath(),
+                "--out",
+                speakerSliceDir.getPath(),
+                "--min_interval",
+                String.valueOf(SLICING_MIN_INTERVAL_DEFAULT)
+        };
+
+        // schedule a concurrent task
+        executionAgent.scheduleTask(
+                command,
+                null,
+                (process) -> {
+                    if (process.exitValue() == 0) {
+                        System.out.println("[INFO] Slicing completed: \"" + voiceFile.getName() + "\"");
+                        List<File> slices = new ArrayList<>();
+                        File slice;
+                        while ((slice = AudioSlicer.getSliceFile(voiceFile, speakerSliceDir, slices.size()))
+                                .exists()) {
+                            slices.add(slice);
+                        }
+                        storeSlices(cacheKey, voiceFile, slices);
+                    } else {
+                        String errorMessage = buildTerminationErrorMessage(process, SLICER_PY);
+                        System.err.println(errorMessage);
+                    }
+                    sliceDone.accept(process.exitValue() == 0);
+                }
+        );
+    }
+
+    /**
+     * Put the slices of a voice file into the slice cache, failures are only reported.
+     * @param cacheKey slice cache key of the voice file, skipped if NULL.
+     * @param voiceFile the sliced voice file.
+     * @param slices exactly the slices produced, in order.
+     */
+    private void storeSlices(String cacheKey, File voiceFile, List<File> slices) {
+        if (cacheKey == null) {
+            return;
+        }
+        try {
+            sliceCache.store(cacheKey, slices);
+        } catch (IOException ex) {
+            System.err.println("[WARNING] Failed to Cache Slices of \"" + voiceFile.getName() + "\": " +
+                    ex.getMessage());
+        }
+    }
+
+    /**
+     * Preprocess the sliced dataset: resample -> flist & config -> hubert & f0, for the changed slices only.
+     * The dirty slices are found in current Thread (hashes changed Files, may Block).
+     * @param settings "encoder", "f0_predictor" & "loudness_embedding", as recorded in the preprocess manifest.
+     * @param javaResampler true -> resample by AudioResampler (in-process), otherwise by RESAMPLER_PY.
+     * @return completed with true once every stage exited normally.
+     */
+    public CompletableFuture<Boolean> preprocess(JSONObject settings, boolean javaResampler) {
+        // dataset_raw: nothing is prepared
+        File datasetRawDir = this.datasetRawDir;
+        File datasetDir = this.datasetDir;
+        File[] speakerDirs = datasetRawDir.listFiles(File::isDirectory);
+        if (speakerDirs == null || speakerDirs.length == 0) {
+            System.err.println("[!] Please SLICE at least 1 VOICE file.");
+            return CompletableFuture.completedFuture(false);
+        }
+
+        CompletableFuture<Boolean> stage = startStage();
+        System.out.println("[INFO] Preprocessing Dataset...");
+        PreprocessManifest manifest = PreprocessManifest.load(PREPROCESS_MANIFEST_FILE);
+        PreprocessManifest.Plan plan;
+        try {
+            plan = manifest.plan(datasetRawDir, datasetDir, settings);
+            if (plan.isEmpty()) {
+                finishPreprocess(manifest, plan, true, stage);
+                System.out.println("[INFO] Dataset is up to date, nothing to Preprocess.");
+                return stage;
+            }
+            plan.stageResampleInputs(PREPROCESS_STAGING_DIR);
+            plan.writeFeaturizeList(PREPROCESS_FEATURIZE_LIST);
+        } catch (IOException ex) {
+            System.err.println("[ERROR] Failed to Plan Preprocessing: " + ex.getMessage());
+            stage.complete(false);
+            return stage;
+        }
+        System.out.println("[INFO] Slices to Resample: " + plan.getToResample().size() +
+                ", to Featurize: " + plan.getToFeaturize().size() +
+                ", Removed: " + plan.getRemovedKeys().size());
+
+        // resample -> flist & config -> hubert & f0, dirty subset only
+        boolean resample = !plan.getToResample().isEmpty();
+        boolean featurize = !plan.getToFeaturize().isEmpty();
+        int stepCount = 1 + (resample ? 1 : 0) + (featurize ? 1 : 0);
+        AtomicInteger completedSteps = new AtomicInteger();
+        AtomicBoolean succeeded = new AtomicBoolean(true);
+        progressListener.onProgress(STAGE_PREPROCESS, 0, stepCount);
+        Consumer<Process> trackExit = (process) -> {
+            if (process.exitValue() != 0) {
+                succeeded.set(false);
+            }
+            progressListener.onProgress(STAGE_PREPROCESS, completedSteps.incrementAndGet(), stepCount);
+        };
+        Consumer<Process> finish = trackExit.andThen(
+                (process) -> finishPreprocess(manifest, plan, succeeded.get(), stage));
+
+        ExecutionTask resampleTask = resample ?
+                resampleAudio(PREPROCESS_STAGING_DIR, datasetDir, javaResampler, trackExit) : null;
+        ExecutionTask configTask = splitDatasetAndGenerateConfig(settings, datasetDir,
+                featurize ? trackExit : finish, resampleTask);
+        if (featurize) {
+            generateHubertAndF0(settings, PREPROCESS_FEATURIZE_LIST, finish, configTask);
+        }
+        return stage;
+    }
+
+    /**
+     * Resample audios @src -> @dest, to 44100Hz mono.
+     *
+     * @src inDir (e.g. .\dataset_raw)
+     * @dest outDir (e.g. .\dataset\44k)
+     * @param inDir directory of audios to be resampled, one subdirectory per speaker.
+     * @param outDir directory of the resampled audios.
+     * @param javaResampler true -> by AudioResampler (in-process), otherwise by RESAMPLER_PY.
+     * @param afterResampling to run after the resampling process exits.
+     * @param dependencies tasks to be done before resampling.
+     * @return the scheduled resampling task.
+     */
+    private ExecutionTask resampleAudio(File inDir, File outDir, boolean javaResampler,
+                                        Consumer<Process> afterResampling, ExecutionTask... dependencies) {
+        File resampler = javaResampler ? new File(AudioResampler.STAGE) : RESAMPLER_PY;
+        Consumer<Process> afterExecution = (process) -> {
+            if (process.exitValue() == 0) {
+                System.out.println("[INFO] Resampled to 44100Hz mono.");
+            } else {
+                String errorMessage = buildTerminationErrorMessage(process, resampler);
+                System.err.println(errorMessage);
+            }
+            afterResampling.accept(process);
+        };
+
+        ExecutionTask task;
+        if (javaResampler) {
+            AudioResampler audioResampler = new AudioResampler(AudioResampler.TARGET_SAMPLE_RATE_DEFAULT);
+            task = executionAgent.scheduleJavaTask(
+                    AudioResampler.STAGE,
+                    () -> (audioResampler.resampleAll(inDir, outDir,
+                            executionAgent.getMaxConcurrentTasks()) == 0) ? 0 : JavaJob.EXIT_CODE_FAILED,
+                    afterExecution,
+                    dependencies
+            );
+        } else {
+            String[] command = {
+                    PYTHON_EXE.getAbsolutePath(),
+                    RESAMPLER_PY.getAbsolutePath(),
+                    "--in_dir",
+                    inDir.getAbsolutePath(),
+                    "--out_dir2",
+                    outDir.getAbsolutePath()
+            };
+            task = executionAgent.scheduleTask(command, SO_VITS_SVC_DIR, afterExecution, dependencies);
+        }
+        executionAgent.invokeExecution();
+        return task;
+    }
+
+    /**
+     * Split the dataset into training and validation sets, and generate configuration files.
+     *
+     * @param settings preprocess settings, of "encoder" & "loudness_embedding".
+     * @param datasetDir the preprocessed dataset to be split.
+     * @param afterSplitting to run after the splitting process exits.
+     * @param dependencies tasks to be done before splitting.
+     * @return the scheduled splitting task.
+     */
+    private ExecutionTask splitDatasetAndGenerateConfig(JSONObject settings, File datasetDir,
+                                                        Consumer<Process> afterSplitting,
+                                                        ExecutionTask... dependencies) {
+        List<String> command = new ArrayList<>();
+        command.add(PYTHON_EXE.getAbsolutePath());
+        command.add(FLIST_CONFIGER_PY.getAbsolutePath());
+        command.add("--source_dir");
+        command.add(datasetDir.getAbsolutePath());
+        command.add("--speech_encoder");
+        command.add(settings.getString("encoder"));
+        if (settings.getBoolean("loudness_embedding")) {
+            command.add("--vol_aug");
+        }
+
+        ExecutionTask task = executionAgent.scheduleTask(
+                command,
+                SO_VITS_SVC_DIR,
+                (process) -> {
+                    if (process.exitValue() == 0) {
+                        System.out.println("[INFO] Training Set, Validation Set, Configuration Files Created.");
+                    } else {
+                        String errorMessage = buildTerminationErrorMessage(process, FLIST_CONFIGER_PY);
+                        System.err.println(errorMessage);
+                    }
+                    afterSplitting.accept(process);
+                },
+                dependencies
+        );
+        executionAgent.invokeExecution();
+        return task;
+    }
+
+    /**
+     * Generate hubert and f0.
+     *
+     * @param settings preprocess settings, of "f0_predictor".
+     * @param fileList text File listing the resampled audios to be processed, one per line.
+     * @param afterGenerating to run after the generating process exits.
+     * @param dependencies tasks to be done before generating.
+     * @return the scheduled generating task.
+     */
+    private ExecutionTask generateHubertAndF0(JSONObject settings, File fileList, Consumer<Process> afterGenerating,
+                                              ExecutionTask... dependencies) {
+        String[] command = {
+                PYTHON_EXE.getAbsolutePath(),
+                HUBERT_F0_GENERATOR_PY.getAbsolutePath(),
+                "--f0_predictor",
+                settings.getString("f0_predictor"),
+                "--files",
+                fileList.getAbsolutePath()
+        };
+
+        ExecutionTask task = executionAgent.scheduleTask(
+                command,
+                SO_VITS_SVC_DIR,
+                (process) -> {
+                    if (process.exitValue() == 0) {
+                        System.out.println("[INFO] Hubert & F0 Predictor Generated.");
+                    } else {
+                        String errorMessage = buildTerminationErrorMessage(process, HUBERT_F0_GENERATOR_PY);
+                        System.err.println(errorMessage);
+                    }
+                    afterGenerating.accept(process);
+                },
+                dependencies
+        );
+        executionAgent.invokeExecution();
+        return task;
+    }
+
+    /**
+     * Record a preprocessing run in its manifest (only if all stages succeeded), and clean up its staging files.
+     *
+     * @param manifest the preprocess manifest.
+     * @param plan the executed plan.
+     * @param succeeded true -> every stage exited normally.
+     * @param stage the preprocess stage, completed here.
+     */
+    private static void finishPreprocess(PreprocessManifest manifest, PreprocessManifest.Plan plan,
+                                         boolean succeeded, CompletableFuture<Boolean> stage) {
+        try {
+            if (succeeded) {
+                manifest.commit(plan);
+                manifest.save();
+            }
+            PreprocessManifest.deleteDirectory(PREPROCESS_STAGING_DIR);
+            Files.deleteIfExists(PREPROCESS_FEATURIZE_LIST.toPath());
+        } catch (IOException ex) {
+            System.err.println("[WARNING] Failed to Update Preprocess Manifest: " + ex.getMessage());
+        }
+
+        System.out.println("[INFO] Preprocessing Done.");
+        stage.complete(succeeded);
+    }
+
+    /**
+     * Overwrite the train settings of the effective config, and write it to TRAINING_CONFIG.
+     * @param trainSettings entries to put into "train" of the config, e.g. "batch_size".
+     * @return the written config.
+     */
+    public JSONObject configureTraining(JSONObject trainSettings) throws IOException {
+        JSONObject configJsonObject = configService.getSnapshot().toJsonObject();
+        JSONObject trainJsonObject = configJsonObject.getJSONObject("train");
+        for (String key : trainSettings.keySet()) {
+            trainJsonObject.put(key, trainSettings.get(key));
+        }
+        configService.writeTrainingConfig(configJsonObject);
+        return configJsonObject;
+    }
+
+    /**
+     * Train with TRAINING_CONFIG, after all previously scheduled tasks. (resumed from TRAINING_LOG_DIR_DEFAULT)
+     * @param batchSize batch size of each GPU, to measure the training throughput.
+     * @param gpuIds GPUs to train on.
+     * @return completed with true once training is complete, false if interrupted.
+     */
+    public CompletableFuture<Boolean> train(int batchSize, int[] gpuIds) {
+        CompletableFuture<Boolean> stage = startStage();
+        String[] command = {
+                "cmd.exe",
+                "/c",
+                "set",
+                "CUDA_VISIBLE_DEVICES=" + joinGpuIds(gpuIds),
+                "&&",
+                PYTHON_EXE.getAbsolutePath(),
+                TRAIN_PY.getAbsolutePath(),
+                "-c",
+                TRAINING_CONFIG.getAbsolutePath(),
+                "-m",
+                "44k"
+        };
+
+        TrainingThroughput throughput = startTrainingThroughput(batchSize, gpuIds);
+        executionAgent.executeLater(
+                command,
+                SO_VITS_SVC_DIR,
+                (process) -> {
+                    OutputPipeline.getOutputPipeline().removeObserver(throughput);
+                    if (process.exitValue() == 0) {
+                        System.out.println("[INFO] Training Complete.");
+                    } else {
+                        System.err.println("[WARNING] \"" +
+                                TRAIN_PY.getName() +
+                                "\" interrupted, exit code: " +
+                                process.exitValue()
+                        );
+                    }
+                    stage.complete(process.exitValue() == 0);
+                });
+        executionAgent.invokeExecution();
+        return stage;
+    }
+
+    /**
+     * Report the training devices & start measuring the training throughput, until removed from OutputPipeline.
+     * @param batchSize batch size of each GPU.
+     * @param gpuIds GPUs to train on.
+     * @return the throughput observer added to OutputPipeline.
+     */
+    public static TrainingThroughput startTrainingThroughput(int batchSize, int[] gpuIds) {
+        System.out.println("[INFO] Training on GPU(s) " + Arrays.toString(gpuIds) + ", Effective Batch Size: " +
+                batchSize + " x " + gpuIds.length + " = " + batchSize * gpuIds.length);
+        TrainingThroughput throughput = new TrainingThroughput(batchSize, gpuIds.length);
+        OutputPipeline.getOutputPipeline().addObserver(throughput);
+        return throughput;
+    }
+
+    /**
+     * @return GPU IDs as CUDA_VISIBLE_DEVICES, e.g. "0,1".
+     */
+    public static String joinGpuIds(int[] gpuIds) {
+        return String.join(",", Arrays.stream(gpuIds).mapToObj(String::valueOf).toList());
+    }
+
+    /**
+     * Copy vocal Files into INFERENCE_INPUT_DIR_DEFAULT, as temporary Files.
+     * @param vocalFiles vocal Files chosen to be inferred.
+     * @return the copies, to be passed to infer() (deleted once inferred, even if resumed by the next run).
+     */
+    public static File[] stageInferenceInputs(File[] vocalFiles) throws IOException {
+        File[] copies = new File[vocalFiles.length];
+        for (int i = 0; i < vocalFiles.length; i++) {
+            copies[i] = Files.copy(
+                    vocalFiles[i].toPath(),
+                    new File(INFERENCE_INPUT_DIR_DEFAULT, vocalFiles[i].getName()).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING
+            ).toFile();
+
+        }
+        return copies;
+    }
+
+    /**
+     * Infer vocal Files with the trained model, sharded by duration, one shard per GPU. Results go to RESULTS_DIR.
+     * @param vocalFiles vocal Files in INFERENCE_INPUT_DIR_DEFAULT (see stageInferenceInputs), deleted after.
+     * @param settings "spk", "f0_predictor" & "nsf_hifigan".
+     * @param gpuIds GPUs to infer on.
+     * @return completed with true once every shard is inferred.
+     */
+    public CompletableFuture<Boolean> infer(File[] vocalFiles, JSONObject settings, int[] gpuIds) {
+        ConfigService.Snapshot config;
+        try {
+            config = configService.getSnapshot();
+        } catch (IOException ex) {
+            System.err.println("[ERROR] Failed to Load from Config File: " + ex.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+
+        // Construct command arguments
+        List<String> command = new ArrayList<>();
+        command.add("--model_path");
+        File[] trainedModels = TRAINING_LOG_DIR_DEFAULT.listFiles((dir, name) ->
+                name.matches(REGEX_TRAINED_MODEL_NAME));
+        // logs: no trained model
+        if (trainedModels == null || trainedModels.length == 0) {
+            System.err.println("[ERROR] Model not Trained.");
+            return CompletableFuture.completedFuture(false);
+        }
+        assert trainedModels.length == 1;
+        command.add(trainedModels[0].getAbsolutePath());
+
+        command.add("--config_path");
+        command.add(TRAINING_CONFIG_LOG.getAbsolutePath());
+
+        command.add("--wav_format");
+        command.add(AUDIO_FILE_OUT_FORMAT);
+
+        command.add("--trans");
+        command.add(String.valueOf(PITCH_SHIFT_INFER_DEFAULT));
+
+        command.add("--spk_list");
+        command.add(settings.getString("spk"));
+
+        command.add("--f0_predictor");
+        command.add(settings.getString("f0_predictor"));
+
+        if (settings.optBoolean("nsf_hifigan")) {
+            command.add("--enhance");
+        }
+
+        // whisper-ppg speech encoder need to set --clip to 25 and -lg to 1
+        if ("whisper-ppg".equals(config.getSpeechEncoder())) {
+            command.add("--clip");
+            command.add(String.valueOf(25));
+            command.add("-lg");
+            command.add(String.valueOf(1));
+        } else {
+            command.add("--clip");
+            command.add(String.valueOf(CLIP_INFER_DEFAULT));
+        }
+
+        // Shard vocal files by duration, one shard per GPU
+        CompletableFuture<Boolean> stage = startStage();
+        List<List<File>> shards = ShardPlanner.shardByDuration(vocalFiles, gpuIds.length);
+        AtomicInteger completedFiles = new AtomicInteger();
+        AtomicInteger remainingShards = new AtomicInteger(shards.size());
+        AtomicBoolean failed = new AtomicBoolean();
+        progressListener.onProgress(STAGE_INFER, 0, vocalFiles.length);
+
+        for (int i = 0; i < shards.size(); i++) {
+            List<File> shard = shards.get(i);
+            int gpuId = gpuIds[i];
+            String shardName = "Shard " + (i + 1) + "/" + shards.size() + " (GPU " + gpuId + ")";
+            List<String> shardCommand = new ArrayList<>(command);
+            shardCommand.add("--clean_names");
+            shardCommand.addAll(shard.stream().map(File::getName).toList());
+
+            // Schedule inference task (in the warm Python Worker of that GPU, if enabled)
+            executionAgent.schedulePythonTask(
+                    INFERENCE_PY,
+                    shardCommand,
+                    SO_VITS_SVC_DIR,
+                    gpuId,
+                    (process) -> {
+                        if (process.exitValue() == 0) {
+                            int completed = completedFiles.addAndGet(shard.size());
+                            progressListener.onProgress(STAGE_INFER, completed, vocalFiles.length);
+                            if (shards.size() > 1) {
+                                System.out.println("[INFO] Inference " + shardName + " Complete, " +
+                                        completed + "/" + vocalFiles.length + " File(s) Done.");
+                            }
+                        } else {
+                            failed.set(true);
+                            System.err.println("[WARNING] \"" +
+                                    INFERENCE_PY.getName() +
+                                    "\" interrupted" + (shards.size() > 1 ? " on " + shardName : "") +
+                                    ", exit code: " +
+                                    process.exitValue()
+                            );
+                        }
+
+                        // last shard: delete all temp Files
+                        if (remainingShards.decrementAndGet() == 0) {
+                            if (!failed.get()) {
+                                System.out.println("[INFO] Inference Complete.");
+                                System.out.println("[INFO] Output audios -> \"" + RESULTS_DIR + "\"");
+                            }
+                            Arrays.stream(vocalFiles).forEach(File::delete);
+                            stage.complete(!failed.get());
+                        }
+                    }
+            );
+        }
+        executionAgent.invokeExecution();
+        return stage;
+    }
+
+    /**
+     * Resume the tasks left unfinished by the previous run (see ExecutionAgent.resumeJournaledTasks).
+     * Training resumes from its newest checkpoint, as TRAIN_PY loads the latest G_*.pth & D_*.pth of its model dir.
+     * @return by stage (e.g. STAGE_TRAIN), completed with true once its resumed tasks succeeded. EMPTY -> none.
+     */
+    public Map<String, CompletableFuture<Boolean>> resumeUnfinished() {
+        Map<String, ResumedStage> resumedStages = new HashMap<>();
+        List<ExecutionTask> resumed = executionAgent.resumeJournaledTasks((command) -> {
+            String stageName = getStageOf(command);
+            ResumedStage resumedStage = (stageName == null) ? null :
+                    resumedStages.computeIfAbsent(stageName, (name) -> new ResumedStage(startStage()));
+            if (resumedStage != null) {
+                resumedStage.remainingTasks.incrementAndGet();
+            }
+            return (process) -> {
+                String taskName = new File(command.stream().filter((argument) -> argument.endsWith(".py"))
+                        .findFirst().orElse(command.get(0))).getName();
+                if (process.exitValue() == 0) {
+                    System.out.println("[INFO] Resumed \"" + taskName + "\" Complete.");
+                } else {
+                    System.err.println("[WARNING] Resumed \"" + taskName + "\" interrupted, exit code: " +
+                            process.exitValue());
+                }
+                if (STAGE_INFER.equals(stageName)) { // its temporary vocal Files
+                    int namesIndex = command.indexOf("--clean_names");
+                    command.subList(namesIndex + 1, command.size())
+                            .forEach((name) -> new File(INFERENCE_INPUT_DIR_DEFAULT, name).delete());
+                }
+                if (resumedStage != null) {
+                    resumedStage.taskDone(process.exitValue() == 0);
+                }
+            };
+        });
+        if (resumed.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        System.out.println("[INFO] Resuming " + resumed.size() + " Unfinished Task(s)...");
+        if (resumedStages.containsKey(STAGE_TRAIN)) {
+            File checkpoint = findNewestCheckpoint(TRAINING_LOG_DIR_DEFAULT);
+            System.out.println("[INFO] Training Resumes from " +
+                    ((checkpoint == null) ? "the Base Model." : "\"" + checkpoint.getName() + "\"."));
+        }
+        Map<String, CompletableFuture<Boolean>> stages = new HashMap<>();
+        resumedStages.forEach((name, resumedStage) -> {
+            stages.put(name, resumedStage.stage);
+            resumedStage.taskDone(true); // all scheduled
+        });
+        executionAgent.invokeExecution();
+        return stages;
+    }
+
+    /**
+     * @return the stage a task command belongs to, NULL if none (e.g. removing a directory).
+     */
+    static String getStageOf(List<String> command) {
+        if (command.contains(SLICER_PY.getAbsolutePath())) {
+            return STAGE_SLICE;
+        }
+        if (command.contains(RESAMPLER_PY.getAbsolutePath()) || command.contains(FLIST_CONFIGER_PY.getAbsolutePath())
+                || command.contains(HUBERT_F0_GENERATOR_PY.getAbsolutePath())) {
+            return STAGE_PREPROCESS;
+        }
+        if (command.contains(TRAIN_PY.getAbsolutePath())) {
+            return STAGE_TRAIN;
+        }
+        if (command.contains(INFERENCE_PY.getAbsolutePath())) {
+            return STAGE_INFER;
+        }
+        return null;
+    }
+
+    /**
+     * Find the newest training checkpoint, the one TRAIN_PY resumes from.
+     * @param modelDir the model directory of training.
+     * @return G_<step>.pth of the largest step, NULL if none.
+     */
+    static File findNewestCheckpoint(File modelDir) {
+        File[] checkpoints = modelDir.listFiles((dir, name) -> name.matches("^G_\\d+\\.pth$"));
+        if (checkpoints == null) {
+            return null;
+        }
+        return Arrays.stream(checkpoints)
+                .max(Comparator.comparingLong((checkpoint) ->
+                        Long.parseLong(checkpoint.getName().replaceAll("\\D", ""))))
+                .orElse(null);
+    }
+
+    /**
+     * Cancel all pending & running tasks, every running stage completes with false.
+     */
+    public void cancel() {
+        executionAgent.cancelAllTasks();
+        runningStages.forEach((stage) -> stage.complete(false));
+    }
+
+    /**
+     * Start tracking a stage until it completes, so that cancel() can complete it.
+     * @return the stage, to be completed by its last task.
+     */
+    private CompletableFuture<Boolean> startStage() {
+        CompletableFuture<Boolean> stage = new CompletableFuture<>();
+        runningStages.add(stage);
+        stage.whenComplete((succeeded, ex) -> runningStages.remove(stage));
+        return stage;
+    }
+
+    /**
+     * Build general termination error message about process's unexpected termination.
+     * @param process the Process which ran into a unexpected termination.
+     * @param executable the executable File associated with that process.
+     * @return termination error message
+     */
+    private static String buildTerminationErrorMessage(Process process, File executable) {
+        return "[ERROR] \"" +
+                executable.getName() +
+                "\" terminated unexpectedly, exit code: " +
+                process.exitValue();
+    }
+
+    /**
+     * A stage resumed from the task journal, completed once all its resumed tasks are done.
+     */
+    private static class ResumedStage {
+        private final CompletableFuture<Boolean> stage;
+        private final AtomicInteger remainingTasks = new AtomicInteger(1); // +1 until all are scheduled
+        private final AtomicBoolean succeeded = new AtomicBoolean(true);
+
+        private ResumedStage(CompletableFuture<Boolean> stage) {
+            this.stage = stage;
+        }
+
+        private void taskDone(boolean taskSucceeded) {
+            if (!taskSucceeded) {
+                succeeded.set(false);
+            }
+            if (remainingTasks.decrementAndGet() == 0) {
+                stage.complete(succeeded.get());
+            }
+        }
+    }
+
+    /**
+     * Notified of the progress of a stage.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param stage the stage, e.g. STAGE_SLICE.
+         * @param completed count of completed units (Files or steps) of the stage.
+         * @param total count of all units of the stage.
+         */
+        void onProgress(String stage, int completed, int total);
+    }
+}
@@ -0,0 +1,229 @@
+package models;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static models.ExecutionAgent.SO_VITS_SVC_DIR;
+
+/**
+ * Preprocess Manifest
+ * @responsibility Remember which raw slices are preprocessed, from which content & with which settings,
+ * so only new or changed slices are resampled & featurized again.
+ * @feature One entry per "speaker/slice.wav": content hash (re-hashed only if size or mtime changed) & settings.
+ * A slice is clean only if its entry matches AND its resampled wav exists.
+ */
+public class PreprocessManifest {
+
+    public static final File PREPROCESS_MANIFEST_FILE = new File(SO_VITS_SVC_DIR + "\\dataset\\manifest.json");
+    public static final File PREPROCESS_STAGING_DIR = new File(SO_VITS_SVC_DIR + "\\dataset\\raw_dirty");
+    public static final File PREPROCESS_FEATURIZE_LIST = new File(SO_VITS_SVC_DIR + "\\dataset\\featurize_list.txt");
+    private static final String SLICE_EXTENSION = ".wav";
+    // outputs of preprocess_hubert_f0.py, appended to the resampled wav path
+    private static final String[] FEATURE_SUFFIXES = {
+            ".soft.pt", ".f0.npy", ".vol.npy", ".mel.npy", ".aug_mel.npy", ".aug_vol.npy"
+    };
+    private static final String SPEC_SUFFIX = ".spec.pt"; // replaces ".wav"
+
+    private static final String HASH = "hash";
+    private static final String SIZE = "size";
+    private static final String MTIME = "mtime";
+    private static final String SETTINGS = "settings";
+
+    private final File manifestFile;
+    private final JSONObject entries;
+
+    private PreprocessManifest(File manifestFile, JSONObject entries) {
+        this.manifestFile = manifestFile;
+        this.entries = entries;
+    }
+
+    /**
+     * Load the manifest File.
+     * @param manifestFile the manifest File.
+     * @return the manifest, EMPTY if the File is absent or corrupt.
+     */
+    public static PreprocessManifest load(File manifestFile) {
+        JSONObject entries = new JSONObject();
+        try {
+            entries = new JSONObject(Files.readString(manifestFile.toPath(), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException ignored) {
+        } catch (IOException | JSONException ex) {
+            System.err.println("[WARNING] Preprocess Manifest unreadable, preprocessing everything: " +
+                    ex.getMessage());
+        }
+        return new PreprocessManifest(manifestFile, entries);
+    }
+
+    /**
+     * Compare the raw slices against this manifest, and invalidate the outputs of dirty & removed slices.
+     * @param rawDir directory of raw slices, one subdirectory per speaker.
+     * @param outDir directory of resampled slices & features, one subdirectory per speaker.
+     * @param settings preprocessing settings affecting the features (e.g. encoder, f0 predictor).
+     * @return the plan, what to resample & featurize.
+     */
+    public Plan plan(File rawDir, File outDir, JSONObject settings) throws IOException {
+        Plan plan = new Plan();
+        Set<String> scanned = new HashSet<>();
+
+        File[] speakerDirs = Objects.requireNonNullElse(rawDir.listFiles(File::isDirectory), new File[0]);
+        for (File speakerDir : speakerDirs) {
+            File[] slices = speakerDir.listFiles((dir, name) -> name.endsWith(SLICE_EXTENSION));
+            for (File slice : Objects.requireNonNullElse(slices, new File[0])) {
+                String key = speakerDir.getName() + "/" + slice.getName();
+                scanned.add(key);
+                File resampled = new File(outDir, key);
+                JSONObject entry = entries.optJSONObject(key);
+
+                // content, re-hashed only if size or mtime changed
+                boolean contentClean = entry != null && resampled.isFile();
+                boolean statChanged = entry == null || entry.optLong(SIZE) != slice.length() ||
+                        entry.optLong(MTIME) != slice.lastModified();
+                String hash = statChanged ? ContentHash.sha256(slice) : entry.optString(HASH);
+                if (contentClean) {
+                    contentClean = hash.equals(entry.optString(HASH));
+                }
+
+                // settings
+                boolean settingsClean = contentClean && settings.similar(entry.optJSONObject(SETTINGS));
+
+                if (!contentClean) {
+                    plan.toResample.add(slice);
+                }
+                if (!settingsClean) {
+                    deleteFeatures(resampled);
+                    plan.toFeaturize.add(resampled);
+                }
+                if (!settingsClean || statChanged) {
+                    JSONObject updatedEntry = new JSONObject();
+                    updatedEntry.put(HASH, hash);
+                    updatedEntry.put(SIZE, slice.length());
+                    updatedEntry.put(MTIME, slice.lastModified());
+                    updatedEntry.put(SETTINGS, settings);
+                    plan.updatedEntries.put(key, updatedEntry);
+                }
+            }
+        }
+
+        // removed slices
+        for (String key : entries.keySet()) {
+            if (!scanned.contains(key)) {
+                File resampled = new File(outDir, key);
+                deleteFeatures(resampled);
+                Files.deleteIfExists(resampled.toPath());
+                plan.removedKeys.add(key);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Apply a successfully executed plan to this manifest.
+     * @param plan the plan.
+     */
+    public void commit(Plan plan) {
+        plan.updatedEntries.forEach(entries::put);
+        plan.removedKeys.forEach(entries::remove);
+    }
+
+    /**
+     * Write this manifest to its File, atomically.
+     */
+    public void save() throws IOException {
+        Path manifestPath = manifestFile.toPath();
+        Path tempPath = manifestPath.resolveSibling(manifestFile.getName() + ".tmp");
+        Files.createDirectories(manifestPath.getParent());
+        Files.writeString(tempPath, entries.toString(), StandardCharsets.UTF_8);
+        try {
+            Files.move(tempPath, manifestPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteFeatures(File resampled) throws IOException {
+        for (String suffix : FEATURE_SUFFIXES) {
+            Files.deleteIfExists(Path.of(resampled.getPath() + suffix));
+        }
+        String resampledPath = resampled.getPath();
+        String resampledBase = resampledPath.substring(0, resampledPath.length() - SLICE_EXTENSION.length());
+        Files.deleteIfExists(Path.of(resampledBase + SPEC_SUFFIX));
+    }
+
+    /**
+     * Delete a directory tree, if present.
+     * @param directory the directory.
+     */
+    public static void deleteDirectory(File directory) throws IOException {
+        if (!directory.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Preprocess Plan
+     * @responsibility The dirty subset of one preprocessing run.
+     */
+    public static class Plan {
+        private final List<File> toResample = new ArrayList<>(); // raw slices
+        private final List<File> toFeaturize = new ArrayList<>(); // resampled slices
+        private final Map<String, JSONObject> updatedEntries = new HashMap<>();
+        private final List<String> removedKeys = new ArrayList<>();
+
+        /**
+         * Link the raw slices to be resampled into a staging dir (cleared first), keeping "speaker/slice.wav".
+         * @param stagingDir the staging dir, input dir of the resampler.
+         */
+        public void stageResampleInputs(File stagingDir) throws IOException {
+            deleteDirectory(stagingDir);
+            for (File slice : toResample) {
+                Path stagedSlice = stagingDir.toPath().resolve(slice.getParentFile().getName())
+                        .resolve(slice.getName());
+                Files.createDirectories(stagedSlice.getParent());
+                SliceCache.link(slice.toPath(), stagedSlice);
+            }
+        }
+
+        /**
+         * Write the resampled slices to be featurized, one absolute path per line.
+         * @param listFile the list File, input of the featurizer.
+         */
+        public void writeFeaturizeList(File listFile) throws IOException {
+            List<String> lines = new ArrayList<>();
+            for (File resampled : toFeaturize) {
+                lines.add(resampled.getAbsolutePath());
+            }
+            Files.createDirectories(listFile.toPath().getParent());
+            Files.write(listFile.toPath(), lines, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return true -> nothing to execute, the preprocessed dataset is up to date (entries may still be updated).
+         */
+        public boolean isEmpty() {
+            return toFeaturize.isEmpty() && removedKeys.isEmpty();
+        }
+
+        /* Getters */
+        public List<File> getToResample() {
+            return Collections.unmodifiableList(toResample);
+        }
+        public List<File> getToFeaturize() {
+            return Collections.unmodifiableList(toFeaturize);
+        }
+        public List<String> getRemovedKeys() {
+            return Collections.unmodifiableList(removedKeys);
+        }
+    }
+}
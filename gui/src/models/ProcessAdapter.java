@@ -0,0 +1,93 @@
+package models;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Process Adapter
+ * @responsibility Let work which is not a native process of its own be seen as a Process by its owner.
+ * @feature Exit is a future completed once by finish(). Its output goes to System.out/err (or through its host)
+ * directly, so its own streams are empty. Subclasses decide how to stop it & which native process it is.
+ */
+public abstract class ProcessAdapter extends Process {
+    private final String name;
+    private final CompletableFuture<Process> exit;
+
+    private volatile int exitValue;
+
+    /**
+     * @param name name of the work, as reported.
+     */
+    protected ProcessAdapter(String name) {
+        this.name = name;
+        this.exit = new CompletableFuture<>();
+    }
+
+    /**
+     * Mark the work as exited. (once)
+     * @param exitCode its exit code.
+     */
+    protected void finish(int exitCode) {
+        exitValue = exitCode;
+        exit.complete(this);
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return OutputStream.nullOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return InputStream.nullInputStream();
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return InputStream.nullInputStream();
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        try {
+            exit.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        return exitValue;
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            exit.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int exitValue() {
+        if (!exit.isDone()) {
+            throw new IllegalThreadStateException(name + " has not exited");
+        }
+        return exitValue;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return !exit.isDone();
+    }
+
+    @Override
+    public CompletableFuture<Process> onExit() {
+        return exit;
+    }
+}
@@ -0,0 +1,231 @@
+package models;
+
+import org.json.JSONObject;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.stream.Stream;
+
+import static models.OutputPipeline.CHARSET_DISPLAY_DEFAULT;
+import static models.ExecutionAgent.PYTHON_EXE;
+import static models.ExecutionAgent.SO_VITS_SVC_DIR;
+
+/**
+ * Python Worker
+ * @responsibility Keep one warm Python process bound to one GPU, and run Python scripts in it as Jobs, one at a time.
+ * @feature Consecutive Jobs skip interpreter startup & imports, inference Jobs reuse the loaded model.
+ * The worker process is (re)started on demand.
+ */
+public class PythonWorker {
+
+    public static final File WORKER_PY = new File(SO_VITS_SVC_DIR + "\\svc_worker.py");
+    public static final int GPU_ID_NONE = -1;
+    private static final String JOB_END_MARK = "\u001eSVC_WORKER_JOB_END ";
+
+    private final int gpuId;
+    private final Queue<Job> submittedJobs; // in submission order, head is the running one
+    private final OutputPipeline outputPipeline = OutputPipeline.getOutputPipeline();
+
+    private Process workerProcess;
+    private BufferedWriter jobWriter;
+    private long nextJobId;
+
+    /**
+     * Create a PythonWorker bound to a GPU (the worker process is NOT started until the first Job).
+     * @param gpuId the only GPU visible to the worker process, GPU_ID_NONE -> not restricted.
+     */
+    public PythonWorker(int gpuId) {
+        this.gpuId = gpuId;
+        this.submittedJobs = new LinkedList<>();
+    }
+
+    /**
+     * Submit a Job to run a Python script in the worker process, after all Jobs submitted before.
+     * @param scriptAndArgs NON-EMPTY list, the script path followed by its arguments.
+     * @param workDirectory the working directory of the Job. If NULL, use dir of the worker process.
+     * @return the submitted Job, as a Process which exits when the Job is done.
+     * @throws IOException failed to start or reach the worker process.
+     */
+    public synchronized Job submit(List<String> scriptAndArgs, File workDirectory) throws IOException {
+        ensureStarted();
+
+        Job job = new Job(nextJobId++);
+        JSONObject jobJsonObject = new JSONObject();
+        jobJsonObject.put("id", job.id);
+        jobJsonObject.put("script", new File(scriptAndArgs.get(0)).getAbsolutePath());
+        jobJsonObject.put("args", scriptAndArgs.subList(1, scriptAndArgs.size()));
+        jobJsonObject.put("cwd", (workDirectory == null) ? JSONObject.NULL : workDirectory.getAbsolutePath());
+
+        submittedJobs.offer(job);
+        jobWriter.write(jobJsonObject.toString());
+        jobWriter.newLine();
+        jobWriter.flush();
+        return job;
+    }
+
+    /**
+     * Let the worker process exit once submitted Jobs are done.
+     */
+    public synchronized void close() {
+        if (jobWriter != null) {
+            try {
+                jobWriter.close();
+            } catch (IOException ignored) {
+                // worker process already gone
+            }
+            jobWriter = null;
+        }
+    }
+
+    /**
+     * Kill the worker process (and its descendants) immediately, all submitted Jobs fail.
+     */
+    public synchronized void destroy() {
+        if (workerProcess != null) {
+            workerProcess.descendants().forEach(ProcessHandle::destroy);
+            workerProcess.destroy();
+        }
+    }
+
+    /**
+     * Start the worker process if it is not running.
+     */
+    private void ensureStarted() throws IOException {
+        if (workerProcess != null && workerProcess.isAlive() && jobWriter != null) {
+            return;
+        }
+        close();
+
+        ProcessBuilder workerBuilder = new ProcessBuilder(
+                PYTHON_EXE.getAbsolutePath(),
+                "-u",
+                WORKER_PY.getAbsolutePath()
+        ).directory(SO_VITS_SVC_DIR.isDirectory() ? SO_VITS_SVC_DIR : null).redirectErrorStream(true);
+        workerBuilder.environment().put("PYTHONIOENCODING", CHARSET_DISPLAY_DEFAULT.name());
+        if (gpuId != GPU_ID_NONE) {
+            workerBuilder.environment().put("CUDA_VISIBLE_DEVICES", String.valueOf(gpuId));
+        }
+
+        Process process = workerBuilder.start();
+        workerProcess = process;
+        jobWriter = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), CHARSET_DISPLAY_DEFAULT));
+        Thread outputPump = new Thread(() -> pumpOutput(process), "Python-Worker-" + getName());
+        outputPump.setDaemon(true);
+        outputPump.start();
+
+        System.out.println("[INFO] Python Worker Started: " + getName());
+    }
+
+    /**
+     * Redirect worker process output & complete Jobs as their end marks arrive, until the worker process exits.
+     * @param process the worker process to pump.
+     */
+    private void pumpOutput(Process process) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                CHARSET_DISPLAY_DEFAULT))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(JOB_END_MARK)) {
+                    JSONObject jobEnd = new JSONObject(line.substring(JOB_END_MARK.length()));
+                    finishJob(jobEnd.getLong("id"), jobEnd.getInt("exit"));
+                } else {
+                    outputPipeline.println(line);
+                }
+            }
+        } catch (IOException ignored) {
+            // worker process killed
+        }
+
+        // Fail all Jobs left in the exited worker process
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            exitCode = -1;
+        }
+        List<Job> leftJobs = new ArrayList<>();
+        synchronized (this) {
+            if (process == workerProcess) {
+                leftJobs.addAll(submittedJobs);
+                submittedJobs.clear();
+                workerProcess = null;
+                close();
+            }
+        }
+        // complete outside the lock, afterExecutions run on completion
+        for (Job job : leftJobs) {
+            job.finish(exitCode == 0 ? -1 : exitCode);
+        }
+        System.out.println("[INFO] Python Worker Exited: " + getName());
+    }
+
+    /**
+     * Complete the running Job.
+     * @param id id of the Job reported by the worker process.
+     * @param exitCode exit code of the Job.
+     */
+    private void finishJob(long id, int exitCode) {
+        Job job;
+        synchronized (this) {
+            job = submittedJobs.poll();
+        }
+        if (job == null || job.id != id) {
+            System.err.println("[WARNING] Python Worker reported an unknown Job: " + id);
+        }
+        if (job != null) {
+            job.finish(exitCode);
+        }
+    }
+
+    /* Getters */
+    public int getGpuId() {
+        return gpuId;
+    }
+    public String getName() {
+        return (gpuId == GPU_ID_NONE) ? "CPU" : "GPU" + gpuId;
+    }
+
+    /**
+     * Job
+     * @responsibility A script run inside the PythonWorker, seen as a Process by its owner.
+     * @feature Its output goes through the worker, so its own streams are empty.
+     */
+    public class Job extends ProcessAdapter {
+        private final long id;
+
+        private Job(long id) {
+            super("Job " + id);
+            this.id = id;
+        }
+
+        /**
+         * A running script cannot be stopped alone, kill the whole worker process.
+         */
+        @Override
+        public void destroy() {
+            if (isAlive()) {
+                PythonWorker.this.destroy();
+            }
+        }
+
+        @Override
+        public Stream<ProcessHandle> descendants() {
+            synchronized (PythonWorker.this) {
+                return (workerProcess == null) ? Stream.empty() : workerProcess.descendants();
+            }
+        }
+
+        @Override
+        public ProcessHandle toHandle() {
+            synchronized (PythonWorker.this) {
+                if (workerProcess == null) {
+                    throw new UnsupportedOperationException("Python Worker is not running");
+                }
+                return workerProcess.toHandle();
+            }
+        }
+    }
+}
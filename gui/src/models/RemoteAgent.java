@@ -1,113 +1,757 @@
 package models;
 
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import javax.swing.*;
+import java.awt.*;
 import java.io.*;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-
-import static gui.GUI.CHARSET_DISPLAY_DEFAULT;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+import static models.OutputPipeline.CHARSET_DISPLAY_DEFAULT;
 
 /**
  * Remote Agent
  * @responsibility Control the remote server to execute instructions.
  * @feature One RemoteAgent bounds one Server(address & port), eternally.
+ * If the Server supports FEATURE_SESSION, the probing connection is kept as ONE ControlSession carrying every
+ * instruction, log, telemetry & file transfer as a stream, & re-established transparently once lost.
+ * Otherwise, each call opens its own connection (legacy Server).
+ * If the Server supports FEATURE_DEFLATE too, session uploads & result downloads are compressed on the fly,
+ * as long as it pays off: per File by a sample, for results by the ratio measured on the last ones.
+ * If the Server supports FEATURE_RESUMABLE_UPLOAD too, Files already on the Server (by content hash) are skipped,
+ * the others are sent in checksummed chunks from the offset the Server holds, resumed after a failure.
  */
 public class RemoteAgent {
 
-    private static final int FILE_TRANSFER_FRAGMENT_SIZE = 1024; // bytes
+    private static final long FILE_TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024; // bytes, per progress step at most
+    private static final int FILE_TRANSFER_SOCKET_BUFFER_SIZE = 1024 * 1024; // bytes
+    private static final String RESULT_FILE_TEMP_SUFFIX = ".part";
     private static final int FILE_TRANSFER_SERVER_PORT = 43688;
-    public static final int FILE_TRANSFER_INTERVAL = 1000; // ms
+    public static final int FILE_TRANSFER_INTERVAL = 1000; // ms, between per-file connections (legacy Server only)
+    private static final int FEATURE_QUERY_TIMEOUT = 3000; // ms
+    private static final String BATCH_UPLOAD_MARK = "BATCH";
+    private static final String BATCH_UPLOAD_END_MARK = "END";
+    private static final int GPU_STATUS_SERVER_PORT = 43687;
+    private static final int RECONNECT_ATTEMPTS = 3;
+    private static final long RECONNECT_BACKOFF = 1000; // ms, doubled per attempt
+    /* Stream headers of a ControlSession: an Instruction, or a CHANNEL */
+    private static final String CHANNEL = "CHANNEL";
+    private static final String CHANNEL_FILE = "FILE"; // + usage, name, length; content as DATA
+    private static final String CHANNEL_GPU_STATUS = "GPU_STATUS"; // as the GPU status port would send it
+    private static final String CHANNEL_LIVE = "LIVE"; // + settings; frames both ways as LiveConversion sends them
+    private static final int RESUMABLE_CHUNK_SIZE = 1024 * 1024; // bytes
+    private static final int RESUME_ATTEMPTS = 3; // per File, after the first one
+    private static final int RESULTS_COMPRESSION_RECHECK = 8; // GET_RESULTS uncompressed, before measuring again
+
+    /* Optional Server features, announced in reply to GET_FEATURES */
+    public static final String FEATURE_BATCH_UPLOAD = "batch_upload";
+    public static final String FEATURE_GPU_TELEMETRY = "gpu_telemetry"; // GPU status port streams GpuStatus CSV lines
+    public static final String FEATURE_SESSION = "session"; // features connection upgradable by SESSION
+    public static final String FEATURE_DEFLATE = TransferCodec.DEFLATE; // transfers may be deflate-encoded
+    public static final String FEATURE_RESUMABLE_UPLOAD = "resumable_upload"; // session Files by hash, in chunks
+    public static final String FEATURE_NAMED_INFER = "named_infer"; // INFER & GET_RESULTS may name their "files"
+    public static final String FEATURE_LIVE_CONVERT = "live_convert"; // session streams converting frames live
+    public static final String FEATURE_LONG_LENGTHS = "long_lengths"; // GET_RESULTS may send 64-bit file lengths
+
+    private static final int CONTENT_HASHES_MAX = 1024; // Files whose content hash is remembered
+    // File path -> "<length>|<last modified>|<content hash>", Files are not hashed again unless changed,
+    // the least recently used are forgotten beyond CONTENT_HASHES_MAX
+    private static final Map<String, String> contentHashes = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > CONTENT_HASHES_MAX;
+                }
+            });
 
-    private final Socket probeSocket; // closed after probing
+    // Servers which let GET_FEATURES time out (legacy ones ignoring it), not asked again: no FEATURE_QUERY_TIMEOUT
+    // stall on every connection to them
+    private static final Set<SocketAddress> silentServers = ConcurrentHashMap.newKeySet();
+
+    private final InetSocketAddress address;
+    private final Set<String> serverFeatures;
+    private ControlSession session; // NULL -> Server without FEATURE_SESSION
+    private volatile boolean closed;
+    private volatile boolean compressionEnabled = true;
+    private volatile int uncompressedResultsLeft; // GET_RESULTS uncompressed, as the last ones did not pay off
+    private final OutputPipeline outputPipeline = OutputPipeline.getOutputPipeline();
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.getMetricsRegistry();
 
     /**
-     * Probe connectivity to the Server (does NOT hold the probing connection) & Create RemoteAgent if connectable.
+     * Probe connectivity to the Server & Create RemoteAgent if connectable.
+     * The probing connection asks for the Server features (unless it never answered before), then is kept as the
+     * ControlSession if supported.
      * @param address Server address to connect
      * @throws IOException failed to connect to Server
      */
     public RemoteAgent(InetSocketAddress address) throws IOException {
-        probeSocket = new Socket(address.getAddress(), address.getPort());
-        probeSocket.close();
+        this.address = address;
+        Socket probeSocket = new Socket(address.getAddress(), address.getPort());
+        serverFeatures = silentServers.contains(probeSocket.getRemoteSocketAddress()) ? Set.of() :
+                queryServerFeatures(probeSocket);
+        if (serverFeatures.contains(FEATURE_SESSION)) {
+            session = upgradeToSession(probeSocket);
+        } else {
+            probeSocket.close();
+        }
     }
 
     /**
-     * Close the socket connection.
+     * Ask the Server which optional features it supports, through a new connection.
+     * @param instructionSocket the new connection, left open.
+     * @return names of supported features, EMPTY if the Server does not understand GET_FEATURES.
+     * A Server not answering in FEATURE_QUERY_TIMEOUT is remembered as silent.
      */
-    public void close() {
+    private static Set<String> queryServerFeatures(Socket instructionSocket) {
         try {
-            probeSocket.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            instructionSocket.setSoTimeout(FEATURE_QUERY_TIMEOUT);
+            DataOutputStream serverOutputStream = new DataOutputStream(instructionSocket.getOutputStream());
+
+            // construct GET features Instruction
+            JSONObject instruction = new JSONObject();
+            instruction.put("INSTRUCTION", InstructionType.GET_FEATURES.name());
+
+            // send Instruction
+            serverOutputStream.writeUTF(instruction.toString());
+            serverOutputStream.flush();
+
+            // retrieve featuresJSONString from Server, unbuffered: the connection may become a ControlSession
+            ByteArrayOutputStream featuresBytes = new ByteArrayOutputStream();
+            InputStream in = instructionSocket.getInputStream();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                featuresBytes.write(b);
+            }
+            if (featuresBytes.size() == 0) {
+                return Set.of();
+            }
+            Set<String> features = new HashSet<>();
+            new JSONObject(featuresBytes.toString(CHARSET_DISPLAY_DEFAULT)).getJSONArray("features")
+                    .forEach((f) -> features.add(f.toString()));
+            return Collections.unmodifiableSet(features);
+        } catch (SocketTimeoutException ex) { // legacy Server, ignoring the query
+            silentServers.add(instructionSocket.getRemoteSocketAddress());
+            return Set.of();
+        } catch (IOException | JSONException ex) { // legacy Server
+            return Set.of();
+        }
+    }
+
+    /**
+     * Turn the features connection into a ControlSession.
+     * @param instructionSocket the connection, after GET_FEATURES.
+     * @return the session.
+     */
+    private static ControlSession upgradeToSession(Socket instructionSocket) throws IOException {
+        JSONObject instruction = new JSONObject();
+        instruction.put("INSTRUCTION", InstructionType.SESSION.name());
+        DataOutputStream serverOutputStream = new DataOutputStream(instructionSocket.getOutputStream());
+        serverOutputStream.writeUTF(instruction.toString());
+        serverOutputStream.flush();
+        return new ControlSession(instructionSocket, true);
+    }
+
+    /**
+     * Get the ControlSession, re-establish it first if it was lost (RECONNECT_ATTEMPTS times at most).
+     * The backoff between attempts is slept without holding the agent lock.
+     * @return the open session, NULL if the Server does not support FEATURE_SESSION.
+     * @throws IOException the session is lost & could not be re-established.
+     */
+    private ControlSession getSession() throws IOException {
+        IOException failure = null;
+        for (int attempt = 0; attempt < RECONNECT_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                try {
+                    Thread.sleep(RECONNECT_BACKOFF << (attempt - 1));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            synchronized (this) {
+                // open, or re-established by another call meanwhile
+                if (session == null || !session.isClosed()) {
+                    return session;
+                }
+                if (closed) {
+                    throw new IOException("Disconnected from Server.");
+                }
+                try {
+                    Socket instructionSocket = new Socket(getInetAddress(), getPort());
+                    if (queryServerFeatures(instructionSocket).contains(FEATURE_SESSION)) {
+                        session = upgradeToSession(instructionSocket);
+                        System.out.println("[INFO] Session to Server Re-established.");
+                        return session;
+                    }
+                    instructionSocket.close();
+                    failure = new IOException("Server no longer accepts a Session.");
+                } catch (IOException ex) {
+                    failure = ex;
+                }
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Run a resumable call, again (through a re-established session if lost) after a transport failure,
+     * RESUME_ATTEMPTS times at most. Any other failure (e.g. rejected by the Server) is thrown at once.
+     * @param call the call, continuing where the failed one stopped.
+     * @param description what is resumed, to be reported.
+     * @return result of the call.
+     */
+    private <T> T callResumable(RemoteCall<T> call, String description) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            ControlSession callSession = getSession();
+            try {
+                return call.call();
+            } catch (IOException ex) {
+                if (closed || attempt == RESUME_ATTEMPTS || !isTransportFailure(ex, callSession)) {
+                    throw ex;
+                }
+                System.err.println("[WARNING] " + description + " Interrupted (" + ex.getMessage() + "), Resuming...");
+                getSession(); // re-establish now, if lost
+            }
         }
     }
 
+    /**
+     * @param ex failure of a call.
+     * @param callSession session the call went through, NULL if none.
+     * @return true -> the connection was lost, reset or timed out, false -> e.g. rejected or interrupted.
+     */
+    private static boolean isTransportFailure(IOException ex, ControlSession callSession) {
+        if (callSession != null && callSession.isClosed()) { // session lost meanwhile
+            return true;
+        }
+        return ex instanceof EOFException || ex instanceof SocketException || ex instanceof SocketTimeoutException;
+    }
+
+    /**
+     * Run an idempotent call, once more (through a re-established session) if the session was lost meanwhile.
+     * @param call the call.
+     * @return result of the call.
+     */
+    private <T> T callIdempotent(RemoteCall<T> call) throws IOException {
+        ControlSession callSession = getSession();
+        try {
+            return call.call();
+        } catch (IOException ex) {
+            if (callSession == null || !callSession.isClosed() || closed) {
+                throw ex;
+            }
+            return call.call();
+        }
+    }
+
+    /**
+     * @return true -> compress transfers: enabled, & negotiated with the Server.
+     */
+    private boolean useCompression() {
+        return compressionEnabled && serverFeatures.contains(FEATURE_DEFLATE);
+    }
+
+    /**
+     * Close the connection(s) to the Server.
+     */
+    public synchronized void close() {
+        closed = true;
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    /**
+     * Send an Instruction, as a stream of the ControlSession if present, otherwise through a new connection.
+     * @param instruction Instruction to be sent.
+     * @return reply of the Server, closing it ends the stream/connection.
+     */
+    private InputStream sendInstruction(JSONObject instruction) throws IOException {
+        ControlSession currentSession = getSession();
+        if (currentSession != null) {
+            ControlSession.Stream stream = currentSession.openStream(instruction);
+            stream.getOutputStream().close(); // nothing more to send
+            return closingWith(stream.getInputStream(), stream);
+        }
+
+        Socket instructionSocket = new Socket(getInetAddress(), getPort());
+        DataOutputStream serverOutputStream = new DataOutputStream(instructionSocket.getOutputStream());
+        serverOutputStream.writeUTF(instruction.toString());
+        serverOutputStream.flush();
+        return closingWith(instructionSocket.getInputStream(), instructionSocket);
+    }
+
+    /**
+     * Open the GPU status of the Server: GpuStatus CSV lines streamed if it supports FEATURE_GPU_TELEMETRY,
+     * otherwise one plain-text status. Through the ControlSession if present, otherwise the GPU status port.
+     * @return the GPU status, closing it ends the stream/connection.
+     */
+    public InputStream openGpuStatusStream() throws IOException {
+        ControlSession currentSession = getSession();
+        if (currentSession != null) {
+            ControlSession.Stream stream = currentSession.openStream(
+                    new JSONObject().put(CHANNEL, CHANNEL_GPU_STATUS));
+            stream.getOutputStream().close(); // nothing to send
+            return closingWith(stream.getInputStream(), stream);
+        }
+
+        Socket gpuSocket = new Socket(getInetAddress(), GPU_STATUS_SERVER_PORT);
+        return closingWith(gpuSocket.getInputStream(), gpuSocket);
+    }
+
+    /**
+     * Open a live conversion stream through the ControlSession: frames to convert are written to it, converted
+     * frames are read from it. (needs FEATURE_SESSION & FEATURE_LIVE_CONVERT)
+     * @param settings conversion settings, sent as the stream header.
+     * @return the stream, closing it ends the conversion.
+     * @throws IOException not supported by the Server, or failed to open.
+     */
+    public ControlSession.Stream openLiveStream(JSONObject settings) throws IOException {
+        ControlSession currentSession = getSession();
+        if (currentSession == null || !serverFeatures.contains(FEATURE_LIVE_CONVERT)) {
+            throw new IOException("Live Conversion is not supported by the Server.");
+        }
+        JSONObject header = new JSONObject(settings.toString());
+        header.put(CHANNEL, CHANNEL_LIVE);
+        return currentSession.openStream(header);
+    }
+
+    /**
+     * @return an InputStream closing its owner (connection or stream) when closed.
+     */
+    private static InputStream closingWith(InputStream in, Closeable owner) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() throws IOException {
+                owner.close();
+            }
+        };
+    }
+
     /**
      * Notify Server the FileUsage & Transfer a Single File to the Server. (in current Thread, may Block)
+     * The file content is sent by zero-copy FileChannel.transferTo, progress is reported in coarse steps.
      * @param usage Enum indicates the usage of the file to be transferred.
      * @param file File to be transferred.
-     * @param progressBar JProgressBar to be updated.
+     * @param progressBar JProgressBar to be updated (on EDT), may be NULL.
      */
     public void transferFileToServer(FileUsage usage, File file, JProgressBar progressBar) throws IOException {
+        long startTime = System.nanoTime();
 
-        Socket fileTransferSocket = new Socket(getInetAddress(), FILE_TRANSFER_SERVER_PORT);
-        DataOutputStream serverOutputStream = new DataOutputStream(fileTransferSocket.getOutputStream());
+        /* Session */
+        if (getSession() != null) {
+            long bytesSent;
+            try {
+                if (serverFeatures.contains(FEATURE_RESUMABLE_UPLOAD)) {
+                    String contentHash = getContentHash(file);
+                    bytesSent = callResumable(() -> sendFileResumable(usage, file, contentHash, progressBar),
+                            "Upload of \"" + file.getName() + "\"");
+                } else {
+                    bytesSent = callIdempotent(() -> sendFileThroughSession(usage, file, progressBar));
+                }
+            } catch (IOException ex) {
+                System.err.println(ex.getMessage());
+                throw ex;
+            }
+            metricsRegistry.observe(MetricsRegistry.REMOTE_BYTES_SENT, usage.name(), bytesSent);
+            metricsRegistry.observeSince(MetricsRegistry.REMOTE_CALL, usage.name(), startTime);
+            return;
+        }
+        /* End Session */
 
-        // Notify server InstructionType & FileUsage
-        serverOutputStream.writeUTF(usage.name());
-        serverOutputStream.writeUTF(file.getName());
-        serverOutputStream.flush();
+        try (SocketChannel fileTransferChannel = openFileTransferChannel();
+             FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
 
-        // Transfer File
-        DataInputStream fileInputStream = new DataInputStream(new FileInputStream(file));
+            // Notify server InstructionType & FileUsage
+            writeHeader(fileTransferChannel, (header) -> {
+                header.writeUTF(usage.name());
+                header.writeUTF(file.getName());
+            });
 
-        try {
-            byte[] fragment = new byte[FILE_TRANSFER_FRAGMENT_SIZE];
-            long totalLengthTransferred = 0;
-            int acturalFragmentLength;
-            while ((acturalFragmentLength = fileInputStream.read(fragment)) != -1) {
-                serverOutputStream.write(fragment, 0, acturalFragmentLength);
-                serverOutputStream.flush();
-                totalLengthTransferred += acturalFragmentLength;
-                // update progressBar
-                if (progressBar != null) {
-                    progressBar.setValue((int) ((double) totalLengthTransferred / file.length() * 100));
+            // Transfer File
+            sendFileContent(fileTransferChannel, fileChannel, progressBar);
+            metricsRegistry.observe(MetricsRegistry.REMOTE_BYTES_SENT, usage.name(), fileChannel.size());
+            metricsRegistry.observeSince(MetricsRegistry.REMOTE_CALL, usage.name(), startTime);
+        } catch (IOException ex) {
+            System.err.println(ex.getMessage());
+            throw ex;
+        }
+    }
+
+    /**
+     * Transfer Multiple Files of the same FileUsage to the Server. (in current Thread, may Block)
+     * Through the ControlSession if present, each File as one stream.
+     * If the Server supports FEATURE_BATCH_UPLOAD, all Files are pipelined back to back through ONE connection:
+     * BATCH_UPLOAD_MARK, then per File (usage, name, 64-bit length, content), then BATCH_UPLOAD_END_MARK.
+     * Otherwise, each File is transferred by transferFileToServer, FILE_TRANSFER_INTERVAL apart.
+     * @param usage Enum indicates the usage of the files to be transferred.
+     * @param files Files to be transferred, in order.
+     * @param fileProgressBar JProgressBar of the current File, to be updated (on EDT), may be NULL.
+     * @param totalProgressBar JProgressBar of transferred File count, to be updated (on EDT), may be NULL.
+     */
+    public void transferFilesToServer(FileUsage usage, File[] files, JProgressBar fileProgressBar,
+                                      JProgressBar totalProgressBar) throws IOException, InterruptedException {
+        updateCountProgress(totalProgressBar, 0, files.length);
+
+        /* Session: one stream per File, back to back */
+        if (getSession() != null) {
+            for (int i = 0; i < files.length; ) {
+                transferFileToServer(usage, files[i], fileProgressBar);
+                updateCountProgress(totalProgressBar, ++i, files.length);
+            }
+            return;
+        }
+        /* End Session */
+
+        /* Legacy Server */
+        if (!serverFeatures.contains(FEATURE_BATCH_UPLOAD)) {
+            for (int i = 0; i < files.length; ) {
+                transferFileToServer(usage, files[i], fileProgressBar);
+                updateCountProgress(totalProgressBar, ++i, files.length);
+                if (i < files.length) {
+                    Thread.sleep(FILE_TRANSFER_INTERVAL);
+                }
+            }
+            return;
+        }
+        /* End Legacy Server */
+
+        String stage = BATCH_UPLOAD_MARK + "_" + usage.name();
+        long startTime = System.nanoTime();
+        try (SocketChannel fileTransferChannel = openFileTransferChannel()) {
+            writeHeader(fileTransferChannel, (header) -> header.writeUTF(BATCH_UPLOAD_MARK));
+
+            for (int i = 0; i < files.length; ) {
+                File file = files[i];
+                try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    long fileLength = fileChannel.size();
+                    writeHeader(fileTransferChannel, (header) -> {
+                        header.writeUTF(usage.name());
+                        header.writeUTF(file.getName());
+                        header.writeLong(fileLength);
+                    });
+                    sendFileContent(fileTransferChannel, fileChannel, fileProgressBar);
+                    metricsRegistry.observe(MetricsRegistry.REMOTE_BYTES_SENT, stage, fileLength);
                 }
+                updateCountProgress(totalProgressBar, ++i, files.length);
+            }
+
+            writeHeader(fileTransferChannel, (header) -> header.writeUTF(BATCH_UPLOAD_END_MARK));
+            fileTransferChannel.shutdownOutput();
+
+            // wait until the Server has stored all Files & closed its side
+            ByteBuffer drain = ByteBuffer.allocate(Long.BYTES);
+            while (fileTransferChannel.read(drain) != -1) {
+                drain.clear();
             }
+            metricsRegistry.observeSince(MetricsRegistry.REMOTE_CALL, stage, startTime);
         } catch (IOException ex) {
             System.err.println(ex.getMessage());
             throw ex;
         }
+    }
+
+    /**
+     * Send a File as a CHANNEL_FILE stream of the ControlSession, and wait until the Server has stored it.
+     * If compressed, the header says so ("encoding"), length stays the raw length.
+     * @param usage Enum indicates the usage of the file to be transferred.
+     * @param file File to be transferred.
+     * @param progressBar JProgressBar to be updated (on EDT) in coarse steps, may be NULL.
+     * @return count of (raw) bytes sent.
+     */
+    private long sendFileThroughSession(FileUsage usage, File file, JProgressBar progressBar) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileLength = fileChannel.size();
+            JSONObject header = new JSONObject();
+            header.put(CHANNEL, CHANNEL_FILE);
+            header.put("usage", usage.name());
+            header.put("name", file.getName());
+            header.put("length", fileLength);
+            boolean compress = useCompression() && TransferCodec.isWorthCompressing(fileChannel);
+            if (compress) {
+                header.put("encoding", TransferCodec.DEFLATE);
+            }
+
+            try (ControlSession.Stream stream = getSession().openStream(header)) {
+                OutputStream streamOut = stream.getOutputStream();
+                TransferCodec.Compressor compressor = compress ? TransferCodec.compressing(streamOut) : null;
+                try (OutputStream out = compress ? compressor : streamOut) {
+                    ByteBuffer chunk = ByteBuffer.allocate(ControlSession.MAX_FRAME_PAYLOAD);
+                    long totalLengthTransferred = 0;
+                    int reportedPercentage = -1;
+                    while (totalLengthTransferred < fileLength) {
+                        chunk.clear();
+                        int read = fileChannel.read(chunk, totalLengthTransferred);
+                        if (read == -1) {
+                            throw new EOFException("\"" + file.getName() + "\" shrank while being transferred.");
+                        }
+                        out.write(chunk.array(), 0, read);
+                        totalLengthTransferred += read;
+                        // update progressBar, only on visible change
+                        int percentage = (int) (totalLengthTransferred * 100 / fileLength);
+                        if (percentage != reportedPercentage) {
+                            reportedPercentage = percentage;
+                            updateProgress(progressBar, percentage);
+                        }
+                    }
+                    if (fileLength == 0) {
+                        updateProgress(progressBar, 100);
+                    }
+                }
+                if (compress) {
+                    metricsRegistry.observe(MetricsRegistry.REMOTE_COMPRESSED_PERCENTAGE, usage.name(),
+                            compressor.getCompressedPercentage());
+                }
+
+                // wait until the Server has stored the File & closed its side
+                stream.getInputStream().transferTo(OutputStream.nullOutputStream());
+                return fileLength;
+            }
+        }
+    }
+
+    /**
+     * Send a File as a resumable CHANNEL_FILE stream of the ControlSession, and wait until the Server has stored it.
+     * The header carries the content hash, the Server replies the offset it already holds for that content
+     * (length -> nothing to send). From there, chunks (64-bit offset, length, content, CRC32C) are sent, each one
+     * verified & kept by the Server. At last, the Server replies the offset again: length -> stored & hash verified.
+     * If compressed, the chunks are ("encoding"), the replies never are.
+     * @param usage Enum indicates the usage of the file to be transferred.
+     * @param file File to be transferred.
+     * @param contentHash hex SHA-256 of the File content.
+     * @param progressBar JProgressBar to be updated (on EDT) in coarse steps, may be NULL.
+     * @return count of (raw) bytes sent, 0 if the Server had the File already.
+     */
+    private long sendFileResumable(FileUsage usage, File file, String contentHash, JProgressBar progressBar)
+            throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileLength = fileChannel.size();
+            JSONObject header = new JSONObject();
+            header.put(CHANNEL, CHANNEL_FILE);
+            header.put("usage", usage.name());
+            header.put("name", file.getName());
+            header.put("length", fileLength);
+            header.put("sha256", contentHash);
+            boolean compress = useCompression() && TransferCodec.isWorthCompressing(fileChannel);
+            if (compress) {
+                header.put("encoding", TransferCodec.DEFLATE);
+            }
+
+            try (ControlSession.Stream stream = getSession().openStream(header)) {
+                BufferedReader replies = new BufferedReader(new InputStreamReader(stream.getInputStream(),
+                        StandardCharsets.UTF_8));
+                long startOffset = readOffsetReply(replies, file);
+                if (startOffset == fileLength) {
+                    stream.getOutputStream().close();
+                    replies.transferTo(Writer.nullWriter()); // until the Server closes its side
+                    updateProgress(progressBar, 100);
+                    System.out.println("[INFO] Already on Server, Skipped: \"" + file.getName() + "\"");
+                    return 0;
+                }
+
+                OutputStream streamOut = stream.getOutputStream();
+                TransferCodec.Compressor compressor = compress ? TransferCodec.compressing(streamOut) : null;
+                try (DataOutputStream out = new DataOutputStream(compress ? compressor : streamOut)) {
+                    ByteBuffer chunk = ByteBuffer.allocate(RESUMABLE_CHUNK_SIZE);
+                    CRC32C checksum = new CRC32C();
+                    long offset = startOffset;
+                    while (offset < fileLength) {
+                        chunk.clear();
+                        int read = fileChannel.read(chunk, offset);
+                        if (read == -1) {
+                            throw new EOFException("\"" + file.getName() + "\" shrank while being transferred.");
+                        }
+                        checksum.reset();
+                        checksum.update(chunk.array(), 0, read);
+                        out.writeLong(offset);
+                        out.writeInt(read);
+                        out.write(chunk.array(), 0, read);
+                        out.writeInt((int) checksum.getValue());
+                        offset += read;
+                        updateProgress(progressBar, (int) (offset * 100 / fileLength));
+                    }
+                }
+                if (compress) {
+                    metricsRegistry.observe(MetricsRegistry.REMOTE_COMPRESSED_PERCENTAGE, usage.name(),
+                            compressor.getCompressedPercentage());
+                }
 
-        // Closures
-        fileInputStream.close();
-        fileTransferSocket.close();
+                if (readOffsetReply(replies, file) != fileLength) {
+                    throw new IOException("Server rejected \"" + file.getName() + "\": content hash mismatch.");
+                }
+                replies.transferTo(Writer.nullWriter()); // until the Server closes its side
+                return fileLength - startOffset;
+            }
+        }
     }
 
     /**
-     * Transfer a Single Instruction to the Server, and Retrieve Feedback from the Server. (in current Thread, may Block)
-     * @param instruction Instruction to be transferred.
+     * Read one {"offset": ...} reply of a resumable CHANNEL_FILE stream.
+     * @param replies replies of the stream.
+     * @param file File being transferred.
+     * @return the offset.
+     * @throws IOException no reply, or the Server replied an error.
      */
-    public void executeInstructionOnServer(JSONObject instruction) throws IOException {
+    private static long readOffsetReply(BufferedReader replies, File file) throws IOException {
+        String reply = replies.readLine();
+        if (reply == null) {
+            throw new EOFException("Server closed before \"" + file.getName() + "\" was stored.");
+        }
+        try {
+            JSONObject replyJSONObject = new JSONObject(reply);
+            if (replyJSONObject.has("error")) {
+                throw new IOException("Server rejected \"" + file.getName() + "\": "
+                        + replyJSONObject.getString("error"));
+            }
+            return replyJSONObject.getLong("offset");
+        } catch (JSONException ex) {
+            throw new IOException("Invalid reply from Server: " + reply, ex);
+        }
+    }
 
-        Socket instructionSocket = new Socket(getInetAddress(), getPort());
-        DataOutputStream serverOutputStream = new DataOutputStream(instructionSocket.getOutputStream());
+    /**
+     * Get the content hash of a File, computed once per (path, length, last modified).
+     * @param file File to be hashed.
+     * @return hex SHA-256.
+     */
+    private static String getContentHash(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        String version = file.length() + "|" + file.lastModified() + "|";
+        String cached = contentHashes.get(path);
+        if (cached != null && cached.startsWith(version)) {
+            return cached.substring(version.length());
+        }
 
-        // send Instruction
-        serverOutputStream.writeUTF(instruction.toString());
-        serverOutputStream.flush();
+        String contentHash = ContentHash.sha256(file);
+        // remembered only if unchanged while hashing
+        if (version.equals(file.length() + "|" + file.lastModified() + "|")) {
+            contentHashes.put(path, version + contentHash);
+        }
+        return contentHash;
+    }
 
-        // retrieve Feedback from Server
-        BufferedReader in = new BufferedReader(new InputStreamReader(instructionSocket.getInputStream(),
-                CHARSET_DISPLAY_DEFAULT));
-        String line;
-        while ((line = in.readLine()) != null) {
-            System.out.println(line);
-            System.out.flush();
+    /**
+     * Open a new connection to the file transfer port of the Server.
+     * @return the connected SocketChannel.
+     */
+    private SocketChannel openFileTransferChannel() throws IOException {
+        SocketChannel fileTransferChannel = SocketChannel.open(
+                new InetSocketAddress(getInetAddress(), FILE_TRANSFER_SERVER_PORT));
+        fileTransferChannel.socket().setSendBufferSize(FILE_TRANSFER_SOCKET_BUFFER_SIZE);
+        return fileTransferChannel;
+    }
+
+    /**
+     * Write header fields (in DataOutput format) to the channel, in one go.
+     * @param channel channel to write to.
+     * @param headerWriter writes the header fields.
+     */
+    private static void writeHeader(WritableByteChannel channel, HeaderWriter headerWriter) throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        headerWriter.write(header);
+        header.flush();
+        ByteBuffer headerBuffer = ByteBuffer.wrap(headerBytes.toByteArray());
+        while (headerBuffer.hasRemaining()) {
+            channel.write(headerBuffer);
         }
-        instructionSocket.close();
+    }
+
+    /**
+     * Send the whole content of a File to the channel, by zero-copy FileChannel.transferTo.
+     * @param channel channel to send to.
+     * @param fileChannel channel of the File to be sent.
+     * @param progressBar JProgressBar to be updated (on EDT) in coarse steps, may be NULL.
+     */
+    private static void sendFileContent(WritableByteChannel channel, FileChannel fileChannel,
+                                        JProgressBar progressBar) throws IOException {
+        long fileLength = fileChannel.size();
+        long totalLengthTransferred = 0;
+        int reportedPercentage = -1;
+        while (totalLengthTransferred < fileLength) {
+            totalLengthTransferred += fileChannel.transferTo(
+                    totalLengthTransferred,
+                    Math.min(FILE_TRANSFER_CHUNK_SIZE, fileLength - totalLengthTransferred),
+                    channel
+            );
+            // update progressBar, only on visible change
+            int percentage = (int) (totalLengthTransferred * 100 / fileLength);
+            if (percentage != reportedPercentage) {
+                reportedPercentage = percentage;
+                updateProgress(progressBar, percentage);
+            }
+        }
+        if (fileLength == 0) {
+            updateProgress(progressBar, 100);
+        }
+    }
+
+    /**
+     * Update a JProgressBar on EDT.
+     * @param progressBar JProgressBar to be updated, may be NULL.
+     * @param value new value of the progressBar.
+     */
+    private static void updateProgress(JProgressBar progressBar, int value) {
+        if (progressBar != null) {
+            EventQueue.invokeLater(() -> progressBar.setValue(value));
+        }
+    }
+
+    /**
+     * Update a "completed/total" JProgressBar on EDT.
+     * @param progressBar JProgressBar to be updated, may be NULL.
+     * @param completed count of completed items.
+     * @param total count of all items.
+     */
+    public static void updateCountProgress(JProgressBar progressBar, int completed, int total) {
+        if (progressBar != null) {
+            EventQueue.invokeLater(() -> {
+                progressBar.setMaximum(total);
+                progressBar.setValue(completed);
+                progressBar.setString(completed + "/" + total);
+            });
+        }
+    }
+
+    /**
+     * Transfer a Single Instruction to the Server, and Retrieve Feedback from the Server. (in current Thread, may Block)
+     * @param instruction Instruction to be transferred.
+     */
+    public void executeInstructionOnServer(JSONObject instruction) throws IOException {
+        long startTime = System.nanoTime();
+
+        // send Instruction & retrieve Feedback from Server
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(sendInstruction(instruction),
+                CHARSET_DISPLAY_DEFAULT))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                outputPipeline.println(line);
+            }
+        }
+        metricsRegistry.observeSince(MetricsRegistry.REMOTE_CALL, instruction.optString("INSTRUCTION"), startTime);
     }
 
     /**
@@ -115,74 +759,167 @@ public class RemoteAgent {
      * @return train config JSONObject
      */
     public JSONObject getTrainConfig() throws IOException {
-
-        Socket instructionSocket = new Socket(getInetAddress(), getPort());
-        DataOutputStream serverOutputStream = new DataOutputStream(instructionSocket.getOutputStream());
+        long startTime = System.nanoTime();
 
         // construct GET config Instruction
         JSONObject instruction = new JSONObject();
         instruction.put("INSTRUCTION", InstructionType.GET_CONF.name());
         instruction.put("config", InstructionType.TRAIN.name().toLowerCase());
 
-        // send Instruction
-        serverOutputStream.writeUTF(instruction.toString());
-        serverOutputStream.flush();
-
-        // retrieve configJSONString from Server
-        BufferedReader in = new BufferedReader(new InputStreamReader(instructionSocket.getInputStream(),
-                CHARSET_DISPLAY_DEFAULT));
-        String configJSONString = in.readLine();
-        instructionSocket.close();
+        // send Instruction & retrieve configJSONString from Server
+        String configJSONString = callIdempotent(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(sendInstruction(instruction),
+                    CHARSET_DISPLAY_DEFAULT))) {
+                return in.readLine();
+            }
+        });
+        metricsRegistry.observeSince(MetricsRegistry.REMOTE_CALL, InstructionType.GET_CONF.name(), startTime);
 
         return new JSONObject(configJSONString);
     }
 
     /**
      * Get result Files from the Server and Write them into local resultDir directory.
+     * Each File is streamed to a temp File through a fixed-size buffer, then renamed atomically.
      * @param resultDir the directory to store the received result Files.
      */
     public void getResultFiles(File resultDir) throws IOException {
+        getResultFiles(resultDir, null);
+    }
 
-        Socket instructionSocket = new Socket(getInetAddress(), getPort());
-        DataInputStream serverInputStream = new DataInputStream(instructionSocket.getInputStream());
-        DataOutputStream serverOutputStream = new DataOutputStream(instructionSocket.getOutputStream());
+    /**
+     * Get the result Files of some inferred Files from the Server and Write them into local resultDir directory.
+     * @param resultDir the directory to store the received result Files.
+     * @param names names of the inferred Files (as uploaded), NULL -> all results. (needs FEATURE_NAMED_INFER)
+     */
+    public void getResultFiles(File resultDir, Collection<String> names) throws IOException {
+        long startTime = System.nanoTime();
 
         // construct GET results Instruction
         JSONObject instruction = new JSONObject();
         instruction.put("INSTRUCTION", InstructionType.GET_RESULTS.name());
+        if (names != null) {
+            instruction.put("files", new JSONArray(names));
+        }
+        boolean longLengths = serverFeatures.contains(FEATURE_LONG_LENGTHS);
+        if (longLengths) {
+            instruction.put("length_bytes", Long.BYTES); // ask for 64-bit file lengths
+        }
+        boolean compress = useCompression();
+        if (compress && uncompressedResultsLeft > 0) {
+            uncompressedResultsLeft--;
+            compress = false;
+        }
+        if (compress) {
+            instruction.put("encoding", TransferCodec.DEFLATE); // the whole reply, deflated
+        }
 
         // send Instruction
-        serverOutputStream.writeUTF(instruction.toString());
-        serverOutputStream.flush();
+        InputStream reply = sendInstruction(instruction);
+        TransferCodec.Decompressor decompressor = compress ? TransferCodec.decompressing(reply) : null;
+        PushbackInputStream replyInputStream = new PushbackInputStream(compress ? decompressor : reply);
+        DataInputStream serverInputStream = new DataInputStream(replyInputStream);
+        ReadableByteChannel serverChannel = Channels.newChannel(serverInputStream);
 
         // get result Files from Server
-        while (true) {
-            File resultFile;
-            try {
-                resultFile = new File(resultDir, serverInputStream.readUTF());
-            } catch (IOException ex) { // Server side closed File transfer socket pipe
-                break;
+        try {
+            while (true) {
+                // Server side ended the reply, at a File boundary only (any other failure is thrown)
+                int nextByte = replyInputStream.read();
+                if (nextByte == -1) {
+                    break;
+                }
+                replyInputStream.unread(nextByte);
+                // keep the name only, never leave resultDir
+                File resultFile = new File(resultDir, new File(serverInputStream.readUTF()).getName());
+                long fileLen = longLengths ? serverInputStream.readLong() : serverInputStream.readInt();
+                receiveFile(serverChannel, fileLen, resultFile);
+                metricsRegistry.observe(MetricsRegistry.REMOTE_BYTES_RECEIVED, InstructionType.GET_RESULTS.name(),
+                        fileLen);
+
+                System.out.println("[INFO] File Received: \"" + resultFile + "\"");
             }
-            FileOutputStream fileOutStream = new FileOutputStream(resultFile);
+            metricsRegistry.observeSince(MetricsRegistry.REMOTE_CALL, InstructionType.GET_RESULTS.name(), startTime);
+            if (compress) {
+                double compressedPercentage = decompressor.getCompressedPercentage();
+                metricsRegistry.observe(MetricsRegistry.REMOTE_COMPRESSED_PERCENTAGE,
+                        InstructionType.GET_RESULTS.name(), compressedPercentage);
+                if (compressedPercentage > TransferCodec.WORTHWHILE_PERCENTAGE) {
+                    uncompressedResultsLeft = RESULTS_COMPRESSION_RECHECK;
+                }
+            }
+        } finally {
+            serverInputStream.close();
+        }
+    }
 
-            // Write to File
-            int fileLen = serverInputStream.readInt();
-            byte[] buffer = new byte[fileLen];
-            serverInputStream.readFully(buffer, 0, fileLen);
-            fileOutStream.write(buffer, 0, fileLen);
-            fileOutStream.close();
+    /**
+     * Stream exactly fileLen bytes from the channel into a temp File, then rename it to resultFile atomically.
+     * @param serverChannel channel to read the File content from.
+     * @param fileLen count of bytes of the File.
+     * @param resultFile the File to be written.
+     * @throws EOFException the channel ended before fileLen bytes.
+     */
+    private static void receiveFile(ReadableByteChannel serverChannel, long fileLen, File resultFile)
+            throws IOException {
+        Path resultPath = resultFile.toPath();
+        Path tempPath = resultPath.resolveSibling(resultFile.getName() + RESULT_FILE_TEMP_SUFFIX);
+
+        try (FileChannel fileChannel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long totalLengthReceived = 0;
+            while (totalLengthReceived < fileLen) {
+                long received = fileChannel.transferFrom(serverChannel, totalLengthReceived,
+                        Math.min(FILE_TRANSFER_CHUNK_SIZE, fileLen - totalLengthReceived));
+                if (received == 0) {
+                    throw new EOFException("Server closed before \"" + resultFile.getName() + "\" was complete.");
+                }
+                totalLengthReceived += received;
+            }
+        } catch (IOException ex) {
+            Files.deleteIfExists(tempPath);
+            throw ex;
+        }
 
-            System.out.println("[INFO] File Received: \"" + resultFile + "\"");
+        try {
+            Files.move(tempPath, resultPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempPath, resultPath, StandardCopyOption.REPLACE_EXISTING);
         }
+    }
+
+    /**
+     * A call to the Server.
+     */
+    @FunctionalInterface
+    private interface RemoteCall<T> {
+        T call() throws IOException;
+    }
 
-        instructionSocket.close();
+    /**
+     * Writes header fields of a transfer.
+     */
+    @FunctionalInterface
+    private interface HeaderWriter {
+        void write(DataOutputStream header) throws IOException;
+    }
+
+    /**
+     * Enable/Disable compressed transfers, effective only if the Server supports FEATURE_DEFLATE. (enabled by default)
+     * @param compressionEnabled true -> enable.
+     */
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
     }
 
     /* Getters */
+    public boolean supportsFeature(String feature) {
+        return serverFeatures.contains(feature);
+    }
     public InetAddress getInetAddress() {
-        return probeSocket.getInetAddress();
+        return address.getAddress();
     }
     public int getPort() {
-        return probeSocket.getPort();
+        return address.getPort();
     }
 }
@@ -0,0 +1,302 @@
+package models;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.swing.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static models.OutputPipeline.CHARSET_DISPLAY_DEFAULT;
+
+/**
+ * Server Pool
+ * @responsibility Farm a multi-File Inference batch out to several Servers, and gather all results locally.
+ * @feature The batch is split into duration-balanced jobs (JOBS_PER_NODE per Server), each job (upload, INFER,
+ * GET_RESULTS) goes to the least-loaded Server with room in its queue: load = queue depth (jobs of this pool running
+ * there) + GPU utilization (sampled every MONITOR_INTERVAL from Servers supporting FEATURE_GPU_TELEMETRY).
+ * A failed job is retried on another Server, the failed one takes no more jobs of the batch.
+ * A Server supporting FEATURE_NAMED_INFER queues MAX_QUEUE_DEPTH jobs at a time, each naming its Files. Any other
+ * Server runs one job at a time: it infers all Files uploaded since its last INFER.
+ */
+public class ServerPool implements AutoCloseable {
+
+    private static final int JOBS_PER_NODE = 2; // finer jobs balance better, each costs one INFER round trip
+    private static final int MAX_QUEUE_DEPTH = JOBS_PER_NODE; // jobs per Server at a time, if FEATURE_NAMED_INFER
+    private static final long MONITOR_INTERVAL = 2000; // ms, between GPU load samples
+
+    private final List<Node> nodes;
+    private final JobRunner jobRunner;
+    private final ScheduledExecutorService monitor;
+    private final ExecutorService dispatcher;
+    private volatile boolean aborted; // dispatch no more jobs of the current batch
+
+    /**
+     * Create a pool of connected Servers, running each job by upload, INFER & GET_RESULTS.
+     * @param agents the Servers, at least one.
+     */
+    public ServerPool(List<RemoteAgent> agents) {
+        this(agents, ServerPool::runInferenceJob);
+    }
+
+    /**
+     * Create a pool of connected Servers.
+     * @param agents the Servers, at least one.
+     * @param jobRunner runs one job on one Server.
+     */
+    ServerPool(List<RemoteAgent> agents, JobRunner jobRunner) {
+        if (agents.isEmpty()) {
+            throw new IllegalArgumentException("A Server pool needs at least one Server.");
+        }
+        nodes = agents.stream().map(Node::new).toList();
+        this.jobRunner = jobRunner;
+        dispatcher = Executors.newCachedThreadPool((r) -> {
+            Thread dispatchThread = new Thread(r, "Server-Pool-Dispatch");
+            dispatchThread.setDaemon(true);
+            return dispatchThread;
+        });
+        monitor = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread monitorThread = new Thread(r, "Server-Pool-Monitor");
+            monitorThread.setDaemon(true);
+            return monitorThread;
+        });
+        monitor.scheduleWithFixedDelay(this::sampleGpuLoads, 0, MONITOR_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Infer a batch of Files across the pool, results are gathered into resultDir. (in current Thread, may Block)
+     * @param files vocal Files to infer.
+     * @param instruction INFER Instruction, sent as is to every Server.
+     * @param resultDir the directory to store the result Files.
+     * @param totalProgressBar JProgressBar of inferred File count, to be updated (on EDT), may be NULL.
+     * @return true -> every File inferred, false -> aborted.
+     * @throws IOException some job failed on every Server still available.
+     * By abort(), the running jobs are ended by their Servers & no more job is dispatched.
+     */
+    public boolean inferBatch(File[] files, JSONObject instruction, File resultDir, JProgressBar totalProgressBar)
+            throws IOException, InterruptedException {
+        Deque<Job> pending = new ArrayDeque<>();
+        for (List<File> shard : ShardPlanner.shardByDuration(files, nodes.size() * JOBS_PER_NODE)) {
+            pending.add(new Job(shard));
+        }
+        nodes.forEach((node) -> node.down = false);
+        aborted = false;
+
+        CompletionService<Job> completion = new ExecutorCompletionService<>(dispatcher);
+        Map<Future<Job>, Job> running = new HashMap<>();
+        int inferredCount = 0;
+        RemoteAgent.updateCountProgress(totalProgressBar, 0, files.length);
+        try {
+            while (!pending.isEmpty() || !running.isEmpty()) {
+                // dispatch while some Server is idle
+                Node node;
+                if (aborted) {
+                    pending.clear();
+                }
+                while (!pending.isEmpty() && (node = pickLeastLoaded()) != null) {
+                    Job job = pending.poll();
+                    job.node = node;
+                    node.queueDepth.incrementAndGet();
+                    System.out.println("[INFO] Inferring " + job.files.size() + " File(s) on " + node + "...");
+                    running.put(completion.submit(() -> {
+                        jobRunner.run(job.node.agent, job.files, instruction, resultDir);
+                        return job;
+                    }), job);
+                }
+                if (running.isEmpty()) {
+                    throw new IOException("No Server left to infer " + pending.peek().files.size() + " File(s).");
+                }
+
+                // wait for a job to end
+                Future<Job> done = completion.take();
+                Job job = running.remove(done);
+                job.node.queueDepth.decrementAndGet();
+                try {
+                    done.get();
+                    inferredCount += job.files.size();
+                    RemoteAgent.updateCountProgress(totalProgressBar, inferredCount, files.length);
+                } catch (ExecutionException ex) {
+                    if (aborted) { // ended by its Server
+                        continue;
+                    }
+                    job.node.down = true;
+                    pending.addFirst(job);
+                    System.err.println("[WARNING] Inference failed on " + job.node + " (" + ex.getCause().getMessage()
+                            + "), Retrying on another Server...");
+                }
+            }
+            return inferredCount == files.length;
+        } finally { // aborted: stop the running jobs
+            running.forEach((future, job) -> {
+                future.cancel(true);
+                job.node.queueDepth.decrementAndGet();
+            });
+        }
+    }
+
+    /**
+     * Pick the least-loaded Server able to take a job now.
+     * @return the Server, NULL if none is idle.
+     */
+    private Node pickLeastLoaded() {
+        Node leastLoaded = null;
+        for (Node node : nodes) {
+            if (node.down || node.queueDepth.get() >= node.maxQueueDepth) {
+                continue;
+            }
+            if (leastLoaded == null || node.getLoad() < leastLoaded.getLoad()) {
+                leastLoaded = node;
+            }
+        }
+        return leastLoaded;
+    }
+
+    /**
+     * Sample the GPU load of every Server supporting FEATURE_GPU_TELEMETRY: mean utilization of one sample.
+     */
+    private void sampleGpuLoads() {
+        for (Node node : nodes) {
+            if (!node.agent.supportsFeature(RemoteAgent.FEATURE_GPU_TELEMETRY)) {
+                continue;
+            }
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(node.agent.openGpuStatusStream(),
+                    CHARSET_DISPLAY_DEFAULT))) {
+                node.gpuUtilization = readGpuUtilization(in);
+            } catch (IOException ex) { // unknown until the next sample
+                node.gpuUtilization = Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * Read one sample (every GPU once) of a GPU status stream.
+     * @param in the GPU status stream.
+     * @return mean utilization of the GPUs in %, NaN if none reported it.
+     */
+    static double readGpuUtilization(BufferedReader in) throws IOException {
+        Set<Integer> sampled = new HashSet<>();
+        double utilizationSum = 0;
+        int utilizationCount = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            GpuStatus status;
+            try {
+                status = GpuStatus.parse(line);
+            } catch (IllegalArgumentException ex) {
+                continue;
+            }
+            if (!sampled.add(status.getIndex())) { // next sample begins
+                break;
+            }
+            if (status.getUtilization() >= 0) {
+                utilizationSum += status.getUtilization();
+                utilizationCount++;
+            }
+        }
+        return (utilizationCount == 0) ? Double.NaN : utilizationSum / utilizationCount;
+    }
+
+    /**
+     * Run one Inference job on a Server: upload its Files, INFER, then GET_RESULTS (naming the Files if the Server
+     * supports FEATURE_NAMED_INFER, as other jobs may be queued there).
+     */
+    private static void runInferenceJob(RemoteAgent agent, List<File> files, JSONObject instruction, File resultDir)
+            throws IOException, InterruptedException {
+        agent.transferFilesToServer(FileUsage.TO_INFER, files.toArray(new File[0]), null, null);
+        if (agent.supportsFeature(RemoteAgent.FEATURE_NAMED_INFER)) {
+            List<String> names = files.stream().map(File::getName).toList();
+            JSONObject jobInstruction = new JSONObject(instruction.toString());
+            jobInstruction.put("files", new JSONArray(names));
+            agent.executeInstructionOnServer(jobInstruction);
+            agent.getResultFiles(resultDir, names);
+        } else {
+            agent.executeInstructionOnServer(instruction);
+            agent.getResultFiles(resultDir);
+        }
+    }
+
+    /**
+     * Abort the current batch: no more job is dispatched, the running Inference on every Server is aborted.
+     */
+    public void abort() {
+        aborted = true;
+        JSONObject instruction = new JSONObject();
+        instruction.put("INSTRUCTION", InstructionType.ABORT.name());
+        for (Node node : nodes) {
+            try {
+                node.agent.executeInstructionOnServer(instruction);
+            } catch (IOException ex) {
+                System.err.println("[ERROR] Failed to Abort on " + node + ".");
+            }
+        }
+    }
+
+    /**
+     * Stop monitoring & Close the connections to every Server.
+     */
+    @Override
+    public void close() {
+        monitor.shutdownNow();
+        dispatcher.shutdownNow();
+        nodes.forEach((node) -> node.agent.close());
+    }
+
+    /**
+     * Runs one job on one Server.
+     */
+    @FunctionalInterface
+    interface JobRunner {
+        void run(RemoteAgent agent, List<File> files, JSONObject instruction, File resultDir)
+                throws IOException, InterruptedException;
+    }
+
+    /**
+     * Files inferred together on one Server.
+     */
+    private static class Job {
+        private final List<File> files;
+        private Node node; // running on
+
+        private Job(List<File> files) {
+            this.files = files;
+        }
+    }
+
+    /**
+     * One Server of the pool, with its load.
+     */
+    private static class Node {
+        private final RemoteAgent agent;
+        private final int maxQueueDepth; // jobs at a time
+        private final AtomicInteger queueDepth = new AtomicInteger();
+        private volatile double gpuUtilization = Double.NaN; // %, NaN -> unknown
+        private volatile boolean down; // failed a job of the current batch
+
+        private Node(RemoteAgent agent) {
+            this.agent = agent;
+            maxQueueDepth = agent.supportsFeature(RemoteAgent.FEATURE_NAMED_INFER) ? MAX_QUEUE_DEPTH : 1;
+        }
+
+        /**
+         * @return queue depth + GPU utilization (0 if unknown) as a fraction.
+         */
+        private double getLoad() {
+            return queueDepth.get() + (Double.isNaN(gpuUtilization) ? 0 : gpuUtilization / 100);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + agent.getInetAddress() + "]:" + agent.getPort();
+        }
+    }
+
+    /* Getters */
+    public List<RemoteAgent> getAgents() {
+        return nodes.stream().map((node) -> node.agent).toList();
+    }
+}
@@ -0,0 +1,82 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Shard Planner
+ * @responsibility Split a batch of audio Files into shards of about equal total duration, one per GPU.
+ * @feature Longest File first, each into the shard with the least duration so far (LPT scheduling).
+ * Durations come from the wav header, Files which are not readable wav count by their size instead.
+ */
+public class ShardPlanner {
+
+    private ShardPlanner() {
+    }
+
+    /**
+     * Split Files into duration-balanced shards.
+     * @param files the Files to split.
+     * @param shardCount max count of shards, e.g. count of GPUs.
+     * @return non-empty shards, at most shardCount, each keeping the order of files.
+     * @throws IllegalArgumentException shardCount < 1.
+     */
+    public static List<List<File>> shardByDuration(File[] files, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+
+        // normalize to a common unit: seconds if every File is a readable wav, otherwise bytes
+        double[] durations = new double[files.length];
+        boolean allWav = true;
+        for (int i = 0; i < files.length; i++) {
+            durations[i] = getDuration(files[i]);
+            allWav &= durations[i] >= 0;
+        }
+        if (!allWav) {
+            for (int i = 0; i < files.length; i++) {
+                durations[i] = files[i].length();
+            }
+        }
+
+        Integer[] longestFirst = new Integer[files.length];
+        Arrays.setAll(longestFirst, (i) -> i);
+        Arrays.sort(longestFirst, (a, b) -> Double.compare(durations[b], durations[a]));
+
+        int count = Math.min(shardCount, files.length);
+        double[] loads = new double[count];
+        List<SortedSet<Integer>> shardIndices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            shardIndices.add(new TreeSet<>());
+        }
+        for (int fileIndex : longestFirst) {
+            int lightest = 0;
+            for (int i = 1; i < count; i++) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            loads[lightest] += durations[fileIndex];
+            shardIndices.get(lightest).add(fileIndex);
+        }
+
+        List<List<File>> shards = new ArrayList<>();
+        for (SortedSet<Integer> indices : shardIndices) {
+            shards.add(indices.stream().map((i) -> files[i]).toList());
+        }
+        return shards;
+    }
+
+    /**
+     * @return duration of a wav File in seconds, -1 if it is not a readable wav.
+     */
+    private static double getDuration(File file) {
+        try {
+            WavFile wavFile = WavFile.read(file);
+            return (double) wavFile.getFrameCount() / wavFile.getSampleRate();
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Slice Cache
+ * @responsibility Remember the slices of source audio, so unchanged audio is never sliced twice.
+ * @feature Content-addressed: one entry per SHA-256 of (audio content, slicing parameters), holding the slices
+ * as "<n>.wav". Slices are hard-linked (copied if links are not supported) between the cache & the output dir.
+ * Least recently used entries are evicted once the cache exceeds its size limit.
+ * Entries are restored, stored & evicted under the same lock.
+ */
+public class SliceCache {
+
+    public static final File SLICE_CACHE_DIR_DEFAULT = new File(".\\cache\\slices");
+    public static final long SLICE_CACHE_SIZE_MAX_DEFAULT = 4L * 1024 * 1024 * 1024; // bytes
+    private static final String SLICE_EXTENSION = ".wav";
+    private static final String ENTRY_TEMP_SUFFIX = ".tmp";
+
+    private final File cacheDir;
+    private final long maxCacheSize;
+
+    /**
+     * @param cacheDir directory holding the cache entries, created on demand.
+     * @param maxCacheSize max total size of cached slices (bytes), before evicting.
+     */
+    public SliceCache(File cacheDir, long maxCacheSize) {
+        this.cacheDir = cacheDir;
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * Compute the cache key of slicing an audio with the given parameters. (may Block, reads the whole audio)
+     * @param audio source audio File.
+     * @param parameters everything else affecting the slices (e.g. slicer arguments).
+     * @return hex SHA-256 key.
+     */
+    public String computeKey(File audio, String... parameters) throws IOException {
+        return ContentHash.sha256(audio, parameters);
+    }
+
+    /**
+     * Restore the cached slices of an audio into the output dir, as "<audio name>_<n>.wav".
+     * @param key cache key by computeKey.
+     * @param audio source audio File, names the restored slices.
+     * @param outDir output directory of slices, created if absent.
+     * @return count of restored slices, -1 if not cached.
+     */
+    public synchronized int restore(String key, File audio, File outDir) throws IOException {
+        File entry = new File(cacheDir, key);
+        File[] slices = entry.listFiles((dir, name) -> name.endsWith(SLICE_EXTENSION));
+        if (slices == null || slices.length == 0) {
+            return -1;
+        }
+
+        Files.createDirectories(outDir.toPath());
+        String audioName = getBaseName(audio);
+        for (File slice : slices) {
+            link(slice.toPath(), outDir.toPath().resolve(audioName + "_" + slice.getName()));
+        }
+
+        // mark as recently used
+        entry.setLastModified(System.currentTimeMillis());
+        return slices.length;
+    }
+
+    /**
+     * Store the slices of an audio under the key, then evict least recently used entries if over size.
+     * @param key cache key by computeKey.
+     * @param slices exactly the slices the slicer produced, in order ("<audio name>_<n>.wav").
+     * @return count of stored slices.
+     */
+    public synchronized int store(String key, List<File> slices) throws IOException {
+        if (slices.isEmpty()) {
+            return 0;
+        }
+
+        // fill a temp entry, then publish it by renaming
+        Path entry = cacheDir.toPath().resolve(key);
+        Path tempEntry = cacheDir.toPath().resolve(key + ENTRY_TEMP_SUFFIX);
+        deleteEntry(tempEntry.toFile());
+        Files.createDirectories(tempEntry);
+        try {
+            for (int n = 0; n < slices.size(); n++) {
+                link(slices.get(n).toPath(), tempEntry.resolve(n + SLICE_EXTENSION));
+            }
+            deleteEntry(entry.toFile());
+            Files.move(tempEntry, entry, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            deleteEntry(tempEntry.toFile());
+        }
+
+        evict();
+        return slices.size();
+    }
+
+    /**
+     * Delete least recently used entries until the total size is within maxCacheSize.
+     */
+    private void evict() {
+        File[] entries = cacheDir.listFiles((file) -> file.isDirectory() &&
+                !file.getName().endsWith(ENTRY_TEMP_SUFFIX));
+        if (entries == null) {
+            return;
+        }
+
+        long totalSize = 0;
+        List<File> leastRecentlyUsed = new ArrayList<>(Arrays.asList(entries));
+        leastRecentlyUsed.sort(Comparator.comparingLong(File::lastModified));
+        long[] entrySizes = new long[entries.length];
+        for (int i = 0; i < leastRecentlyUsed.size(); i++) {
+            entrySizes[i] = getEntrySize(leastRecentlyUsed.get(i));
+            totalSize += entrySizes[i];
+        }
+
+        for (int i = 0; i < leastRecentlyUsed.size() && totalSize > maxCacheSize; i++) {
+            deleteEntry(leastRecentlyUsed.get(i));
+            totalSize -= entrySizes[i];
+        }
+    }
+
+    private static long getEntrySize(File entry) {
+        long size = 0;
+        File[] slices = entry.listFiles();
+        if (slices != null) {
+            for (File slice : slices) {
+                size += slice.length();
+            }
+        }
+        return size;
+    }
+
+    private static void deleteEntry(File entry) {
+        File[] slices = entry.listFiles();
+        if (slices != null) {
+            for (File slice : slices) {
+                slice.delete();
+            }
+        }
+        entry.delete();
+    }
+
+    /**
+     * Hard-link target to source (replacing target), copy instead if hard links are not supported.
+     */
+    static void link(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException ex) { // e.g. FAT32, across volumes
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return File name without its extension, as slicer2.py names its slices.
+     */
+    private static String getBaseName(File audio) {
+        String name = audio.getName();
+        int extensionIndex = name.lastIndexOf('.');
+        return (extensionIndex < 0) ? name : name.substring(0, extensionIndex);
+    }
+}
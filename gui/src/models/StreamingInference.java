@@ -0,0 +1,523 @@
+package models;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Streaming Inference
+ * @responsibility Infer long vocals on a Server segment by segment, so results come in while the rest is processed.
+ * @feature Each Wave File is cut into SEGMENT_SECONDS segments at the quietest point near each cut (by RMS),
+ * neighbours overlap by OVERLAP_SECONDS around the cut. Per segment: upload, INFER, GET_RESULTS, then the result
+ * is crossfaded into the output File at once (a growing ".part" File, renamed when complete).
+ * If the Server supports FEATURE_NAMED_INFER, the three stages run in their own Threads, so segment n+1 is
+ * uploaded while segment n is inferred & segment n-1 downloaded (at most PIPELINE_DEPTH segments in flight).
+ * Otherwise, the stages of a segment run back to back (a Server infers all Files uploaded since its last INFER).
+ * Files that are not Wave are inferred whole.
+ */
+public class StreamingInference {
+
+    public static final double SEGMENT_SECONDS = 20; // target length of a segment
+    public static final double OVERLAP_SECONDS = 0.5; // crossfaded between neighbours
+    private static final double CUT_SEARCH_SECONDS = 5; // around each target cut, for the quietest point
+    private static final int PIPELINE_DEPTH = 4; // segments cut but not yet stitched, at most
+    static final String SEGMENT_MARK = "~seg";
+    private static final String PART_FILE_SUFFIX = ".part";
+
+    private final Stages stages;
+    private final boolean pipelined;
+    private volatile boolean aborted;
+
+    /**
+     * Stream Inference through a connected Server.
+     * @param agent the Server.
+     * @param instruction INFER Instruction, sent per segment (with its "files" if FEATURE_NAMED_INFER).
+     */
+    public StreamingInference(RemoteAgent agent, JSONObject instruction) {
+        this(new ServerStages(agent, instruction), agent.supportsFeature(RemoteAgent.FEATURE_NAMED_INFER));
+    }
+
+    /**
+     * @param stages runs the stages of a segment.
+     * @param pipelined true -> stages of different segments may run at the same time.
+     */
+    StreamingInference(Stages stages, boolean pipelined) {
+        this.stages = stages;
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Infer vocal Files segment by segment, results are stitched into resultDir. (in current Thread, may Block)
+     * @param vocalFiles vocal Files to infer.
+     * @param resultDir the directory to store the result Files.
+     * @param segmentProgressBar JProgressBar of stitched segment count of the current File (on EDT), may be NULL.
+     * @param totalProgressBar JProgressBar of completed File count, to be updated (on EDT), may be NULL.
+     * @throws IOException some segment failed, or aborted.
+     */
+    public void inferAll(File[] vocalFiles, File resultDir, JProgressBar segmentProgressBar,
+                         JProgressBar totalProgressBar) throws IOException, InterruptedException {
+        aborted = false;
+        Files.createDirectories(resultDir.toPath());
+        Path workDir = Files.createTempDirectory("streaming-inference");
+
+        // one Thread per stage if pipelined, FIFO keeps the segments in order
+        ExecutorService uploader = newStageExecutor("Streaming-Upload");
+        ExecutorService inferrer = pipelined ? newStageExecutor("Streaming-Infer") : uploader;
+        ExecutorService downloader = pipelined ? newStageExecutor("Streaming-Download") : uploader;
+        Semaphore inFlight = new Semaphore(PIPELINE_DEPTH);
+        List<CompletableFuture<Void>> stitched = new ArrayList<>();
+        RemoteAgent.updateCountProgress(totalProgressBar, 0, vocalFiles.length);
+        try {
+            for (int i = 0; i < vocalFiles.length; i++) {
+                File vocalFile = vocalFiles[i];
+                List<Segment> segments = cutSegments(vocalFile, workDir.toFile());
+                Stitcher stitcher = new Stitcher(vocalFile, resultDir);
+                int completedFiles = i + 1;
+
+                CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+                for (Segment segment : segments) {
+                    inFlight.acquire();
+                    if (aborted || previous.isCompletedExceptionally()) {
+                        inFlight.release();
+                        break;
+                    }
+                    CompletableFuture<Void> received;
+                    if (pipelined) {
+                        received = CompletableFuture.runAsync(() -> runStage(() -> stages.upload(segment.file)),
+                                        uploader)
+                                .thenRunAsync(() -> runStage(() -> stages.infer(List.of(segment.file.getName()))),
+                                        inferrer)
+                                .thenRunAsync(() -> runStage(() -> receive(segment)), downloader);
+                    } else {
+                        received = CompletableFuture.runAsync(() -> runStage(() -> {
+                            stages.upload(segment.file);
+                            stages.infer(List.of(segment.file.getName()));
+                            receive(segment);
+                        }), uploader);
+                    }
+                    // stitch in order, as soon as received
+                    previous = previous.thenCombine(received, (ignored1, ignored2) -> null)
+                            .thenRun(() -> runStage(() -> {
+                                stitcher.append(segment);
+                                RemoteAgent.updateCountProgress(segmentProgressBar, segment.index + 1,
+                                        segments.size());
+                                System.out.println("[INFO] Segment " + (segment.index + 1) + "/" + segments.size()
+                                        + " of \"" + vocalFile.getName() + "\" Inferred.");
+                            }));
+                    previous.whenComplete((ignored, ex) -> inFlight.release());
+                }
+                stitched.add(previous.whenComplete((ignored, ex) -> {
+                            if (ex != null) {
+                                stitcher.discard();
+                            }
+                        })
+                        .thenRun(() -> runStage(() -> {
+                            File resultFile = stitcher.commit();
+                            RemoteAgent.updateCountProgress(totalProgressBar, completedFiles, vocalFiles.length);
+                            System.out.println("[INFO] File Received: \"" + resultFile + "\"");
+                        })));
+                if (aborted) {
+                    break;
+                }
+            }
+
+            // wait for all Files, report the first failure
+            for (CompletableFuture<Void> file : stitched) {
+                try {
+                    file.get();
+                } catch (ExecutionException ex) {
+                    aborted = true;
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) cause).getCause();
+                    }
+                    throw new IOException(cause.getMessage(), cause);
+                } catch (CancellationException ex) {
+                    aborted = true;
+                    throw new IOException(ex.getMessage(), ex);
+                }
+            }
+            if (aborted) {
+                throw new IOException("Streaming Inference Aborted.");
+            }
+        } finally {
+            aborted = true;
+            uploader.shutdownNow();
+            inferrer.shutdownNow();
+            downloader.shutdownNow();
+            deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * Abort: no more segment is started, inferAll ends once the running stages end.
+     */
+    public void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Cut a vocal File into segment Files under workDir, as "<name>~seg<n>.wav".
+     * @return the segments in order, the File itself as the only segment if short or not a Wave File.
+     */
+    static List<Segment> cutSegments(File vocalFile, File workDir) throws IOException {
+        String stem = getStem(vocalFile.getName());
+        WavFile wav;
+        try {
+            wav = WavFile.read(vocalFile);
+        } catch (IOException ex) { // not Wave, inferred whole
+            return List.of(new Segment(0, vocalFile, stem, null, 0, workDir));
+        }
+
+        List<long[]> ranges = planSegments(wav, vocalFile, SEGMENT_SECONDS, OVERLAP_SECONDS);
+        if (ranges.size() == 1) {
+            return List.of(new Segment(0, vocalFile, stem, null, 0, workDir));
+        }
+        List<Segment> segments = new ArrayList<>();
+        try (FileChannel source = FileChannel.open(vocalFile.toPath(), StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long beginFrame = ranges.get(i)[0];
+                long frameCount = ranges.get(i)[1] - beginFrame;
+                String segmentStem = stem + SEGMENT_MARK + String.format("%04d", i);
+                File segmentFile = new File(workDir, segmentStem + ".wav");
+                try (FileChannel target = FileChannel.open(segmentFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    wav.writeHeader(target, frameCount);
+                    long position = wav.getDataOffset() + beginFrame * wav.getBlockAlign();
+                    long remaining = frameCount * wav.getBlockAlign();
+                    while (remaining > 0) {
+                        long transferred = source.transferTo(position, remaining, target);
+                        position += transferred;
+                        remaining -= transferred;
+                    }
+                }
+                // overlap with the next segment, as a fraction of the source length
+                double overlapSeconds = (i + 1 < ranges.size())
+                        ? (double) (ranges.get(i)[1] - ranges.get(i + 1)[0]) / wav.getSampleRate() : 0;
+                segments.add(new Segment(i, segmentFile, segmentStem, stem, overlapSeconds, workDir));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Plan the segments of a Wave File: each cut at the quietest RMS frame within CUT_SEARCH_SECONDS of its target.
+     * @param segmentSeconds target length of a segment.
+     * @param overlapSeconds overlap of neighbours, centered on each cut.
+     * @return [begin, end) frame ranges of the segments, in order.
+     */
+    static List<long[]> planSegments(WavFile wav, File audio, double segmentSeconds, double overlapSeconds)
+            throws IOException {
+        long frameCount = wav.getFrameCount();
+        int sampleRate = wav.getSampleRate();
+        long segmentFrames = Math.round(segmentSeconds * sampleRate);
+        long halfOverlap = Math.round(overlapSeconds * sampleRate / 2);
+        if (frameCount <= segmentFrames * 3 / 2) {
+            return List.of(new long[]{0, frameCount});
+        }
+
+        int hop = (int) Math.rint(sampleRate * AudioSlicer.HOP_SIZE_DEFAULT / 1000.0);
+        float[] rms = AudioSlicer.computeRms(wav, audio, 4 * hop, hop);
+        long searchFrames = Math.min(Math.round(CUT_SEARCH_SECONDS * sampleRate), segmentFrames / 4);
+
+        List<Long> cuts = new ArrayList<>();
+        long target = segmentFrames;
+        while (frameCount - target > segmentFrames / 2) {
+            int from = (int) ((target - searchFrames) / hop);
+            int to = (int) Math.min((target + searchFrames) / hop, rms.length - 1);
+            int quietest = from;
+            for (int k = from + 1; k <= to; k++) {
+                if (rms[k] < rms[quietest]) {
+                    quietest = k;
+                }
+            }
+            long cut = (long) quietest * hop;
+            cuts.add(cut);
+            target = cut + segmentFrames;
+        }
+
+        List<long[]> ranges = new ArrayList<>();
+        long begin = 0;
+        for (long cut : cuts) {
+            ranges.add(new long[]{begin, Math.min(frameCount, cut + halfOverlap)});
+            begin = Math.max(0, cut - halfOverlap);
+        }
+        ranges.add(new long[]{begin, frameCount});
+        return ranges;
+    }
+
+    /**
+     * Download the result of a segment into its own directory.
+     */
+    private void receive(Segment segment) throws IOException, InterruptedException {
+        Files.createDirectories(segment.resultDir.toPath());
+        stages.download(segment.resultDir, List.of(segment.file.getName()));
+        File[] results = segment.resultDir.listFiles((dir, name) -> name.startsWith(segment.stem));
+        if (results == null || results.length == 0) {
+            throw new IOException("No Result of \"" + segment.file.getName() + "\" from Server.");
+        }
+        segment.result = results[0];
+    }
+
+    private void runStage(Stage stage) {
+        if (aborted) {
+            throw new CancellationException("Streaming Inference Aborted.");
+        }
+        try {
+            stage.run();
+        } catch (IOException ex) {
+            aborted = true;
+            throw new UncheckedIOException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Streaming Inference Interrupted.");
+        }
+    }
+
+    private static ExecutorService newStageExecutor(String name) {
+        return Executors.newSingleThreadExecutor((r) -> {
+            Thread stageThread = new Thread(r, name);
+            stageThread.setDaemon(true);
+            return stageThread;
+        });
+    }
+
+    private static String getStem(String name) {
+        int extensionIndex = name.lastIndexOf('.');
+        return (extensionIndex < 0) ? name : name.substring(0, extensionIndex);
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * A step of a stage.
+     */
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Runs the stages of a segment on a Server.
+     */
+    interface Stages {
+        void upload(File segment) throws IOException, InterruptedException;
+
+        void infer(List<String> names) throws IOException;
+
+        void download(File resultDir, List<String> names) throws IOException;
+    }
+
+    /**
+     * Stages by a RemoteAgent: naming the segment in INFER & GET_RESULTS if FEATURE_NAMED_INFER.
+     */
+    private static class ServerStages implements Stages {
+        private final RemoteAgent agent;
+        private final JSONObject instruction;
+        private final boolean named;
+
+        private ServerStages(RemoteAgent agent, JSONObject instruction) {
+            this.agent = agent;
+            this.instruction = instruction;
+            named = agent.supportsFeature(RemoteAgent.FEATURE_NAMED_INFER);
+        }
+
+        @Override
+        public void upload(File segment) throws IOException {
+            agent.transferFileToServer(FileUsage.TO_INFER, segment, null);
+        }
+
+        @Override
+        public void infer(List<String> names) throws IOException {
+            JSONObject segmentInstruction = new JSONObject(instruction.toString());
+            if (named) {
+                segmentInstruction.put("files", new JSONArray(names));
+            }
+            agent.executeInstructionOnServer(segmentInstruction);
+        }
+
+        @Override
+        public void download(File resultDir, List<String> names) throws IOException {
+            agent.getResultFiles(resultDir, named ? names : null);
+        }
+    }
+
+    /**
+     * A segment of a vocal File, and its result once received.
+     */
+    static class Segment {
+        private final int index;
+        private final File file;
+        private final String stem; // of the segment File, result names begin with it
+        private final String sourceStem; // of the vocal File, NULL -> the whole File
+        private final double overlapSeconds; // with the next segment
+        private final File resultDir;
+        private volatile File result;
+
+        private Segment(int index, File file, String stem, String sourceStem, double overlapSeconds, File workDir) {
+            this.index = index;
+            this.file = file;
+            this.stem = stem;
+            this.sourceStem = sourceStem;
+            this.overlapSeconds = overlapSeconds;
+            this.resultDir = new File(workDir, stem + "_result");
+        }
+    }
+
+    /**
+     * Crossfades the segment results of one vocal File into its result File, in order.
+     * Output: 32-bit float Wave at the result sample rate, written to a ".part" File whose header is patched per
+     * segment, so the part received so far is playable. A non-Wave result (whole File) is moved as is.
+     */
+    static class Stitcher {
+        private final File vocalFile;
+        private final File resultDir;
+        private FileChannel channel; // NULL -> nothing stitched yet
+        private Path partPath;
+        private String resultName;
+        private WavFile format;
+        private long framesWritten;
+        private float[] carry = new float[0]; // tail of the previous result, to be crossfaded
+
+        Stitcher(File vocalFile, File resultDir) {
+            this.vocalFile = vocalFile;
+            this.resultDir = resultDir;
+        }
+
+        /**
+         * Append the result of the next segment.
+         */
+        synchronized void append(Segment segment) throws IOException {
+            if (segment.sourceStem == null) { // whole File
+                resultName = segment.result.getName();
+                partPath = segment.result.toPath();
+                return;
+            }
+            WavFile resultWav = WavFile.read(segment.result);
+            if (channel == null) {
+                // result name as if the File was inferred whole
+                resultName = segment.sourceStem + segment.result.getName().substring(segment.stem.length());
+                partPath = new File(resultDir, resultName + PART_FILE_SUFFIX).toPath();
+                format = new WavFile(WavFile.FORMAT_IEEE_FLOAT, resultWav.getChannels(), resultWav.getSampleRate(),
+                        32, 44, 0);
+                channel = FileChannel.open(partPath, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                format.writeHeader(channel, 0);
+            } else if (resultWav.getChannels() != format.getChannels()
+                    || resultWav.getSampleRate() != format.getSampleRate()) {
+                throw new IOException("Mismatched format of \"" + segment.result.getName() + "\".");
+            }
+
+            int channels = format.getChannels();
+            float[] samples = readSamples(resultWav, segment.result);
+            int frames = samples.length / channels;
+
+            // crossfade the carried tail into the head
+            int fadeFrames = Math.min(carry.length / channels, frames);
+            for (int f = 0; f < fadeFrames; f++) {
+                float weight = (f + 0.5f) / fadeFrames;
+                for (int c = 0; c < channels; c++) {
+                    int i = f * channels + c;
+                    samples[i] = carry[i] * (1 - weight) + samples[i] * weight;
+                }
+            }
+
+            // carry the tail overlapping the next segment
+            int tailFrames = (int) Math.min(Math.round(segment.overlapSeconds * format.getSampleRate()),
+                    frames - fadeFrames);
+            int keptFrames = frames - tailFrames;
+            carry = Arrays.copyOfRange(samples, keptFrames * channels, frames * channels);
+
+            ByteBuffer data = ByteBuffer.allocate(keptFrames * channels * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            data.asFloatBuffer().put(samples, 0, keptFrames * channels);
+            long position = format.getDataOffset() + framesWritten * format.getBlockAlign();
+            while (data.hasRemaining()) {
+                position += channel.write(data, position);
+            }
+            framesWritten += keptFrames;
+            channel.position(0);
+            format.writeHeader(channel, framesWritten);
+        }
+
+        /**
+         * Complete the result File: rename it from ".part". (after all segments appended)
+         * @return the result File.
+         */
+        synchronized File commit() throws IOException {
+            close();
+            if (partPath == null) {
+                throw new IOException("No Result of \"" + vocalFile.getName() + "\".");
+            }
+            Path resultPath = new File(resultDir, resultName).toPath();
+            try {
+                Files.move(partPath, resultPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(partPath, resultPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return resultPath.toFile();
+        }
+
+        synchronized void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        /**
+         * Drop the partial result File. (some segment failed)
+         */
+        synchronized void discard() {
+            close();
+            if (channel != null) {
+                partPath.toFile().delete();
+            }
+        }
+
+        /**
+         * @return all samples of a Wave File, interleaved.
+         */
+        private static float[] readSamples(WavFile wav, File file) throws IOException {
+            long sampleCount = wav.getFrameCount() * wav.getChannels();
+            if (sampleCount > Integer.MAX_VALUE) {
+                throw new IOException("Result too long: \"" + file.getName() + "\"");
+            }
+            float[] samples = new float[(int) sampleCount];
+            ByteBuffer data = ByteBuffer.allocate((int) (wav.getFrameCount() * wav.getBlockAlign()))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long position = wav.getDataOffset();
+                while (data.hasRemaining()) {
+                    int read = channel.read(data, position);
+                    if (read == -1) {
+                        throw new IOException("Wave data truncated: \"" + file.getName() + "\"");
+                    }
+                    position += read;
+                }
+            }
+            data.flip();
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = wav.decodeSample(data);
+            }
+            return samples;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package models;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Task Journal
+ * @responsibility Persist the tasks scheduled by ExecutionAgent & their completion, so the tasks left unfinished
+ * (client crashed or closed) can be resumed by the next run, skipping those already done.
+ * @feature Append-only, one JSON line per record, forced to disk before the task can run:
+ * {"op":"scheduled","id":1,"command":[...],"dir":"...","env":{...},"deps":[...]} (in-process: "java" instead of
+ * "command"), {"op":"finished","id":1,"exit":0}, {"op":"cancelled","id":1}. A torn last line is ignored.
+ * On open, the File is compacted (temp File + move) to the "scheduled" records of the unfinished tasks.
+ */
+public class TaskJournal implements AutoCloseable {
+
+    public static final File TASK_JOURNAL_FILE_DEFAULT = new File(".\\cache\\tasks.journal");
+    public static final long ID_NONE = -1; // task not journaled
+    private static final String OP_SCHEDULED = "scheduled";
+    private static final String OP_FINISHED = "finished";
+    private static final String OP_CANCELLED = "cancelled";
+
+    private final List<Entry> unfinished; // of the previous runs, in scheduling order
+    private FileChannel channel; // NULL -> closed, records are dropped
+    private long nextId;
+
+    /**
+     * Open a journal File (created if absent): read & compact its unfinished tasks, then append to it.
+     * @param journalFile the journal File.
+     */
+    public TaskJournal(File journalFile) throws IOException {
+        Path journalPath = journalFile.toPath();
+        Map<Long, JSONObject> scheduled = new LinkedHashMap<>();
+        if (Files.exists(journalPath)) {
+            for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+                JSONObject record;
+                try {
+                    record = new JSONObject(line);
+                } catch (JSONException ex) { // torn by a crash
+                    continue;
+                }
+                long id = record.optLong("id", ID_NONE);
+                nextId = Math.max(nextId, id + 1);
+                switch (record.optString("op")) {
+                    case OP_SCHEDULED -> scheduled.put(id, record);
+                    case OP_FINISHED, OP_CANCELLED -> scheduled.remove(id);
+                }
+            }
+        }
+
+        // Compact to the unfinished tasks
+        unfinished = new ArrayList<>();
+        StringBuilder compacted = new StringBuilder();
+        for (JSONObject record : scheduled.values()) {
+            unfinished.add(new Entry(record));
+            compacted.append(record).append('\n');
+        }
+        Path tempPath = journalPath.resolveSibling(journalFile.getName() + ".tmp");
+        Files.createDirectories(journalPath.toAbsolutePath().getParent());
+        Files.writeString(tempPath, compacted, StandardCharsets.UTF_8);
+        try {
+            Files.move(tempPath, journalPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempPath, journalPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Record a task as scheduled.
+     * @param task the task, recorded by its name only if in-process (can't be resumed).
+     * @param dependencies journal IDs of the tasks it waits for.
+     * @return its journal ID, ID_NONE if the journal is closed.
+     */
+    synchronized long recordScheduled(ExecutionTask task, Collection<Long> dependencies) {
+        if (channel == null) {
+            return ID_NONE;
+        }
+        long id = nextId++;
+        JSONObject record = new JSONObject();
+        record.put("op", OP_SCHEDULED);
+        record.put("id", id);
+        if (task.isInProcess()) {
+            record.put("java", task.getCommand().get(0));
+        } else {
+            record.put("command", new JSONArray(task.getCommand()));
+            if (task.getWorkDirectory() != null) {
+                record.put("dir", task.getWorkDirectory().getPath());
+            }
+            if (task.getEnvironment() != null && !task.getEnvironment().isEmpty()) {
+                record.put("env", new JSONObject(task.getEnvironment()));
+            }
+        }
+        record.put("deps", new JSONArray(dependencies));
+        return append(record) ? id : ID_NONE;
+    }
+
+    /**
+     * Record a task as finished, it will not be resumed.
+     * @param id its journal ID, ignored if ID_NONE.
+     * @param exitCode its exit code.
+     */
+    synchronized void recordFinished(long id, int exitCode) {
+        if (id != ID_NONE) {
+            append(new JSONObject().put("op", OP_FINISHED).put("id", id).put("exit", exitCode));
+        }
+    }
+
+    /**
+     * Record a task as cancelled, it will not be resumed.
+     * @param id its journal ID, ignored if ID_NONE.
+     */
+    public synchronized void recordCancelled(long id) {
+        if (id != ID_NONE) {
+            append(new JSONObject().put("op", OP_CANCELLED).put("id", id));
+        }
+    }
+
+    /**
+     * Append a record & force it to disk. Failures are reported, and close the journal.
+     * @return true -> recorded.
+     */
+    private boolean append(JSONObject record) {
+        if (channel == null) {
+            return false;
+        }
+        try {
+            ByteBuffer line = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            channel.force(false);
+            return true;
+        } catch (IOException ex) {
+            System.err.println("[WARNING] Task Journal unwritable, Tasks won't survive a Restart: " + ex.getMessage());
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * Take the unfinished tasks of the previous runs, once.
+     * @return the unfinished tasks in scheduling order, to be resumed or recorded as cancelled.
+     */
+    public synchronized List<Entry> takeUnfinished() {
+        List<Entry> taken = new ArrayList<>(unfinished);
+        unfinished.clear();
+        return taken;
+    }
+
+    /**
+     * Stop journaling: tasks ended from now on (e.g. killed on exit) stay unfinished in the File.
+     */
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+
+    /* Getters */
+    public synchronized int getUnfinishedCount() {
+        return unfinished.size();
+    }
+
+    /**
+     * A task scheduled but not finished, as journaled.
+     */
+    public static class Entry {
+        private final long id;
+        private final List<String> command; // NULL -> in-process task
+        private final String javaTaskName;
+        private final File workDirectory;
+        private final Map<String, String> environment;
+        private final List<Long> dependencies;
+
+        private Entry(JSONObject record) {
+            id = record.getLong("id");
+            JSONArray commandArray = record.optJSONArray("command");
+            if (commandArray != null) {
+                command = new ArrayList<>();
+                commandArray.forEach((argument) -> command.add(argument.toString()));
+            } else {
+                command = null;
+            }
+            javaTaskName = record.optString("java", null);
+            workDirectory = record.has("dir") ? new File(record.getString("dir")) : null;
+            environment = new HashMap<>();
+            JSONObject environmentObject = record.optJSONObject("env");
+            if (environmentObject != null) {
+                environmentObject.keySet().forEach((key) -> environment.put(key, environmentObject.getString(key)));
+            }
+            dependencies = new ArrayList<>();
+            JSONArray dependencyArray = record.optJSONArray("deps");
+            if (dependencyArray != null) {
+                for (int i = 0; i < dependencyArray.length(); i++) {
+                    dependencies.add(dependencyArray.getLong(i));
+                }
+            }
+        }
+
+        /**
+         * @return true -> an in-process task, not resumable.
+         */
+        public boolean isInProcess() {
+            return command == null;
+        }
+
+        /**
+         * @return its command, or the name of an in-process task.
+         */
+        @Override
+        public String toString() {
+            return isInProcess() ? javaTaskName : String.join(" ", command);
+        }
+
+        /* Getters */
+        public long getId() {
+            return id;
+        }
+        public List<String> getCommand() {
+            return command;
+        }
+        public File getWorkDirectory() {
+            return workDirectory;
+        }
+        public Map<String, String> getEnvironment() {
+            return environment;
+        }
+        public List<Long> getDependencies() {
+            return dependencies;
+        }
+    }
+}
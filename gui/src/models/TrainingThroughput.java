@@ -0,0 +1,71 @@
+package models;
+
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Training Throughput
+ * @responsibility Derive training throughput from the step logs of train.py, as an OutputPipeline observer.
+ * @feature Between 2 logged steps: steps/s, then samples/s per GPU (each GPU runs a batch per step) & in total.
+ * Reported to console & recorded as TRAIN_SAMPLES_PER_GPU by GPU count, so scaling across GPU counts compares.
+ */
+public class TrainingThroughput implements Consumer<String> {
+    // e.g. "INFO:44k:Losses: [2.4, 2.1, 9.8, 21.3, 1.6], step: 3400, lr: 9.9e-05, reference_loss: 37.2"
+    private static final Pattern STEP_LOG_PATTERN = Pattern.compile("Losses: .*step: (\\d+)");
+
+    private final int batchSize;
+    private final int gpuCount;
+    private final MetricsRegistry metricsRegistry = MetricsRegistry.getMetricsRegistry();
+
+    private long lastStep = -1;
+    private long lastStepTime; // by System.nanoTime()
+    private double samplesPerSecondPerGpu = Double.NaN;
+
+    /**
+     * @param batchSize batch size of each GPU (batch_size of the training config).
+     * @param gpuCount count of GPUs training together.
+     */
+    public TrainingThroughput(int batchSize, int gpuCount) {
+        this.batchSize = batchSize;
+        this.gpuCount = gpuCount;
+    }
+
+    @Override
+    public void accept(String line) {
+        observe(line, System.nanoTime());
+    }
+
+    /**
+     * Observe one output line.
+     * @param line output line of train.py.
+     * @param time when it was output, by System.nanoTime().
+     * @return true -> a throughput was measured with this line.
+     */
+    synchronized boolean observe(String line, long time) {
+        Matcher matcher = STEP_LOG_PATTERN.matcher(line);
+        if (!matcher.find()) {
+            return false;
+        }
+        long step = Long.parseLong(matcher.group(1));
+        boolean measured = false;
+        if (lastStep >= 0 && step > lastStep && time > lastStepTime) {
+            double stepsPerSecond = (step - lastStep) / ((time - lastStepTime) / 1e9);
+            samplesPerSecondPerGpu = stepsPerSecond * batchSize;
+            metricsRegistry.observe(MetricsRegistry.TRAIN_SAMPLES_PER_GPU, "x" + gpuCount, samplesPerSecondPerGpu);
+            System.out.printf("[INFO] Training Throughput: %.2f step/s, %.1f samples/s (%.1f per GPU x %d)%n",
+                    stepsPerSecond, samplesPerSecondPerGpu * gpuCount, samplesPerSecondPerGpu, gpuCount);
+            measured = true;
+        }
+        lastStep = step;
+        lastStepTime = time;
+        return measured;
+    }
+
+    /**
+     * @return samples/s of each GPU by the latest measurement, NaN if not measured yet.
+     */
+    public synchronized double getSamplesPerSecondPerGpu() {
+        return samplesPerSecondPerGpu;
+    }
+}
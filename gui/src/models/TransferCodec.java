@@ -0,0 +1,343 @@
+package models;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Transfer Codec
+ * @responsibility Losslessly compress file transfers with the Server on the fly.
+ * @feature DEFLATE: zlib format at BEST_SPEED. Pipelined: the caller thread compresses while a background thread
+ * sends the blocks compressed before (and receives ahead while the caller decompresses), so CPU & link overlap.
+ * Recorded audio is mostly noise to deflate, so a File is compressed only if a sample of it shrinks enough.
+ */
+public final class TransferCodec {
+
+    public static final String DEFLATE = "deflate"; // encoding name, as negotiated with the Server
+    private static final int BLOCK_SIZE = 64 * 1024; // bytes
+    private static final int PIPELINE_DEPTH = 32; // blocks in flight at most
+    private static final long POLL_INTERVAL = 100; // ms, between checks of the background thread
+    private static final byte[] END = new byte[0];
+    public static final double WORTHWHILE_PERCENTAGE = 85; // compressed size in percent of raw, at most
+    private static final int SAMPLE_BLOCKS = 4; // spread over the File
+
+    private TransferCodec() {
+    }
+
+    /**
+     * Compress into out, blocks are written to out by a background thread.
+     * @param out destination of the compressed bytes, closed when the returned stream is closed.
+     * @return the compressing stream, its close() waits until everything has been written to out.
+     */
+    public static Compressor compressing(OutputStream out) {
+        return new Compressor(new PipelinedOutputStream(out));
+    }
+
+    /**
+     * Decompress from in, compressed blocks are read ahead from in by a background thread.
+     * @param in source of the compressed bytes, closed when the returned stream is closed.
+     * @return the decompressing stream.
+     */
+    public static Decompressor decompressing(InputStream in) {
+        return new Decompressor(new ReadAheadInputStream(in));
+    }
+
+    /**
+     * Tell whether a File is worth compressing, by deflating SAMPLE_BLOCKS blocks spread over it. (Block)
+     * @param fileChannel the File, its position is left as is.
+     * @return true -> the sample shrinks to WORTHWHILE_PERCENTAGE of its raw size or less.
+     */
+    public static boolean isWorthCompressing(FileChannel fileChannel) throws IOException {
+        return sampleCompressedPercentage(fileChannel) <= WORTHWHILE_PERCENTAGE;
+    }
+
+    /**
+     * @return compressed size of a sample of the File in percent of its raw size, 100 if empty.
+     */
+    static double sampleCompressedPercentage(FileChannel fileChannel) throws IOException {
+        long fileLength = fileChannel.size();
+        long step = Math.max(fileLength / SAMPLE_BLOCKS, BLOCK_SIZE);
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        byte[] compressed = new byte[BLOCK_SIZE];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            for (long position = 0; position < fileLength; position += step) {
+                block.clear();
+                int read = fileChannel.read(block, position);
+                if (read <= 0) {
+                    break;
+                }
+                deflater.setInput(block.array(), 0, read);
+                while (!deflater.needsInput()) {
+                    deflater.deflate(compressed);
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflater.deflate(compressed);
+            }
+            long rawBytes = deflater.getBytesRead();
+            return (rawBytes == 0) ? 100 : (deflater.getBytesWritten() * 100.0 / rawBytes);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Deflating OutputStream, which keeps count of raw & compressed bytes.
+     */
+    public static class Compressor extends DeflaterOutputStream {
+        private long rawBytes;
+        private long compressedBytes;
+        private boolean ended;
+
+        private Compressor(OutputStream out) {
+            super(out, new Deflater(Deflater.BEST_SPEED), BLOCK_SIZE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (ended) {
+                return;
+            }
+            try {
+                super.close();
+            } finally {
+                ended = true;
+                rawBytes = def.getBytesRead();
+                compressedBytes = def.getBytesWritten();
+                def.end();
+            }
+        }
+
+        /**
+         * @return compressed size in percent of the raw size, after close().
+         */
+        public double getCompressedPercentage() {
+            return (rawBytes == 0) ? 100 : (compressedBytes * 100.0 / rawBytes);
+        }
+    }
+
+    /**
+     * Inflating InputStream, which keeps count of raw & compressed bytes.
+     */
+    public static class Decompressor extends InflaterInputStream {
+        private boolean ended;
+
+        private Decompressor(InputStream in) {
+            super(in, new Inflater(), BLOCK_SIZE);
+        }
+
+        /**
+         * @return compressed size in percent of the raw size, so far.
+         */
+        public synchronized double getCompressedPercentage() {
+            if (ended) {
+                return 100;
+            }
+            long rawBytes = inf.getBytesWritten();
+            return (rawBytes == 0) ? 100 : (inf.getBytesRead() * 100.0 / rawBytes);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!ended) {
+                    ended = true;
+                    inf.end();
+                }
+            }
+        }
+    }
+
+    /**
+     * OutputStream handing each write to a background thread, which writes it to the underlying stream.
+     * Writes block only once PIPELINE_DEPTH blocks are waiting. A failure of the background thread is thrown by the
+     * next write (or close).
+     */
+    private static class PipelinedOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+        private final Thread senderThread;
+        private volatile IOException failure;
+        private boolean closed;
+
+        private PipelinedOutputStream(OutputStream out) {
+            this.out = out;
+            senderThread = new Thread(this::send, "Transfer-Sender");
+            senderThread.setDaemon(true);
+            senderThread.start();
+        }
+
+        private void send() {
+            try {
+                byte[] block;
+                while ((block = blocks.take()) != END) {
+                    out.write(block);
+                }
+                out.close(); // only once complete, a failed transfer is left to the owner of out
+            } catch (IOException ex) {
+                failure = ex;
+            } catch (InterruptedException ex) {
+                failure = new InterruptedIOException();
+            }
+            blocks.clear(); // unblock a waiting writer
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed.");
+            }
+            if (len > 0) {
+                enqueue(Arrays.copyOfRange(b, off, off + len));
+            }
+        }
+
+        private void enqueue(byte[] block) throws IOException {
+            try {
+                while (!blocks.offer(block, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    checkFailure();
+                }
+                checkFailure();
+            } catch (InterruptedException ex) {
+                senderThread.interrupt();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        private void checkFailure() throws IOException {
+            if (failure != null) { // rethrown by every call: a new one each time
+                throw new IOException(failure.getMessage(), failure);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            enqueue(END);
+            try {
+                senderThread.join();
+            } catch (InterruptedException ex) {
+                senderThread.interrupt();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            checkFailure();
+        }
+    }
+
+    /**
+     * InputStream filled by a background thread, which reads ahead from the underlying stream, PIPELINE_DEPTH blocks
+     * at most. A failure of the background thread is thrown by every read once the blocks before it are consumed.
+     */
+    private static class ReadAheadInputStream extends InputStream {
+        private final InputStream in;
+        private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+        private final Thread receiverThread;
+        private volatile IOException failure;
+        private volatile boolean closed;
+        private byte[] current = new byte[0];
+        private int position;
+
+        private ReadAheadInputStream(InputStream in) {
+            this.in = in;
+            receiverThread = new Thread(this::receive, "Transfer-Receiver");
+            receiverThread.setDaemon(true);
+            receiverThread.start();
+        }
+
+        private void receive() {
+            try {
+                byte[] buffer = new byte[BLOCK_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    if (read > 0) {
+                        blocks.put(Arrays.copyOf(buffer, read));
+                    }
+                }
+            } catch (IOException ex) {
+                if (!closed) {
+                    failure = ex;
+                }
+            } catch (InterruptedException ex) { // closed
+                return;
+            }
+            try {
+                blocks.put(END);
+            } catch (InterruptedException ignored) { // closed
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return (read(b, 0, 1) == -1) ? -1 : (b[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed.");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (position == current.length) {
+                if (current != END) {
+                    try {
+                        current = blocks.take();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                    position = 0;
+                }
+                if (current == END) {
+                    if (failure != null) { // on every read after, never a clean end
+                        throw new IOException(failure.getMessage(), failure);
+                    }
+                    return -1;
+                }
+            }
+            int count = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return current.length - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            receiverThread.interrupt();
+            in.close();
+        }
+    }
+}
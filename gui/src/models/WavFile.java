@@ -0,0 +1,168 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Wave File
+ * @responsibility Describe the format & sample data location of a RIFF/WAVE File, decode its samples.
+ * @feature Supports PCM 8/16/24/32-bit, IEEE float 32/64-bit (plain or WAVE_FORMAT_EXTENSIBLE).
+ */
+public class WavFile {
+
+    public static final int FORMAT_PCM = 1;
+    public static final int FORMAT_IEEE_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final int CANONICAL_HEADER_SIZE = 44; // bytes
+    private static final int MAX_CHUNK_HEADER_SCAN = 64 * 1024; // bytes
+
+    private final int formatTag; // FORMAT_PCM or FORMAT_IEEE_FLOAT
+    private final int channels;
+    private final int sampleRate;
+    private final int bitsPerSample;
+    private final long dataOffset; // bytes, from the start of the File
+    private final long frameCount;
+
+    public WavFile(int formatTag, int channels, int sampleRate, int bitsPerSample, long dataOffset, long frameCount) {
+        this.formatTag = formatTag;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.bitsPerSample = bitsPerSample;
+        this.dataOffset = dataOffset;
+        this.frameCount = frameCount;
+    }
+
+    /**
+     * Read the header of a Wave File.
+     * @param file the Wave File.
+     * @return its WavFile description.
+     * @throws IOException not readable, or not a supported Wave File.
+     */
+    public static WavFile read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(channel.size(), MAX_CHUNK_HEADER_SCAN))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                // fill
+            }
+            header.flip();
+
+            if (header.remaining() < 12 || header.getInt(0) != fourCC("RIFF") || header.getInt(8) != fourCC("WAVE")) {
+                throw new IOException("Not a Wave File: \"" + file.getName() + "\"");
+            }
+
+            int formatTag = -1, channels = 0, sampleRate = 0, bitsPerSample = 0;
+            int position = 12;
+            while (position + 8 <= header.limit()) {
+                int chunkId = header.getInt(position);
+                long chunkSize = Integer.toUnsignedLong(header.getInt(position + 4));
+                int body = position + 8;
+
+                if (chunkId == fourCC("fmt ") && body + 16 <= header.limit()) {
+                    formatTag = Short.toUnsignedInt(header.getShort(body));
+                    channels = Short.toUnsignedInt(header.getShort(body + 2));
+                    sampleRate = header.getInt(body + 4);
+                    bitsPerSample = Short.toUnsignedInt(header.getShort(body + 14));
+                    if (formatTag == FORMAT_EXTENSIBLE && chunkSize >= 40 && body + 26 <= header.limit()) {
+                        formatTag = Short.toUnsignedInt(header.getShort(body + 24)); // SubFormat GUID
+                    }
+                } else if (chunkId == fourCC("data")) {
+                    if (formatTag == -1) {
+                        throw new IOException("Wave format chunk missing: \"" + file.getName() + "\"");
+                    }
+                    checkSupported(file, formatTag, channels, bitsPerSample);
+                    // size may be unset by streaming writers, never read past the end
+                    long dataLength = Math.min(chunkSize, channel.size() - body);
+                    return new WavFile(formatTag, channels, sampleRate, bitsPerSample, body,
+                            dataLength / ((long) channels * (bitsPerSample / 8)));
+                }
+                position = (int) Math.min(Integer.MAX_VALUE, body + chunkSize + (chunkSize & 1)); // even-padded
+            }
+            throw new IOException("Wave data chunk missing: \"" + file.getName() + "\"");
+        }
+    }
+
+    private static void checkSupported(File file, int formatTag, int channels, int bitsPerSample)
+            throws IOException {
+        boolean supported = channels > 0 && (
+                (formatTag == FORMAT_PCM && (bitsPerSample == 8 || bitsPerSample == 16 ||
+                        bitsPerSample == 24 || bitsPerSample == 32)) ||
+                (formatTag == FORMAT_IEEE_FLOAT && (bitsPerSample == 32 || bitsPerSample == 64)));
+        if (!supported) {
+            throw new IOException("Unsupported Wave format (tag " + formatTag + ", " + bitsPerSample + " bits): \"" +
+                    file.getName() + "\"");
+        }
+    }
+
+    private static int fourCC(String id) {
+        return id.charAt(0) | id.charAt(1) << 8 | id.charAt(2) << 16 | id.charAt(3) << 24;
+    }
+
+    /**
+     * Decode one sample at the current position of a little-endian buffer, to [-1, 1).
+     * @param buffer little-endian buffer of sample data, advanced by one sample.
+     * @return the sample value.
+     */
+    public float decodeSample(ByteBuffer buffer) {
+        if (formatTag == FORMAT_IEEE_FLOAT) {
+            return (bitsPerSample == 32) ? buffer.getFloat() : (float) buffer.getDouble();
+        }
+        return switch (bitsPerSample) {
+            case 8 -> ((buffer.get() & 0xFF) - 128) / 128f;
+            case 16 -> buffer.getShort() / 32768f;
+            case 24 -> ((buffer.get() & 0xFF) | (buffer.get() & 0xFF) << 8 | buffer.get() << 16) / 8388608f;
+            default -> buffer.getInt() / 2147483648f;
+        };
+    }
+
+    /**
+     * Write a canonical 44-byte header of this format, followed by frameCount frames of data.
+     * @param channel channel to write to.
+     * @param frameCount count of frames in the data chunk.
+     */
+    public void writeHeader(WritableByteChannel channel, long frameCount) throws IOException {
+        long dataLength = frameCount * getBlockAlign();
+        ByteBuffer header = ByteBuffer.allocate(CANONICAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(fourCC("RIFF")).putInt((int) (CANONICAL_HEADER_SIZE - 8 + dataLength)).putInt(fourCC("WAVE"));
+        header.putInt(fourCC("fmt ")).putInt(16)
+                .putShort((short) formatTag)
+                .putShort((short) channels)
+                .putInt(sampleRate)
+                .putInt(sampleRate * getBlockAlign())
+                .putShort((short) getBlockAlign())
+                .putShort((short) bitsPerSample);
+        header.putInt(fourCC("data")).putInt((int) dataLength);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /* Getters */
+    public int getFormatTag() {
+        return formatTag;
+    }
+    public int getChannels() {
+        return channels;
+    }
+    public int getSampleRate() {
+        return sampleRate;
+    }
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+    public int getBlockAlign() {
+        return channels * (bitsPerSample / 8);
+    }
+    public long getDataOffset() {
+        return dataOffset;
+    }
+    public long getFrameCount() {
+        return frameCount;
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+/**
+ * Benchmark
+ * @responsibility One throughput benchmark run by BenchmarkRunner.
+ * @feature The runner calls invoke() back to back for a fixed time per iteration, and scores an iteration as
+ * the total work returned divided by its elapsed seconds.
+ */
+public interface Benchmark {
+
+    /**
+     * @return unique name, "<package>.<class>.<case>" (as JMH names benchmark methods).
+     */
+    String getName();
+
+    /**
+     * @return unit of the score, e.g. "ops/s", "MB/s".
+     */
+    String getScoreUnit();
+
+    /**
+     * Prepare fixtures, once before all iterations (not measured).
+     */
+    default void setUp() throws Exception {
+    }
+
+    /**
+     * Do one batch of the measured work.
+     * @return amount of work done, in the unit of getScoreUnit() times seconds (e.g. ops, MB).
+     */
+    double invoke() throws Exception;
+
+    /**
+     * Release fixtures, once after all iterations (not measured).
+     */
+    default void tearDown() throws Exception {
+    }
+}
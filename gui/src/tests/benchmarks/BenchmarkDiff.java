@@ -0,0 +1,74 @@
+package benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Benchmark Diff
+ * @responsibility Compare two result Files of BenchmarkRunner (or JMH "-rf json"), benchmark by benchmark.
+ * @feature Usage: BenchmarkDiff <baseline result File> <new result File>. A change counts only if the
+ * 99.9% confidence intervals do not overlap, otherwise it is reported as "~" (within noise).
+ */
+public class BenchmarkDiff {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkDiff <baseline result File> <new result File>");
+            return;
+        }
+        Map<String, JSONObject> baseline = load(new File(args[0]));
+        Map<String, JSONObject> current = load(new File(args[1]));
+
+        System.out.printf("%-50s %14s %14s %-8s %9s%n", "Benchmark", "Baseline", "New", "Unit", "Change");
+        for (Map.Entry<String, JSONObject> entry : current.entrySet()) {
+            JSONObject metric = entry.getValue();
+            JSONObject baselineMetric = baseline.get(entry.getKey());
+            if (baselineMetric == null) {
+                System.out.printf("%-50s %14s %14.3f %-8s %9s%n", entry.getKey(), "-", metric.getDouble("score"),
+                        metric.getString("scoreUnit"), "new");
+                continue;
+            }
+            double baselineScore = baselineMetric.getDouble("score");
+            double score = metric.getDouble("score");
+            double change = (score - baselineScore) / baselineScore * 100;
+            boolean overlapped = getBound(metric, 0) <= getBound(baselineMetric, 1) &&
+                    getBound(baselineMetric, 0) <= getBound(metric, 1);
+            System.out.printf("%-50s %14.3f %14.3f %-8s %+8.1f%% %s%n", entry.getKey(), baselineScore, score,
+                    metric.getString("scoreUnit"), change, overlapped ? "~" : "");
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf("%-50s %14.3f %14s %-8s %9s%n", name, baseline.get(name).getDouble("score"), "-",
+                        baseline.get(name).getString("scoreUnit"), "removed");
+            }
+        }
+    }
+
+    /**
+     * @return primary metrics by benchmark name, in File order.
+     */
+    private static Map<String, JSONObject> load(File resultFile) throws IOException {
+        JSONArray results = new JSONArray(Files.readString(resultFile.toPath(), StandardCharsets.UTF_8));
+        Map<String, JSONObject> metrics = new LinkedHashMap<>();
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            metrics.put(result.getString("benchmark"), result.getJSONObject("primaryMetric"));
+        }
+        return metrics;
+    }
+
+    /**
+     * @param bound 0 -> lower, 1 -> upper bound of the confidence interval.
+     */
+    private static double getBound(JSONObject metric, int bound) {
+        JSONArray confidence = metric.optJSONArray("scoreConfidence");
+        return (confidence == null) ? metric.getDouble("score") : confidence.getDouble(bound);
+    }
+}
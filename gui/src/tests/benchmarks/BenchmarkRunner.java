@@ -0,0 +1,171 @@
+package benchmarks;
+
+import gui.ConfigParseBenchmark;
+import gui.ConsoleAppendBenchmark;
+import models.ExecutionAgentBenchmark;
+import models.RemoteAgentBenchmark;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark Runner
+ * @responsibility Run the client's hot-path benchmarks & publish their scores as a result File.
+ * @feature Usage: BenchmarkRunner [-wi warmup iterations] [-i iterations] [-r seconds per iteration]
+ * [-rf result File] [name regex]. Throughput mode, one thread, in this JVM. The result File has the layout of
+ * JMH's "-rf json" (score, 99.9% error, raw data per benchmark), diff two of them with BenchmarkDiff.
+ */
+public class BenchmarkRunner {
+
+    private static final int WARMUP_ITERATIONS_DEFAULT = 3;
+    private static final int MEASUREMENT_ITERATIONS_DEFAULT = 5;
+    private static final double ITERATION_TIME_DEFAULT = 1; // s
+    private static final File RESULT_FILE_DEFAULT = new File("jmh-result.json");
+
+    /* Student's t quantiles at 0.9995 (two-sided 99.9%, as JMH), by degrees of freedom 1..30 */
+    private static final double[] T_QUANTILES = {
+            636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+            4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+            3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+    };
+    private static final double Z_QUANTILE = 3.291; // beyond 30 degrees of freedom
+
+    /**
+     * @return every benchmark of the client, in run order.
+     */
+    private static List<Benchmark> getBenchmarks() {
+        return List.of(
+                new RemoteAgentBenchmark.Upload(),
+                new RemoteAgentBenchmark.Download(),
+                new ConsoleAppendBenchmark(),
+                new ExecutionAgentBenchmark.StubTasks(),
+                new ExecutionAgentBenchmark.ProcessTasks(),
+                new ConfigParseBenchmark()
+        );
+    }
+
+    public static void main(String[] args) throws IOException {
+        int warmupIterations = WARMUP_ITERATIONS_DEFAULT;
+        int measurementIterations = MEASUREMENT_ITERATIONS_DEFAULT;
+        double iterationTime = ITERATION_TIME_DEFAULT;
+        File resultFile = RESULT_FILE_DEFAULT;
+        Pattern filter = Pattern.compile(".*");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-wi" -> warmupIterations = Integer.parseInt(args[++i]);
+                case "-i" -> measurementIterations = Integer.parseInt(args[++i]);
+                case "-r" -> iterationTime = Double.parseDouble(args[++i]);
+                case "-rf" -> resultFile = new File(args[++i]);
+                default -> filter = Pattern.compile(args[i]);
+            }
+        }
+
+        JSONArray results = new JSONArray();
+        for (Benchmark benchmark : getBenchmarks()) {
+            if (!filter.matcher(benchmark.getName()).find()) {
+                continue;
+            }
+            System.out.println("# Benchmark: " + benchmark.getName());
+            try {
+                results.put(run(benchmark, warmupIterations, measurementIterations, iterationTime));
+            } catch (Exception ex) {
+                System.err.println("[ERROR] Benchmark \"" + benchmark.getName() + "\" failed: " + ex);
+            }
+        }
+
+        Files.writeString(resultFile.toPath(), results.toString(2), StandardCharsets.UTF_8);
+        System.out.println();
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject metric = results.getJSONObject(i).getJSONObject("primaryMetric");
+            System.out.printf("%-52s %14.3f +/- %10.3f %s%n", results.getJSONObject(i).getString("benchmark"),
+                    metric.getDouble("score"), metric.getDouble("scoreError"), metric.getString("scoreUnit"));
+        }
+        System.out.println("[INFO] Results written to \"" + resultFile + "\"");
+    }
+
+    /**
+     * Run one benchmark: setUp, warmup iterations, measured iterations, tearDown.
+     * @return its result, in the layout of one JMH json result.
+     */
+    private static JSONObject run(Benchmark benchmark, int warmupIterations, int measurementIterations,
+                                  double iterationTime) throws Exception {
+        double[] scores = new double[measurementIterations];
+        benchmark.setUp();
+        try {
+            for (int i = -warmupIterations; i < measurementIterations; i++) {
+                double score = iterate(benchmark, iterationTime);
+                System.out.printf("%s %d: %.3f %s%n", (i < 0) ? "# Warmup Iteration" : "Iteration",
+                        (i < 0) ? i + warmupIterations + 1 : i + 1, score, benchmark.getScoreUnit());
+                if (i >= 0) {
+                    scores[i] = score;
+                }
+            }
+        } finally {
+            benchmark.tearDown();
+        }
+
+        // mean & half width of its 99.9% confidence interval
+        double mean = 0;
+        for (double score : scores) {
+            mean += score;
+        }
+        mean /= scores.length;
+        double error = Double.NaN;
+        if (scores.length > 1) {
+            double variance = 0;
+            for (double score : scores) {
+                variance += (score - mean) * (score - mean);
+            }
+            variance /= scores.length - 1;
+            int degreesOfFreedom = scores.length - 1;
+            double quantile = (degreesOfFreedom <= T_QUANTILES.length) ?
+                    T_QUANTILES[degreesOfFreedom - 1] : Z_QUANTILE;
+            error = quantile * Math.sqrt(variance / scores.length);
+        }
+
+        JSONObject primaryMetric = new JSONObject();
+        primaryMetric.put("score", mean);
+        primaryMetric.put("scoreError", Double.isNaN(error) ? "NaN" : error);
+        primaryMetric.put("scoreConfidence", Double.isNaN(error) ?
+                new JSONArray().put(mean).put(mean) : new JSONArray().put(mean - error).put(mean + error));
+        primaryMetric.put("scoreUnit", benchmark.getScoreUnit());
+        primaryMetric.put("rawData", new JSONArray().put(new JSONArray(scores)));
+
+        JSONObject result = new JSONObject();
+        result.put("benchmark", benchmark.getName());
+        result.put("mode", "thrpt");
+        result.put("threads", 1);
+        result.put("forks", 0);
+        result.put("jdkVersion", System.getProperty("java.version"));
+        result.put("vmName", System.getProperty("java.vm.name"));
+        result.put("warmupIterations", warmupIterations);
+        result.put("warmupTime", iterationTime + " s");
+        result.put("measurementIterations", measurementIterations);
+        result.put("measurementTime", iterationTime + " s");
+        result.put("primaryMetric", primaryMetric);
+        return result;
+    }
+
+    /**
+     * Invoke a benchmark back to back for iterationTime.
+     * @return the score, work per second.
+     */
+    private static double iterate(Benchmark benchmark, double iterationTime) throws Exception {
+        long startTime = System.nanoTime();
+        long deadline = startTime + (long) (iterationTime * 1e9);
+        double work = 0;
+        long now;
+        do {
+            work += benchmark.invoke();
+            now = System.nanoTime();
+        } while (now < deadline);
+        return work / ((now - startTime) / 1e9);
+    }
+}
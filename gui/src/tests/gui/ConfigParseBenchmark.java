@@ -0,0 +1,78 @@
+package gui;
+
+import benchmarks.Benchmark;
+import models.ConfigService;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static models.ExecutionAgent.SO_VITS_SVC_DIR;
+
+/**
+ * Config Parse Benchmark
+ * @responsibility Measure loads per second of a training config through ConfigService.read
+ * (the path of every ConfigService reload), from a temp copy of the config template.
+ * @feature If the template is absent, a config of the same layout is synthesized, with 200 speakers.
+ */
+public class ConfigParseBenchmark implements Benchmark {
+    private static final File CONFIG_TEMPLATE = new File(SO_VITS_SVC_DIR + "\\configs_template\\config_template.json");
+    private static final int SPEAKER_COUNT = 200; // n_speakers of the template
+
+    private File configFile;
+    private long checksum; // consumes the results, so parsing is not optimized away
+
+    @Override
+    public String getName() {
+        return "gui.ConfigParseBenchmark.readConfigJsonObject";
+    }
+
+    @Override
+    public String getScoreUnit() {
+        return "ops/s";
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        configFile = File.createTempFile("config", ".json");
+        if (CONFIG_TEMPLATE.isFile()) {
+            Files.copy(CONFIG_TEMPLATE.toPath(), configFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+
+        JSONObject config = new JSONObject();
+        JSONObject train = new JSONObject();
+        train.put("log_interval", 200).put("eval_interval", 800).put("batch_size", 6).put("fp16_run", false)
+                .put("half_type", "fp16").put("keep_ckpts", 3).put("all_in_mem", false).put("lr_decay", 0.999875)
+                .put("betas", new double[]{0.8, 0.99}).put("segment_size", 10240).put("port", "8001");
+        JSONObject data = new JSONObject();
+        data.put("training_files", "filelists/train.txt").put("validation_files", "filelists/val.txt")
+                .put("sampling_rate", 44100).put("filter_length", 2048).put("hop_length", 512);
+        JSONObject model = new JSONObject();
+        model.put("upsample_rates", new int[]{8, 8, 2, 2, 2}).put("n_speakers", SPEAKER_COUNT)
+                .put("resblock_dilation_sizes", new int[][]{{1, 3, 5}, {1, 3, 5}, {1, 3, 5}})
+                .put("speech_encoder", "vec768l12").put("vocoder_name", "nsf-hifigan");
+        JSONObject spk = new JSONObject();
+        for (int i = 0; i < SPEAKER_COUNT; i++) {
+            spk.put("speaker" + i, i);
+        }
+        config.put("train", train).put("data", data).put("model", model).put("spk", spk);
+        Files.writeString(configFile.toPath(), config.toString(2), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public double invoke() throws Exception {
+        checksum += ConfigService.read(configFile).getBatchSize();
+        return 1;
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(configFile.toPath());
+        if (checksum == 0) {
+            System.out.println("[WARNING] No config loaded.");
+        }
+    }
+}
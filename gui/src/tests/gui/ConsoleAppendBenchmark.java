@@ -0,0 +1,51 @@
+package gui;
+
+import benchmarks.Benchmark;
+
+import javax.swing.*;
+import java.io.PrintStream;
+
+/**
+ * Console Append Benchmark
+ * @responsibility Measure lines per second printed through the GUI console PrintStream (GUI.newConsolePrintStream,
+ * as System.out/err are redirected) into the ConsoleModel, including its flush into the console document.
+ */
+public class ConsoleAppendBenchmark implements Benchmark {
+    private static final int LINES_PER_INVOCATION = 1000;
+    private static final int LINE_CAPACITY = 512; // as GUI CONSOLE_LINE_COUNT_MAX
+    private static final String LINE = "[INFO] epoch 12 step 3400 loss_disc=2.417 loss_gen=3.021 lr=0.0001 (sample)";
+
+    private ConsoleModel consoleModel;
+    private PrintStream printStream;
+
+    @Override
+    public String getName() {
+        return "gui.ConsoleAppendBenchmark.println";
+    }
+
+    @Override
+    public String getScoreUnit() {
+        return "lines/s";
+    }
+
+    @Override
+    public void setUp() {
+        // flushed by invoke, as the flush Timer would
+        consoleModel = new ConsoleModel(new JTextArea(), LINE_CAPACITY, Integer.MAX_VALUE);
+        printStream = GUI.newConsolePrintStream(consoleModel::append);
+    }
+
+    @Override
+    public double invoke() {
+        for (int i = 0; i < LINES_PER_INVOCATION; i++) {
+            printStream.println(LINE);
+        }
+        consoleModel.flush();
+        return LINES_PER_INVOCATION;
+    }
+
+    @Override
+    public void tearDown() {
+        consoleModel.dispose();
+    }
+}
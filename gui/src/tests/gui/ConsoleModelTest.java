@@ -0,0 +1,89 @@
+package gui;
+
+import models.OutputPipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+
+class ConsoleModelTest {
+    private static final int LINE_CAPACITY = 3;
+
+    private JTextArea consoleArea;
+    private ConsoleModel consoleModel;
+
+    @BeforeEach
+    void setUp() {
+        consoleArea = new JTextArea();
+        // flushed manually
+        consoleModel = new ConsoleModel(consoleArea, LINE_CAPACITY, Integer.MAX_VALUE);
+        OutputPipeline.getOutputPipeline().drain();
+    }
+
+    @AfterEach
+    void tearDown() {
+        consoleModel.dispose();
+    }
+
+    @Test
+    void appendIsBatchedTest() {
+        consoleModel.append("line 1\n");
+        consoleModel.append("line 2\n");
+
+        Assertions.assertEquals("", consoleArea.getText());
+
+        consoleModel.flush();
+
+        Assertions.assertEquals("line 1\nline 2\n", consoleArea.getText());
+    }
+
+    @Test
+    void pipelineOutputTest() throws InterruptedException {
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= 2; i++) {
+                OutputPipeline.getOutputPipeline().println("line " + i);
+            }
+        });
+        producer.start();
+        producer.join();
+        consoleModel.flush();
+
+        Assertions.assertEquals("line 1\nline 2\n", consoleArea.getText());
+    }
+
+    @Test
+    void lineCapacityTest() {
+        for (int i = 1; i <= 5; i++) {
+            consoleModel.append("line " + i + "\n");
+        }
+        consoleModel.append("open ");
+        consoleModel.flush();
+
+        Assertions.assertEquals("line 3\nline 4\nline 5\nopen ", consoleArea.getText());
+
+        consoleModel.append("line 6\nline 7\n");
+        consoleModel.flush();
+
+        Assertions.assertEquals("line 5\nopen line 6\nline 7\n", consoleArea.getText());
+    }
+
+    @Test
+    void clearTest() {
+        consoleModel.append("line 1\nline 2\n");
+        consoleModel.flush();
+        consoleModel.append("discarded\n");
+
+        consoleModel.clear();
+        consoleModel.flush();
+
+        Assertions.assertEquals("", consoleArea.getText());
+
+        consoleModel.append("line 3\n");
+        consoleModel.flush();
+
+        Assertions.assertEquals("line 3\n", consoleArea.getText());
+    }
+
+}
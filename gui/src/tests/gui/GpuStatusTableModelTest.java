@@ -0,0 +1,69 @@
+package gui;
+
+import models.GpuStatus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+class GpuStatusTableModelTest {
+
+    private GpuStatusTableModel gpuStatusTableModel;
+    private List<TableModelEvent> events;
+
+    @BeforeEach
+    void setUp() {
+        gpuStatusTableModel = new GpuStatusTableModel();
+        events = new ArrayList<>();
+        gpuStatusTableModel.addTableModelListener(events::add);
+    }
+
+    @Test
+    void parseTest() {
+        GpuStatus status = GpuStatus.parse("0, NVIDIA GeForce RTX 3060, 35, 2048, 12288, 52, 98.71");
+
+        Assertions.assertEquals(0, status.getIndex());
+        Assertions.assertEquals("NVIDIA GeForce RTX 3060", status.getName());
+        Assertions.assertEquals(35, status.getUtilization());
+        Assertions.assertEquals(2048, status.getMemoryUsed());
+        Assertions.assertEquals(12288, status.getMemoryTotal());
+        Assertions.assertEquals(52, status.getTemperature());
+        Assertions.assertEquals(98.71, status.getPowerDraw());
+
+        Assertions.assertTrue(Double.isNaN(GpuStatus.parse("1, Tesla T4, 0, 0, 15360, 40, [N/A]").getPowerDraw()));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> GpuStatus.parse("NVIDIA-SMI has failed because it couldn't communicate with the driver."));
+    }
+
+    @Test
+    void updateOnlyChangedCellsTest() {
+        gpuStatusTableModel.update(GpuStatus.parse("1, Tesla T4, 10, 100, 15360, 40, 30.00"));
+        gpuStatusTableModel.update(GpuStatus.parse("0, Tesla T4, 20, 200, 15360, 45, 35.00"));
+
+        Assertions.assertEquals(2, gpuStatusTableModel.getRowCount());
+        Assertions.assertEquals("0", gpuStatusTableModel.getValueAt(0, 0));
+        Assertions.assertEquals("1", gpuStatusTableModel.getValueAt(1, 0));
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals(TableModelEvent.INSERT, events.get(1).getType());
+        events.clear();
+
+        // unchanged sample
+        gpuStatusTableModel.update(GpuStatus.parse("1, Tesla T4, 10, 100, 15360, 40, 30.00"));
+        Assertions.assertTrue(events.isEmpty());
+
+        // utilization & temperature changed
+        gpuStatusTableModel.update(GpuStatus.parse("1, Tesla T4, 90, 100, 15360, 41, 30.00"));
+        Assertions.assertEquals(2, events.size());
+        for (TableModelEvent event : events) {
+            Assertions.assertEquals(TableModelEvent.UPDATE, event.getType());
+            Assertions.assertEquals(1, event.getFirstRow());
+        }
+        Assertions.assertEquals(2, events.get(0).getColumn());
+        Assertions.assertEquals(4, events.get(1).getColumn());
+        Assertions.assertEquals("90", gpuStatusTableModel.getValueAt(1, 2));
+    }
+
+}
@@ -0,0 +1,109 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static models.ExecutionAgent.*;
+
+/**
+ * Audio Resampler Benchmark
+ * @responsibility Time AudioResampler against resample.py on the same dataset, and measure their difference.
+ * @feature Usage: AudioResamplerBenchmark <dataset dir, one subdirectory per speaker>
+ * (resample.py part skipped if PYTHON_EXE is absent). Difference is reported as SNR (dB) of the Java output
+ * against the Python output, per File, and as max absolute sample error.
+ */
+public class AudioResamplerBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 1) {
+            System.err.println("Usage: AudioResamplerBenchmark <dataset dir>");
+            return;
+        }
+        File inDir = new File(args[0]);
+        Path tempDir = Files.createTempDirectory("audio-resampler-benchmark");
+
+        try {
+            /* Java */
+            File javaOutDir = tempDir.resolve("java").toFile();
+            int parallelism = Runtime.getRuntime().availableProcessors();
+            long startTime = System.nanoTime();
+            int failedCount = new AudioResampler(AudioResampler.TARGET_SAMPLE_RATE_DEFAULT)
+                    .resampleAll(inDir, javaOutDir, parallelism);
+            System.out.printf("AudioResampler (%d threads): %.1f ms, %d failed%n", parallelism,
+                    (System.nanoTime() - startTime) / 1e6, failedCount);
+
+            /* Python */
+            if (!PYTHON_EXE.exists() || !RESAMPLER_PY.exists()) {
+                System.out.println("resample.py: skipped, " + PYTHON_EXE + " or " + RESAMPLER_PY + " absent");
+                return;
+            }
+            File pythonOutDir = tempDir.resolve("python").toFile();
+            startTime = System.nanoTime();
+            Process process = new ProcessBuilder(PYTHON_EXE.getAbsolutePath(), RESAMPLER_PY.getAbsolutePath(),
+                    "--in_dir", inDir.getAbsolutePath(), "--out_dir2", pythonOutDir.getAbsolutePath())
+                    .directory(SO_VITS_SVC_DIR)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (process.waitFor() != 0) {
+                System.err.println("[ERROR] resample.py failed, exit code: " + process.exitValue());
+                return;
+            }
+            System.out.printf("resample.py: %.1f ms%n", (System.nanoTime() - startTime) / 1e6);
+
+            /* Compare */
+            double minSnr = Double.POSITIVE_INFINITY, snrSum = 0;
+            int maxError = 0, comparedCount = 0;
+            File[] speakerDirs = Objects.requireNonNullElse(pythonOutDir.listFiles(File::isDirectory), new File[0]);
+            for (File speakerDir : speakerDirs) {
+                for (File pythonFile : Objects.requireNonNull(speakerDir.listFiles())) {
+                    File javaFile = new File(new File(javaOutDir, speakerDir.getName()), pythonFile.getName());
+                    if (!javaFile.isFile()) {
+                        System.out.println("MISSING \"" + speakerDir.getName() + "/" + pythonFile.getName() + "\"");
+                        continue;
+                    }
+                    short[] expected = readPcm16(pythonFile);
+                    short[] actual = readPcm16(javaFile);
+                    if (expected.length != actual.length) {
+                        System.out.println("LENGTH \"" + pythonFile.getName() + "\": java " + actual.length +
+                                " python " + expected.length);
+                    }
+                    double signal = 0, noise = 0;
+                    for (int i = 0; i < Math.min(expected.length, actual.length); i++) {
+                        signal += (double) expected[i] * expected[i];
+                        noise += (double) (actual[i] - expected[i]) * (actual[i] - expected[i]);
+                        maxError = Math.max(maxError, Math.abs(actual[i] - expected[i]));
+                    }
+                    double snr = 10 * Math.log10(signal / Math.max(noise, 1));
+                    minSnr = Math.min(minSnr, snr);
+                    snrSum += snr;
+                    comparedCount++;
+                }
+            }
+            System.out.printf("%d File(s) compared, SNR min %.1f dB, mean %.1f dB, max error %d LSB%n",
+                    comparedCount, minSnr, snrSum / Math.max(comparedCount, 1), maxError);
+        } finally {
+            try (Stream<Path> tempPaths = Files.walk(tempDir)) {
+                tempPaths.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static short[] readPcm16(File file) throws IOException {
+        WavFile wav = WavFile.read(file);
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        data.position((int) wav.getDataOffset());
+        short[] samples = new short[(int) wav.getFrameCount()];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = data.getShort();
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,124 @@
+package models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+class AudioResamplerTest {
+
+    private static final int SOURCE_RATE = 48000;
+    private static final int TARGET_RATE = AudioResampler.TARGET_SAMPLE_RATE_DEFAULT;
+    private static final double FREQUENCY = 1000; // Hz
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("audio-resampler-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void trimTest() {
+        float[] samples = new float[SOURCE_RATE];
+        for (int i = 20000; i < 30000; i++) {
+            samples[i] = 0.5f;
+        }
+        int[] bounds = AudioResampler.trim(samples, samples.length);
+        // frames (hop 512) whose 2048-sample window reaches the tone
+        Assertions.assertArrayEquals(new int[]{19456, 31232}, bounds);
+
+        // all silent -> nothing below the reference, kept whole
+        Assertions.assertArrayEquals(new int[]{0, 1024}, AudioResampler.trim(new float[1024], 1024));
+    }
+
+    @Test
+    void filterTest() {
+        AudioResampler.PolyphaseFilter filter = new AudioResampler.PolyphaseFilter(SOURCE_RATE, TARGET_RATE);
+        float[] input = new float[SOURCE_RATE];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (float) Math.sin(2 * Math.PI * FREQUENCY * i / SOURCE_RATE);
+        }
+        float[] output = new float[filter.getOutputLength(input.length)];
+        filter.apply(input, 0, input.length, output);
+
+        Assertions.assertEquals(TARGET_RATE, output.length);
+        // away from the zero-padded edges, a pass-band tone is kept
+        for (int n = 1000; n < output.length - 1000; n++) {
+            Assertions.assertEquals(Math.sin(2 * Math.PI * FREQUENCY * n / TARGET_RATE), output[n], 1e-3);
+        }
+    }
+
+    @Test
+    void resampleAllTest() throws IOException {
+        // stereo 48kHz, 0.5s silence around a 2s tone
+        int silence = SOURCE_RATE / 2, tone = 2 * SOURCE_RATE;
+        float[] samples = new float[silence + tone + silence];
+        for (int i = 0; i < tone; i++) {
+            samples[silence + i] = (float) (0.5 * Math.sin(2 * Math.PI * FREQUENCY * i / SOURCE_RATE));
+        }
+        File inDir = tempDir.resolve("raw").toFile();
+        File outDir = tempDir.resolve("44k").toFile();
+        writeStereoPcm16(inDir.toPath().resolve("speaker").resolve("voice.wav").toFile(), samples);
+        Files.write(inDir.toPath().resolve("speaker").resolve("broken.wav"), new byte[]{1, 2, 3});
+
+        AudioResampler audioResampler = new AudioResampler(TARGET_RATE);
+        Assertions.assertEquals(1, audioResampler.resampleAll(inDir, outDir, 2));
+
+        File resampled = outDir.toPath().resolve("speaker").resolve("voice.wav").toFile();
+        WavFile wav = WavFile.read(resampled);
+        Assertions.assertEquals(WavFile.FORMAT_PCM, wav.getFormatTag());
+        Assertions.assertEquals(1, wav.getChannels());
+        Assertions.assertEquals(TARGET_RATE, wav.getSampleRate());
+        Assertions.assertEquals(16, wav.getBitsPerSample());
+
+        // trimmed to the tone (within one trim frame), loudness normalized to full scale
+        int[] bounds = AudioResampler.trim(samples, samples.length);
+        long expectedLength = ((long) (bounds[1] - bounds[0]) * TARGET_RATE + SOURCE_RATE - 1) / SOURCE_RATE;
+        Assertions.assertEquals(expectedLength, wav.getFrameCount());
+        Assertions.assertTrue(wav.getFrameCount() < (long) (tone + 2 * 2048) * TARGET_RATE / SOURCE_RATE);
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(resampled.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        data.position((int) wav.getDataOffset());
+        short peak = 0;
+        while (data.hasRemaining()) {
+            peak = (short) Math.max(peak, Math.abs(data.getShort()));
+        }
+        Assertions.assertTrue(peak >= Short.MAX_VALUE - 1);
+    }
+
+    private static void writeStereoPcm16(File file, float[] samples) throws IOException {
+        Files.createDirectories(file.toPath().getParent());
+        WavFile wav = new WavFile(WavFile.FORMAT_PCM, 2, SOURCE_RATE, 16, 44, samples.length);
+        ByteBuffer data = ByteBuffer.allocate(samples.length * wav.getBlockAlign()).order(ByteOrder.LITTLE_ENDIAN);
+        for (float sample : samples) {
+            data.putShort((short) Math.round(sample * 32767)).putShort((short) Math.round(sample * 32767));
+        }
+        data.flip();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            wav.writeHeader(channel, samples.length);
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static models.ExecutionAgent.PYTHON_EXE;
+import static models.ExecutionAgent.SLICER_PY;
+
+/**
+ * Audio Slicer Benchmark
+ * @responsibility Time AudioSlicer against slicer2.py (one process per File, as before) on the same Wave Files,
+ * and check their slices match within tolerance.
+ * @feature Usage: AudioSlicerBenchmark [min_interval] <wav>... (slicer2.py part skipped if PYTHON_EXE is absent)
+ */
+public class AudioSlicerBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int TOLERANCE_HOPS = 2; // RMS frames a slice boundary may differ by (float32 vs double)
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int minInterval = AudioSlicer.MIN_INTERVAL_DEFAULT;
+        List<String> paths = new ArrayList<>(Arrays.asList(args));
+        if (!paths.isEmpty() && paths.get(0).matches("\\d+")) {
+            minInterval = Integer.parseInt(paths.remove(0));
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Usage: AudioSlicerBenchmark [min_interval] <wav>...");
+            return;
+        }
+        List<File> audios = paths.stream().map(File::new).toList();
+        Path tempDir = Files.createTempDirectory("audio-slicer-benchmark");
+
+        try {
+            /* Java */
+            AudioSlicer audioSlicer = new AudioSlicer(minInterval);
+            File javaOutDir = tempDir.resolve("java").toFile();
+            int parallelism = Runtime.getRuntime().availableProcessors();
+            double[] javaTimes = new double[MEASURED_ROUNDS];
+            for (int round = -WARMUP_ROUNDS; round < MEASURED_ROUNDS; round++) {
+                long startTime = System.nanoTime();
+                audioSlicer.sliceAll(audios, javaOutDir, parallelism, (audio, sliceCount) -> {
+                });
+                if (round >= 0) {
+                    javaTimes[round] = (System.nanoTime() - startTime) / 1e6;
+                }
+            }
+            System.out.printf("AudioSlicer (%d threads): %s%n", parallelism, summarize(javaTimes));
+
+            /* Python */
+            if (!PYTHON_EXE.exists() || !SLICER_PY.exists()) {
+                System.out.println("slicer2.py: skipped, " + PYTHON_EXE + " or " + SLICER_PY + " absent");
+                return;
+            }
+            File pythonOutDir = tempDir.resolve("python").toFile();
+            double[] pythonTimes = new double[MEASURED_ROUNDS];
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                long startTime = System.nanoTime();
+                for (File audio : audios) {
+                    Process process = new ProcessBuilder(PYTHON_EXE.getAbsolutePath(), SLICER_PY.getAbsolutePath(),
+                            audio.getPath(), "--out", pythonOutDir.getPath(),
+                            "--min_interval", String.valueOf(minInterval))
+                            .redirectErrorStream(true)
+                            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                            .start();
+                    if (process.waitFor() != 0) {
+                        System.err.println("[ERROR] slicer2.py failed on \"" + audio.getName() + "\"");
+                        return;
+                    }
+                }
+                pythonTimes[round] = (System.nanoTime() - startTime) / 1e6;
+            }
+            System.out.printf("slicer2.py (serial processes): %s%n", summarize(pythonTimes));
+
+            /* Compare */
+            int mismatchCount = 0;
+            for (File audio : audios) {
+                int hop = WavFile.read(audio).getSampleRate() * AudioSlicer.HOP_SIZE_DEFAULT / 1000;
+                List<Long> javaSlices = getSliceLengths(javaOutDir, audio);
+                List<Long> pythonSlices = getSliceLengths(pythonOutDir, audio);
+                boolean matched = javaSlices.size() == pythonSlices.size();
+                for (int i = 0; matched && i < javaSlices.size(); i++) {
+                    matched = Math.abs(javaSlices.get(i) - pythonSlices.get(i)) <= (long) TOLERANCE_HOPS * hop;
+                }
+                if (!matched) {
+                    mismatchCount++;
+                    System.out.println("MISMATCH \"" + audio.getName() + "\": java " + javaSlices + " python " +
+                            pythonSlices + " (frames)");
+                }
+            }
+            System.out.println((audios.size() - mismatchCount) + "/" + audios.size() +
+                    " File(s) sliced the same, within " + TOLERANCE_HOPS + " hops");
+        } finally {
+            try (Stream<Path> tempPaths = Files.walk(tempDir)) {
+                tempPaths.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * @return frame counts of the slices of audio in outDir, in slice order.
+     */
+    private static List<Long> getSliceLengths(File outDir, File audio) throws IOException {
+        String audioName = audio.getName();
+        int extensionIndex = audioName.lastIndexOf('.');
+        String baseName = (extensionIndex < 0) ? audioName : audioName.substring(0, extensionIndex);
+        List<Long> lengths = new ArrayList<>();
+        for (int i = 0; new File(outDir, baseName + "_" + i + ".wav").isFile(); i++) {
+            lengths.add(WavFile.read(new File(outDir, baseName + "_" + i + ".wav")).getFrameCount());
+        }
+        return lengths;
+    }
+
+    private static String summarize(double[] times) {
+        double[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return String.format("min %.1f ms, median %.1f ms, max %.1f ms", sorted[0], sorted[sorted.length / 2],
+                sorted[sorted.length - 1]);
+    }
+}
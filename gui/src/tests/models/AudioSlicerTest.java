@@ -0,0 +1,129 @@
+package models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+class AudioSlicerTest {
+
+    private static final int SAMPLE_RATE = 44100;
+
+    private Path tempDir;
+    private File outDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("audio-slicer-test");
+        outDir = tempDir.resolve("out").toFile();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void wavFileTest() throws IOException {
+        File audio = writeWav("voice.wav", WavFile.FORMAT_PCM, 24, 2, tone(1));
+        WavFile wav = WavFile.read(audio);
+        Assertions.assertEquals(WavFile.FORMAT_PCM, wav.getFormatTag());
+        Assertions.assertEquals(2, wav.getChannels());
+        Assertions.assertEquals(SAMPLE_RATE, wav.getSampleRate());
+        Assertions.assertEquals(6, wav.getBlockAlign());
+        Assertions.assertEquals(44, wav.getDataOffset());
+        Assertions.assertEquals(SAMPLE_RATE, wav.getFrameCount());
+
+        File notWav = tempDir.resolve("voice.mp3").toFile();
+        Files.write(notWav.toPath(), new byte[]{'I', 'D', '3', 4, 0, 0, 0, 0, 0, 0, 0, 0});
+        Assertions.assertThrows(IOException.class, () -> WavFile.read(notWav));
+    }
+
+    @Test
+    void computeChunksTest() throws IOException {
+        float[] samples = concat(tone(6), silence(1), tone(6));
+        AudioSlicer audioSlicer = new AudioSlicer(AudioSlicer.MIN_INTERVAL_DEFAULT);
+
+        // same slices for any format
+        List<long[]> expected = null;
+        for (int[] format : new int[][]{{WavFile.FORMAT_PCM, 16, 1}, {WavFile.FORMAT_PCM, 24, 2},
+                {WavFile.FORMAT_IEEE_FLOAT, 32, 2}}) {
+            File audio = writeWav("voice.wav", format[0], format[1], format[2], samples);
+            List<long[]> chunks = audioSlicer.computeChunks(WavFile.read(audio), audio);
+            Assertions.assertEquals(2, chunks.size());
+            if (expected == null) {
+                expected = chunks;
+            }
+            for (int i = 0; i < chunks.size(); i++) {
+                Assertions.assertArrayEquals(expected.get(i), chunks.get(i));
+            }
+        }
+
+        // cut within the silence, keeping at most max_sil_kept of it around each slice
+        long silenceStart = 6L * SAMPLE_RATE, silenceEnd = 7L * SAMPLE_RATE;
+        long maxSilKept = (long) SAMPLE_RATE * AudioSlicer.MAX_SIL_KEPT_DEFAULT / 1000;
+        long halfWindow = 2L * SAMPLE_RATE * AudioSlicer.HOP_SIZE_DEFAULT / 1000; // RMS frames are centered
+        Assertions.assertEquals(0, expected.get(0)[0]);
+        Assertions.assertTrue(expected.get(0)[1] > silenceStart);
+        Assertions.assertTrue(expected.get(0)[1] <= silenceStart + maxSilKept + halfWindow);
+        Assertions.assertTrue(expected.get(1)[0] < silenceEnd);
+        Assertions.assertTrue(expected.get(1)[0] >= silenceEnd - maxSilKept - halfWindow);
+        Assertions.assertEquals(samples.length, expected.get(1)[1]);
+    }
+
+    @Test
+    void sliceAllTest() throws IOException {
+        File longAudio = writeWav("long.wav", WavFile.FORMAT_PCM, 16, 1, concat(tone(6), silence(1), tone(6)));
+        File shortAudio = writeWav("short.wav", WavFile.FORMAT_PCM, 16, 1, concat(tone(1), silence(1), tone(1)));
+        File notWav = tempDir.resolve("not.wav").toFile();
+        Files.write(notWav.toPath(), new byte[]{1, 2, 3});
+
+        Map<File, Integer> sliceCounts = Collections.synchronizedMap(new HashMap<>());
+        new AudioSlicer(AudioSlicer.MIN_INTERVAL_DEFAULT).sliceAll(List.of(longAudio, shortAudio, notWav), outDir, 2,
+                sliceCounts::put);
+
+        Assertions.assertEquals(Map.of(longAudio, 2, shortAudio, 1, notWav, -1), sliceCounts);
+        // shorter than min_length -> kept whole, byte-for-byte
+        byte[] shortBytes = Files.readAllBytes(shortAudio.toPath());
+        Assertions.assertArrayEquals(shortBytes, Files.readAllBytes(outDir.toPath().resolve("short_0.wav")));
+
+        WavFile firstSlice = WavFile.read(new File(outDir, "long_0.wav"));
+        WavFile secondSlice = WavFile.read(new File(outDir, "long_1.wav"));
+        Assertions.assertEquals(16, firstSlice.getBitsPerSample());
+        Assertions.assertTrue(firstSlice.getFrameCount() > 6L * SAMPLE_RATE);
+        Assertions.assertTrue(secondSlice.getFrameCount() > 6L * SAMPLE_RATE);
+    }
+
+    @Test
+    void invalidParametersTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AudioSlicer(-40, 300, 5000, 10, 500));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AudioSlicer(-40, 5000, 300, 10, 5));
+    }
+
+    private static float[] tone(int seconds) {
+        return WavFixtures.tone(SAMPLE_RATE, seconds, 440);
+    }
+
+    private static float[] silence(int seconds) {
+        return WavFixtures.silence(SAMPLE_RATE, seconds);
+    }
+
+    private static float[] concat(float[]... parts) {
+        return WavFixtures.concat(parts);
+    }
+
+    private File writeWav(String name, int formatTag, int bitsPerSample, int channels, float[] samples)
+            throws IOException {
+        return WavFixtures.writeWav(tempDir.resolve(name).toFile(), formatTag, bitsPerSample, channels, SAMPLE_RATE,
+                samples);
+    }
+}
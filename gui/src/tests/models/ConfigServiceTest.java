@@ -0,0 +1,105 @@
+package models;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class ConfigServiceTest {
+    private static final long WATCH_TIMEOUT = 10_000; // ms
+
+    private Path tempDir;
+    private File trainingConfig;
+    private File trainingConfigLog;
+    private ConfigService configService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("config-service-test");
+        trainingConfig = tempDir.resolve("configs").resolve("config.json").toFile();
+        trainingConfigLog = tempDir.resolve("logs").resolve("44k").resolve("config.json").toFile();
+        writeConfig(trainingConfig, 4);
+        configService = new ConfigService(trainingConfig, trainingConfigLog);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        configService.close();
+        PreprocessManifest.deleteDirectory(tempDir.toFile());
+    }
+
+    private static void writeConfig(File configFile, int batchSize) throws IOException {
+        JSONObject config = new JSONObject();
+        config.put("train", new JSONObject().put("log_interval", 50).put("eval_interval", 200)
+                .put("batch_size", batchSize).put("fp16_run", true).put("half_type", "bf16")
+                .put("keep_ckpts", 1).put("all_in_mem", false));
+        config.put("model", new JSONObject().put("speech_encoder", "vec768l12"));
+        config.put("spk", new JSONObject().put("bob", 1).put("alice", 0));
+        Files.createDirectories(configFile.toPath().getParent());
+        Files.writeString(configFile.toPath(), config.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Wait for the watcher to pick up a change.
+     */
+    private void awaitBatchSize(int batchSize) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + WATCH_TIMEOUT;
+        while (configService.getSnapshot().getBatchSize() != batchSize && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assertions.assertEquals(batchSize, configService.getSnapshot().getBatchSize());
+    }
+
+    @Test
+    void snapshotTest() throws IOException {
+        ConfigService.Snapshot snapshot = configService.getSnapshot();
+        Assertions.assertEquals(trainingConfig.getAbsoluteFile(), snapshot.getSource());
+        Assertions.assertEquals(4, snapshot.getBatchSize());
+        Assertions.assertTrue(snapshot.isFp16Run());
+        Assertions.assertEquals("bf16", snapshot.getHalfType());
+        Assertions.assertEquals("vec768l12", snapshot.getSpeechEncoder());
+        Assertions.assertEquals(List.of("alice", "bob"), snapshot.getSpeakers()); // by speaker id
+
+        // cached until changed, & its JSONObject copies are independent
+        Assertions.assertSame(snapshot, configService.getSnapshot());
+        snapshot.toJsonObject().getJSONObject("train").put("batch_size", 8);
+        Assertions.assertEquals(4, snapshot.toJsonObject().getJSONObject("train").getInt("batch_size"));
+    }
+
+    @Test
+    void writeTrainingConfigTest() throws IOException {
+        JSONObject config = configService.getSnapshot().toJsonObject();
+        config.getJSONObject("train").put("batch_size", 8);
+        configService.writeTrainingConfig(config);
+
+        Assertions.assertEquals(8, configService.getSnapshot().getBatchSize());
+        Assertions.assertEquals(8, ConfigService.read(trainingConfig).getBatchSize());
+        Assertions.assertFalse(new File(trainingConfig.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    void watchTest() throws IOException, InterruptedException {
+        Assertions.assertEquals(4, configService.getSnapshot().getBatchSize());
+
+        // external change
+        writeConfig(trainingConfig, 6);
+        awaitBatchSize(6);
+
+        // log config created (with its directories): preferred
+        writeConfig(trainingConfigLog, 12);
+        awaitBatchSize(12);
+        Assertions.assertEquals(trainingConfigLog.getAbsoluteFile(), configService.getSnapshot().getSource());
+
+        // log config removed: back to the training config
+        Files.delete(trainingConfigLog.toPath());
+        awaitBatchSize(6);
+    }
+}
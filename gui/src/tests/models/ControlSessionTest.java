@@ -0,0 +1,191 @@
+package models;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class ControlSessionTest {
+    private static final long HEARTBEAT_INTERVAL = 50; // ms
+    private static final long HEARTBEAT_TIMEOUT = 500; // ms
+
+    private ServerSocket serverSocket;
+    private ControlSession client;
+    private ControlSession server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        serverSocket = new ServerSocket(0);
+        CompletableFuture<Socket> accepted = CompletableFuture.supplyAsync(() -> {
+            try {
+                return serverSocket.accept();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        client = new ControlSession(new Socket("127.0.0.1", serverSocket.getLocalPort()), true,
+                HEARTBEAT_INTERVAL, HEARTBEAT_TIMEOUT);
+        server = new ControlSession(accepted.get(10, TimeUnit.SECONDS), false,
+                HEARTBEAT_INTERVAL, HEARTBEAT_TIMEOUT);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.close();
+        serverSocket.close();
+    }
+
+    /**
+     * Echo every accepted stream back, reading slowly so flow control kicks in.
+     */
+    private void serveEcho() {
+        Thread echo = new Thread(() -> {
+            try {
+                while (true) {
+                    ControlSession.Stream stream = server.acceptStream();
+                    new Thread(() -> {
+                        try (stream; InputStream in = stream.getInputStream();
+                             OutputStream out = stream.getOutputStream()) {
+                            byte[] buffer = new byte[7919];
+                            int read;
+                            while ((read = in.read(buffer)) != -1) {
+                                out.write(buffer, 0, read);
+                            }
+                        } catch (IOException ignored) {
+                        }
+                    }).start();
+                }
+            } catch (IOException | InterruptedException ignored) { // session closed
+            }
+        });
+        echo.setDaemon(true);
+        echo.start();
+    }
+
+    @Test
+    void multiplexedStreamsTest() throws Exception {
+        serveEcho();
+
+        // several streams at once, each larger than the flow control window
+        int streamCount = 4;
+        byte[][] contents = new byte[streamCount][3 * ControlSession.STREAM_WINDOW + 123];
+        CompletableFuture<?>[] echoes = new CompletableFuture<?>[streamCount];
+        for (int i = 0; i < streamCount; i++) {
+            new Random(i).nextBytes(contents[i]);
+            byte[] content = contents[i];
+            ControlSession.Stream stream = client.openStream(new JSONObject().put("stream", i));
+            CompletableFuture.runAsync(() -> {
+                try (OutputStream out = stream.getOutputStream()) {
+                    out.write(content);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            echoes[i] = CompletableFuture.supplyAsync(() -> {
+                try (stream) {
+                    return stream.getInputStream().readAllBytes();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        for (int i = 0; i < streamCount; i++) {
+            Assertions.assertArrayEquals(contents[i], (byte[]) echoes[i].get(30, TimeUnit.SECONDS));
+        }
+        Assertions.assertFalse(client.isClosed());
+    }
+
+    @Test
+    void headerAndResetTest() throws Exception {
+        ControlSession.Stream stream = client.openStream(new JSONObject().put("INSTRUCTION", "TRAIN"));
+        ControlSession.Stream accepted = server.acceptStream();
+        Assertions.assertEquals("TRAIN", accepted.getHeader().getString("INSTRUCTION"));
+
+        // the receiver gives up: the sender fails, the session stays open
+        stream.close();
+        Assertions.assertThrows(IOException.class, () -> {
+            for (int i = 0; i < 64; i++) {
+                accepted.getOutputStream().write(new byte[ControlSession.MAX_FRAME_PAYLOAD]);
+            }
+        });
+        Assertions.assertFalse(client.isClosed());
+        Assertions.assertFalse(server.isClosed());
+    }
+
+    @Test
+    void windowOverrunTest() throws Exception {
+        try (ServerSocket rawServer = new ServerSocket(0);
+             ControlSession session = new ControlSession(new Socket("127.0.0.1", rawServer.getLocalPort()), true);
+             Socket peer = rawServer.accept()) {
+            // a peer ignoring flow control: a whole window & one more frame, never waiting for WINDOW
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(peer.getOutputStream()));
+            byte[] header = new JSONObject().toString().getBytes(StandardCharsets.UTF_8);
+            writeFrame(out, 2, ControlSession.OPEN, header);
+            for (int sent = 0; sent <= ControlSession.STREAM_WINDOW; sent += ControlSession.MAX_FRAME_PAYLOAD) {
+                writeFrame(out, 2, ControlSession.DATA, new byte[ControlSession.MAX_FRAME_PAYLOAD]);
+            }
+            out.flush();
+
+            // the stream is reset, the session stays open
+            ControlSession.Stream stream = session.acceptStream();
+            DataInputStream in = new DataInputStream(peer.getInputStream());
+            while (true) {
+                int streamId = in.readInt();
+                byte type = in.readByte();
+                in.readFully(new byte[in.readInt()]);
+                if (streamId == 2 && type == ControlSession.RESET) {
+                    break;
+                }
+            }
+            Assertions.assertThrows(IOException.class, () -> stream.getInputStream().readAllBytes());
+            Assertions.assertFalse(session.isClosed());
+        }
+    }
+
+    private static void writeFrame(DataOutputStream out, int streamId, byte type, byte[] payload)
+            throws IOException {
+        out.writeInt(streamId);
+        out.writeByte(type);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    @Test
+    void heartbeatTest() throws Exception {
+        // heartbeats keep an idle session open
+        Thread.sleep(3 * HEARTBEAT_TIMEOUT);
+        Assertions.assertFalse(client.isClosed());
+
+        // a peer gone silent ends the session, & fails its open streams
+        ControlSession.Stream stream = client.openStream(new JSONObject());
+        server.acceptStream();
+        try (ServerSocket silentServer = new ServerSocket(0);
+             Socket silentSocket = new Socket("127.0.0.1", silentServer.getLocalPort())) {
+            Socket silentPeer = silentServer.accept();
+            try {
+                ControlSession silentClient = new ControlSession(silentSocket, true, HEARTBEAT_INTERVAL,
+                        HEARTBEAT_TIMEOUT);
+                Thread.sleep(3 * HEARTBEAT_TIMEOUT);
+                Assertions.assertTrue(silentClient.isClosed());
+                Assertions.assertThrows(IOException.class, () -> silentClient.openStream(new JSONObject()));
+            } finally {
+                silentPeer.close();
+            }
+        }
+
+        server.close();
+        Assertions.assertThrows(IOException.class, () -> stream.getInputStream().read());
+        Assertions.assertTrue(client.isClosed());
+    }
+}
@@ -0,0 +1,98 @@
+package models;
+
+import benchmarks.Benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Execution Agent Benchmark
+ * @responsibility Measure tasks per second through ExecutionAgent scheduling & dispatching, with stub tasks
+ * (in-process JavaJobs exiting at once), and with trivial real processes ("java -version") so process spawning
+ * & reaping are measured too.
+ */
+public abstract class ExecutionAgentBenchmark implements Benchmark {
+    private static final long TIMEOUT = 60; // s
+
+    protected final ExecutionAgent executionAgent = ExecutionAgent.getExecutionAgent();
+
+    @Override
+    public String getScoreUnit() {
+        return "tasks/s";
+    }
+
+    /**
+     * Schedule taskCount tasks, every other one depending on its predecessor, & wait for all of them.
+     * @return taskCount.
+     */
+    protected double runTasks(int taskCount) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(taskCount);
+        ExecutionTask previous = null;
+        for (int i = 0; i < taskCount; i++) {
+            // every other task depends on its predecessor, so the dependency graph is exercised too
+            ExecutionTask dependency = (i % 2 == 1) ? previous : null;
+            previous = scheduleTask((p) -> done.countDown(), dependency);
+        }
+        executionAgent.invokeExecution();
+        if (!done.await(TIMEOUT, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Tasks did not finish in " + TIMEOUT + " s");
+        }
+        return taskCount;
+    }
+
+    /**
+     * Schedule one task of the benchmark.
+     */
+    protected abstract ExecutionTask scheduleTask(Consumer<Process> afterExecution, ExecutionTask dependency);
+
+    /**
+     * In-process stub tasks: scheduling & dispatching alone.
+     */
+    public static class StubTasks extends ExecutionAgentBenchmark {
+        private static final int TASKS_PER_INVOCATION = 100;
+
+        @Override
+        public String getName() {
+            return "models.ExecutionAgentBenchmark.scheduleStubTasks";
+        }
+
+        @Override
+        public double invoke() throws Exception {
+            return runTasks(TASKS_PER_INVOCATION);
+        }
+
+        @Override
+        protected ExecutionTask scheduleTask(Consumer<Process> afterExecution, ExecutionTask dependency) {
+            return executionAgent.scheduleJavaTask("stub", () -> 0, afterExecution, dependency);
+        }
+    }
+
+    /**
+     * Real process tasks: spawning, output draining & reaping included.
+     */
+    public static class ProcessTasks extends ExecutionAgentBenchmark {
+        private static final int TASKS_PER_INVOCATION = 10;
+        private static final List<String> COMMAND = List.of(
+                new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath(),
+                "-version"
+        );
+
+        @Override
+        public String getName() {
+            return "models.ExecutionAgentBenchmark.scheduleProcessTasks";
+        }
+
+        @Override
+        public double invoke() throws Exception {
+            return runTasks(TASKS_PER_INVOCATION);
+        }
+
+        @Override
+        protected ExecutionTask scheduleTask(Consumer<Process> afterExecution, ExecutionTask dependency) {
+            return executionAgent.scheduleTask(COMMAND, null, afterExecution, dependency);
+        }
+    }
+}
@@ -6,7 +6,10 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class ExecutionAgentTest {
     private ExecutionAgent executionAgent;
@@ -62,4 +65,103 @@ class ExecutionAgentTest {
         Assertions.assertTrue(valid2.get());
     }
 
-}
\ No newline at end of file
+    @Test
+    void scheduleTaskDependencyOrderTest() throws InterruptedException {
+        String[] command = {ProcessHandle.current().info().command().orElseThrow(), "-version"};
+        AtomicBoolean dependencyDoneFirst = new AtomicBoolean(false);
+        CountDownLatch done = new CountDownLatch(1);
+
+        ExecutionTask first = executionAgent.scheduleTask(command, null, null);
+        ExecutionTask second = executionAgent.scheduleTask(command, null, (p) -> {
+            dependencyDoneFirst.set(first.isDone());
+            done.countDown();
+        }, first);
+
+        Assertions.assertNotNull(first);
+        Assertions.assertNotNull(second);
+        Assertions.assertEquals(ExecutionTask.State.PENDING, second.getState());
+
+        executionAgent.invokeExecution();
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(dependencyDoneFirst.get());
+    }
+
+    @Test
+    void scheduleJavaTaskTest() throws InterruptedException {
+        String[] command = {ProcessHandle.current().info().command().orElseThrow(), "-version"};
+        AtomicInteger exitCode = new AtomicInteger(-1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        ExecutionTask first = executionAgent.scheduleTask(command, null, null);
+        ExecutionTask javaTask = executionAgent.scheduleJavaTask("JavaTask", () -> first.isDone() ? 7 : 0, (p) -> {
+            exitCode.set(p.exitValue());
+            done.countDown();
+        }, first);
+
+        Assertions.assertEquals("JavaTask", javaTask.getStage());
+        executionAgent.invokeExecution();
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(7, exitCode.get());
+    }
+
+    @Test
+    void afterExecutionBeforeDependentsTest() throws InterruptedException {
+        String[] command = {ProcessHandle.current().info().command().orElseThrow(), "-version"};
+        AtomicBoolean sideEffect = new AtomicBoolean(false);
+        AtomicBoolean sawSideEffect = new AtomicBoolean(false);
+        CountDownLatch done = new CountDownLatch(1);
+
+        // e.g. a manifest committed by the dependency, read by its dependent
+        ExecutionTask dependency = executionAgent.scheduleTask(command, null, (p) -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            sideEffect.set(true);
+        });
+        executionAgent.scheduleJavaTask("Dependent", () -> {
+            sawSideEffect.set(sideEffect.get());
+            return 0;
+        }, (p) -> done.countDown(), dependency);
+        executionAgent.invokeExecution();
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(sawSideEffect.get());
+    }
+
+    @Test
+    void javaTaskErrorTest() throws InterruptedException {
+        AtomicInteger exitCode = new AtomicInteger(-1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        ExecutionTask failing = executionAgent.scheduleJavaTask("ErrorTask", () -> {
+            throw new OutOfMemoryError("simulated");
+        }, (p) -> exitCode.set(p.exitValue()));
+        executionAgent.scheduleJavaTask("Dependent", () -> 0, (p) -> done.countDown(), failing);
+        executionAgent.invokeExecution();
+
+        // the Job still exits (failed), its dependent runs
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(JavaJob.EXIT_CODE_FAILED, exitCode.get());
+    }
+
+    @Test
+    void scheduleTaskEmptyCommandTest() {
+        Assertions.assertNull(executionAgent.scheduleTask(new String[0], null, null));
+    }
+
+    @Test
+    void setMaxConcurrentTasksTest() {
+        int previous = executionAgent.getMaxConcurrentTasks();
+
+        executionAgent.setMaxConcurrentTasks(0);
+        Assertions.assertEquals(1, executionAgent.getMaxConcurrentTasks());
+
+        executionAgent.setMaxConcurrentTasks(previous);
+        Assertions.assertEquals(previous, executionAgent.getMaxConcurrentTasks());
+    }
+
+}
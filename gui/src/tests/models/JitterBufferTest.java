@@ -0,0 +1,72 @@
+package models;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class JitterBufferTest {
+
+    private static final byte[] DATA = new byte[4];
+
+    @Test
+    void fillUpAndUnderrunTest() {
+        JitterBuffer jitterBuffer = new JitterBuffer(3, 10);
+
+        // filling up: silence, not an underrun
+        jitterBuffer.put(0, DATA, 0);
+        jitterBuffer.put(1, DATA, 0);
+        Assertions.assertNull(jitterBuffer.poll());
+        jitterBuffer.put(2, DATA, 0);
+        for (int sequence = 0; sequence < 3; sequence++) {
+            Assertions.assertEquals(sequence, jitterBuffer.poll().getSequence());
+        }
+        Assertions.assertEquals(0, jitterBuffer.getUnderrunCount());
+
+        // ran dry: fills up again before playing
+        Assertions.assertNull(jitterBuffer.poll());
+        Assertions.assertEquals(1, jitterBuffer.getUnderrunCount());
+        jitterBuffer.put(3, DATA, 0);
+        Assertions.assertNull(jitterBuffer.poll());
+        jitterBuffer.put(4, DATA, 0);
+        jitterBuffer.put(5, DATA, 0);
+        Assertions.assertEquals(3, jitterBuffer.poll().getSequence());
+        Assertions.assertEquals(1, jitterBuffer.getUnderrunCount());
+    }
+
+    @Test
+    void reorderAndDropTest() {
+        JitterBuffer jitterBuffer = new JitterBuffer(1, 3);
+
+        jitterBuffer.put(1, DATA, 0);
+        jitterBuffer.put(0, DATA, 0);
+        Assertions.assertEquals(0, jitterBuffer.poll().getSequence());
+        Assertions.assertEquals(1, jitterBuffer.poll().getSequence());
+
+        // late
+        jitterBuffer.put(0, DATA, 0);
+        Assertions.assertEquals(1, jitterBuffer.getDroppedCount());
+
+        // beyond capacity: the oldest is dropped
+        for (int sequence = 2; sequence < 6; sequence++) {
+            jitterBuffer.put(sequence, DATA, 0);
+        }
+        Assertions.assertEquals(2, jitterBuffer.getDroppedCount());
+        Assertions.assertEquals(3, jitterBuffer.getDepth());
+        Assertions.assertEquals(3, jitterBuffer.poll().getSequence());
+    }
+
+    @Test
+    void finishTest() {
+        JitterBuffer jitterBuffer = new JitterBuffer(3, 10);
+        jitterBuffer.put(0, DATA, 42);
+
+        jitterBuffer.finish();
+        Assertions.assertFalse(jitterBuffer.isDrained());
+        JitterBuffer.Frame frame = jitterBuffer.poll();
+        Assertions.assertEquals(0, frame.getSequence());
+        Assertions.assertEquals(42, frame.getCapturedTime());
+
+        Assertions.assertNull(jitterBuffer.poll());
+        Assertions.assertTrue(jitterBuffer.isDrained());
+        Assertions.assertEquals(0, jitterBuffer.getUnderrunCount());
+    }
+}
@@ -0,0 +1,177 @@
+package models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class LiveConversionTest {
+
+    private static final int PIPE_SIZE = 256 * 1024;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("live-conversion-test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tempDir.resolve("voice.wav").toFile().delete();
+        tempDir.toFile().delete();
+    }
+
+    /**
+     * Play a File in real time through an echo "Server": every frame is played back in order, with its latency.
+     */
+    @Test
+    void filePlaybackLoopbackTest() throws IOException {
+        File voice = writeVoice(22050, 1);
+        List<byte[]> converted = Collections.synchronizedList(new ArrayList<>());
+        List<byte[]> played = Collections.synchronizedList(new ArrayList<>());
+        long latencyCountBefore = getLatencyCount();
+
+        LiveConversion conversion = startEchoConversion(voice, converted, new LiveConversion.FrameSink() {
+            @Override
+            public void write(byte[] frame) {
+                played.add(frame);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        long startTime = System.nanoTime();
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), conversion::awaitEnd);
+
+        // played in real time: 1 s of voice
+        Assertions.assertTrue(System.nanoTime() - startTime >= 900_000_000L);
+        int frameCount = (LiveConversion.SAMPLE_RATE + LiveConversion.FRAME_SAMPLES - 1)
+                / LiveConversion.FRAME_SAMPLES;
+        Assertions.assertEquals(frameCount, converted.size());
+
+        // converted frames in order, silence aside
+        List<byte[]> voiced = played.stream().filter((frame) -> !isSilent(frame)).toList();
+        Assertions.assertEquals(converted.size(), voiced.size());
+        for (int i = 0; i < voiced.size(); i++) {
+            Assertions.assertArrayEquals(converted.get(i), voiced.get(i), "frame " + i);
+        }
+        Assertions.assertEquals(frameCount, getLatencyCount() - latencyCountBefore);
+        conversion.close();
+    }
+
+    /**
+     * A sink playing LAG_MILLIS behind what is written: latency counts until a frame is played, not written.
+     */
+    @Test
+    void playbackPositionLatencyTest() throws IOException {
+        final int LAG_MILLIS = 200;
+        File voice = writeVoice(LiveConversion.SAMPLE_RATE, 1);
+        List<byte[]> converted = Collections.synchronizedList(new ArrayList<>());
+        long latencyCountBefore = getLatencyCount();
+
+        LiveConversion conversion = startEchoConversion(voice, converted, new LiveConversion.FrameSink() {
+            private long firstWriteTime;
+            private long writtenSamples;
+
+            @Override
+            public void write(byte[] frame) {
+                if (writtenSamples == 0) {
+                    firstWriteTime = System.nanoTime();
+                }
+                writtenSamples += frame.length / Short.BYTES;
+            }
+
+            @Override
+            public long getPlayedSamples() {
+                long playedMillis = (System.nanoTime() - firstWriteTime) / 1_000_000 - LAG_MILLIS;
+                return (writtenSamples == 0 || playedMillis < 0) ? 0 :
+                        Math.min(writtenSamples, playedMillis * LiveConversion.SAMPLE_RATE / 1000);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), conversion::awaitEnd);
+
+        // every frame observed once played, the last ones included
+        Assertions.assertEquals(converted.size(), getLatencyCount() - latencyCountBefore);
+        Histogram latency = MetricsRegistry.getMetricsRegistry().getHistograms().get(MetricsRegistry.LIVE_LATENCY)
+                .get(LiveConversion.STAGE);
+        Assertions.assertTrue(latency.getMax() >= LAG_MILLIS, "max latency " + latency.getMax());
+        conversion.close();
+    }
+
+    /**
+     * Start converting a File through an echo "Server", returning every frame it receives as is.
+     * @param converted frames the Server received.
+     */
+    private static LiveConversion startEchoConversion(File voice, List<byte[]> converted,
+                                                      LiveConversion.FrameSink sink) throws IOException {
+        // client -> Server -> client
+        PipedInputStream serverIn = new PipedInputStream(PIPE_SIZE);
+        PipedOutputStream clientOut = new PipedOutputStream(serverIn);
+        PipedInputStream clientIn = new PipedInputStream(PIPE_SIZE);
+        PipedOutputStream serverOut = new PipedOutputStream(clientIn);
+        Thread echoServer = new Thread(() -> {
+            try (DataInputStream in = new DataInputStream(serverIn);
+                 DataOutputStream out = new DataOutputStream(serverOut)) {
+                while (true) {
+                    int sequence;
+                    try {
+                        sequence = in.readInt();
+                    } catch (EOFException ex) {
+                        break;
+                    }
+                    byte[] frame = new byte[LiveConversion.FRAME_BYTES];
+                    in.readFully(frame);
+                    converted.add(frame);
+                    out.writeInt(sequence);
+                    out.write(frame);
+                    out.flush();
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, "Echo-Server");
+        echoServer.start();
+
+        LiveConversion conversion = new LiveConversion(LiveConversion.fromFile(voice), sink, clientIn, clientOut,
+                () -> {});
+        conversion.start();
+        return conversion;
+    }
+
+    private static long getLatencyCount() {
+        Histogram latency = MetricsRegistry.getMetricsRegistry().getHistograms()
+                .getOrDefault(MetricsRegistry.LIVE_LATENCY, Collections.emptyMap()).get(LiveConversion.STAGE);
+        return (latency == null) ? 0 : latency.getCount();
+    }
+
+    private static boolean isSilent(byte[] frame) {
+        for (byte b : frame) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write a 16-bit mono tone, resampled to SAMPLE_RATE by the File source.
+     */
+    private File writeVoice(int sampleRate, int seconds) throws IOException {
+        return WavFixtures.writeWav(tempDir.resolve("voice.wav").toFile(), sampleRate,
+                WavFixtures.tone(sampleRate, seconds, 440));
+    }
+}
@@ -0,0 +1,72 @@
+package models;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+class MetricsRegistryTest {
+
+    private MetricsRegistry metricsRegistry;
+
+    @BeforeEach
+    void setUp() {
+        metricsRegistry = MetricsRegistry.getMetricsRegistry();
+        metricsRegistry.reset();
+    }
+
+    @Test
+    void getMetricsRegistrySingletonTest() {
+        Assertions.assertSame(metricsRegistry, MetricsRegistry.getMetricsRegistry());
+    }
+
+    @Test
+    void histogramTest() {
+        for (int value = 1; value <= 100; value++) {
+            metricsRegistry.observe(MetricsRegistry.TASK_WALL, "resample.py", value);
+        }
+        Histogram histogram = metricsRegistry.getHistograms().get(MetricsRegistry.TASK_WALL).get("resample.py");
+
+        Assertions.assertEquals(100, histogram.getCount());
+        Assertions.assertEquals(5050, histogram.getSum());
+        Assertions.assertEquals(1, histogram.getMin());
+        Assertions.assertEquals(100, histogram.getMax());
+        Assertions.assertEquals(50, histogram.quantile(0.5)); // bucket (20, 50]
+        Assertions.assertEquals(100, histogram.quantile(0.95)); // bucket (50, 100]
+    }
+
+    @Test
+    void exportTest() throws Exception {
+        metricsRegistry.observe(MetricsRegistry.TASK_WALL, "train.py", 3);
+        metricsRegistry.observe(MetricsRegistry.TASK_WALL, "train.py", 7000);
+        metricsRegistry.countExit("train.py", 0);
+        metricsRegistry.countExit("train.py", 0);
+
+        JSONObject json = metricsRegistry.toJSON();
+        JSONObject histogram = json.getJSONObject("histograms").getJSONObject(MetricsRegistry.TASK_WALL)
+                .getJSONObject("train.py");
+        Assertions.assertEquals(2, histogram.getLong("count"));
+        Assertions.assertEquals(1, histogram.getJSONObject("buckets").getLong("5"));
+        Assertions.assertEquals(2, json.getJSONObject(MetricsRegistry.TASK_EXIT).getJSONObject("train.py")
+                .getLong("0"));
+
+        String prometheus = metricsRegistry.toPrometheus();
+        Assertions.assertTrue(prometheus.contains("# TYPE svc_task_wall_ms histogram\n"));
+        Assertions.assertTrue(prometheus.contains("svc_task_wall_ms_bucket{stage=\"train.py\",le=\"5\"} 1\n"));
+        Assertions.assertTrue(prometheus.contains("svc_task_wall_ms_bucket{stage=\"train.py\",le=\"+Inf\"} 2\n"));
+        Assertions.assertTrue(prometheus.contains("svc_task_wall_ms_count{stage=\"train.py\"} 2\n"));
+        Assertions.assertTrue(prometheus.contains("svc_task_exit_total{stage=\"train.py\",code=\"0\"} 2\n"));
+
+        File jsonFile = File.createTempFile("metrics", ".json");
+        try {
+            metricsRegistry.exportTo(jsonFile);
+            Assertions.assertEquals(json.toString(), new JSONObject(Files.readString(jsonFile.toPath())).toString());
+        } finally {
+            jsonFile.delete();
+        }
+    }
+
+}
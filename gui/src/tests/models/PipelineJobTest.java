@@ -0,0 +1,125 @@
+package models;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+class PipelineJobTest {
+
+    private static final int SAMPLE_RATE = 44100;
+
+    private Path tempDir;
+    private ByteArrayOutputStream eventBytes;
+    private PrintStream events;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pipeline-job-test");
+        eventBytes = new ByteArrayOutputStream();
+        events = new PrintStream(eventBytes, true, StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void sliceJobTest() throws IOException {
+        writeVoice("voice1.wav");
+        writeVoice("voice2.wav");
+        Files.writeString(tempDir.resolve("job.json"), """
+                {"stages": [{"stage": "slice", "voices": ["voice1.wav", "voice2.wav"], "spk": "alice",
+                             "out_dir": "dataset_raw"}]}
+                """);
+
+        PipelineJob job = PipelineJob.load(tempDir.resolve("job.json").toFile(), events);
+        Assertions.assertTrue(job.run(newPipelineService(job)));
+
+        // slices of both voices, under the speaker
+        File[] slices = tempDir.resolve("dataset_raw").resolve("alice").toFile().listFiles();
+        Assertions.assertNotNull(slices);
+        Assertions.assertEquals(4, slices.length);
+
+        // one JSON event per line, in order
+        List<JSONObject> eventList = readEvents();
+        Assertions.assertEquals(List.of("job_start", "stage_start", "progress", "progress", "progress", "stage_end",
+                "job_end"), eventList.stream().map((event) -> event.getString("event")).toList());
+        JSONObject lastProgress = eventList.get(4);
+        Assertions.assertEquals(PipelineService.STAGE_SLICE, lastProgress.getString("stage"));
+        Assertions.assertEquals(2, lastProgress.getInt("completed"));
+        Assertions.assertEquals(2, lastProgress.getInt("total"));
+        Assertions.assertTrue(eventList.get(5).getBoolean("succeeded"));
+        Assertions.assertTrue(eventList.get(6).getBoolean("succeeded"));
+    }
+
+    @Test
+    void failedStageTest() throws IOException {
+        writeVoice("voice.wav");
+        // nothing sliced into the dataset directory -> preprocess fails, slice is not run
+        JSONObject spec = new JSONObject().put("dataset_raw_dir", "dataset_raw").put("dataset_dir", "dataset")
+                .put("stages", new JSONArray()
+                        .put(new JSONObject().put("stage", "preprocess"))
+                        .put(new JSONObject().put("stage", "slice").put("voices", new JSONArray().put("voice.wav"))));
+
+        PipelineJob job = new PipelineJob(spec, tempDir.toFile(), events);
+        Assertions.assertFalse(job.run(newPipelineService(job)));
+
+        List<JSONObject> eventList = readEvents();
+        Assertions.assertEquals(List.of("job_start", "stage_start", "stage_end", "job_end"),
+                eventList.stream().map((event) -> event.getString("event")).toList());
+        Assertions.assertEquals(PipelineService.STAGE_PREPROCESS, eventList.get(2).getString("stage"));
+        Assertions.assertFalse(eventList.get(2).getBoolean("succeeded"));
+        Assertions.assertFalse(tempDir.resolve("dataset_raw").toFile().exists());
+        Assertions.assertFalse(tempDir.resolve("dataset").toFile().exists());
+    }
+
+    @Test
+    void invalidSpecTest() throws IOException {
+        File base = tempDir.toFile();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PipelineJob(
+                new JSONObject("{\"stages\": [{\"stage\": \"mix\"}]}"), base, events));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PipelineJob(
+                new JSONObject("{\"stages\": [{\"stage\": \"slice\", \"voices\": [\"missing.wav\"]}]}"), base, events));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PipelineJob(
+                new JSONObject("{\"stages\": [{\"stage\": \"infer\", \"vocals\": []}]}"), base, events));
+
+        Files.writeString(tempDir.resolve("broken.json"), "{\"stages\": [");
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> PipelineJob.load(tempDir.resolve("broken.json").toFile(), events));
+        Assertions.assertEquals(0, eventBytes.size());
+    }
+
+    private PipelineService newPipelineService(PipelineJob job) {
+        return new PipelineService(ExecutionAgent.getExecutionAgent(), ConfigService.getConfigService(),
+                new SliceCache(tempDir.resolve("cache").toFile(), 1024 * 1024 * 1024), job::reportProgress);
+    }
+
+    private List<JSONObject> readEvents() {
+        return eventBytes.toString(StandardCharsets.UTF_8).lines().map(JSONObject::new).toList();
+    }
+
+    /**
+     * Write a 16-bit mono voice: 6 s tone, 1 s silence, 6 s tone -> 2 slices.
+     */
+    private void writeVoice(String name) throws IOException {
+        WavFixtures.writeWav(tempDir.resolve(name).toFile(), SAMPLE_RATE,
+                WavFixtures.mute(WavFixtures.tone(SAMPLE_RATE, 13, 440), SAMPLE_RATE, 6, 7));
+    }
+}
@@ -0,0 +1,120 @@
+package models;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class PreprocessManifestTest {
+
+    private Path tempDir;
+    private File rawDir;
+    private File outDir;
+    private File manifestFile;
+    private JSONObject settings;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("preprocess-manifest-test");
+        rawDir = tempDir.resolve("dataset_raw").toFile();
+        outDir = tempDir.resolve("44k").toFile();
+        manifestFile = tempDir.resolve("manifest.json").toFile();
+        settings = new JSONObject().put("encoder", "vec768l12").put("f0_predictor", "rmvpe");
+
+        for (String slice : new String[]{"a_0.wav", "a_1.wav"}) {
+            Files.createDirectories(rawDir.toPath().resolve("spk"));
+            Files.write(rawDir.toPath().resolve("spk").resolve(slice), slice.getBytes());
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        PreprocessManifest.deleteDirectory(tempDir.toFile());
+    }
+
+    /**
+     * Plan, pretend the plan was executed, then commit & save.
+     */
+    private PreprocessManifest.Plan preprocess() throws IOException {
+        PreprocessManifest manifest = PreprocessManifest.load(manifestFile);
+        PreprocessManifest.Plan plan = manifest.plan(rawDir, outDir, settings);
+        for (File resampled : plan.getToFeaturize()) {
+            Files.createDirectories(resampled.toPath().getParent());
+            Files.write(resampled.toPath(), new byte[1]);
+            Files.write(Path.of(resampled.getPath() + ".f0.npy"), new byte[1]);
+        }
+        manifest.commit(plan);
+        manifest.save();
+        return plan;
+    }
+
+    @Test
+    void onlyDirtySlicesTest() throws IOException {
+        Assertions.assertEquals(2, preprocess().getToResample().size());
+        Assertions.assertTrue(preprocess().isEmpty());
+
+        // new slice
+        Files.write(rawDir.toPath().resolve("spk").resolve("a_2.wav"), new byte[]{2});
+        PreprocessManifest.Plan plan = preprocess();
+        Assertions.assertEquals(List.of(new File(rawDir, "spk/a_2.wav")), plan.getToResample());
+        Assertions.assertEquals(List.of(new File(outDir, "spk/a_2.wav")), plan.getToFeaturize());
+
+        // changed content
+        File changed = new File(rawDir, "spk/a_0.wav");
+        Files.write(changed.toPath(), new byte[]{0, 0});
+        Assertions.assertEquals(List.of(changed), preprocess().getToResample());
+
+        // touched only, NOT dirty
+        changed.setLastModified(changed.lastModified() - 10_000);
+        Assertions.assertTrue(preprocess().isEmpty());
+    }
+
+    @Test
+    void settingsChangedTest() throws IOException {
+        preprocess();
+        File feature = new File(outDir, "spk/a_0.wav.f0.npy");
+        Assertions.assertTrue(feature.exists());
+
+        settings.put("f0_predictor", "crepe");
+        PreprocessManifest manifest = PreprocessManifest.load(manifestFile);
+        PreprocessManifest.Plan plan = manifest.plan(rawDir, outDir, settings);
+
+        Assertions.assertTrue(plan.getToResample().isEmpty());
+        Assertions.assertEquals(2, plan.getToFeaturize().size());
+        Assertions.assertFalse(feature.exists()); // stale feature invalidated
+    }
+
+    @Test
+    void removedSliceTest() throws IOException {
+        preprocess();
+        Files.delete(rawDir.toPath().resolve("spk").resolve("a_1.wav"));
+
+        PreprocessManifest.Plan plan = preprocess();
+
+        Assertions.assertEquals(List.of("spk/a_1.wav"), plan.getRemovedKeys());
+        Assertions.assertFalse(new File(outDir, "spk/a_1.wav").exists());
+        Assertions.assertFalse(new File(outDir, "spk/a_1.wav.f0.npy").exists());
+        Assertions.assertTrue(preprocess().isEmpty());
+    }
+
+    @Test
+    void stageResampleInputsTest() throws IOException {
+        PreprocessManifest.Plan plan = PreprocessManifest.load(manifestFile).plan(rawDir, outDir, settings);
+        File stagingDir = tempDir.resolve("staging").toFile();
+
+        plan.stageResampleInputs(stagingDir);
+
+        Assertions.assertArrayEquals("a_0.wav".getBytes(),
+                Files.readAllBytes(stagingDir.toPath().resolve("spk").resolve("a_0.wav")));
+        Assertions.assertArrayEquals("a_1.wav".getBytes(),
+                Files.readAllBytes(stagingDir.toPath().resolve("spk").resolve("a_1.wav")));
+    }
+
+}
@@ -0,0 +1,168 @@
+package models;
+
+import benchmarks.Benchmark;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remote Agent Benchmark
+ * @responsibility Measure RemoteAgent upload & download throughput (MB/s) against loopback stand-in Servers.
+ * @feature The upload stand-in binds the fixed file transfer port 43688 and discards what it receives,
+ * the download stand-in answers every GET_RESULTS with the same result Files from memory.
+ */
+public abstract class RemoteAgentBenchmark implements Benchmark {
+    private static final int FILE_TRANSFER_SERVER_PORT = 43688;
+    private static final int FILE_SIZE = 32 * 1024 * 1024; // bytes
+    private static final int DOWNLOAD_FILE_COUNT = 2;
+    private static final double MEGABYTE = 1024 * 1024;
+
+    protected ServerSocket instructionServer;
+    protected RemoteAgent remoteAgent;
+    protected File tempDir;
+    protected byte[] content;
+
+    @Override
+    public String getScoreUnit() {
+        return "MB/s";
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("remote-agent-benchmark").toFile();
+        content = new byte[FILE_SIZE];
+        new Random(0).nextBytes(content);
+        instructionServer = new ServerSocket(0);
+
+        // stand-in handshake: the features query on the probing connection
+        CompletableFuture<Void> handshake = CompletableFuture.runAsync(() -> {
+            try (Socket socket = instructionServer.accept();
+                 DataInputStream in = new DataInputStream(socket.getInputStream());
+                 PrintStream out = new PrintStream(socket.getOutputStream(), true)) {
+                in.readUTF();
+                out.println(new JSONObject().put("features",
+                        new JSONArray().put(RemoteAgent.FEATURE_BATCH_UPLOAD).put(RemoteAgent.FEATURE_LONG_LENGTHS)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        remoteAgent = new RemoteAgent(new InetSocketAddress("127.0.0.1", instructionServer.getLocalPort()));
+        handshake.get(10, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        remoteAgent.close();
+        instructionServer.close();
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    /**
+     * Accept connections on a stand-in Server until it is closed, serving each in turn.
+     */
+    protected static void serve(ServerSocket server, ConnectionHandler handler) {
+        Thread serverThread = new Thread(() -> {
+            while (!server.isClosed()) {
+                try (Socket socket = server.accept()) {
+                    handler.handle(socket);
+                } catch (IOException ignored) { // closed, or the client gave up
+                }
+            }
+        }, "Stand-in-Server-" + server.getLocalPort());
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    @FunctionalInterface
+    protected interface ConnectionHandler {
+        void handle(Socket socket) throws IOException;
+    }
+
+    /**
+     * Upload: transferFileToServer of one File per invocation.
+     */
+    public static class Upload extends RemoteAgentBenchmark {
+        private ServerSocket fileServer;
+        private File file;
+
+        @Override
+        public String getName() {
+            return "models.RemoteAgentBenchmark.upload";
+        }
+
+        @Override
+        public void setUp() throws Exception {
+            super.setUp();
+            file = new File(tempDir, "voice.wav");
+            Files.write(file.toPath(), content);
+            fileServer = new ServerSocket(FILE_TRANSFER_SERVER_PORT);
+            serve(fileServer, (socket) -> socket.getInputStream().transferTo(OutputStream.nullOutputStream()));
+        }
+
+        @Override
+        public double invoke() throws Exception {
+            remoteAgent.transferFileToServer(FileUsage.TO_INFER, file, null);
+            return file.length() / MEGABYTE;
+        }
+
+        @Override
+        public void tearDown() throws Exception {
+            fileServer.close();
+            super.tearDown();
+        }
+    }
+
+    /**
+     * Download: getResultFiles of DOWNLOAD_FILE_COUNT Files per invocation.
+     */
+    public static class Download extends RemoteAgentBenchmark {
+
+        @Override
+        public String getName() {
+            return "models.RemoteAgentBenchmark.download";
+        }
+
+        @Override
+        public void setUp() throws Exception {
+            super.setUp();
+            serve(instructionServer, (socket) -> {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                in.readUTF();
+                for (int i = 0; i < DOWNLOAD_FILE_COUNT; i++) {
+                    out.writeUTF("result" + i + ".wav");
+                    out.writeLong(content.length);
+                    out.write(content);
+                }
+                out.flush();
+            });
+        }
+
+        @Override
+        public double invoke() throws Exception {
+            // the client prints one line per received File
+            PrintStream systemOut = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                remoteAgent.getResultFiles(tempDir);
+            } finally {
+                System.setOut(systemOut);
+            }
+            return DOWNLOAD_FILE_COUNT * content.length / MEGABYTE;
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package models;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Runs against loopback stand-in servers, the upload one binds the fixed file transfer port 43688.
+ */
+class RemoteAgentTest {
+    private static final int FILE_TRANSFER_SERVER_PORT = 43688;
+
+    private ServerSocket instructionServer;
+    private RemoteAgent remoteAgent;
+    private File tempDir;
+    /* state of the session stand-in Server */
+    private final AtomicInteger sessionConnections = new AtomicInteger();
+    private final List<ControlSession> sessions = new CopyOnWriteArrayList<>();
+    private volatile byte[] received; // content of the last File received
+    private volatile int receivedEncodedLength; // length of the last File received, on the wire
+    private final Map<String, ByteArrayOutputStream> storedFiles = new ConcurrentHashMap<>(); // by hash
+    private final AtomicLong resumableBytesReceived = new AtomicLong();
+    private volatile long dropSessionAfter; // bytes of resumable Files
+    private volatile String rejectResumable; // NOT NULL -> resumable Files are rejected with this error
+    private final AtomicInteger resumableStreams = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        instructionServer = new ServerSocket(0);
+        tempDir = Files.createTempDirectory("remote-agent-test").toFile();
+    }
+
+    /**
+     * Connect remoteAgent to the stand-in Server, which announces the given features.
+     * @param features optional Server features, NULL -> legacy Server which does not understand GET_FEATURES.
+     */
+    private void connect(String... features) throws Exception {
+        CompletableFuture<Void> handshake = CompletableFuture.runAsync(() -> {
+            // answer the features query on the probing connection
+            try (Socket socket = instructionServer.accept();
+                 DataInputStream in = new DataInputStream(socket.getInputStream());
+                 PrintStream out = new PrintStream(socket.getOutputStream(), true)) {
+                in.readUTF();
+                if (features != null) {
+                    out.println(new JSONObject().put("features", new JSONArray(features)));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        remoteAgent = new RemoteAgent(new InetSocketAddress("127.0.0.1", instructionServer.getLocalPort()));
+        handshake.get(10, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (remoteAgent != null) {
+            remoteAgent.close();
+        }
+        instructionServer.close();
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    void transferFileToServerTest() throws Exception {
+        connect();
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(0).nextBytes(content);
+        File file = new File(tempDir, "voice.wav");
+        Files.write(file.toPath(), content);
+
+        try (ServerSocket fileServer = new ServerSocket(FILE_TRANSFER_SERVER_PORT)) {
+            CompletableFuture<Object[]> received = CompletableFuture.supplyAsync(() -> {
+                try (Socket socket = fileServer.accept();
+                     DataInputStream in = new DataInputStream(socket.getInputStream())) {
+                    return new Object[]{in.readUTF(), in.readUTF(), in.readAllBytes()};
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            remoteAgent.transferFileToServer(FileUsage.TO_INFER, file, null);
+
+            Object[] upload = received.get(10, TimeUnit.SECONDS);
+            Assertions.assertEquals(FileUsage.TO_INFER.name(), upload[0]);
+            Assertions.assertEquals(file.getName(), upload[1]);
+            Assertions.assertArrayEquals(content, (byte[]) upload[2]);
+        }
+    }
+
+    @Test
+    void getResultFilesTest() throws Exception {
+        connect(RemoteAgent.FEATURE_LONG_LENGTHS);
+        byte[] first = new byte[2 * 1024 * 1024 + 5];
+        byte[] second = new byte[0];
+        new Random(1).nextBytes(first);
+
+        CompletableFuture<String> instruction = CompletableFuture.supplyAsync(() -> {
+            try (Socket socket = instructionServer.accept();
+                 DataInputStream in = new DataInputStream(socket.getInputStream());
+                 DataOutputStream out = new DataOutputStream(socket.getOutputStream())) {
+                String received = in.readUTF();
+                out.writeUTF("first.wav");
+                out.writeLong(first.length);
+                out.write(first);
+                out.writeUTF("..\\..\\second.wav"); // must not leave the result directory
+                out.writeLong(second.length);
+                out.flush();
+                return received;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        remoteAgent.getResultFiles(tempDir);
+
+        JSONObject sent = new JSONObject(instruction.get(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(InstructionType.GET_RESULTS.name(), sent.getString("INSTRUCTION"));
+        Assertions.assertEquals(Long.BYTES, sent.getInt("length_bytes"));
+        Assertions.assertArrayEquals(first, Files.readAllBytes(new File(tempDir, "first.wav").toPath()));
+        Assertions.assertEquals(1, Objects.requireNonNull(tempDir.listFiles((dir, name) ->
+                name.endsWith("second.wav"))).length);
+        Assertions.assertEquals(0, Objects.requireNonNull(tempDir.listFiles((dir, name) ->
+                name.endsWith(".part"))).length);
+    }
+
+    @Test
+    void getResultFilesLegacyTest() throws Exception {
+        connect();
+        byte[] content = new byte[64 * 1024 + 3];
+        new Random(2).nextBytes(content);
+
+        CompletableFuture<String> instruction = CompletableFuture.supplyAsync(() -> {
+            try (Socket socket = instructionServer.accept();
+                 DataInputStream in = new DataInputStream(socket.getInputStream());
+                 DataOutputStream out = new DataOutputStream(socket.getOutputStream())) {
+                String received = in.readUTF();
+                out.writeUTF("legacy.wav");
+                out.writeInt(content.length); // deployed Servers send 32-bit lengths
+                out.write(content);
+                out.flush();
+                return received;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        remoteAgent.getResultFiles(tempDir);
+
+        Assertions.assertFalse(new JSONObject(instruction.get(10, TimeUnit.SECONDS)).has("length_bytes"));
+        Assertions.assertArrayEquals(content, Files.readAllBytes(new File(tempDir, "legacy.wav").toPath()));
+    }
+
+    @Test
+    void getResultFilesTruncatedTest() throws Exception {
+        connect(RemoteAgent.FEATURE_LONG_LENGTHS);
+        CompletableFuture.runAsync(() -> {
+            try (Socket socket = instructionServer.accept();
+                 DataInputStream in = new DataInputStream(socket.getInputStream());
+                 DataOutputStream out = new DataOutputStream(socket.getOutputStream())) {
+                in.readUTF();
+                out.writeUTF("truncated.wav");
+                out.writeLong(1024);
+                out.write(new byte[100]);
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        Assertions.assertThrows(EOFException.class, () -> remoteAgent.getResultFiles(tempDir));
+        Assertions.assertEquals(0, Objects.requireNonNull(tempDir.listFiles()).length);
+    }
+
+    @Test
+    void getResultFilesBrokenReplyTest() throws Exception {
+        connect(RemoteAgent.FEATURE_LONG_LENGTHS);
+
+        // ends within the name of the second File: not a File boundary
+        CompletableFuture.runAsync(() -> {
+            try (Socket socket = instructionServer.accept();
+                 DataInputStream in = new DataInputStream(socket.getInputStream());
+                 DataOutputStream out = new DataOutputStream(socket.getOutputStream())) {
+                in.readUTF();
+                out.writeUTF("complete.wav");
+                out.writeLong(4);
+                out.write(new byte[]{1, 2, 3, 4});
+                out.writeShort("second.wav".length());
+                out.writeBytes("sec");
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Assertions.assertThrows(EOFException.class, () -> remoteAgent.getResultFiles(tempDir));
+        Assertions.assertTrue(new File(tempDir, "complete.wav").isFile());
+
+        // connection reset between Files
+        CompletableFuture.runAsync(() -> {
+            try (Socket socket = instructionServer.accept()) {
+                new DataInputStream(socket.getInputStream()).readUTF();
+                socket.setSoLinger(true, 0); // RST on close
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Assertions.assertThrows(IOException.class, () -> remoteAgent.getResultFiles(tempDir));
+    }
+
+    @Test
+    void connectLegacyServerTest() throws Exception {
+        connect((String[]) null);
+
+        Assertions.assertFalse(remoteAgent.supportsFeature(RemoteAgent.FEATURE_BATCH_UPLOAD));
+    }
+
+    @Test
+    void connectSilentServerTest() throws Exception {
+        // a legacy Server reading GET_FEATURES without ever replying
+        CompletableFuture<Void> silentServer = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 2; i++) {
+                try (Socket socket = instructionServer.accept()) {
+                    socket.getInputStream().readAllBytes(); // until the client closes
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", instructionServer.getLocalPort());
+        RemoteAgent firstAgent = new RemoteAgent(address); // the query times out
+        firstAgent.close();
+        Assertions.assertFalse(firstAgent.supportsFeature(RemoteAgent.FEATURE_BATCH_UPLOAD));
+
+        // not asked again: no stall
+        long startTime = System.nanoTime();
+        remoteAgent = new RemoteAgent(address);
+        Assertions.assertTrue(System.nanoTime() - startTime < 1_000_000_000L);
+        Assertions.assertFalse(remoteAgent.supportsFeature(RemoteAgent.FEATURE_BATCH_UPLOAD));
+        silentServer.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void transferFilesToServerBatchTest() throws Exception {
+        connect(RemoteAgent.FEATURE_BATCH_UPLOAD);
+        Assertions.assertTrue(remoteAgent.supportsFeature(RemoteAgent.FEATURE_BATCH_UPLOAD));
+
+        File[] files = new File[3];
+        byte[][] contents = new byte[files.length][];
+        Random random = new Random(2);
+        for (int i = 0; i < files.length; i++) {
+            contents[i] = new byte[random.nextInt(1024 * 1024)];
+            random.nextBytes(contents[i]);
+            files[i] = new File(tempDir, "vocal" + i + ".wav");
+            Files.write(files[i].toPath(), contents[i]);
+        }
+
+        try (ServerSocket fileServer = new ServerSocket(FILE_TRANSFER_SERVER_PORT)) {
+            CompletableFuture<Integer> receivedConnections = CompletableFuture.supplyAsync(() -> {
+                try (Socket socket = fileServer.accept();
+                     DataInputStream in = new DataInputStream(socket.getInputStream())) {
+                    Assertions.assertEquals("BATCH", in.readUTF());
+                    for (int i = 0; i < files.length; i++) {
+                        Assertions.assertEquals(FileUsage.TO_SLICE.name(), in.readUTF());
+                        Assertions.assertEquals(files[i].getName(), in.readUTF());
+                        byte[] content = new byte[(int) in.readLong()];
+                        in.readFully(content);
+                        Assertions.assertArrayEquals(contents[i], content);
+                    }
+                    Assertions.assertEquals("END", in.readUTF());
+                    Assertions.assertEquals(-1, in.read());
+                    return 1;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            remoteAgent.transferFilesToServer(FileUsage.TO_SLICE, files, null, null);
+
+            Assertions.assertEquals(1, receivedConnections.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Serve ControlSessions on instructionServer, until it is closed.
+     * Streams: Instructions -> one line echoing the INSTRUCTION, GET_CONF -> the config asked for,
+     * GET_RESULTS -> the last File received as "result.wav", CHANNEL FILE -> content kept in received.
+     * @param features Server features besides FEATURE_SESSION.
+     */
+    private void serveSessions(String... features) {
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    Socket socket = instructionServer.accept();
+                    sessionConnections.incrementAndGet();
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    in.readUTF(); // GET_FEATURES
+                    socket.getOutputStream().write((new JSONObject().put("features",
+                            new JSONArray(features).put(RemoteAgent.FEATURE_SESSION)) + "\n").getBytes());
+                    in.readUTF(); // SESSION
+                    ControlSession session = new ControlSession(socket, false);
+                    sessions.add(session);
+                    new Thread(() -> serveStreams(session)).start();
+                }
+            } catch (IOException ignored) { // instructionServer closed
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void serveStreams(ControlSession session) {
+        try {
+            while (true) {
+                ControlSession.Stream stream = session.acceptStream();
+                try (stream; InputStream in = stream.getInputStream()) {
+                    JSONObject header = stream.getHeader();
+                    boolean deflate = TransferCodec.DEFLATE.equals(header.optString("encoding"));
+                    if (header.has("sha256")) {
+                        serveResumableFile(session, stream, deflate ? new InflaterInputStream(in) : in);
+                        continue;
+                    }
+                    byte[] content = in.readAllBytes();
+                    if (header.has("CHANNEL")) {
+                        receivedEncodedLength = content.length;
+                        received = deflate ? new InflaterInputStream(new ByteArrayInputStream(content)).readAllBytes()
+                                : content;
+                        stream.getOutputStream().close();
+                        continue;
+                    }
+                    OutputStream replyStream = deflate ? new DeflaterOutputStream(stream.getOutputStream())
+                            : stream.getOutputStream();
+                    try (DataOutputStream out = new DataOutputStream(replyStream)) {
+                        String instructionType = header.getString("INSTRUCTION");
+                        if (instructionType.equals(InstructionType.GET_CONF.name())) {
+                            out.write((new JSONObject().put("config", header.getString("config")) + "\n").getBytes());
+                        } else if (instructionType.equals(InstructionType.GET_RESULTS.name())) {
+                            out.writeUTF("result.wav");
+                            if (header.has("length_bytes")) {
+                                out.writeLong(received.length);
+                            } else {
+                                out.writeInt(received.length);
+                            }
+                            out.write(received);
+                        } else {
+                            out.write(("[INFO] " + instructionType + " done\n").getBytes());
+                        }
+                    }
+                }
+            }
+        } catch (IOException | InterruptedException ignored) { // session closed
+        }
+    }
+
+    /**
+     * Store a resumable File by its hash, the session is dropped once dropSessionAfter bytes are received (if > 0).
+     */
+    private void serveResumableFile(ControlSession session, ControlSession.Stream stream, InputStream in)
+            throws IOException {
+        JSONObject header = stream.getHeader();
+        resumableStreams.incrementAndGet();
+        if (rejectResumable != null) {
+            stream.getOutputStream().write((new JSONObject().put("error", rejectResumable) + "\n").getBytes());
+            return;
+        }
+        long length = header.getLong("length");
+        ByteArrayOutputStream stored = storedFiles.computeIfAbsent(header.getString("sha256"),
+                (hash) -> new ByteArrayOutputStream());
+        PrintStream replies = new PrintStream(stream.getOutputStream(), true);
+        replies.println(new JSONObject().put("offset", stored.size()));
+        if (stored.size() == length) { // nothing to be sent
+            stream.getInputStream().readAllBytes();
+            return;
+        }
+
+        DataInputStream chunks = new DataInputStream(in);
+        CRC32C checksum = new CRC32C();
+        while (stored.size() < length) {
+            Assertions.assertEquals(stored.size(), chunks.readLong());
+            byte[] chunk = new byte[chunks.readInt()];
+            chunks.readFully(chunk);
+            checksum.reset();
+            checksum.update(chunk);
+            Assertions.assertEquals((int) checksum.getValue(), chunks.readInt());
+            stored.write(chunk);
+            resumableBytesReceived.addAndGet(chunk.length);
+            if (dropSessionAfter > 0 && resumableBytesReceived.get() >= dropSessionAfter) {
+                dropSessionAfter = 0;
+                session.close();
+                return;
+            }
+        }
+        in.readAllBytes(); // till the client closes
+        received = stored.toByteArray();
+        replies.println(new JSONObject().put("offset", stored.size()));
+    }
+
+    @Test
+    void sessionTest() throws Exception {
+        serveSessions();
+        remoteAgent = new RemoteAgent(new InetSocketAddress("127.0.0.1", instructionServer.getLocalPort()));
+        Assertions.assertTrue(remoteAgent.supportsFeature(RemoteAgent.FEATURE_SESSION));
+
+        // instructions, config & Files all through the one connection
+        byte[] content = new byte[3 * ControlSession.STREAM_WINDOW + 17];
+        new Random(3).nextBytes(content);
+        File file = new File(tempDir, "voice.wav");
+        Files.write(file.toPath(), content);
+
+        remoteAgent.executeInstructionOnServer(new JSONObject().put("INSTRUCTION", InstructionType.CLEAR.name()));
+        Assertions.assertEquals("train", remoteAgent.getTrainConfig().getString("config"));
+        remoteAgent.transferFilesToServer(FileUsage.TO_SLICE, new File[]{file}, null, null);
+        Assertions.assertArrayEquals(content, received);
+        Assertions.assertEquals(content.length, receivedEncodedLength);
+        Assertions.assertEquals(1, sessionConnections.get());
+
+        // the Server drops the session: re-established transparently
+        sessions.get(0).close();
+        Assertions.assertEquals("train", remoteAgent.getTrainConfig().getString("config"));
+        Assertions.assertEquals(2, sessionConnections.get());
+    }
+
+    @Test
+    void sessionCompressionTest() throws Exception {
+        serveSessions(RemoteAgent.FEATURE_DEFLATE);
+        remoteAgent = new RemoteAgent(new InetSocketAddress("127.0.0.1", instructionServer.getLocalPort()));
+
+        // a recorded tone: its noise floor does not deflate, sent as is
+        byte[] noisy = recordedTone(4 * ControlSession.STREAM_WINDOW);
+        File noisyFile = new File(tempDir, "noisy.wav");
+        Files.write(noisyFile.toPath(), noisy);
+
+        remoteAgent.transferFileToServer(FileUsage.TO_INFER, noisyFile, null);
+        Assertions.assertArrayEquals(noisy, received);
+        Assertions.assertEquals(noisy.length, receivedEncodedLength);
+
+        // the same, gated to digital silence half of the time: compressed
+        byte[] content = noisy.clone();
+        for (int off = 0; off < content.length; off += 64 * 1024) {
+            Arrays.fill(content, off + 32 * 1024, off + 64 * 1024, (byte) 0);
+        }
+        File file = new File(tempDir, "voice.wav");
+        Files.write(file.toPath(), content);
+
+        remoteAgent.transferFileToServer(FileUsage.TO_INFER, file, null);
+        Assertions.assertArrayEquals(content, received);
+        Assertions.assertTrue(receivedEncodedLength < content.length * TransferCodec.WORTHWHILE_PERCENTAGE / 100);
+
+        // results come back deflated, & are stored raw
+        remoteAgent.getResultFiles(tempDir);
+        Assertions.assertArrayEquals(content, Files.readAllBytes(new File(tempDir, "result.wav").toPath()));
+
+        // disabled: sent as is
+        remoteAgent.setCompressionEnabled(false);
+        remoteAgent.transferFileToServer(FileUsage.TO_INFER, file, null);
+        Assertions.assertArrayEquals(content, received);
+        Assertions.assertEquals(content.length, receivedEncodedLength);
+    }
+
+    /**
+     * 16-bit PCM of a 440 Hz tone at 44100 Hz, with a recording's noise floor.
+     */
+    private static byte[] recordedTone(int length) {
+        Random noise = new Random(5);
+        byte[] content = new byte[length];
+        for (int i = 0; i < length / 2; i++) {
+            short sample = (short) Math.round(8000 * Math.sin(i * 2 * Math.PI * 440 / 44100)
+                    + 50 * noise.nextGaussian());
+            content[2 * i] = (byte) sample;
+            content[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return content;
+    }
+
+    @Test
+    void resumableUploadTest() throws Exception {
+        serveSessions(RemoteAgent.FEATURE_RESUMABLE_UPLOAD, RemoteAgent.FEATURE_DEFLATE);
+        remoteAgent = new RemoteAgent(new InetSocketAddress("127.0.0.1", instructionServer.getLocalPort()));
+
+        byte[] content = new byte[5 * 1024 * 1024 + 7];
+        new Random(4).nextBytes(content);
+        File file = new File(tempDir, "voice.wav");
+        Files.write(file.toPath(), content);
+
+        // the session drops halfway: resumed from the offset the Server holds
+        dropSessionAfter = content.length / 2;
+        remoteAgent.transferFilesToServer(FileUsage.TO_SLICE, new File[]{file}, null, null);
+        Assertions.assertArrayEquals(content, received);
+        Assertions.assertEquals(content.length, resumableBytesReceived.get());
+        Assertions.assertEquals(2, sessionConnections.get());
+
+        // already on the Server, under any name: skipped
+        File copy = new File(tempDir, "copy.wav");
+        Files.write(copy.toPath(), content);
+        remoteAgent.transferFilesToServer(FileUsage.TO_SLICE, new File[]{file, copy}, null, null);
+        Assertions.assertEquals(content.length, resumableBytesReceived.get());
+
+        // changed in place: hashed again, sent again
+        byte[] changed = Arrays.copyOf(content, content.length - 1);
+        Files.write(file.toPath(), changed);
+        file.setLastModified(file.lastModified() + 2000);
+        remoteAgent.transferFileToServer(FileUsage.TO_SLICE, file, null);
+        Assertions.assertArrayEquals(changed, received);
+    }
+
+    @Test
+    void resumableUploadRejectedTest() throws Exception {
+        serveSessions(RemoteAgent.FEATURE_RESUMABLE_UPLOAD);
+        remoteAgent = new RemoteAgent(new InetSocketAddress("127.0.0.1", instructionServer.getLocalPort()));
+        File file = new File(tempDir, "voice.wav");
+        Files.write(file.toPath(), new byte[1024]);
+
+        // a rejection is not resumed
+        rejectResumable = "disk full";
+        IOException rejection = Assertions.assertThrows(IOException.class,
+                () -> remoteAgent.transferFileToServer(FileUsage.TO_SLICE, file, null));
+        Assertions.assertTrue(rejection.getMessage().contains("disk full"));
+        Assertions.assertEquals(1, resumableStreams.get());
+        Assertions.assertEquals(1, sessionConnections.get());
+    }
+
+}
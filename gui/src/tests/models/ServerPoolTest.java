@@ -0,0 +1,191 @@
+package models;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ServerPoolTest {
+    private static final int SERVER_COUNT = 3;
+
+    private final List<ServerSocket> servers = new ArrayList<>();
+    private final List<RemoteAgent> agents = new ArrayList<>();
+    private File tempDir;
+    private File[] files;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("server-pool-test").toFile();
+        files = new File[20];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = new File(tempDir, "vocal" + i + ".wav");
+            Files.write(files[i].toPath(), new byte[1024 * (i + 1)]);
+        }
+    }
+
+    /**
+     * Start SERVER_COUNT stand-in Servers, only probed & told to ABORT.
+     * @param features optional Server features, NONE -> legacy Servers.
+     */
+    private void startServers(String... features) throws IOException {
+        for (int i = 0; i < SERVER_COUNT; i++) {
+            ServerSocket server = new ServerSocket(0);
+            servers.add(server);
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        try (Socket socket = server.accept()) {
+                            String instruction = new DataInputStream(socket.getInputStream()).readUTF();
+                            if (features.length > 0 && instruction.contains(InstructionType.GET_FEATURES.name())) {
+                                socket.getOutputStream().write((new JSONObject().put("features",
+                                        new JSONArray(features)) + "\n").getBytes());
+                            }
+                        }
+                    }
+                } catch (IOException ignored) { // closed
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            agents.add(new RemoteAgent(new InetSocketAddress("127.0.0.1", server.getLocalPort())));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (ServerSocket server : servers) {
+            server.close();
+        }
+        for (File file : files) {
+            file.delete();
+        }
+        tempDir.delete();
+    }
+
+    @Test
+    void inferBatchTest() throws Exception {
+        startServers();
+        Map<File, Integer> inferredTimes = new ConcurrentHashMap<>();
+        Map<RemoteAgent, AtomicInteger> running = new ConcurrentHashMap<>();
+        Set<RemoteAgent> used = ConcurrentHashMap.newKeySet();
+        try (ServerPool pool = new ServerPool(agents, (agent, jobFiles, instruction, resultDir) -> {
+            AtomicInteger jobs = running.computeIfAbsent(agent, (a) -> new AtomicInteger());
+            Assertions.assertEquals(1, jobs.incrementAndGet()); // one job per Server at a time
+            used.add(agent);
+            Thread.sleep(20);
+            jobFiles.forEach((file) -> inferredTimes.merge(file, 1, Integer::sum));
+            jobs.decrementAndGet();
+        })) {
+            Assertions.assertTrue(pool.inferBatch(files, new JSONObject(), tempDir, null));
+        }
+
+        Assertions.assertEquals(files.length, inferredTimes.size());
+        inferredTimes.values().forEach((times) -> Assertions.assertEquals(1, times));
+        Assertions.assertEquals(SERVER_COUNT, used.size());
+    }
+
+    @Test
+    void namedInferQueueTest() throws Exception {
+        startServers(RemoteAgent.FEATURE_NAMED_INFER);
+        Map<RemoteAgent, AtomicInteger> running = new ConcurrentHashMap<>();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try (ServerPool pool = new ServerPool(agents, (agent, jobFiles, instruction, resultDir) -> {
+            AtomicInteger jobs = running.computeIfAbsent(agent, (a) -> new AtomicInteger());
+            maxRunning.accumulateAndGet(jobs.incrementAndGet(), Math::max);
+            Thread.sleep(200);
+            jobs.decrementAndGet();
+        })) {
+            Assertions.assertTrue(pool.inferBatch(files, new JSONObject(), tempDir, null));
+        }
+
+        // every job of the batch queued at once, 2 per Server
+        Assertions.assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    void abortTest() throws Exception {
+        startServers();
+        CountDownLatch started = new CountDownLatch(SERVER_COUNT);
+        CountDownLatch abortedByServer = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        try (ServerPool pool = new ServerPool(agents, (agent, jobFiles, instruction, resultDir) -> {
+            attempts.incrementAndGet();
+            started.countDown();
+            abortedByServer.await();
+            throw new IOException("Inference Aborted by Server");
+        })) {
+            Thread aborter = new Thread(() -> {
+                try {
+                    started.await();
+                } catch (InterruptedException ignored) {
+                }
+                pool.abort();
+                abortedByServer.countDown();
+            });
+            aborter.start();
+
+            // the aborted jobs are neither retried nor reported as done
+            Assertions.assertFalse(pool.inferBatch(files, new JSONObject(), tempDir, null));
+            aborter.join();
+        }
+        Assertions.assertEquals(SERVER_COUNT, attempts.get());
+    }
+
+    @Test
+    void failoverTest() throws Exception {
+        startServers();
+        RemoteAgent failing = agents.get(0);
+        AtomicInteger failingAttempts = new AtomicInteger();
+        Map<File, Integer> inferredTimes = new ConcurrentHashMap<>();
+        try (ServerPool pool = new ServerPool(agents, (agent, jobFiles, instruction, resultDir) -> {
+            if (agent == failing) {
+                failingAttempts.incrementAndGet();
+                throw new IOException("Connection reset");
+            }
+            jobFiles.forEach((file) -> inferredTimes.merge(file, 1, Integer::sum));
+        })) {
+            pool.inferBatch(files, new JSONObject(), tempDir, null);
+        }
+
+        // every File inferred once elsewhere, the failed Server took no more jobs
+        Assertions.assertEquals(files.length, inferredTimes.size());
+        inferredTimes.values().forEach((times) -> Assertions.assertEquals(1, times));
+        Assertions.assertEquals(1, failingAttempts.get());
+    }
+
+    @Test
+    void allFailedTest() throws IOException {
+        startServers();
+        try (ServerPool pool = new ServerPool(agents, (agent, jobFiles, instruction, resultDir) -> {
+            throw new IOException("Connection reset");
+        })) {
+            Assertions.assertThrows(IOException.class,
+                    () -> pool.inferBatch(files, new JSONObject(), tempDir, null));
+        }
+    }
+
+    @Test
+    void readGpuUtilizationTest() throws IOException {
+        String samples = """
+                0, NVIDIA GeForce RTX 3090, 80, 20000, 24576, 70, 300.5
+                1, NVIDIA GeForce RTX 3090, 40, 10000, 24576, 60, 200.1
+                nvidia-smi warning
+                0, NVIDIA GeForce RTX 3090, 0, 0, 24576, 40, 30.0
+                """;
+        Assertions.assertEquals(60, ServerPool.readGpuUtilization(new BufferedReader(new StringReader(samples))),
+                1e-9);
+        Assertions.assertTrue(Double.isNaN(ServerPool.readGpuUtilization(new BufferedReader(new StringReader("")))));
+    }
+}
@@ -0,0 +1,84 @@
+package models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class ShardPlannerTest {
+    private static final int SAMPLE_RATE = 44100;
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("shard-planner-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        PreprocessManifest.deleteDirectory(tempDir.toFile());
+    }
+
+    /**
+     * Write a silent mono PCM16 wav File.
+     */
+    private File writeWav(String name, double seconds) throws IOException {
+        return WavFixtures.writeWav(tempDir.resolve(name).toFile(), SAMPLE_RATE,
+                WavFixtures.silence(SAMPLE_RATE, seconds));
+    }
+
+    private static double sum(List<File> shard, File[] files, double[] seconds) {
+        double total = 0;
+        for (int i = 0; i < files.length; i++) {
+            if (shard.contains(files[i])) {
+                total += seconds[i];
+            }
+        }
+        return total;
+    }
+
+    @Test
+    void shardByDurationTest() throws IOException {
+        double[] seconds = {1, 7, 2, 3, 4, 3};
+        File[] files = new File[seconds.length];
+        for (int i = 0; i < seconds.length; i++) {
+            files[i] = writeWav(i + ".wav", seconds[i]);
+        }
+
+        List<List<File>> shards = ShardPlanner.shardByDuration(files, 2);
+        Assertions.assertEquals(2, shards.size());
+        Assertions.assertEquals(10, sum(shards.get(0), files, seconds), 1e-3);
+        Assertions.assertEquals(10, sum(shards.get(1), files, seconds), 1e-3);
+        // every File exactly once, in the original order within a shard
+        Assertions.assertEquals(files.length, shards.get(0).size() + shards.get(1).size());
+        Assertions.assertEquals(List.of(files[1], files[5]), shards.get(0));
+        Assertions.assertEquals(List.of(files[0], files[2], files[3], files[4]), shards.get(1));
+    }
+
+    @Test
+    void fewerFilesThanShardsTest() throws IOException {
+        File[] files = {writeWav("a.wav", 1), writeWav("b.wav", 2)};
+        List<List<File>> shards = ShardPlanner.shardByDuration(files, 4);
+        Assertions.assertEquals(2, shards.size());
+        Assertions.assertTrue(shards.stream().noneMatch(List::isEmpty));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ShardPlanner.shardByDuration(files, 0));
+    }
+
+    @Test
+    void unreadableWavTest() throws IOException {
+        File notWav = tempDir.resolve("c.wav").toFile();
+        Files.write(notWav.toPath(), new byte[SAMPLE_RATE * 4]); // by size: same as 2 s of mono PCM16
+        File[] files = {writeWav("a.wav", 1), writeWav("b.wav", 1), notWav};
+
+        List<List<File>> shards = ShardPlanner.shardByDuration(files, 2);
+        Assertions.assertEquals(List.of(notWav), shards.get(0));
+        Assertions.assertEquals(List.of(files[0], files[1]), shards.get(1));
+    }
+}
@@ -0,0 +1,88 @@
+package models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+class SliceCacheTest {
+
+    private Path tempDir;
+    private File cacheDir;
+    private File outDir;
+    private File audio;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("slice-cache-test");
+        cacheDir = tempDir.resolve("cache").toFile();
+        outDir = tempDir.resolve("out").toFile();
+        audio = tempDir.resolve("voice.wav").toFile();
+        Files.write(audio.toPath(), new byte[]{1, 2, 3});
+        Files.createDirectories(outDir.toPath());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void computeKeyTest() throws IOException {
+        SliceCache sliceCache = new SliceCache(cacheDir, Long.MAX_VALUE);
+        File copy = tempDir.resolve("copy.wav").toFile();
+        Files.copy(audio.toPath(), copy.toPath());
+
+        String key = sliceCache.computeKey(audio, "min_interval=100");
+        Assertions.assertEquals(key, sliceCache.computeKey(copy, "min_interval=100"));
+        Assertions.assertNotEquals(key, sliceCache.computeKey(audio, "min_interval=300"));
+
+        Files.write(copy.toPath(), new byte[]{1, 2, 4});
+        Assertions.assertNotEquals(key, sliceCache.computeKey(copy, "min_interval=100"));
+    }
+
+    @Test
+    void storeRestoreTest() throws IOException {
+        SliceCache sliceCache = new SliceCache(cacheDir, Long.MAX_VALUE);
+        String key = sliceCache.computeKey(audio);
+        File first = Files.write(outDir.toPath().resolve("voice_0.wav"), new byte[]{10}).toFile();
+        File second = Files.write(outDir.toPath().resolve("voice_1.wav"), new byte[]{11}).toFile();
+        Files.write(outDir.toPath().resolve("voice_2.wav"), new byte[]{12}); // stale, of a previous slicing
+
+        Assertions.assertEquals(-1, sliceCache.restore(key, audio, outDir));
+        Assertions.assertEquals(2, sliceCache.store(key, List.of(first, second)));
+
+        // restore under another name, into a new dir
+        File renamedAudio = tempDir.resolve("renamed.wav").toFile();
+        File restoreDir = tempDir.resolve("restored").toFile();
+        Assertions.assertEquals(2, sliceCache.restore(key, renamedAudio, restoreDir));
+        Assertions.assertArrayEquals(new byte[]{10}, Files.readAllBytes(restoreDir.toPath().resolve("renamed_0.wav")));
+        Assertions.assertArrayEquals(new byte[]{11}, Files.readAllBytes(restoreDir.toPath().resolve("renamed_1.wav")));
+        Assertions.assertEquals(2, Objects.requireNonNull(restoreDir.list()).length);
+    }
+
+    @Test
+    void evictTest() throws IOException {
+        SliceCache sliceCache = new SliceCache(cacheDir, 150);
+        List<File> slices = List.of(Files.write(outDir.toPath().resolve("voice_0.wav"), new byte[100]).toFile());
+
+        sliceCache.store("old", slices);
+        new File(cacheDir, "old").setLastModified(System.currentTimeMillis() - 60_000);
+        sliceCache.store("new", slices);
+
+        Assertions.assertFalse(new File(cacheDir, "old").exists());
+        Assertions.assertTrue(new File(cacheDir, "new").exists());
+    }
+
+}
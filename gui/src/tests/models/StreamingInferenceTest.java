@@ -0,0 +1,170 @@
+package models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+class StreamingInferenceTest {
+
+    private static final int SAMPLE_RATE = 8000;
+
+    private Path tempDir;
+    private File resultDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("streaming-inference-test");
+        resultDir = tempDir.resolve("results").toFile();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void planSegmentsAtSilencesTest() throws IOException {
+        // silences at [17, 18) s & [40, 41) s
+        File vocal = writeVocal("song.wav", 70, new double[][]{{17, 18}, {40, 41}});
+        WavFile wav = WavFile.read(vocal);
+
+        List<long[]> ranges = StreamingInference.planSegments(wav, vocal, 20, 0.5);
+
+        Assertions.assertEquals(3, ranges.size());
+        Assertions.assertEquals(0, ranges.get(0)[0]);
+        Assertions.assertEquals(wav.getFrameCount(), ranges.get(2)[1]);
+        for (int i = 0; i < 2; i++) {
+            long overlap = ranges.get(i)[1] - ranges.get(i + 1)[0];
+            Assertions.assertEquals(SAMPLE_RATE / 2, overlap, SAMPLE_RATE / 100.0);
+            // cut in the middle of the overlap, inside the silence
+            double cutSeconds = (ranges.get(i)[1] + ranges.get(i + 1)[0]) / 2.0 / SAMPLE_RATE;
+            double silenceStart = (i == 0) ? 17 : 40;
+            Assertions.assertTrue(cutSeconds >= silenceStart && cutSeconds <= silenceStart + 1, "cut " + cutSeconds);
+        }
+    }
+
+    @Test
+    void pipelinedStitchTest() throws IOException, InterruptedException {
+        assertIdentityStitched(true);
+    }
+
+    @Test
+    void sequentialStitchTest() throws IOException, InterruptedException {
+        assertIdentityStitched(false);
+    }
+
+    @Test
+    void failedSegmentTest() {
+        IdentityStages stages = new IdentityStages() {
+            @Override
+            public void upload(File segment) throws IOException {
+                if (segment.getName().endsWith(StreamingInference.SEGMENT_MARK + "0002.wav")) {
+                    throw new IOException("Connection Lost.");
+                }
+            }
+        };
+        Assertions.assertThrows(IOException.class, () -> new StreamingInference(stages, true).inferAll(
+                new File[]{writeVocal("song.wav", 70, new double[0][])}, resultDir, null, null));
+
+        // no partial result left
+        String[] results = resultDir.list();
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(0, results.length);
+    }
+
+    /**
+     * Infer by copying each segment as its result: the stitched result must be the vocal itself.
+     */
+    private void assertIdentityStitched(boolean pipelined) throws IOException, InterruptedException {
+        File longVocal = writeVocal("song.wav", 70, new double[][]{{17, 18}});
+        File shortVocal = writeVocal("short.wav", 5, new double[0][]);
+
+        new StreamingInference(new IdentityStages(), pipelined).inferAll(new File[]{longVocal, shortVocal},
+                resultDir, null, null);
+
+        File result = new File(resultDir, "song_0key_alice.wav");
+        WavFile resultWav = WavFile.read(result);
+        float[] expected = readSamples(longVocal);
+        float[] actual = readSamples(result);
+        Assertions.assertEquals(WavFile.FORMAT_IEEE_FLOAT, resultWav.getFormatTag());
+        Assertions.assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            Assertions.assertEquals(expected[i], actual[i], 1e-4, "sample " + i);
+        }
+
+        // a short vocal is inferred whole, its result as is
+        Assertions.assertArrayEquals(Files.readAllBytes(shortVocal.toPath()),
+                Files.readAllBytes(new File(resultDir, "short_0key_alice.wav").toPath()));
+        String[] results = resultDir.list();
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(2, results.length);
+    }
+
+    /**
+     * Stages "inferring" an uploaded File into a copy named as so-vits-svc does.
+     */
+    private static class IdentityStages implements StreamingInference.Stages {
+        private final Map<String, File> uploaded = new ConcurrentHashMap<>();
+
+        @Override
+        public void upload(File segment) throws IOException {
+            uploaded.put(segment.getName(), segment);
+        }
+
+        @Override
+        public void infer(List<String> names) {
+            names.forEach((name) -> Assertions.assertTrue(uploaded.containsKey(name)));
+        }
+
+        @Override
+        public void download(File resultDir, List<String> names) throws IOException {
+            for (String name : names) {
+                String stem = name.substring(0, name.lastIndexOf('.'));
+                Files.copy(uploaded.get(name).toPath(), new File(resultDir, stem + "_0key_alice.wav").toPath());
+            }
+        }
+    }
+
+    private static float[] readSamples(File file) throws IOException {
+        WavFile wav = WavFile.read(file);
+        ByteBuffer data = ByteBuffer.allocate((int) (wav.getFrameCount() * wav.getBlockAlign()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            channel.read(data, wav.getDataOffset());
+        }
+        data.flip();
+        float[] samples = new float[(int) wav.getFrameCount()];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = wav.decodeSample(data);
+        }
+        return samples;
+    }
+
+    /**
+     * Write a 16-bit mono tone, silent in the given [start, end) second ranges.
+     */
+    private File writeVocal(String name, int seconds, double[][] silences) throws IOException {
+        float[] samples = WavFixtures.tone(SAMPLE_RATE, seconds, 220);
+        for (double[] silence : silences) {
+            WavFixtures.mute(samples, SAMPLE_RATE, silence[0], silence[1]);
+        }
+        return WavFixtures.writeWav(tempDir.resolve(name).toFile(), SAMPLE_RATE, samples);
+    }
+}
@@ -0,0 +1,126 @@
+package models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+class TaskJournalTest {
+
+    private static final String JAVA = ProcessHandle.current().info().command().orElseThrow();
+
+    private Path tempDir;
+    private File journalFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("task-journal-test");
+        journalFile = tempDir.resolve("tasks.journal").toFile();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ExecutionAgent.getExecutionAgent().closeTaskJournal();
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void unfinishedTasksReplayTest() throws IOException {
+        long finishedId;
+        long cancelledId;
+        long unfinishedId;
+        long dependentId;
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            Assertions.assertEquals(0, journal.getUnfinishedCount());
+            finishedId = journal.recordScheduled(new ExecutionTask(List.of("a"), null, null), List.of());
+            cancelledId = journal.recordScheduled(new ExecutionTask(List.of("b"), null, null), List.of());
+            unfinishedId = journal.recordScheduled(new ExecutionTask(List.of("c", "1"), tempDir.toFile(),
+                    Map.of("KEY", "value"), null, null), List.of(finishedId));
+            dependentId = journal.recordScheduled(new ExecutionTask("slice", () -> 0, null), List.of(unfinishedId));
+            journal.recordFinished(finishedId, 0);
+            journal.recordCancelled(cancelledId);
+        }
+        // torn by a crash
+        Files.writeString(journalFile.toPath(), "{\"op\":\"finished\",\"id\":" + unfinishedId,
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            Assertions.assertEquals(2, journal.getUnfinishedCount());
+            List<TaskJournal.Entry> unfinished = journal.takeUnfinished();
+            Assertions.assertEquals(0, journal.getUnfinishedCount());
+
+            TaskJournal.Entry entry = unfinished.get(0);
+            Assertions.assertEquals(unfinishedId, entry.getId());
+            Assertions.assertFalse(entry.isInProcess());
+            Assertions.assertEquals(List.of("c", "1"), entry.getCommand());
+            Assertions.assertEquals(tempDir.toFile(), entry.getWorkDirectory());
+            Assertions.assertEquals(Map.of("KEY", "value"), entry.getEnvironment());
+            Assertions.assertEquals(List.of(finishedId), entry.getDependencies());
+
+            TaskJournal.Entry inProcessEntry = unfinished.get(1);
+            Assertions.assertEquals(dependentId, inProcessEntry.getId());
+            Assertions.assertTrue(inProcessEntry.isInProcess());
+            Assertions.assertEquals("slice", inProcessEntry.toString());
+
+            // compacted, IDs keep growing
+            Assertions.assertEquals(2, Files.readAllLines(journalFile.toPath()).size());
+            Assertions.assertTrue(journal.recordScheduled(new ExecutionTask(List.of("d"), null, null), List.of())
+                    > dependentId);
+        }
+    }
+
+    @Test
+    void resumeJournaledTasksTest() throws IOException, InterruptedException {
+        ExecutionAgent executionAgent = ExecutionAgent.getExecutionAgent();
+        List<String> command = List.of(JAVA, "-version");
+
+        // a previous run: the first task finished, the client exited before the others
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            long firstId = journal.recordScheduled(new ExecutionTask(command, null, null), List.of());
+            long secondId = journal.recordScheduled(new ExecutionTask(command, tempDir.toFile(), null), List.of());
+            journal.recordScheduled(new ExecutionTask("resample", () -> 0, null), List.of());
+            journal.recordScheduled(new ExecutionTask(command, null, null), List.of(secondId));
+            journal.recordFinished(firstId, 0);
+        }
+
+        executionAgent.setTaskJournal(new TaskJournal(journalFile));
+        CountDownLatch done = new CountDownLatch(2);
+        List<ExecutionTask> resumed = executionAgent.resumeJournaledTasks((resumedCommand) -> (process) -> {
+            Assertions.assertEquals(command, resumedCommand);
+            done.countDown();
+        });
+        // the in-process task is skipped
+        Assertions.assertEquals(2, resumed.size());
+        Assertions.assertEquals(tempDir.toFile(), resumed.get(0).getWorkDirectory());
+
+        executionAgent.invokeExecution();
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        // recorded as finished right after its afterExecution
+        for (int i = 0; i < 100 && !resumed.get(1).isDone(); i++) {
+            Thread.sleep(50);
+        }
+        Assertions.assertTrue(resumed.get(0).isDone());
+        Assertions.assertTrue(resumed.get(1).isDone());
+        executionAgent.closeTaskJournal();
+
+        // nothing left to resume
+        try (TaskJournal journal = new TaskJournal(journalFile)) {
+            Assertions.assertEquals(0, journal.getUnfinishedCount());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package models;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TrainingThroughputTest {
+    private static final long SECOND = 1_000_000_000L; // ns
+
+    @BeforeEach
+    void setUp() {
+        MetricsRegistry.getMetricsRegistry().reset();
+    }
+
+    private static String stepLog(long step) {
+        return "INFO:44k:Losses: [2.41, 2.13, 9.87, 21.3, 1.62], step: " + step + ", lr: 9.99e-05, " +
+                "reference_loss: 37.33";
+    }
+
+    @Test
+    void observeTest() {
+        TrainingThroughput throughput = new TrainingThroughput(6, 4);
+
+        // first step log: nothing to compare with, other lines ignored
+        Assertions.assertFalse(throughput.observe(stepLog(200), 0));
+        Assertions.assertFalse(throughput.observe("INFO:44k:Train Epoch: 3 [42%]", SECOND));
+        Assertions.assertTrue(Double.isNaN(throughput.getSamplesPerSecondPerGpu()));
+
+        // 200 steps in 40 s -> 5 step/s, 6 samples each on every GPU
+        Assertions.assertTrue(throughput.observe(stepLog(400), 40 * SECOND));
+        Assertions.assertEquals(30, throughput.getSamplesPerSecondPerGpu(), 1e-9);
+
+        // step counter restarted (e.g. training restarted from scratch): no measurement
+        Assertions.assertFalse(throughput.observe(stepLog(0), 50 * SECOND));
+
+        JSONObject histogram = MetricsRegistry.getMetricsRegistry().toJSON().getJSONObject("histograms")
+                .getJSONObject(MetricsRegistry.TRAIN_SAMPLES_PER_GPU).getJSONObject("x4");
+        Assertions.assertEquals(1, histogram.getLong("count"));
+    }
+
+    @Test
+    void outputPipelineObserverTest() {
+        OutputPipeline outputPipeline = OutputPipeline.getOutputPipeline();
+        TrainingThroughput throughput = new TrainingThroughput(4, 1);
+        outputPipeline.addObserver(throughput);
+        try {
+            outputPipeline.println(stepLog(100));
+            outputPipeline.println(stepLog(150));
+        } finally {
+            outputPipeline.removeObserver(throughput);
+        }
+        Assertions.assertTrue(throughput.getSamplesPerSecondPerGpu() > 0);
+
+        outputPipeline.println(stepLog(0)); // removed: not observed
+        Assertions.assertTrue(throughput.getSamplesPerSecondPerGpu() > 0);
+    }
+}
@@ -0,0 +1,109 @@
+package models;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+class TransferCodecTest {
+
+    @Test
+    void roundTripTest() throws IOException {
+        // half random, half silence
+        byte[] content = new byte[5 * 1024 * 1024 + 3];
+        new Random(0).nextBytes(content);
+        Arrays.fill(content, content.length / 2, content.length, (byte) 0);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        TransferCodec.Compressor compressor = TransferCodec.compressing(compressed);
+        try (compressor) {
+            for (int off = 0; off < content.length; off += 10_000) {
+                compressor.write(content, off, Math.min(10_000, content.length - off));
+            }
+        }
+        Assertions.assertTrue(compressed.size() < content.length * 0.6);
+        Assertions.assertEquals(compressed.size() * 100.0 / content.length, compressor.getCompressedPercentage(),
+                1e-9);
+
+        try (TransferCodec.Decompressor decompressor =
+                     TransferCodec.decompressing(new ByteArrayInputStream(compressed.toByteArray()))) {
+            Assertions.assertArrayEquals(content, decompressor.readAllBytes());
+            Assertions.assertTrue(decompressor.getCompressedPercentage() < 60);
+        }
+    }
+
+    @Test
+    void worthCompressingTest() throws IOException {
+        File file = File.createTempFile("transfer-codec-test", ".wav");
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            byte[] content = new byte[1024 * 1024];
+            new Random(2).nextBytes(content);
+            Files.write(file.toPath(), content);
+            Assertions.assertFalse(TransferCodec.isWorthCompressing(fileChannel));
+
+            // silent past its first quarter: 3 of the 4 sampled blocks deflate
+            Arrays.fill(content, content.length / 4, content.length, (byte) 0);
+            Files.write(file.toPath(), content);
+            Assertions.assertTrue(TransferCodec.isWorthCompressing(fileChannel));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void failureTest() {
+        // a broken destination fails the writer
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("broken pipe");
+            }
+        };
+        Assertions.assertThrows(IOException.class, () -> {
+            try (OutputStream out = TransferCodec.compressing(broken)) {
+                byte[] block = new byte[64 * 1024];
+                for (int i = 0; i < 1024; i++) {
+                    new Random(i).nextBytes(block);
+                    out.write(block);
+                }
+            }
+        });
+
+        // truncated compressed content fails the reader
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Assertions.assertDoesNotThrow(() -> {
+            try (OutputStream out = TransferCodec.compressing(compressed)) {
+                byte[] block = new byte[256 * 1024];
+                new Random(1).nextBytes(block);
+                out.write(block);
+            }
+        });
+        byte[] truncated = Arrays.copyOf(compressed.toByteArray(), compressed.size() / 2);
+        Assertions.assertThrows(EOFException.class, () -> {
+            try (InputStream in = TransferCodec.decompressing(new ByteArrayInputStream(truncated))) {
+                in.readAllBytes();
+            }
+        });
+
+        // a failed source fails every read after, never a clean end
+        InputStream resetSource = new SequenceInputStream(new ByteArrayInputStream(truncated), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+        Assertions.assertDoesNotThrow(() -> {
+            try (InputStream in = TransferCodec.decompressing(resetSource)) {
+                for (int i = 0; i < 2; i++) {
+                    IOException ex = Assertions.assertThrows(IOException.class, in::readAllBytes);
+                    Assertions.assertEquals("connection reset", ex.getMessage());
+                }
+            }
+        });
+    }
+}
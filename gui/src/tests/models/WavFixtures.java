@@ -0,0 +1,99 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Wave File fixtures shared by the audio tests: synthetic samples (in [-1, 1]) & writing them in any WavFile format.
+ */
+final class WavFixtures {
+
+    private WavFixtures() {
+    }
+
+    /**
+     * @return a sine tone of amplitude 0.5.
+     */
+    static float[] tone(int sampleRate, double seconds, double frequency) {
+        float[] samples = new float[(int) (seconds * sampleRate)];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+        }
+        return samples;
+    }
+
+    static float[] silence(int sampleRate, double seconds) {
+        return new float[(int) (seconds * sampleRate)];
+    }
+
+    /**
+     * Silence the [fromSeconds, toSeconds) range of samples, in place.
+     * @return samples.
+     */
+    static float[] mute(float[] samples, int sampleRate, double fromSeconds, double toSeconds) {
+        int from = (int) Math.ceil(fromSeconds * sampleRate);
+        int to = Math.min(samples.length, (int) Math.ceil(toSeconds * sampleRate));
+        for (int i = from; i < to; i++) {
+            samples[i] = 0;
+        }
+        return samples;
+    }
+
+    static float[] concat(float[]... parts) {
+        int length = 0;
+        for (float[] part : parts) {
+            length += part.length;
+        }
+        float[] samples = new float[length];
+        int position = 0;
+        for (float[] part : parts) {
+            System.arraycopy(part, 0, samples, position, part.length);
+            position += part.length;
+        }
+        return samples;
+    }
+
+    /**
+     * Write samples as a 16-bit mono PCM Wave File.
+     * @return file.
+     */
+    static File writeWav(File file, int sampleRate, float[] samples) throws IOException {
+        return writeWav(file, WavFile.FORMAT_PCM, 16, 1, sampleRate, samples);
+    }
+
+    /**
+     * Write samples as a Wave File, the same in every channel.
+     * @param formatTag FORMAT_PCM (16 or 24 bits) or FORMAT_IEEE_FLOAT (32 bits).
+     * @return file.
+     */
+    static File writeWav(File file, int formatTag, int bitsPerSample, int channels, int sampleRate, float[] samples)
+            throws IOException {
+        WavFile wav = new WavFile(formatTag, channels, sampleRate, bitsPerSample, 44, samples.length);
+        ByteBuffer data = ByteBuffer.allocate(samples.length * wav.getBlockAlign()).order(ByteOrder.LITTLE_ENDIAN);
+        for (float sample : samples) {
+            for (int c = 0; c < channels; c++) {
+                if (formatTag == WavFile.FORMAT_IEEE_FLOAT) {
+                    data.putFloat(sample);
+                } else if (bitsPerSample == 24) {
+                    int value = Math.round(sample * 8388607);
+                    data.put((byte) value).put((byte) (value >> 8)).put((byte) (value >> 16));
+                } else {
+                    data.putShort((short) Math.round(sample * 32767));
+                }
+            }
+        }
+        data.flip();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            wav.writeHeader(channel, samples.length);
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        return file;
+    }
+}
@@ -142,6 +142,9 @@ if __name__ == "__main__":
     parser.add_argument(
         '--num_processes', type=int, default=1, help='You are advised to set the number of processes to the same as the number of CPU cores'
     )
+    parser.add_argument(
+        '--files', type=str, default=None, help='path to a text file listing the wav files to process (one per line), instead of all wav files in in_dir'
+    )
     args = parser.parse_args()
     f0p = args.f0_predictor
     device = args.device
@@ -161,7 +164,11 @@ if __name__ == "__main__":
         print("Loaded Mel Extractor.")
     else:
         mel_extractor = None
-    filenames = glob(f"{args.in_dir}/*/*.wav", recursive=True)  # [:10]
+    if args.files is not None:
+        with open(args.files, "r", encoding="utf-8") as f:
+            filenames = [line.strip() for line in f if line.strip()]
+    else:
+        filenames = glob(f"{args.in_dir}/*/*.wav", recursive=True)  # [:10]
     shuffle(filenames)
     mp.set_start_method("spawn", force=True)
 
@@ -0,0 +1,101 @@
+"""
+Persistent worker for the so-vits-svc GUI client.
+
+Keeps one interpreter (torch & CUDA already initialized) alive and runs scripts in it on request,
+so consecutive jobs skip interpreter startup & imports, and repeated inference reuses the loaded model.
+
+Protocol, one JSON object per line:
+    stdin  <- {"id": <int>, "script": <path>, "args": [<str>, ...], "cwd": <dir>}
+    stdout -> output of the job, then JOB_END_MARK + {"id": <int>, "exit": <int>}
+The worker exits when stdin is closed.
+"""
+import gc
+import json
+import os
+import runpy
+import sys
+import traceback
+
+JOB_END_MARK = "\x1eSVC_WORKER_JOB_END "
+
+_svc_cache = {}
+
+
+def release_cuda_memory():
+    gc.collect()
+    try:
+        import torch
+        if torch.cuda.is_available():
+            torch.cuda.empty_cache()
+    except ImportError:
+        pass
+
+
+def install_model_cache():
+    """Replace infer_tool.Svc with a factory that keeps the last loaded model alive between jobs."""
+    from inference import infer_tool
+    if getattr(infer_tool.Svc, "cached_factory", False):
+        return
+    svc_class = infer_tool.Svc
+
+    def cached_svc(*args, **kwargs):
+        model_path = args[0] if args else kwargs.get("net_g_path", "")
+        model_mtime = os.path.getmtime(model_path) if os.path.exists(model_path) else None
+        key = (repr(args), repr(sorted(kwargs.items())), model_mtime)
+        svc = _svc_cache.get(key)
+        if svc is None:
+            # keep at most 1 model in (GPU) memory
+            _svc_cache.clear()
+            release_cuda_memory()
+            svc = svc_class(*args, **kwargs)
+            _svc_cache[key] = svc
+        else:
+            print(f"Reusing loaded model: {model_path}")
+        return svc
+
+    cached_svc.cached_factory = True
+    infer_tool.Svc = cached_svc
+
+
+def run_job(job):
+    script = job["script"]
+    saved_argv, saved_cwd = sys.argv, os.getcwd()
+    exit_code = 0
+    try:
+        os.chdir(job.get("cwd") or saved_cwd)
+        sys.argv = [script] + [str(arg) for arg in job.get("args", [])]
+        if os.path.basename(script) == "inference_main.py":
+            install_model_cache()
+        runpy.run_path(script, run_name="__main__")
+    except SystemExit as e:
+        if e.code is None:
+            exit_code = 0
+        elif isinstance(e.code, int):
+            exit_code = e.code
+        else:
+            print(e.code, file=sys.stderr)
+            exit_code = 1
+    except Exception:
+        traceback.print_exc()
+        exit_code = 1
+    finally:
+        sys.argv = saved_argv
+        os.chdir(saved_cwd)
+    return exit_code
+
+
+def main():
+    sys.stdout.reconfigure(encoding="utf-8", line_buffering=True)
+    sys.stderr.reconfigure(encoding="utf-8", line_buffering=True)
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        job = json.loads(line)
+        exit_code = run_job(job)
+        sys.stderr.flush()
+        print(JOB_END_MARK + json.dumps({"id": job["id"], "exit": exit_code}), flush=True)
+
+
+if __name__ == "__main__":
+    main()